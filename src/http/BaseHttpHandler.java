@@ -3,22 +3,36 @@ package http;
 import com.google.gson.*;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
+import manager.Page;
 import manager.TaskManager;
+import manager.TaskQuery;
+import tasks.TaskStatus;
+import tasks.TaskType;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
 
 public abstract class BaseHttpHandler implements HttpHandler {
+    protected static final int DEFAULT_PAGE_SIZE = 100;
+    protected static final int MAX_PAGE_SIZE = 1000;
+
     protected final TaskManager manager;
 
     protected BaseHttpHandler(TaskManager manager) {
         this.manager = manager;
     }
 
-    protected final Gson gson = new GsonBuilder()
+    // Gson потокобезопасен, поэтому один на все обработчики: их создают и на каждый запрос к доске
+    protected static final Gson gson = new GsonBuilder()
             .registerTypeAdapter(LocalDateTime.class,
                     (JsonDeserializer<LocalDateTime>) (json, type, ctx)
                             -> LocalDateTime.parse(json.getAsString()))
@@ -35,7 +49,7 @@ public abstract class BaseHttpHandler implements HttpHandler {
 
     protected void sendText(HttpExchange h, String text) throws IOException {
         byte[] resp = text.getBytes(StandardCharsets.UTF_8);
-        h.getResponseHeaders().set("Content-Type", "application/json;charset=utf-8");
+        setHeaders(h);
         h.sendResponseHeaders(200, resp.length);
         h.getResponseBody().write(resp);
         h.getResponseBody().close();
@@ -43,12 +57,18 @@ public abstract class BaseHttpHandler implements HttpHandler {
     }
 
     protected void sendCreated(HttpExchange h) throws IOException {
-        h.getResponseHeaders().set("Content-Type", "application/json;charset=utf-8");
+        manager.whenDurable().join();
+        setHeaders(h);
         h.sendResponseHeaders(201, 0);
         h.getResponseBody().close();
         h.close();
     }
 
+    protected void sendDeleted(HttpExchange h) throws IOException {
+        manager.whenDurable().join();
+        sendText(h, "{\"result\":\"deleted\"}");
+    }
+
     protected void sendNotFound(HttpExchange h, String message) throws IOException {
         sendError(h, 404, message == null ? "Not Found" : message);
     }
@@ -71,13 +91,108 @@ public abstract class BaseHttpHandler implements HttpHandler {
         String body = "{\"error\":\"" + safe + "\"}";
         byte[] resp = body.getBytes(StandardCharsets.UTF_8);
 
-        h.getResponseHeaders().set("Content-Type", "application/json;charset=utf-8");
+        setHeaders(h);
         h.sendResponseHeaders(code, resp.length);
         h.getResponseBody().write(resp);
         h.getResponseBody().close();
         h.close();
     }
 
+    // Версия данных, которые видел этот запрос: по ней клиент сверяет ответы между собой;
+    // у обработчика без своего менеджера (BoardsHandler) версии нет
+    private void setHeaders(HttpExchange h) {
+        h.getResponseHeaders().set("Content-Type", "application/json;charset=utf-8");
+        if (manager != null) h.getResponseHeaders().set("X-Snapshot-Version", String.valueOf(manager.version()));
+    }
+
+    protected Map<String, String> queryParams(HttpExchange h) {
+        Map<String, String> params = new HashMap<>();
+        String query = h.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) return params;
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    // Без limit и cursor отдаётся весь список, как раньше; иначе страница {"items":[...],"nextCursor":...}
+    protected void sendList(HttpExchange h, Supplier<?> all, PageQuery query) throws IOException {
+        Map<String, String> params = queryParams(h);
+        String limitParam = params.get("limit");
+        String cursor = params.get("cursor");
+        if (limitParam == null && cursor == null) {
+            sendText(h, gson.toJson(all.get()));
+            return;
+        }
+        Page<?> page;
+        try {
+            int limit = limitParam == null ? DEFAULT_PAGE_SIZE : Integer.parseInt(limitParam);
+            if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+                sendBadRequest(h, "limit must be between 1 and " + MAX_PAGE_SIZE);
+                return;
+            }
+            page = query.load(cursor == null || cursor.isEmpty() ? null : cursor, limit);
+        } catch (IllegalArgumentException e) {
+            sendBadRequest(h, e.getMessage());
+            return;
+        }
+        sendText(h, gson.toJson(page));
+    }
+
+    // С фильтрами ?status=NEW,DONE&from=...&to=...&epic=... отдаётся выборка по индексам
+    protected void sendList(HttpExchange h, TaskType type, Supplier<?> all, PageQuery query) throws IOException {
+        TaskQuery filter;
+        try {
+            filter = taskQuery(queryParams(h), type);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            sendBadRequest(h, e.getMessage());
+            return;
+        }
+        if (filter == null) {
+            sendList(h, all, query);
+        } else {
+            sendText(h, gson.toJson(manager.findTasks(filter)));
+        }
+    }
+
+    private static TaskQuery taskQuery(Map<String, String> params, TaskType type) {
+        String status = params.get("status");
+        String from = params.get("from");
+        String to = params.get("to");
+        String epic = params.get("epic");
+        if (status == null && from == null && to == null && epic == null) return null;
+        if (params.containsKey("limit") || params.containsKey("cursor")) {
+            throw new IllegalArgumentException("Filters cannot be combined with paging");
+        }
+
+        TaskQuery query;
+        if (status == null) {
+            query = TaskQuery.all();
+        } else {
+            EnumSet<TaskStatus> statuses = EnumSet.noneOf(TaskStatus.class);
+            for (String name : status.split(",")) {
+                statuses.add(TaskStatus.valueOf(name.trim().toUpperCase()));
+            }
+            TaskStatus[] rest = statuses.toArray(new TaskStatus[0]);
+            query = TaskQuery.status(rest[0], rest);
+        }
+        query.type(type);
+        if (from != null || to != null) {
+            query.startBetween(from == null ? null : LocalDateTime.parse(from),
+                    to == null ? null : LocalDateTime.parse(to));
+        }
+        if (epic != null) query.epic(Integer.parseInt(epic));
+        return query;
+    }
+
+    protected interface PageQuery {
+        Page<?> load(String cursor, int limit);
+    }
+
     protected String readBody(HttpExchange h) throws IOException {
         try (InputStream is = h.getRequestBody()) {
             return new String(is.readAllBytes(), StandardCharsets.UTF_8);
@@ -0,0 +1,88 @@
+package http;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import exception.IntersectionException;
+import exception.NotFoundException;
+import manager.Mutation;
+import manager.TaskManager;
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskType;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// POST /batch — изменения применяются все или ни одного, в ответе id по каждому изменению.
+// Тело: [{"op":"CREATE","type":"TASK","task":{...}}, {"op":"DELETE","type":"EPIC","id":7}, ...]
+public class BatchHandler extends BaseHttpHandler {
+
+    public BatchHandler(TaskManager manager) {
+        super(manager);
+    }
+
+    @Override
+    public void handle(HttpExchange h) throws IOException {
+        if (!"POST".equals(h.getRequestMethod())) {
+            sendNotFound(h, "Unknown method");
+            return;
+        }
+        if (!"/batch".equals(h.getRequestURI().getPath())) {
+            sendNotFound(h, "Unknown path");
+            return;
+        }
+        try {
+            String body = readBody(h);
+            if (body == null || body.isBlank()) {
+                sendBadRequest(h, "Request body is empty");
+                return;
+            }
+            List<Mutation> batch = parse(JsonParser.parseString(body));
+            List<Integer> ids = manager.applyBatch(batch);
+            manager.whenDurable().join();
+            sendText(h, gson.toJson(ids));
+        } catch (NotFoundException e) {
+            sendNotFound(h, e.getMessage());
+        } catch (IntersectionException e) {
+            sendHasInteractions(h, e.getMessage());
+        } catch (IllegalArgumentException | IllegalStateException | JsonParseException e) {
+            sendBadRequest(h, e.getMessage());
+        } catch (Exception e) {
+            sendInternalError(h, e.getMessage());
+        }
+    }
+
+    private List<Mutation> parse(JsonElement json) {
+        if (!json.isJsonArray()) throw new IllegalArgumentException("Batch must be a JSON array");
+        JsonArray items = json.getAsJsonArray();
+        List<Mutation> batch = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            if (!items.get(i).isJsonObject()) throw new IllegalArgumentException("Mutation " + i + " is not an object");
+            JsonObject item = items.get(i).getAsJsonObject();
+            if (!item.has("op") || !item.has("type")) {
+                throw new IllegalArgumentException("Mutation " + i + ": op and type are required");
+            }
+            Mutation.Kind kind = Mutation.Kind.valueOf(item.get("op").getAsString());
+            TaskType type = TaskType.valueOf(item.get("type").getAsString());
+            if (kind == Mutation.Kind.DELETE) {
+                if (!item.has("id")) throw new IllegalArgumentException("Mutation " + i + ": id is required");
+                batch.add(Mutation.delete(type, item.get("id").getAsInt()));
+                continue;
+            }
+            if (!item.has("task")) throw new IllegalArgumentException("Mutation " + i + ": task is required");
+            Task task = gson.fromJson(item.get("task"), switch (type) {
+                case TASK -> Task.class;
+                case SUBTASK -> Subtask.class;
+                case EPIC -> Epic.class;
+            });
+            batch.add(kind == Mutation.Kind.CREATE ? Mutation.create(task) : Mutation.update(task));
+        }
+        return batch;
+    }
+}
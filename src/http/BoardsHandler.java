@@ -0,0 +1,68 @@
+package http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import manager.BoardRegistry;
+import manager.TaskManager;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+import java.util.function.Function;
+
+// /boards/{id}/tasks, /boards/{id}/epics и т. д. — те же пути, что и у сервера, но для отдельной доски.
+// Менеджер доски берётся из BoardRegistry на время запроса, обработчик для него создаётся заново
+public class BoardsHandler extends BaseHttpHandler {
+    private static final String BASE = "/boards/";
+    private static final Map<String, Function<TaskManager, HttpHandler>> ROUTES = Map.of(
+            "tasks", TasksHandler::new,
+            "subtasks", SubtasksHandler::new,
+            "epics", EpicsHandler::new,
+            "history", HistoryHandler::new,
+            "prioritized", PrioritizedHandler::new,
+            "search", SearchHandler::new,
+            "batch", BatchHandler::new);
+
+    private final BoardRegistry boards;
+
+    public BoardsHandler(BoardRegistry boards) {
+        super(null);
+        this.boards = boards;
+    }
+
+    @Override
+    public void handle(HttpExchange h) throws IOException {
+        String path = h.getRequestURI().getRawPath();
+        int idEnd = path.startsWith(BASE) ? path.indexOf('/', BASE.length()) : -1;
+        if (idEnd < 0) {
+            sendNotFound(h, "Unknown path");
+            return;
+        }
+        String boardId = path.substring(BASE.length(), idEnd);
+        String rest = path.substring(idEnd);
+        int routeEnd = rest.indexOf('/', 1);
+        Function<TaskManager, HttpHandler> route = ROUTES.get(routeEnd < 0 ? rest.substring(1)
+                : rest.substring(1, routeEnd));
+        if (route == null) {
+            sendNotFound(h, "Unknown path");
+            return;
+        }
+        TaskManager manager;
+        try {
+            manager = boards.acquire(boardId);
+        } catch (IllegalArgumentException e) {
+            sendBadRequest(h, e.getMessage());
+            return;
+        } catch (Exception e) {
+            sendInternalError(h, e.getMessage());
+            return;
+        }
+        try {
+            String query = h.getRequestURI().getRawQuery();
+            URI uri = URI.create(query == null ? rest : rest + "?" + query);
+            route.apply(manager).handle(new BoardExchange(h, uri));
+        } finally {
+            boards.release(boardId);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.sun.net.httpserver.HttpExchange;
 import exception.NotFoundException;
 import manager.TaskManager;
 import tasks.Epic;
+import tasks.TaskType;
 
 import java.io.IOException;
 
@@ -26,7 +27,7 @@ public class EpicsHandler extends BaseHttpHandler {
             switch (method) {
                 case "GET" -> {
                     if (rest.isEmpty()) {
-                        sendText(h, gson.toJson(manager.getEpics()));
+                        sendList(h, TaskType.EPIC, manager::getEpics, manager::getEpics);
                         return;
                     }
                     int slash = rest.indexOf('/');
@@ -88,7 +89,7 @@ public class EpicsHandler extends BaseHttpHandler {
                     try {
                         int id = Integer.parseInt(rest);
                         manager.deleteEpicById(id);
-                        sendText(h, "{\"result\":\"deleted\"}");
+                        sendDeleted(h);
 
                     } catch (NumberFormatException ex) {
                         sendNotFound(h, "Invalid epic id");
@@ -18,7 +18,7 @@ public class HistoryHandler extends BaseHttpHandler {
             return;
         }
         try {
-            sendText(h, gson.toJson(manager.getHistory()));
+            sendList(h, manager::getHistory, manager::getHistory);
         } catch (Exception e) {
             sendInternalError(h, e.getMessage());
         }
@@ -1,23 +1,50 @@
 package http;
 
 import com.sun.net.httpserver.HttpServer;
+import manager.BoardRegistry;
 import manager.Managers;
 import manager.TaskManager;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class HttpTaskServer {
     private final HttpServer server;
+    private final ExecutorService executor;
 
+    // Запросы к потокобезопасному менеджеру (isThreadSafe, например ConcurrentTaskManager
+    // из Managers.getDefault()) обрабатываются пулом потоков, к любому другому — по одному
     public HttpTaskServer(TaskManager manager) throws IOException {
+        this(manager, Math.max(2, Runtime.getRuntime().availableProcessors()));
+    }
+
+    public HttpTaskServer(TaskManager manager, int threads) throws IOException {
+        this(manager, null, threads);
+    }
+
+    // С реестром досок сервер отвечает ещё и на /boards/{id}/..., у каждой доски свой менеджер
+    public HttpTaskServer(TaskManager manager, BoardRegistry boards) throws IOException {
+        this(manager, boards, Math.max(2, Runtime.getRuntime().availableProcessors()));
+    }
+
+    public HttpTaskServer(TaskManager manager, BoardRegistry boards, int threads) throws IOException {
         this.server = HttpServer.create(new InetSocketAddress(8080), 0);
+        this.executor = manager.isThreadSafe() ? Executors.newFixedThreadPool(threads)
+                : Executors.newSingleThreadExecutor();
+        server.setExecutor(executor);
 
         server.createContext("/tasks", new TasksHandler(manager));
         server.createContext("/subtasks", new SubtasksHandler(manager));
         server.createContext("/epics", new EpicsHandler(manager));
         server.createContext("/history", new HistoryHandler(manager));
         server.createContext("/prioritized", new PrioritizedHandler(manager));
+        server.createContext("/search", new SearchHandler(manager));
+        server.createContext("/batch", new BatchHandler(manager));
+        if (boards != null) {
+            server.createContext("/boards", new BoardsHandler(boards));
+        }
     }
 
     public void start() {
@@ -27,12 +54,13 @@ public class HttpTaskServer {
 
     public void stop() {
         server.stop(0);
+        executor.shutdown();
         System.out.println("HTTP server stopped");
     }
 
     public static void main(String[] args) throws IOException {
         TaskManager manager = Managers.getDefault();
-        HttpTaskServer taskServer = new HttpTaskServer(manager);
+        HttpTaskServer taskServer = new HttpTaskServer(manager, Managers.getBoards());
         taskServer.start();
     }
 }
@@ -2,10 +2,18 @@ package http;
 
 import com.sun.net.httpserver.HttpExchange;
 import manager.TaskManager;
+import tasks.TimeSlot;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
 
 public class PrioritizedHandler extends BaseHttpHandler {
+    private static final String BASE = "/prioritized";
+    private static final String FREE_SLOTS = BASE + "/free-slots";
+    private static final String NEXT_FREE_SLOT = FREE_SLOTS + "/next";
 
     public PrioritizedHandler(TaskManager manager) {
         super(manager);
@@ -17,11 +25,51 @@ public class PrioritizedHandler extends BaseHttpHandler {
             sendNotFound(h, "Unknown method");
             return;
         }
+        String path = h.getRequestURI().getPath();
         try {
-            sendText(h, gson.toJson(manager.getPrioritizedTasks()));
+            switch (path) {
+                // /prioritized?from=...&to=...&limit=... — задачи с началом в [from, to), границы необязательны
+                case BASE -> {
+                    Map<String, String> params = queryParams(h);
+                    LocalDateTime from = optionalTime(params, "from");
+                    LocalDateTime to = optionalTime(params, "to");
+                    sendList(h, () -> manager.getPrioritizedBetween(from, to),
+                            (cursor, limit) -> manager.getPrioritizedBetween(from, to, cursor, limit));
+                }
+                // /prioritized/free-slots?from=...&to=...&duration=PT30M
+                case FREE_SLOTS -> {
+                    Map<String, String> params = queryParams(h);
+                    LocalDateTime from = LocalDateTime.parse(required(params, "from"));
+                    LocalDateTime to = LocalDateTime.parse(required(params, "to"));
+                    Duration duration = Duration.parse(params.getOrDefault("duration", "PT0S"));
+                    sendText(h, gson.toJson(manager.freeSlots(from, to, duration)));
+                }
+                // /prioritized/free-slots/next?duration=PT30M&notBefore=...
+                case NEXT_FREE_SLOT -> {
+                    Map<String, String> params = queryParams(h);
+                    Duration duration = Duration.parse(required(params, "duration"));
+                    String notBefore = params.get("notBefore");
+                    LocalDateTime start = manager.findNextFreeSlot(duration,
+                            notBefore == null ? LocalDateTime.now() : LocalDateTime.parse(notBefore));
+                    sendText(h, gson.toJson(new TimeSlot(start, start.plus(duration))));
+                }
+                default -> sendNotFound(h, "Unknown path");
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            sendBadRequest(h, e.getMessage());
         } catch (Exception e) {
             sendInternalError(h, e.getMessage());
         }
     }
-}
 
+    private static LocalDateTime optionalTime(Map<String, String> params, String name) {
+        String value = params.get(name);
+        return value == null || value.isEmpty() ? null : LocalDateTime.parse(value);
+    }
+
+    private static String required(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isEmpty()) throw new IllegalArgumentException("Missing parameter " + name);
+        return value;
+    }
+}
@@ -0,0 +1,47 @@
+package http;
+
+import com.sun.net.httpserver.HttpExchange;
+import manager.TaskManager;
+
+import java.io.IOException;
+import java.util.Map;
+
+// /search?q=слова&limit=20 — задачи всех типов, лучшие совпадения первыми
+public class SearchHandler extends BaseHttpHandler {
+    private static final int DEFAULT_LIMIT = 20;
+
+    public SearchHandler(TaskManager manager) {
+        super(manager);
+    }
+
+    @Override
+    public void handle(HttpExchange h) throws IOException {
+        if (!"GET".equals(h.getRequestMethod())) {
+            sendNotFound(h, "Unknown method");
+            return;
+        }
+        if (!"/search".equals(h.getRequestURI().getPath())) {
+            sendNotFound(h, "Unknown path");
+            return;
+        }
+        try {
+            Map<String, String> params = queryParams(h);
+            String query = params.get("q");
+            if (query == null || query.isBlank()) {
+                sendBadRequest(h, "Missing parameter q");
+                return;
+            }
+            String limitParam = params.get("limit");
+            int limit = limitParam == null ? DEFAULT_LIMIT : Integer.parseInt(limitParam);
+            if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+                sendBadRequest(h, "limit must be between 1 and " + MAX_PAGE_SIZE);
+                return;
+            }
+            sendText(h, gson.toJson(manager.search(query, limit)));
+        } catch (IllegalArgumentException e) {
+            sendBadRequest(h, e.getMessage());
+        } catch (Exception e) {
+            sendInternalError(h, e.getMessage());
+        }
+    }
+}
@@ -5,6 +5,7 @@ import exception.IntersectionException;
 import exception.NotFoundException;
 import manager.TaskManager;
 import tasks.Subtask;
+import tasks.TaskType;
 
 import java.io.IOException;
 
@@ -23,7 +24,7 @@ public class SubtasksHandler extends BaseHttpHandler {
         try {
             if (BASE.equals(path)) {
                 switch (method) {
-                    case "GET" -> sendText(h, gson.toJson(manager.getSubtasks()));
+                    case "GET" -> sendList(h, TaskType.SUBTASK, manager::getSubtasks, manager::getSubtasks);
                     case "POST" -> {
                         String bodyStr = readBody(h);
                         if (bodyStr == null || bodyStr.isBlank()) {
@@ -58,7 +59,7 @@ public class SubtasksHandler extends BaseHttpHandler {
                     case "GET" -> sendText(h, gson.toJson(manager.getSubtaskById(id)));
                     case "DELETE" -> {
                         manager.deleteSubtaskById(id);
-                        sendText(h, "{\"result\":\"deleted\"}");
+                        sendDeleted(h);
                     }
                     default -> sendInternalError(h, "Method not supported");
                 }
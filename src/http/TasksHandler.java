@@ -5,9 +5,9 @@ import exception.IntersectionException;
 import exception.NotFoundException;
 import manager.TaskManager;
 import tasks.Task;
+import tasks.TaskType;
 
 import java.io.IOException;
-import java.util.List;
 
 public class TasksHandler extends BaseHttpHandler {
     private static final String BASE = "/tasks";
@@ -25,10 +25,7 @@ public class TasksHandler extends BaseHttpHandler {
         try {
             if (BASE.equals(path)) {
                 switch (method) {
-                    case "GET" -> {
-                        List<Task> list = manager.getTasks();
-                        sendText(h, gson.toJson(list));
-                    }
+                    case "GET" -> sendList(h, TaskType.TASK, manager::getTasks, manager::getTasks);
                     case "POST" -> {
                         String bodyStr = readBody(h);
                         if (bodyStr == null || bodyStr.isBlank()) {
@@ -66,7 +63,7 @@ public class TasksHandler extends BaseHttpHandler {
                     }
                     case "DELETE" -> {
                         manager.deleteTaskById(id);
-                        sendText(h, "{\"result\":\"deleted\"}");
+                        sendDeleted(h);
                     }
                     default -> sendInternalError(h, "Method not supported");
                 }
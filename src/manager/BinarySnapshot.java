@@ -0,0 +1,272 @@
+package manager;
+
+import tasks.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Бинарный снимок: заголовок, записи фиксированной длины, таблица строк и индекс по id.
+// Время хранится в минутах от эпохи плюс секунды и наносекунды внутри минуты.
+// Прочитанный снимок закрывают: пока файл отображён, Windows не даёт заменить его новым.
+class BinarySnapshot implements AutoCloseable {
+    static final int MAGIC = 0x4B4E424E;
+    static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 48;
+    private static final int RECORD_SIZE = 40;
+    private static final int INDEX_ENTRY_SIZE = 8;
+    private static final int NO_REF = -1;
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    private final MappedByteBuffer buffer;
+    private final long lsn;
+    private final int records;
+    private final int strings;
+    private final int stringsOffset;
+    private final int indexOffset;
+    private final String[] stringCache;
+
+    private BinarySnapshot(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a binary snapshot");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported snapshot version: " + version);
+        }
+        this.lsn = buffer.getLong(8);
+        this.records = buffer.getInt(16);
+        this.strings = buffer.getInt(20);
+        this.stringsOffset = toInt(buffer.getLong(24));
+        this.indexOffset = toInt(buffer.getLong(32));
+        this.stringCache = new String[strings];
+    }
+
+    static boolean isBinary(File file) throws IOException {
+        if (!file.exists() || file.length() < HEADER_SIZE) return false;
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            return in.readInt() == MAGIC;
+        }
+    }
+
+    static BinarySnapshot open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return new BinarySnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    long lsn() {
+        return lsn;
+    }
+
+    // После close записи снимка больше не читаются
+    @Override
+    public void close() {
+        MappedBuffers.unmap(buffer);
+    }
+
+    int size() {
+        return records;
+    }
+
+    Task get(int index) {
+        if (index < 0 || index >= records) {
+            throw new IndexOutOfBoundsException("Record " + index + " of " + records);
+        }
+        int at = HEADER_SIZE + index * RECORD_SIZE;
+        int id = buffer.getInt(at);
+        TaskType type = TaskType.values()[buffer.get(at + 4)];
+        TaskStatus status = TaskStatus.values()[buffer.get(at + 5)];
+        int second = buffer.get(at + 6);
+        int epicId = buffer.getInt(at + 8);
+        String name = string(buffer.getInt(at + 12));
+        String description = string(buffer.getInt(at + 16));
+        long startMinute = buffer.getLong(at + 20);
+        int nano = buffer.getInt(at + 28);
+        long durationMinutes = buffer.getLong(at + 32);
+
+        LocalDateTime start = startMinute == NO_TIME ? null
+                : LocalDateTime.ofEpochSecond(startMinute * 60 + second, nano, ZoneOffset.UTC);
+        Duration duration = durationMinutes == NO_TIME ? null : Duration.ofMinutes(durationMinutes);
+
+        switch (type) {
+            case TASK:
+                Task task = new Task(name, description, status);
+                task.setId(id);
+                task.setStartTime(start);
+                task.setDuration(duration);
+                return task;
+            case EPIC:
+                Epic epic = new Epic(name, description);
+                epic.setId(id);
+                epic.setTaskStatus(status);
+                return epic;
+            case SUBTASK:
+                Subtask subtask = new Subtask(name, description, status, epicId);
+                subtask.setId(id);
+                subtask.setStartTime(start);
+                subtask.setDuration(duration);
+                return subtask;
+            default:
+                throw new IllegalArgumentException("Unknown task type: " + type);
+        }
+    }
+
+    // Двоичный поиск по отсортированному индексу, без чтения остальных записей
+    Task find(int id) {
+        int low = 0;
+        int high = records - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midId = buffer.getInt(indexOffset + mid * INDEX_ENTRY_SIZE);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return get(buffer.getInt(indexOffset + mid * INDEX_ENTRY_SIZE + 4));
+            }
+        }
+        return null;
+    }
+
+    private String string(int ref) {
+        if (ref == NO_REF) return null;
+        String cached = stringCache[ref];
+        if (cached != null) return cached;
+
+        int dataStart = stringsOffset + strings * 4 + 4;
+        int from = buffer.getInt(stringsOffset + ref * 4);
+        int to = buffer.getInt(stringsOffset + (ref + 1) * 4);
+        byte[] bytes = new byte[to - from];
+        buffer.get(dataStart + from, bytes);
+        String value = new String(bytes, StandardCharsets.UTF_8);
+        stringCache[ref] = value;
+        return value;
+    }
+
+    static long write(FileChannel out, List<List<? extends Task>> groups, long lsn) throws IOException {
+        int count = 0;
+        for (List<? extends Task> group : groups) {
+            count += group.size();
+        }
+
+        Map<String, Integer> refs = new HashMap<>();
+        List<byte[]> table = new ArrayList<>();
+        long[] index = new long[count];
+        ByteBuffer chunk = ByteBuffer.allocate(RECORD_SIZE * 1024);
+
+        out.position(HEADER_SIZE);
+        int position = 0;
+        for (List<? extends Task> group : groups) {
+            for (Task task : group) {
+                if (!chunk.hasRemaining()) {
+                    drain(out, chunk);
+                }
+                encode(chunk, task, refs, table);
+                index[position] = ((long) task.getId() << 32) | position;
+                position++;
+            }
+        }
+        drain(out, chunk);
+
+        long stringsOffset = HEADER_SIZE + (long) count * RECORD_SIZE;
+        ByteBuffer offsets = ByteBuffer.allocate((table.size() + 1) * 4);
+        int offset = 0;
+        for (byte[] bytes : table) {
+            offsets.putInt(offset);
+            offset += bytes.length;
+        }
+        offsets.putInt(offset);
+        drain(out, offsets);
+        for (byte[] bytes : table) {
+            writeFully(out, ByteBuffer.wrap(bytes));
+        }
+
+        long indexOffset = stringsOffset + (table.size() + 1) * 4L + offset;
+        Arrays.sort(index);
+        ByteBuffer entries = ByteBuffer.allocate(INDEX_ENTRY_SIZE * 1024);
+        for (long entry : index) {
+            if (!entries.hasRemaining()) {
+                drain(out, entries);
+            }
+            entries.putInt((int) (entry >> 32));
+            entries.putInt((int) entry);
+        }
+        drain(out, entries);
+        long size = out.position();
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putLong(lsn);
+        header.putInt(count);
+        header.putInt(table.size());
+        header.putLong(stringsOffset);
+        header.putLong(indexOffset);
+        header.flip();
+        out.position(0);
+        writeFully(out, header);
+        return size;
+    }
+
+    private static void encode(ByteBuffer chunk, Task task, Map<String, Integer> refs, List<byte[]> table) {
+        LocalDateTime start = task.getType() == TaskType.EPIC ? null : task.getStartTime();
+        Duration duration = task.getType() == TaskType.EPIC ? null : task.getDuration();
+        long seconds = start == null ? 0 : start.toEpochSecond(ZoneOffset.UTC);
+
+        chunk.putInt(task.getId());
+        chunk.put((byte) task.getType().ordinal());
+        chunk.put((byte) task.getTaskStatus().ordinal());
+        chunk.put((byte) Math.floorMod(seconds, 60));
+        chunk.put((byte) 0);
+        chunk.putInt(task instanceof Subtask ? ((Subtask) task).getEpicId() : NO_REF);
+        chunk.putInt(ref(task.getName(), refs, table));
+        chunk.putInt(ref(task.getDescription(), refs, table));
+        chunk.putLong(start == null ? NO_TIME : Math.floorDiv(seconds, 60));
+        chunk.putInt(start == null ? 0 : start.getNano());
+        chunk.putLong(duration == null ? NO_TIME : duration.toMinutes());
+    }
+
+    private static int ref(String value, Map<String, Integer> refs, List<byte[]> table) {
+        if (value == null) return NO_REF;
+        return refs.computeIfAbsent(value, key -> {
+            table.add(key.getBytes(StandardCharsets.UTF_8));
+            return table.size() - 1;
+        });
+    }
+
+    private static void drain(FileChannel out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        writeFully(out, buffer);
+        buffer.clear();
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    private static int toInt(long offset) {
+        if (offset > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Binary snapshot is larger than 2 GB");
+        }
+        return (int) offset;
+    }
+}
@@ -0,0 +1,184 @@
+package manager;
+
+import exception.ManagerSaveException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+// Доски — независимые менеджеры со своими id, расписанием и блокировками. Менеджер доски
+// открывается при первом обращении, а когда открытых досок больше maxOpen, давно не нужные
+// закрываются (AutoCloseable-менеджеры при этом сбрасывают данные на диск) и откроются снова по запросу.
+// Доску, которой пользуются (между acquire и release), не закрывают. Сама регистрация
+// короткая и общая; открытие и закрытие менеджера идут под замком своей доски, не задерживая другие.
+// id доски не различает регистр (Team и team — одна доска), иначе на Windows и macOS две доски
+// достались бы одному файлу. История просмотров живёт только в открытом менеджере
+// и при закрытии доски теряется, как при перезапуске сервера.
+public class BoardRegistry implements AutoCloseable {
+    private static final Pattern BOARD_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private final Function<String, TaskManager> opener;
+    private final int maxOpen;
+    // открытые и открывающиеся доски, давно не нужные первыми
+    private final LinkedHashMap<String, Board> boards = new LinkedHashMap<>(16, 0.75f, true);
+    // доски, которые сейчас закрываются: их нельзя открыть заново, пока файл не отпущен
+    private final Map<String, Board> closing = new HashMap<>();
+    private boolean closed;
+
+    public BoardRegistry(Function<String, TaskManager> opener, int maxOpen) {
+        if (opener == null) throw new IllegalArgumentException("Board opener is null");
+        if (maxOpen < 1) throw new IllegalArgumentException("At least one board must stay open");
+        this.opener = opener;
+        this.maxOpen = maxOpen;
+    }
+
+    // Менеджер доски; после работы с ним нужно вызвать release с тем же id
+    public TaskManager acquire(String boardId) {
+        boardId = normalize(boardId);
+        Board board;
+        List<Board> evicted;
+        synchronized (this) {
+            while (!closed && closing.containsKey(boardId)) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for board " + boardId, e);
+                }
+            }
+            if (closed) throw new IllegalStateException("Board registry is closed");
+            board = boards.computeIfAbsent(boardId, Board::new);
+            board.users++;
+            evicted = evict();
+        }
+        try {
+            shutAll(evicted);
+        } catch (RuntimeException e) {
+            // доска не выдана — отпускаем её, чтобы её можно было закрыть
+            release(boardId, e);
+            throw e;
+        }
+        RuntimeException failure;
+        synchronized (board) {
+            try {
+                if (board.manager == null) board.manager = opener.apply(boardId);
+                return board.manager;
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+        release(boardId, failure);
+        throw failure;
+    }
+
+    public void release(String boardId) {
+        boardId = normalize(boardId);
+        List<Board> evicted;
+        synchronized (this) {
+            Board board = boards.get(boardId);
+            // после close() доски уже сняты с учёта
+            if (board == null && closed) return;
+            if (board == null || board.users == 0) throw new IllegalStateException("Board " + boardId + " is not in use");
+            board.users--;
+            evicted = evict();
+        }
+        shutAll(evicted);
+    }
+
+    public synchronized int openBoards() {
+        return boards.size();
+    }
+
+    @Override
+    public void close() {
+        List<Board> all;
+        synchronized (this) {
+            closed = true;
+            all = new ArrayList<>(boards.values());
+            for (Board board : all) {
+                closing.put(board.id, board);
+            }
+            boards.clear();
+        }
+        shutAll(all);
+    }
+
+    // id, под которым доска учитывается и передаётся opener
+    static String normalize(String boardId) {
+        if (boardId == null || !BOARD_ID.matcher(boardId).matches()) {
+            throw new IllegalArgumentException("Invalid board id: " + boardId);
+        }
+        return boardId.toLowerCase(Locale.ROOT);
+    }
+
+    // release после неудачного acquire: ошибки закрытия других досок не заслоняют исходную
+    private void release(String boardId, RuntimeException failure) {
+        try {
+            release(boardId);
+        } catch (RuntimeException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    // Закрывает все доски, даже если какие-то не закрылись; первая ошибка выбрасывается, остальные — в suppressed
+    private void shutAll(List<Board> boards) {
+        RuntimeException failure = null;
+        for (Board board : boards) {
+            try {
+                shut(board);
+            } catch (RuntimeException e) {
+                if (failure == null) failure = e;
+                else failure.addSuppressed(e);
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    // Снимает с учёта лишние доски, которыми никто не пользуется; закрывает их вызывающий вне замка
+    private List<Board> evict() {
+        List<Board> evicted = new ArrayList<>();
+        Iterator<Board> eldest = boards.values().iterator();
+        while (boards.size() > maxOpen && eldest.hasNext()) {
+            Board board = eldest.next();
+            if (board.users > 0) continue;
+            eldest.remove();
+            closing.put(board.id, board);
+            evicted.add(board);
+        }
+        return evicted;
+    }
+
+    private void shut(Board board) {
+        try {
+            synchronized (board) {
+                if (board.manager instanceof AutoCloseable closeable) closeable.close();
+                board.manager = null;
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ManagerSaveException("Error while closing board " + board.id, e);
+        } finally {
+            synchronized (this) {
+                closing.remove(board.id);
+                notifyAll();
+            }
+        }
+    }
+
+    private static class Board {
+        private final String id;
+        private TaskManager manager;
+        private int users;
+
+        private Board(String id) {
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package manager;
+
+import java.time.Duration;
+
+public class CheckpointStats {
+    private final long checkpoints;
+    private final long lsn;
+    private final Duration lastDuration;
+    private final long lastBytesWritten;
+    private final long lagRecords;
+    private final Duration lagTime;
+
+    public CheckpointStats(long checkpoints, long lsn, Duration lastDuration, long lastBytesWritten,
+                           long lagRecords, Duration lagTime) {
+        this.checkpoints = checkpoints;
+        this.lsn = lsn;
+        this.lastDuration = lastDuration;
+        this.lastBytesWritten = lastBytesWritten;
+        this.lagRecords = lagRecords;
+        this.lagTime = lagTime;
+    }
+
+    public long getCheckpoints() {
+        return checkpoints;
+    }
+
+    public long getLsn() {
+        return lsn;
+    }
+
+    public Duration getLastDuration() {
+        return lastDuration;
+    }
+
+    public long getLastBytesWritten() {
+        return lastBytesWritten;
+    }
+
+    // Сколько записей журнала ещё не покрыто снимком
+    public long getLagRecords() {
+        return lagRecords;
+    }
+
+    // Сколько времени прошло с момента, зафиксированного последним снимком
+    public Duration getLagTime() {
+        return lagTime;
+    }
+
+    @Override
+    public String toString() {
+        return "CheckpointStats{" +
+                "checkpoints=" + checkpoints +
+                ", lsn=" + lsn +
+                ", lastDuration=" + lastDuration +
+                ", lastBytesWritten=" + lastBytesWritten +
+                ", lagRecords=" + lagRecords +
+                ", lagTime=" + lagTime +
+                '}';
+    }
+}
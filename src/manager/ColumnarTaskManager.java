@@ -0,0 +1,746 @@
+package manager;
+
+import exception.IntersectionException;
+import exception.NotFoundException;
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskStatus;
+import tasks.TaskType;
+import tasks.TimeSlot;
+
+import java.io.File;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+// Менеджер для досок на миллионы задач: задачи лежат по столбцам (TaskColumns) — в примитивных
+// массивах или вне кучи, объекты Task создаются только на границе API и в историю просмотров.
+// Порядок по времени — множество ключей (начало в минутах << 32 | id) без объектов на задачу.
+// Статус и время эпика не хранятся, а считаются обходом его подзадач при чтении.
+// Время округляется вниз до минуты. Выборки и поиск — сканированием столбцов, окна — обходом
+// расписания, как в JdbcTaskManager; методы синхронизированы, как там же.
+public class ColumnarTaskManager implements TaskManager, AutoCloseable {
+    private final TaskColumns columns;
+    private final SortedLongSet schedule = new SortedLongSet();
+    private final HistoryManager historyManager = Managers.getDefaultHistory();
+    private int generatorId = 1;
+    private long version;
+    // пока применяется пакет: прежние строки и кольца эпиков для отката, id для удаления из истории
+    private Map<Integer, TaskColumns.Row> batchRows;
+    private Map<Integer, int[]> batchRings;
+    private List<Integer> batchForgotten;
+
+    public ColumnarTaskManager() {
+        this(new HeapTaskColumns());
+    }
+
+    // Столбцы могут быть уже заполнены (файл с прошлого запуска): расписание строится по ним заново
+    private ColumnarTaskManager(TaskColumns columns) {
+        this.columns = columns;
+        columns.recount();
+        for (int id = 1; id < columns.rows(); id++) {
+            if (columns.type(id) == null) continue;
+            generatorId = id + 1;
+            schedule(id);
+        }
+    }
+
+    // Задачи вне кучи, в прямых буферах: сборщик мусора не обходит их при каждой паузе
+    public static ColumnarTaskManager offHeap() {
+        return new ColumnarTaskManager(new OffHeapTaskColumns());
+    }
+
+    // Задачи вне кучи в файле, отображённом в память: при повторном открытии доска сразу на месте.
+    // На диск изменения гарантированно сброшены после whenDurable() или close(); операция, прерванная
+    // падением процесса, может оставить файл несогласованным
+    public static ColumnarTaskManager mapped(File file) {
+        return new ColumnarTaskManager(new OffHeapTaskColumns(file));
+    }
+
+    @Override
+    public synchronized Task getTasksById(int id) {
+        if (columns.type(id) != TaskType.TASK) throw new NotFoundException("Task with id " + id + " not found");
+        Task task = columns.task(id);
+        historyManager.add(task);
+        return task;
+    }
+
+    @Override
+    public synchronized List<Task> getTasks() {
+        return all(TaskType.TASK);
+    }
+
+    @Override
+    public synchronized Page<Task> getTasks(String cursor, int limit) {
+        return pageById(TaskType.TASK, cursor, limit);
+    }
+
+    @Override
+    public synchronized int createTask(Task task) {
+        if (task == null) throw new IllegalArgumentException("Task is null");
+        checkTime(task);
+        if (!inBatch() && hasAnyOverlap(task)) throw new IntersectionException("Task overlaps existing ones");
+        task.setId(generatorId++);
+        store(task.getId(), task);
+        return task.getId();
+    }
+
+    @Override
+    public synchronized void updateTask(Task task) {
+        if (task == null) throw new IllegalArgumentException("Task is null");
+        if (task.getId() == null || columns.type(task.getId()) != TaskType.TASK) {
+            throw new NotFoundException("Task " + task.getId() + " not found");
+        }
+        checkTime(task);
+        if (!inBatch() && hasAnyOverlap(task)) throw new IntersectionException("Task overlaps existing ones");
+        store(task.getId(), task);
+    }
+
+    @Override
+    public synchronized void deleteTaskById(int id) {
+        if (columns.type(id) != TaskType.TASK) throw new NotFoundException("Task " + id + " not found");
+        erase(id);
+        forget(id);
+    }
+
+    @Override
+    public synchronized void deleteTask() {
+        for (int id : ids(TaskType.TASK)) {
+            erase(id);
+            forget(id);
+        }
+    }
+
+    @Override
+    public synchronized Subtask getSubtaskById(int id) {
+        if (columns.type(id) != TaskType.SUBTASK) throw new NotFoundException("Subtask " + id + " not found");
+        Subtask subtask = columns.subtask(id);
+        historyManager.add(subtask);
+        return subtask;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public synchronized List<Subtask> getSubtasks() {
+        List<? extends Task> subtasks = all(TaskType.SUBTASK);
+        return (List<Subtask>) subtasks;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public synchronized Page<Subtask> getSubtasks(String cursor, int limit) {
+        Page<? extends Task> page = pageById(TaskType.SUBTASK, cursor, limit);
+        return (Page<Subtask>) page;
+    }
+
+    @Override
+    public synchronized int createSubtask(Subtask subtask) {
+        if (subtask == null) throw new IllegalArgumentException("Subtask is null");
+        Integer epicId = subtask.getEpicId();
+        if (epicId == null) throw new IllegalArgumentException("EpicId is null");
+        if (columns.type(epicId) != TaskType.EPIC) throw new NotFoundException("Epic " + epicId + " not found");
+        Integer subtaskId = subtask.getId();
+        if (subtaskId != null && subtaskId.equals(epicId))
+            throw new IllegalArgumentException("Subtask id cannot be the same as epic id");
+        checkTime(subtask);
+        if (!inBatch() && hasAnyOverlap(subtask)) throw new IntersectionException("Subtask overlaps existing ones");
+
+        subtask.setId(generatorId++);
+        store(subtask.getId(), subtask);
+        link(epicId, subtask.getId());
+        return subtask.getId();
+    }
+
+    @Override
+    public synchronized void updateSubtask(Subtask subtask) {
+        if (subtask == null) throw new IllegalArgumentException("Subtask is null");
+        int id = subtask.getId();
+        if (columns.type(id) != TaskType.SUBTASK) throw new NotFoundException("Subtask " + id + " not found");
+        Integer epicId = subtask.getEpicId();
+        if (epicId == null) throw new IllegalArgumentException("EpicId is null");
+        if (columns.type(epicId) != TaskType.EPIC) throw new NotFoundException("Epic " + epicId + " not found");
+        checkTime(subtask);
+        if (!inBatch() && hasAnyOverlap(subtask)) throw new IntersectionException("Subtask overlaps existing ones");
+
+        // в прежнем эпике подзадача остаётся на своём месте, в новый переходит последней
+        if (columns.epicId(id) == epicId) {
+            store(id, subtask);
+            return;
+        }
+        unlink(id);
+        store(id, subtask);
+        link(epicId, id);
+    }
+
+    @Override
+    public synchronized void deleteSubtaskById(int id) {
+        if (columns.type(id) != TaskType.SUBTASK) throw new NotFoundException("Subtask " + id + " not found");
+        unlink(id);
+        erase(id);
+        forget(id);
+    }
+
+    @Override
+    public synchronized void deleteSubtasks() {
+        for (int id : ids(TaskType.SUBTASK)) {
+            unlink(id);
+            erase(id);
+            forget(id);
+        }
+    }
+
+    @Override
+    public synchronized Epic getEpicById(int id) {
+        if (columns.type(id) != TaskType.EPIC) throw new NotFoundException("Epic " + id + " not found");
+        Epic epic = epic(id);
+        historyManager.add(epic);
+        return epic;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public synchronized List<Epic> getEpics() {
+        List<? extends Task> epics = all(TaskType.EPIC);
+        return (List<Epic>) epics;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public synchronized Page<Epic> getEpics(String cursor, int limit) {
+        Page<? extends Task> page = pageById(TaskType.EPIC, cursor, limit);
+        return (Page<Epic>) page;
+    }
+
+    @Override
+    public synchronized int createEpic(Epic epic) {
+        if (epic == null) {
+            return -1;
+        }
+        epic.setId(generatorId++);
+        epic.setTaskStatus(TaskStatus.NEW);
+        epic.clearSubtasks();
+        epic.recalculateTimeFromSubtasks();
+        store(epic.getId(), epic);
+        columns.emptyRing(epic.getId());
+        return epic.getId();
+    }
+
+    @Override
+    public synchronized void updateEpic(Epic epic) {
+        if (epic == null || epic.getId() == null) {
+            return;
+        }
+        if (columns.type(epic.getId()) == TaskType.EPIC) {
+            saveRow(epic.getId());
+            columns.setText(epic.getId(), epic.getName(), epic.getDescription());
+            version++;
+        }
+    }
+
+    @Override
+    public synchronized void deleteEpicById(int id) {
+        if (columns.type(id) != TaskType.EPIC) throw new NotFoundException("Epic " + id + " not found");
+        saveRing(id);
+        for (int subtaskId : columns.ring(id)) {
+            erase(subtaskId);
+            forget(subtaskId);
+        }
+        erase(id);
+        forget(id);
+    }
+
+    @Override
+    public synchronized void deleteEpics() {
+        deleteSubtasks();
+        for (int id : ids(TaskType.EPIC)) {
+            erase(id);
+            forget(id);
+        }
+    }
+
+    @Override
+    public synchronized List<Subtask> getSubtaskFromEpic(int epicId) {
+        if (columns.type(epicId) != TaskType.EPIC) throw new NotFoundException("Epic " + epicId + " not found");
+        return subtasksOf(epicId);
+    }
+
+    @Override
+    public synchronized List<Task> getHistory() {
+        return historyManager.getHistory();
+    }
+
+    @Override
+    public synchronized Page<Task> getHistory(String cursor, int limit) {
+        InMemoryTaskManager.checkLimit(limit);
+        List<Task> items = historyManager.getHistory(InMemoryTaskManager.parseIdCursor(cursor), limit + 1);
+        return InMemoryTaskManager.trimmed(items, limit, task -> String.valueOf(task.getId()));
+    }
+
+    // Сканирование столбцов: объекты создаются только для подошедших строк
+    @Override
+    public synchronized List<Task> findTasks(TaskQuery query) {
+        if (query == null) throw new IllegalArgumentException("Query is null");
+        Set<TaskStatus> statuses = query.getStatuses();
+        Set<TaskType> types = query.getTypes();
+        Integer epicId = query.getEpicId();
+        // начало в целых минутах: start >= from равносильно start >= from, округлённому вверх
+        long from = query.getStartFrom() == null ? Long.MIN_VALUE : ceilMinutes(query.getStartFrom());
+        long to = query.getStartTo() == null ? Long.MAX_VALUE : ceilMinutes(query.getStartTo());
+        List<Task> found = new ArrayList<>();
+        for (int id = 1; id < generatorId; id++) {
+            TaskType type = columns.type(id);
+            if (type == null || (types != null && !types.contains(type))) continue;
+            if (epicId != null && (type != TaskType.SUBTASK || columns.epicId(id) != epicId)) continue;
+            if (statuses != null) {
+                TaskStatus status = type == TaskType.EPIC ? epicStatus(id) : columns.status(id);
+                if (status == null || !statuses.contains(status)) continue;
+            }
+            if (query.hasStartRange()) {
+                long start = type == TaskType.EPIC ? epicStart(id) : columns.start(id);
+                if (start == TaskColumns.NO_START || start < from || start >= to) continue;
+            }
+            found.add(task(id));
+        }
+        return found;
+    }
+
+    // Как в JdbcTaskManager: отбираются задачи, где каждое слово встречается как подстрока,
+    // а порядок считается тем же индексом, что и в памяти, только по отобранным задачам
+    @Override
+    public synchronized List<Task> search(String query, int limit) {
+        if (query == null) throw new IllegalArgumentException("Query is null");
+        InMemoryTaskManager.checkLimit(limit);
+        List<String> words = SearchIndex.tokenize(query);
+        if (words.isEmpty()) return List.of();
+
+        Map<Integer, Task> candidates = new HashMap<>();
+        SearchIndex ranking = new SearchIndex();
+        for (int id = 1; id < generatorId; id++) {
+            if (columns.type(id) == null || !containsAll(id, words)) continue;
+            Task task = task(id);
+            candidates.put(id, task);
+            ranking.put(task);
+        }
+        List<Task> found = new ArrayList<>();
+        for (int id : ranking.search(query, limit)) {
+            found.add(candidates.get(id));
+        }
+        return found;
+    }
+
+    // Пакет применяется обычными методами без проверки пересечений; перед первым изменением
+    // строки и кольца эпика запоминаются, и при любой ошибке всё возвращается как было
+    @Override
+    public synchronized List<Integer> applyBatch(List<Mutation> batch) {
+        if (batch == null) throw new IllegalArgumentException("Batch is null");
+        List<Integer> ids = new ArrayList<>(batch.size());
+        // id -> номер последнего изменения, задавшего задаче итоговую версию
+        Map<Integer, Integer> lastChange = new LinkedHashMap<>();
+        int firstId = generatorId;
+        batchRows = new HashMap<>();
+        batchRings = new HashMap<>();
+        batchForgotten = new ArrayList<>();
+        List<Integer> forgotten = batchForgotten;
+        boolean applied = false;
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                Mutation mutation = batch.get(i);
+                String at = "Mutation " + i + ": ";
+                if (mutation == null) throw new IllegalArgumentException(at + "mutation is null");
+                // одиночный updateEpic молча пропускает отсутствующий эпик, пакет так не делает
+                if (mutation.getKind() == Mutation.Kind.UPDATE && mutation.getType() == TaskType.EPIC
+                        && columns.type(mutation.getId()) != TaskType.EPIC) {
+                    throw new NotFoundException(at + mutation.target() + " not found");
+                }
+                try {
+                    ids.add(mutation.applyTo(this));
+                } catch (NotFoundException e) {
+                    throw new NotFoundException(at + e.getMessage());
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException(at + e.getMessage());
+                }
+                if (mutation.getTask() != null) lastChange.put(ids.get(i), i);
+            }
+            for (Map.Entry<Integer, Integer> entry : lastChange.entrySet()) {
+                if (overlapsStored(entry.getKey())) {
+                    throw new IntersectionException("Mutation " + entry.getValue() + ": task overlaps existing ones");
+                }
+            }
+            applied = true;
+        } finally {
+            if (!applied) rollback(firstId);
+            batchRows = null;
+            batchRings = null;
+            batchForgotten = null;
+        }
+        forgotten.forEach(historyManager::remove);
+        return ids;
+    }
+
+    @Override
+    public synchronized List<Task> getPrioritizedTasks() {
+        List<Task> found = new ArrayList<>(schedule.size());
+        schedule.forEachAfter(SortedLongSet.NONE, key -> found.add(task(idOf(key))));
+        return found;
+    }
+
+    @Override
+    public synchronized Page<Task> getPrioritizedTasks(String cursor, int limit) {
+        return getPrioritizedBetween(null, null, cursor, limit);
+    }
+
+    // Диапазон — отрезок ключей расписания: [первый ключ с началом не раньше from, такой же для to)
+    @Override
+    public synchronized List<Task> getPrioritizedBetween(LocalDateTime from, LocalDateTime to) {
+        InMemoryTaskManager.checkRange(from, to);
+        long end = to == null ? Long.MAX_VALUE : firstKey(to);
+        List<Task> found = new ArrayList<>();
+        schedule.forEachAfter(from == null ? SortedLongSet.NONE : firstKey(from), key -> {
+            if (key >= end) return false;
+            found.add(task(idOf(key)));
+            return true;
+        });
+        return found;
+    }
+
+    @Override
+    public synchronized Page<Task> getPrioritizedBetween(LocalDateTime from, LocalDateTime to, String cursor,
+                                                         int limit) {
+        InMemoryTaskManager.checkLimit(limit);
+        InMemoryTaskManager.checkRange(from, to);
+        Task after = InMemoryTaskManager.parsePriorityCursor(cursor);
+        long start = from == null ? SortedLongSet.NONE : firstKey(from);
+        if (after != null) {
+            long minute = TaskColumns.minutes(after.getStartTime());
+            // курсор не из этого менеджера может быть внутри минуты: тогда пропускается вся минута
+            boolean exact = TaskColumns.time(minute).equals(after.getStartTime());
+            start = Math.max(start, key(minute, exact ? after.getId() : Integer.MAX_VALUE));
+        }
+        long end = to == null ? Long.MAX_VALUE : firstKey(to);
+        List<Task> items = new ArrayList<>(Math.min(limit + 1, schedule.size()));
+        schedule.forEachAfter(start, key -> {
+            if (key >= end) return false;
+            items.add(task(idOf(key)));
+            return items.size() <= limit;
+        });
+        return InMemoryTaskManager.trimmed(items, limit, InMemoryTaskManager::priorityCursor);
+    }
+
+    // Окна ищутся обходом расписания от последней занятой задачи, начавшейся раньше notBefore;
+    // курсор отмечает конец занятого времени, обход прекращается на первом подходящем окне
+    @Override
+    public synchronized LocalDateTime findNextFreeSlot(Duration duration, LocalDateTime notBefore) {
+        InMemoryTaskManager.checkSlotArguments(duration, notBefore);
+        LocalDateTime cursor = notBefore;
+        for (long key = scanStart(notBefore); (key = schedule.higher(key)) != SortedLongSet.NONE; ) {
+            int minutes = columns.duration(idOf(key));
+            if (minutes == TaskColumns.NO_DURATION || minutes == 0) continue;
+            LocalDateTime start = TaskColumns.time(startOf(key));
+            if (!cursor.plus(duration).isAfter(start)) return cursor;
+            LocalDateTime end = start.plusMinutes(minutes);
+            if (end.isAfter(cursor)) cursor = end;
+        }
+        return cursor;
+    }
+
+    @Override
+    public synchronized List<TimeSlot> freeSlots(LocalDateTime from, LocalDateTime to, Duration minDuration) {
+        InMemoryTaskManager.checkSlotArguments(minDuration, from);
+        if (to == null || !from.isBefore(to)) throw new IllegalArgumentException("Empty time range");
+        List<TimeSlot> slots = new ArrayList<>();
+        LocalDateTime cursor = from;
+        for (long key = scanStart(from); (key = schedule.higher(key)) != SortedLongSet.NONE; ) {
+            int minutes = columns.duration(idOf(key));
+            if (minutes == TaskColumns.NO_DURATION || minutes == 0) continue;
+            LocalDateTime start = TaskColumns.time(startOf(key));
+            if (!start.isBefore(to)) break;
+            if (start.isAfter(cursor) && !cursor.plus(minDuration).isAfter(start)) {
+                slots.add(new TimeSlot(cursor, start));
+            }
+            LocalDateTime end = start.plusMinutes(minutes);
+            if (end.isAfter(cursor)) cursor = end;
+        }
+        if (to.isAfter(cursor) && !cursor.plus(minDuration).isAfter(to)) {
+            slots.add(new TimeSlot(cursor, to));
+        }
+        return slots;
+    }
+
+    // Отображённый файл сбрасывается на диск тут же, поэтому future уже завершён
+    @Override
+    public synchronized CompletableFuture<Void> whenDurable() {
+        columns.force();
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    @Override
+    public synchronized long version() {
+        return version;
+    }
+
+    @Override
+    public synchronized void close() {
+        columns.close();
+    }
+
+    public synchronized boolean hasAnyOverlap(Task candidate) {
+        if (candidate == null) return false;
+        if (candidate.getStartTime() == null || candidate.getEndTime() == null) return false;
+        long start = TaskColumns.minutes(candidate.getStartTime());
+        long end = start + TaskColumns.minutes(candidate.getDuration());
+        return overlaps(start, end, candidate.getId() == null ? 0 : candidate.getId());
+    }
+
+    // Сохранённые задачи попарно не пересекаются, поэтому из начавшихся раньше start до него
+    // может дотянуться только группа с последним началом; задачи без длительности пропускаются.
+    // Из начавшихся в [start, end) пересекается любая с длительностью, кроме пустой ровно в start.
+    private boolean overlaps(long start, long end, int excludeId) {
+        long group = SortedLongSet.NONE;
+        for (long key = schedule.lower(key(start, 0)); key != SortedLongSet.NONE; key = schedule.lower(key)) {
+            int id = idOf(key);
+            int minutes = columns.duration(id);
+            if (id == excludeId || minutes == TaskColumns.NO_DURATION) continue;
+            if (group != SortedLongSet.NONE && startOf(key) != group) break;
+            group = startOf(key);
+            if (group + minutes > start) return true;
+        }
+        for (long key = schedule.higher(key(start, 0)); key != SortedLongSet.NONE && startOf(key) < end;
+             key = schedule.higher(key)) {
+            int id = idOf(key);
+            int minutes = columns.duration(id);
+            if (id == excludeId || minutes == TaskColumns.NO_DURATION) continue;
+            if (startOf(key) > start || minutes > 0) return true;
+        }
+        return false;
+    }
+
+    private boolean overlapsStored(int id) {
+        TaskType type = columns.type(id);
+        if (type == null || type == TaskType.EPIC) return false;
+        long start = columns.start(id);
+        int minutes = columns.duration(id);
+        if (start == TaskColumns.NO_START || minutes == TaskColumns.NO_DURATION) return false;
+        return overlaps(start, start + minutes, id);
+    }
+
+    // Ключ, после которого обходить расписание для окон с from: последняя занятая задача,
+    // начавшаяся раньше, — единственная из ранних, что может доходить до from
+    private long scanStart(LocalDateTime from) {
+        long minute = TaskColumns.minutes(from);
+        for (long key = schedule.lower(key(minute, 0)); key != SortedLongSet.NONE; key = schedule.lower(key)) {
+            int minutes = columns.duration(idOf(key));
+            if (minutes != TaskColumns.NO_DURATION && minutes > 0) return key - 1;
+        }
+        return key(minute, 0);
+    }
+
+    private void rollback(int firstId) {
+        for (Map.Entry<Integer, TaskColumns.Row> entry : batchRows.entrySet()) {
+            unschedule(entry.getKey());
+        }
+        for (Map.Entry<Integer, TaskColumns.Row> entry : batchRows.entrySet()) {
+            columns.restore(entry.getKey(), entry.getValue());
+            schedule(entry.getKey());
+        }
+        for (Map.Entry<Integer, int[]> entry : batchRings.entrySet()) {
+            if (columns.type(entry.getKey()) == TaskType.EPIC) columns.restoreRing(entry.getKey(), entry.getValue());
+        }
+        generatorId = firstId;
+        version++;
+    }
+
+    private boolean inBatch() {
+        return batchRows != null;
+    }
+
+    private void saveRow(int id) {
+        if (batchRows != null && !batchRows.containsKey(id)) batchRows.put(id, columns.row(id));
+    }
+
+    private void saveRing(int epicId) {
+        if (batchRings != null && !batchRings.containsKey(epicId)) batchRings.put(epicId, columns.ring(epicId));
+    }
+
+    private void forget(int id) {
+        if (batchForgotten != null) {
+            batchForgotten.add(id);
+        } else {
+            historyManager.remove(id);
+        }
+    }
+
+    private void store(int id, Task task) {
+        saveRow(id);
+        unschedule(id);
+        columns.write(id, task);
+        schedule(id);
+        version++;
+    }
+
+    private void erase(int id) {
+        saveRow(id);
+        unschedule(id);
+        columns.clear(id);
+        version++;
+    }
+
+    private void link(int epicId, int subtaskId) {
+        saveRing(epicId);
+        columns.append(epicId, subtaskId);
+    }
+
+    private void unlink(int subtaskId) {
+        saveRing(columns.epicId(subtaskId));
+        columns.unlink(subtaskId);
+    }
+
+    private void schedule(int id) {
+        TaskType type = columns.type(id);
+        if (type != null && type != TaskType.EPIC && columns.start(id) != TaskColumns.NO_START) {
+            schedule.add(key(columns.start(id), id));
+        }
+    }
+
+    private void unschedule(int id) {
+        TaskType type = columns.type(id);
+        if (type != null && type != TaskType.EPIC && columns.start(id) != TaskColumns.NO_START) {
+            schedule.remove(key(columns.start(id), id));
+        }
+    }
+
+    private static void checkTime(Task task) {
+        if (task.getType() == TaskType.EPIC) return;
+        if (task.getStartTime() != null) TaskColumns.minutes(task.getStartTime());
+        if (task.getDuration() != null) TaskColumns.minutes(task.getDuration());
+    }
+
+    private Task task(int id) {
+        return switch (columns.type(id)) {
+            case TASK -> columns.task(id);
+            case SUBTASK -> columns.subtask(id);
+            case EPIC -> epic(id);
+        };
+    }
+
+    private Epic epic(int id) {
+        Epic epic = columns.epicHeader(id);
+        epic.setSubtasks(subtasksOf(id));
+        InMemoryTaskManager.recalculateEpic(epic);
+        return epic;
+    }
+
+    private List<Subtask> subtasksOf(int epicId) {
+        List<Subtask> subtasks = new ArrayList<>();
+        for (int s = columns.firstSubtask(epicId); s != epicId; s = columns.nextSubtask(s)) {
+            subtasks.add(columns.subtask(s));
+        }
+        return subtasks;
+    }
+
+    // То же правило, что в InMemoryTaskManager.recalculateEpic, но по столбцам
+    private TaskStatus epicStatus(int epicId) {
+        int total = 0;
+        int fresh = 0;
+        int done = 0;
+        for (int s = columns.firstSubtask(epicId); s != epicId; s = columns.nextSubtask(s)) {
+            total++;
+            if (columns.status(s) == TaskStatus.NEW) fresh++;
+            if (columns.status(s) == TaskStatus.DONE) done++;
+        }
+        if (total == 0 || fresh == total) return TaskStatus.NEW;
+        return done == total ? TaskStatus.DONE : TaskStatus.IN_PROGRESS;
+    }
+
+    private long epicStart(int epicId) {
+        long start = TaskColumns.NO_START;
+        for (int s = columns.firstSubtask(epicId); s != epicId; s = columns.nextSubtask(s)) {
+            long own = columns.start(s);
+            if (own != TaskColumns.NO_START && (start == TaskColumns.NO_START || own < start)) start = own;
+        }
+        return start;
+    }
+
+    private boolean containsAll(int id, List<String> words) {
+        for (String word : words) {
+            if (!containsIgnoreCase(columns.name(id), word) && !containsIgnoreCase(columns.description(id), word)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Без toLowerCase на каждую строку: сравнение по месту
+    private static boolean containsIgnoreCase(String text, String word) {
+        if (text == null) return false;
+        for (int i = 0, last = text.length() - word.length(); i <= last; i++) {
+            if (text.regionMatches(true, i, word, 0, word.length())) return true;
+        }
+        return false;
+    }
+
+    private List<Task> all(TaskType type) {
+        List<Task> found = new ArrayList<>(columns.count(type));
+        for (int id = 1; id < generatorId; id++) {
+            if (columns.type(id) == type) found.add(task(id));
+        }
+        return found;
+    }
+
+    private List<Integer> ids(TaskType type) {
+        List<Integer> found = new ArrayList<>(columns.count(type));
+        for (int id = 1; id < generatorId; id++) {
+            if (columns.type(id) == type) found.add(id);
+        }
+        return found;
+    }
+
+    private Page<Task> pageById(TaskType type, String cursor, int limit) {
+        InMemoryTaskManager.checkLimit(limit);
+        Integer after = InMemoryTaskManager.parseIdCursor(cursor);
+        List<Task> items = new ArrayList<>(Math.min(limit + 1, columns.count(type)));
+        for (int id = after == null || after < 0 ? 1 : after + 1; id < generatorId && items.size() <= limit; id++) {
+            if (columns.type(id) == type) items.add(task(id));
+        }
+        return InMemoryTaskManager.trimmed(items, limit, task -> String.valueOf(task.getId()));
+    }
+
+    private static long ceilMinutes(LocalDateTime time) {
+        long seconds = time.toEpochSecond(ZoneOffset.UTC);
+        long minutes = Math.floorDiv(seconds, 60);
+        return Math.floorMod(seconds, 60) == 0 && time.getNano() == 0 ? minutes : minutes + 1;
+    }
+
+    // Ключ перед всеми задачами, начавшимися не раньше time; id задач положительны, так что
+    // ключа с id 0 в расписании нет. Время за пределами расписания прижимается к его краям
+    private static long firstKey(LocalDateTime time) {
+        long minutes = ceilMinutes(time);
+        if (minutes < Integer.MIN_VALUE) return SortedLongSet.NONE;
+        if (minutes > Integer.MAX_VALUE) return Long.MAX_VALUE;
+        return key(minutes, 0);
+    }
+
+    private static long key(long startMinutes, int id) {
+        return startMinutes << 32 | (id & 0xFFFFFFFFL);
+    }
+
+    private static long startOf(long key) {
+        return key >> 32;
+    }
+
+    private static int idOf(long key) {
+        return (int) key;
+    }
+}
@@ -0,0 +1,305 @@
+package manager;
+
+import exception.NotFoundException;
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TimeSlot;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Потокобезопасный менеджер в памяти для многопоточного HTTP-сервера.
+// Любое изменение берёт исключительную блокировку: так карты задач, приоритетный список
+// и агрегаты эпиков меняются согласованно, а проверка пересечений и вставка выполняются атомарно.
+// Списки задач, эпиков и приоритетный список читаются без блокировок из неизменяемого снимка
+// (TaskSnapshot), который изменение публикует целиком при снятии блокировки. Остальные чтения
+// (выборки по индексам, поиск, окна) идут под общей блокировкой и выполняются параллельно.
+// История синхронизирована отдельно, потому что get*ById пишут в неё под блокировкой чтения.
+// get*ById отдают копию из снимка, а не хранимый объект: его меняют писатели, пока вызывающий
+// (например, HTTP-обработчик) сериализует результат уже без блокировки.
+public class ConcurrentTaskManager extends InMemoryTaskManager {
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock readLock = lock.readLock();
+    private final Lock writeLock = lock.writeLock();
+    // черновик меняется под исключительной блокировкой и публикуется целиком при её снятии
+    private TaskSnapshot draft = TaskSnapshot.EMPTY;
+    private final AtomicReference<TaskSnapshot> published = new AtomicReference<>(TaskSnapshot.EMPTY);
+
+    @Override
+    public Task getTasksById(int id) {
+        return read(() -> {
+            super.getTasksById(id);
+            return TaskSnapshot.copyOf(draft.getTask(id));
+        });
+    }
+
+    @Override
+    public List<Task> getTasks() {
+        return fromSnapshot(TaskSnapshot::getTasks);
+    }
+
+    @Override
+    public Page<Task> getTasks(String cursor, int limit) {
+        return fromSnapshot(snapshot -> snapshot.getTasks(cursor, limit));
+    }
+
+    @Override
+    public int createTask(Task task) {
+        return write(() -> super.createTask(task));
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        write(() -> super.updateTask(task));
+    }
+
+    @Override
+    public void deleteTaskById(int id) {
+        write(() -> super.deleteTaskById(id));
+    }
+
+    @Override
+    public void deleteTask() {
+        write(super::deleteTask);
+    }
+
+    @Override
+    public Subtask getSubtaskById(int id) {
+        return read(() -> {
+            super.getSubtaskById(id);
+            return TaskSnapshot.copyOf(draft.getSubtask(id));
+        });
+    }
+
+    @Override
+    public List<Subtask> getSubtasks() {
+        return fromSnapshot(TaskSnapshot::getSubtasks);
+    }
+
+    @Override
+    public Page<Subtask> getSubtasks(String cursor, int limit) {
+        return fromSnapshot(snapshot -> snapshot.getSubtasks(cursor, limit));
+    }
+
+    @Override
+    public int createSubtask(Subtask subtask) {
+        return write(() -> super.createSubtask(subtask));
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        write(() -> super.updateSubtask(subtask));
+    }
+
+    @Override
+    public void deleteSubtaskById(int id) {
+        write(() -> super.deleteSubtaskById(id));
+    }
+
+    @Override
+    public void deleteSubtasks() {
+        write(super::deleteSubtasks);
+    }
+
+    @Override
+    public Epic getEpicById(int id) {
+        return read(() -> {
+            super.getEpicById(id);
+            return TaskSnapshot.copyOf(draft.getEpic(id));
+        });
+    }
+
+    @Override
+    public List<Epic> getEpics() {
+        return fromSnapshot(TaskSnapshot::getEpics);
+    }
+
+    @Override
+    public Page<Epic> getEpics(String cursor, int limit) {
+        return fromSnapshot(snapshot -> snapshot.getEpics(cursor, limit));
+    }
+
+    @Override
+    public int createEpic(Epic epic) {
+        return write(() -> super.createEpic(epic));
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        write(() -> super.updateEpic(epic));
+    }
+
+    @Override
+    public void deleteEpicById(int id) {
+        write(() -> super.deleteEpicById(id));
+    }
+
+    @Override
+    public void deleteEpics() {
+        write(super::deleteEpics);
+    }
+
+    @Override
+    public List<Subtask> getSubtaskFromEpic(int epicId) {
+        List<Subtask> own = fromSnapshot(snapshot -> snapshot.getEpicSubtasks(epicId));
+        if (own == null) throw new NotFoundException("Epic " + epicId + " not found");
+        return own;
+    }
+
+    @Override
+    public List<Task> findTasks(TaskQuery query) {
+        return read(() -> super.findTasks(query));
+    }
+
+    @Override
+    public List<Task> search(String query, int limit) {
+        return read(() -> super.search(query, limit));
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return fromSnapshot(TaskSnapshot::getPrioritizedTasks);
+    }
+
+    @Override
+    public Page<Task> getPrioritizedTasks(String cursor, int limit) {
+        return fromSnapshot(snapshot -> snapshot.getPrioritizedTasks(cursor, limit));
+    }
+
+    @Override
+    public List<Task> getPrioritizedBetween(LocalDateTime from, LocalDateTime to) {
+        return fromSnapshot(snapshot -> snapshot.getPrioritizedBetween(from, to));
+    }
+
+    @Override
+    public Page<Task> getPrioritizedBetween(LocalDateTime from, LocalDateTime to, String cursor, int limit) {
+        return fromSnapshot(snapshot -> snapshot.getPrioritizedBetween(from, to, cursor, limit));
+    }
+
+    // Живое представление прочитали бы без блокировки, поэтому здесь это списки из снимка
+    @Override
+    public Collection<Task> tasksView() {
+        return Collections.unmodifiableList(getTasks());
+    }
+
+    @Override
+    public Collection<Subtask> subtasksView() {
+        return Collections.unmodifiableList(getSubtasks());
+    }
+
+    @Override
+    public Collection<Epic> epicsView() {
+        return Collections.unmodifiableList(getEpics());
+    }
+
+    @Override
+    public SortedSet<Task> prioritizedView() {
+        TreeSet<Task> copy = new TreeSet<>(PRIORITY);
+        copy.addAll(getPrioritizedTasks());
+        return Collections.unmodifiableSortedSet(copy);
+    }
+
+    @Override
+    public List<Integer> applyBatch(List<Mutation> batch) {
+        return write(() -> super.applyBatch(batch));
+    }
+
+    @Override
+    public LocalDateTime findNextFreeSlot(Duration duration, LocalDateTime notBefore) {
+        return read(() -> super.findNextFreeSlot(duration, notBefore));
+    }
+
+    @Override
+    public List<TimeSlot> freeSlots(LocalDateTime from, LocalDateTime to, Duration minDuration) {
+        return read(() -> super.freeSlots(from, to, minDuration));
+    }
+
+    // Вызывается и из create/update под исключительной блокировкой — она допускает вложенное чтение
+    @Override
+    public boolean hasAnyOverlap(Task candidate) {
+        return read(() -> super.hasAnyOverlap(candidate));
+    }
+
+    // Последний опубликованный снимок: читается без блокировок и не меняется
+    public TaskSnapshot snapshot() {
+        return published.get();
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    @Override
+    public long version() {
+        return published.get().getVersion();
+    }
+
+    // Вместе с индексами меняется и черновик следующего снимка
+    @Override
+    protected void addToPrioritizedIfNeeded(Task task) {
+        super.addToPrioritizedIfNeeded(task);
+        if (task != null && task.getId() != null) draft = draft.put(task);
+    }
+
+    @Override
+    protected void removeFromPrioritized(Task task) {
+        super.removeFromPrioritized(task);
+        if (task != null && task.getId() != null) draft = draft.remove(task.getType(), task.getId());
+    }
+
+    @Override
+    protected void updateEpicStatusAndTime(Epic epic) {
+        super.updateEpicStatusAndTime(epic);
+        if (epic != null && epic.getId() != null) draft = draft.put(epic);
+    }
+
+    private <R> R fromSnapshot(Function<TaskSnapshot, R> query) {
+        return query.apply(snapshot());
+    }
+
+    private <R> R read(Supplier<R> action) {
+        readLock.lock();
+        try {
+            return action.get();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private <R> R write(Supplier<R> action) {
+        writeLock.lock();
+        try {
+            return action.get();
+        } finally {
+            publish();
+            writeLock.unlock();
+        }
+    }
+
+    private void write(Runnable action) {
+        write(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    // Публикует черновик при выходе из внешнего write: вложенные вызовы (например, из applyBatch)
+    // не должны показывать читателям промежуточное состояние. Если изменение упало на середине,
+    // публикуется то, что успело примениться, — как и в самих картах задач.
+    private void publish() {
+        if (lock.getWriteHoldCount() > 1) return;
+        if (draft != published.get()) published.set(draft);
+    }
+}
@@ -0,0 +1,43 @@
+package manager;
+
+import java.time.Duration;
+
+public final class Durability {
+    public enum Level {
+        SYNC_EACH,
+        GROUP_COMMIT,
+        ASYNC
+    }
+
+    public static final Durability SYNC_EACH = new Durability(Level.SYNC_EACH, Duration.ZERO);
+    public static final Durability ASYNC = new Durability(Level.ASYNC, Duration.ZERO);
+
+    private final Level level;
+    private final Duration window;
+
+    private Durability(Level level, Duration window) {
+        this.level = level;
+        this.window = window;
+    }
+
+    // Записи, пришедшие в течение окна, подтверждаются одним общим force
+    public static Durability groupCommit(Duration window) {
+        if (window == null || window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("Group commit window must be positive");
+        }
+        return new Durability(Level.GROUP_COMMIT, window);
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public Duration getWindow() {
+        return window;
+    }
+
+    @Override
+    public String toString() {
+        return level == Level.GROUP_COMMIT ? level + "(" + window + ")" : level.name();
+    }
+}
@@ -5,220 +5,1066 @@ import exception.ManagerLoadException;
 import tasks.*;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
-public class FileBackedTaskManager extends InMemoryTaskManager {
+// Все методы TaskManager берут монитор менеджера, как в JdbcTaskManager, поэтому менеджер можно
+// отдавать многопоточному HTTP-серверу; живые представления (tasksView и др.) — только для одного потока.
+public class FileBackedTaskManager extends InMemoryTaskManager implements AutoCloseable {
     private final File file;
+    private final StorageMode mode;
+    private final TaskJournal journal;
+    private final PagedTaskFile pages;
+    private final TaskSegments segments;
     private static final String HEADER = "id,type,name,status,description,epic,startTime,durationMinutes\n";
+    private static final String LSN_PREFIX = "#lsn,";
+    private static final int COMPACT_THRESHOLD = 1000;
+    private static final int WRITE_BUFFER = 1 << 16;
+    private static final ThreadLocal<TaskCsvCodec> CODEC = ThreadLocal.withInitial(TaskCsvCodec::new);
+
+    private final ThreadLocal<CompletableFuture<Void>> lastWrite = new ThreadLocal<>();
+    private volatile SnapshotFormat snapshotFormat = SnapshotFormat.CSV;
+    private ExecutorService checkpointExecutor;
+    private CompletableFuture<CheckpointStats> checkpoint;
+    private volatile CheckpointStats lastCheckpoint = new CheckpointStats(0, 0, Duration.ZERO, 0, 0, Duration.ZERO);
+    private volatile long lastCheckpointNanos = System.nanoTime();
+    private Duration maxStaleness = Duration.ZERO;
+    private ScheduledExecutorService saver;
+    private CompletableFuture<Void> pendingSave;
+    private boolean closed;
+    private long capturedVersion;
+    // SNAPSHOT и JOURNAL: неизменяемая копия доски, которую меняют те же изменения, что и карты;
+    // снимок берёт её целиком, не копируя задачи
+    private TaskSnapshot board = TaskSnapshot.EMPTY;
+    private long writtenVersion;
+    private final Object writeLock = new Object();
+    // PAGED и SEGMENTED: id, изменённые с последней записи, и признак массового удаления
+    private final Set<Integer> dirty = new LinkedHashSet<>();
+    private boolean sweep;
+    // PAGED и SEGMENTED: очищенные с последней записи типы и признак, что в записи есть пакет
+    private final Set<TaskType> cleared = EnumSet.noneOf(TaskType.class);
+    private boolean batched;
+    private boolean loading;
+    // SEGMENTED: сегменты завершённых задач, ещё не прочитанные с диска
+    private final Set<String> cold = new HashSet<>();
+    // JOURNAL: записи применяемого пакета, пишутся в журнал одним куском
+    private List<String[]> batchRecords;
 
     public FileBackedTaskManager(File file) {
+        this(file, StorageMode.SNAPSHOT);
+    }
+
+    public FileBackedTaskManager(File file, StorageMode mode) {
         this.file = file;
+        this.mode = mode;
+        this.journal = new TaskJournal(file);
+        this.pages = mode == StorageMode.PAGED ? new PagedTaskFile(file) : null;
+        this.segments = mode == StorageMode.SEGMENTED ? new TaskSegments(file) : null;
+    }
+
+    @Override
+    public synchronized Task getTasksById(int id) {
+        warmTask(id);
+        return super.getTasksById(id);
+    }
+
+    @Override
+    public synchronized List<Task> getTasks() {
+        warmAll();
+        return super.getTasks();
+    }
+
+    @Override
+    public synchronized Page<Task> getTasks(String cursor, int limit) {
+        warmAll();
+        return super.getTasks(cursor, limit);
+    }
+
+    @Override
+    public synchronized List<Task> getPrioritizedTasks() {
+        warmAll();
+        return super.getPrioritizedTasks();
+    }
+
+    @Override
+    public synchronized Page<Task> getPrioritizedTasks(String cursor, int limit) {
+        warmAll();
+        return super.getPrioritizedTasks(cursor, limit);
+    }
+
+    @Override
+    public synchronized List<Task> getPrioritizedBetween(LocalDateTime from, LocalDateTime to) {
+        warmAll();
+        return super.getPrioritizedBetween(from, to);
+    }
+
+    @Override
+    public synchronized Page<Task> getPrioritizedBetween(LocalDateTime from, LocalDateTime to, String cursor, int limit) {
+        warmAll();
+        return super.getPrioritizedBetween(from, to, cursor, limit);
+    }
+
+    // Холодными бывают только сегменты задач со статусом DONE, остальные выборки их не читают
+    @Override
+    public synchronized List<Task> findTasks(TaskQuery query) {
+        if (query != null && (query.getStatuses() == null || query.getStatuses().contains(TaskStatus.DONE))
+                && (query.getTypes() == null || query.getTypes().contains(TaskType.TASK))
+                && query.getEpicId() == null) {
+            warmAll();
+        }
+        return super.findTasks(query);
+    }
+
+    @Override
+    public synchronized List<Task> search(String query, int limit) {
+        warmAll();
+        return super.search(query, limit);
+    }
+
+    @Override
+    public synchronized Collection<Task> tasksView() {
+        warmAll();
+        return super.tasksView();
+    }
+
+    @Override
+    public synchronized SortedSet<Task> prioritizedView() {
+        warmAll();
+        return super.prioritizedView();
+    }
+
+    @Override
+    public synchronized LocalDateTime findNextFreeSlot(Duration duration, LocalDateTime notBefore) {
+        warmAll();
+        return super.findNextFreeSlot(duration, notBefore);
+    }
+
+    @Override
+    public synchronized List<TimeSlot> freeSlots(LocalDateTime from, LocalDateTime to, Duration minDuration) {
+        warmAll();
+        return super.freeSlots(from, to, minDuration);
+    }
+
+    @Override
+    public synchronized Subtask getSubtaskById(int id) {
+        return super.getSubtaskById(id);
+    }
+
+    @Override
+    public synchronized List<Subtask> getSubtasks() {
+        return super.getSubtasks();
+    }
+
+    @Override
+    public synchronized Page<Subtask> getSubtasks(String cursor, int limit) {
+        return super.getSubtasks(cursor, limit);
+    }
+
+    // Эпики отдаются копиями: список подзадач хранимого эпика меняют писатели,
+    // пока вызывающий (HTTP-обработчик) обходит результат уже без монитора
+    @Override
+    public synchronized Epic getEpicById(int id) {
+        return TaskSnapshot.copyOf(super.getEpicById(id));
+    }
+
+    @Override
+    public synchronized List<Epic> getEpics() {
+        return copies(super.getEpics());
+    }
+
+    @Override
+    public synchronized Page<Epic> getEpics(String cursor, int limit) {
+        Page<Epic> page = super.getEpics(cursor, limit);
+        return new Page<>(copies(page.getItems()), page.getNextCursor());
+    }
+
+    @Override
+    public synchronized List<Subtask> getSubtaskFromEpic(int epicId) {
+        return super.getSubtaskFromEpic(epicId);
+    }
+
+    @Override
+    public synchronized List<Task> getHistory() {
+        return super.getHistory();
+    }
+
+    @Override
+    public synchronized Page<Task> getHistory(String cursor, int limit) {
+        return super.getHistory(cursor, limit);
+    }
+
+    @Override
+    public synchronized long version() {
+        return super.version();
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    private static List<Epic> copies(List<Epic> epics) {
+        List<Epic> copies = new ArrayList<>(epics.size());
+        for (Epic epic : epics) {
+            copies.add(TaskSnapshot.copyOf(epic));
+        }
+        return copies;
+    }
+
+    // Проверке пересечений нужны только холодные сегменты, чьё время задевает кандидата
+    @Override
+    public synchronized boolean hasAnyOverlap(Task candidate) {
+        warmOverlapping(candidate);
+        return super.hasAnyOverlap(candidate);
     }
 
     @Override
-    public int createTask(Task task) {
+    public synchronized int createTask(Task task) {
         int id = super.createTask(task);
-        save();
+        recordPut(task);
         return id;
     }
 
     @Override
-    public int createEpic(Epic epic) {
+    public synchronized int createEpic(Epic epic) {
         int id = super.createEpic(epic);
-        save();
+        if (id != -1) recordPut(epic);
         return id;
     }
 
     @Override
-    public int createSubtask(Subtask subtask) {
+    public synchronized int createSubtask(Subtask subtask) {
         int id = super.createSubtask(subtask);
-        save();
+        recordPut(subtask);
         return id;
     }
 
     @Override
-    public void updateTask(Task task) {
+    public synchronized void updateTask(Task task) {
+        if (task != null && task.getId() != null) warmTask(task.getId());
         super.updateTask(task);
-        save();
+        recordPut(task);
     }
 
     @Override
-    public void updateEpic(Epic epic) {
+    public synchronized void updateEpic(Epic epic) {
         super.updateEpic(epic);
-        save();
+        if (epic != null && epics.containsKey(epic.getId())) recordPut(epics.get(epic.getId()));
     }
 
     @Override
-    public void updateSubtask(Subtask subtask) {
+    public synchronized void updateSubtask(Subtask subtask) {
         super.updateSubtask(subtask);
-        save();
+        recordPut(subtask);
     }
 
     @Override
-    public void deleteTaskById(int id) {
+    public synchronized void deleteTaskById(int id) {
+        warmTask(id);
         super.deleteTaskById(id);
-        save();
+        recordDelete(id);
     }
 
     @Override
-    public void deleteEpicById(int id) {
+    public synchronized void deleteEpicById(int id) {
+        Epic epic = epics.get(id);
+        List<Integer> cascaded = epic == null ? List.of() : epic.getSubtasks().stream().map(Task::getId).toList();
         super.deleteEpicById(id);
-        save();
+        // подзадачи эпика удалены вместе с ним
+        cascaded.forEach(this::markDirty);
+        recordDelete(id);
     }
 
     @Override
-    public void deleteSubtaskById(int id) {
+    public synchronized void deleteSubtaskById(int id) {
         super.deleteSubtaskById(id);
-        save();
+        recordDelete(id);
     }
 
     @Override
-    public void deleteTask() {
+    public synchronized void deleteTask() {
+        warmAll();
         super.deleteTask();
-        save();
+        recordClear(TaskType.TASK);
     }
 
     @Override
-    public void deleteEpics() {
+    public synchronized void deleteEpics() {
         super.deleteEpics();
-        save();
+        recordClear(TaskType.EPIC);
     }
 
     @Override
-    public void deleteSubtasks() {
+    public synchronized void deleteSubtasks() {
         super.deleteSubtasks();
-        save();
+        recordClear(TaskType.SUBTASK);
+    }
+
+    // Пакет сохраняется один раз: в журнал — одной записью BATCH, которую при сбое посередине
+    // восстановление отбросит целиком, в остальных режимах — одним сохранением после применения
+    // (в PAGED и SEGMENTED перед ним пакет тоже ложится в журнал, см. writeChanges)
+    @Override
+    public synchronized List<Integer> applyBatch(List<Mutation> batch) {
+        if (batch != null) {
+            // проверка пакета смотрит в индексы напрямую, поэтому нужные холодные сегменты читаются заранее
+            for (Mutation mutation : batch) {
+                if (mutation == null) continue;
+                if (mutation.getType() == TaskType.TASK && mutation.getId() != null) warmTask(mutation.getId());
+                warmOverlapping(mutation.getTask());
+            }
+        }
+        List<Integer> ids;
+        batchRecords = new ArrayList<>();
+        try {
+            ids = super.applyBatch(batch);
+        } finally {
+            List<String[]> records = batchRecords;
+            batchRecords = null;
+            if (!records.isEmpty()) {
+                lastWrite.set(journal.appendBatch(records));
+                compactIfNeeded();
+            }
+        }
+        if (mode != StorageMode.JOURNAL && !ids.isEmpty()) {
+            batched = tracksDirty();
+            saveOrSchedule();
+        }
+        return ids;
+    }
+
+    private void recordPut(Task task) {
+        if (mode == StorageMode.JOURNAL) {
+            append(TaskJournal.PUT, toString(task));
+        } else {
+            markDirty(task.getId());
+            saveOrSchedule();
+        }
+    }
+
+    private void recordDelete(int id) {
+        if (mode == StorageMode.JOURNAL) {
+            append(TaskJournal.DELETE, String.valueOf(id));
+        } else {
+            markDirty(id);
+            saveOrSchedule();
+        }
+    }
+
+    private void recordClear(TaskType type) {
+        if (mode == StorageMode.JOURNAL) {
+            append(TaskJournal.CLEAR, type.name());
+        } else {
+            sweep |= tracksDirty();
+            if (tracksDirty()) cleared.add(type);
+            saveOrSchedule();
+        }
+    }
+
+    // Пересчёт эпика меняет его статус и время, поэтому эпик тоже нужно переписать
+    @Override
+    protected void updateEpicStatusAndTime(Epic epic) {
+        super.updateEpicStatusAndTime(epic);
+        markDirty(epic.getId());
+        if (!tracksDirty()) board = board.put(epic);
+    }
+
+    @Override
+    protected void addToPrioritizedIfNeeded(Task task) {
+        super.addToPrioritizedIfNeeded(task);
+        if (!tracksDirty() && task != null && task.getId() != null) board = board.put(task);
+    }
+
+    @Override
+    protected void removeFromPrioritized(Task task) {
+        super.removeFromPrioritized(task);
+        if (!tracksDirty() && task != null && task.getId() != null) board = board.remove(task.getType(), task.getId());
+    }
+
+    private void markDirty(int id) {
+        if (tracksDirty() && !loading) {
+            dirty.add(id);
+        }
+    }
+
+    private boolean tracksDirty() {
+        return mode == StorageMode.PAGED || mode == StorageMode.SEGMENTED;
+    }
+
+    // Ненулевая задержка включает фоновую запись: изменения копятся и пишутся одним снимком
+    // не позже чем через maxStaleness после первого из них
+    public void setMaxStaleness(Duration maxStaleness) {
+        if (maxStaleness == null || maxStaleness.isNegative()) {
+            throw new IllegalArgumentException("Max staleness must be zero or positive");
+        }
+        if (mode == StorageMode.JOURNAL && !maxStaleness.isZero()) {
+            throw new IllegalStateException("Background saving is not available in JOURNAL mode");
+        }
+        synchronized (this) {
+            this.maxStaleness = maxStaleness;
+        }
+        if (maxStaleness.isZero()) {
+            flush();
+        }
     }
 
-    protected void save() {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
-            writer.write(HEADER);
+    public synchronized Duration getMaxStaleness() {
+        return maxStaleness;
+    }
 
-            for (Task task : getTasks()) {
-                writer.write(toString(task) + "\n");
+    private void saveOrSchedule() {
+        // пакет сохраняется один раз после применения всех изменений
+        if (inBatch()) return;
+        if (maxStaleness.isZero() || closed) {
+            save();
+            return;
+        }
+        if (pendingSave == null) {
+            pendingSave = new CompletableFuture<>();
+            saver().schedule(this::writePending, maxStaleness.toNanos(), TimeUnit.NANOSECONDS);
+        }
+        lastWrite.set(getDurability().getLevel() == Durability.Level.ASYNC
+                ? CompletableFuture.completedFuture(null) : pendingSave);
+    }
+
+    // Выполняется только в потоке записи, поэтому снимки не пишутся параллельно
+    private void writePending() {
+        CompletableFuture<Void> done;
+        SnapshotView view = null;
+        synchronized (this) {
+            done = pendingSave;
+            if (done == null) return;
+            pendingSave = null;
+            if (!tracksDirty()) {
+                view = capture();
             }
-            for (Epic epic : getEpics()) {
-                writer.write(toString(epic) + "\n");
+        }
+        try {
+            if (view != null) {
+                writeSnapshot(view, getDurability().getLevel() != Durability.Level.ASYNC);
+                journal.truncate();
+            } else {
+                writeChanges();
             }
-            for (Subtask subtask : getSubtasks()) {
-                writer.write(toString(subtask) + "\n");
+            done.complete(null);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                // изменения не записаны — остаёмся «грязными» и повторяем попытку позже
+                if (pendingSave == null && !closed) {
+                    pendingSave = new CompletableFuture<>();
+                    saver.schedule(this::writePending, maxStaleness.toNanos(), TimeUnit.NANOSECONDS);
+                }
             }
+            done.completeExceptionally(e);
+            throw e;
+        }
+    }
 
-        } catch (IOException e) {
-            throw new ManagerSaveException("Error while saving to file", e);
+    // Дожидается записи всех изменений, накопленных фоновым сохранением
+    public void flush() {
+        ScheduledExecutorService current;
+        synchronized (this) {
+            current = saver;
+        }
+        if (current == null) return;
+        try {
+            current.submit(this::writePending).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ManagerSaveException) {
+                throw (ManagerSaveException) e.getCause();
+            }
+            throw new ManagerSaveException("Error while saving to file", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ManagerSaveException("Interrupted while saving to file", e);
         }
     }
 
-    private String toString(Task task) {
-        String epicId = "";
-        if (task instanceof Subtask) {
-            epicId = String.valueOf(((Subtask) task).getEpicId());
+    @Override
+    public void close() {
+        flush();
+        ScheduledExecutorService current;
+        synchronized (this) {
+            closed = true;
+            current = saver;
+            saver = null;
+            awaitCheckpoint();
+            if (checkpointExecutor != null) {
+                checkpointExecutor.shutdown();
+                checkpointExecutor = null;
+            }
+        }
+        if (current != null) {
+            current.shutdown();
         }
+        if (pages != null) {
+            synchronized (this) {
+                pages.close();
+            }
+        }
+        journal.close();
+    }
 
-        String start = task.getStartTime() != null ? task.getStartTime().toString() : "";
-        String durationMin = task.getDuration() != null ? String.valueOf(task.getDuration().toMinutes()) : "";
+    private synchronized ScheduledExecutorService saver() {
+        if (saver == null) {
+            saver = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "saver-" + file.getName());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return saver;
+    }
 
-        return String.join(",",
-                String.valueOf(task.getId()),
-                task.getType().name(),
-                task.getName(),
-                task.getTaskStatus().name(),
-                task.getDescription(),
-                epicId,
-                start,
-                durationMin
-        );
+    public void setDurability(Durability durability) {
+        if (durability == null) throw new IllegalArgumentException("Durability is null");
+        journal.setDurability(durability);
     }
 
-    private static Task fromString(String value) {
-        String[] fields = value.split(",", -1);
-        int id = Integer.parseInt(fields[0]);
-        TaskType type = TaskType.valueOf(fields[1]);
-        String name = fields[2];
-        TaskStatus status = TaskStatus.valueOf(fields[3]);
-        String description = fields[4];
-        String epicField = fields.length > 5 ? fields[5] : "";
-        String startField = fields.length > 5 ? fields[6] : "";
-        String durationField = fields.length > 5 ? fields[7] : "";
-
-        LocalDateTime start = startField.isEmpty() ? null : LocalDateTime.parse(startField);
-        Duration dur = durationField.isEmpty() ? null : Duration.ofMinutes(Long.parseLong(durationField));
-
-
-        switch (type) {
-            case TASK:
-                Task task = new Task(name, description, status);
-                task.setId(id);
-                task.setStartTime(start);
-                task.setDuration(dur);
-                return task;
-            case EPIC:
-                Epic epic = new Epic(name, description);
-                epic.setId(id);
-                epic.setTaskStatus(status);
-                return epic;
-            case SUBTASK:
-                int epicId = Integer.parseInt(epicField);
-                Subtask subtask = new Subtask(name, description, status, epicId);
-                subtask.setId(id);
-                subtask.setStartTime(start);
-                subtask.setDuration(dur);
-                return subtask;
-            default:
-                throw new IllegalArgumentException("Unknown task type: " + type);
+    public void setSnapshotFormat(SnapshotFormat snapshotFormat) {
+        if (snapshotFormat == null) throw new IllegalArgumentException("Snapshot format is null");
+        this.snapshotFormat = snapshotFormat;
+    }
+
+    public SnapshotFormat getSnapshotFormat() {
+        return snapshotFormat;
+    }
+
+    public Durability getDurability() {
+        return journal.getDurability();
+    }
+
+    // Завершается, когда последняя запись текущего потока гарантированно на диске
+    @Override
+    public CompletableFuture<Void> whenDurable() {
+        CompletableFuture<Void> write = lastWrite.get();
+        return write != null ? write : super.whenDurable();
+    }
+
+    private void append(String op, String payload) {
+        if (batchRecords != null) {
+            batchRecords.add(new String[]{op, payload});
+            return;
+        }
+        lastWrite.set(journal.append(op, payload));
+        compactIfNeeded();
+    }
+
+    private void compactIfNeeded() {
+        int live = tasks.size() + epics.size() + subtasks.size();
+        if (journal.size() > Math.max(COMPACT_THRESHOLD, live)) {
+            checkpoint();
         }
     }
 
+    protected synchronized void save() {
+        if (tracksDirty()) {
+            writeChanges();
+            lastWrite.remove();
+            return;
+        }
+        awaitCheckpoint();
+        writeSnapshot(capture(), getDurability().getLevel() != Durability.Level.ASYNC);
+        journal.truncate();
+        lastWrite.remove();
+    }
 
-    public static FileBackedTaskManager loadFromFile(File file) {
-        FileBackedTaskManager manager = new FileBackedTaskManager(file);
-        if (!file.exists()) return manager;
+    // Снимок пишется в фоне; изменения, сделанные во время записи, остаются в журнале
+    // после зафиксированного lsn и будут повторно применены при загрузке
+    public synchronized CompletableFuture<CheckpointStats> checkpoint() {
+        if (tracksDirty()) {
+            save();
+            return CompletableFuture.completedFuture(getCheckpointStats());
+        }
+        if (checkpoint != null && !checkpoint.isDone()) {
+            return checkpoint;
+        }
+        SnapshotView view = capture();
+        journal.rotate();
+        checkpoint = CompletableFuture.supplyAsync(() -> writeCheckpoint(view), checkpointExecutor());
+        return checkpoint;
+    }
 
-        try {
-            List<String> lines = Files.readAllLines(file.toPath());
-            int maxId = 0;
+    // Запись на месте затрагивает много записей или сегментов и при сбое обрывается посередине.
+    // Если в ней есть пакет, все изменения сначала ложатся в журнал одной записью BATCH,
+    // и загрузка после сбоя повторит их; после записи журнал больше не нужен
+    private synchronized void writeChanges() {
+        boolean redo = batched;
+        if (redo) {
+            journalChanges();
+        }
+        if (mode == StorageMode.PAGED) {
+            writePages();
+        } else {
+            writeSegments();
+        }
+        if (redo) {
+            journal.truncate();
+            batched = false;
+        }
+    }
+
+    private void journalChanges() {
+        List<String[]> records = new ArrayList<>();
+        for (TaskType type : cleared) {
+            records.add(new String[]{TaskJournal.CLEAR, type.name()});
+        }
+        for (int id : dirty) {
+            Task task = find(id);
+            records.add(task == null ? new String[]{TaskJournal.DELETE, String.valueOf(id)}
+                    : new String[]{TaskJournal.PUT, toString(task)});
+        }
+        journal.appendBatch(records);
+        if (getDurability().getLevel() != Durability.Level.ASYNC) {
+            journal.force();
+        }
+    }
 
-            for (int i = 1; i < lines.size(); i++) {
-                String line = lines.get(i).trim();
-                if (line.isEmpty()) continue;
+    // Пишет только последние версии изменённых записей, на их же место в файле
+    private synchronized void writePages() {
+        if (sweep) {
+            pages.retain(id -> tasks.containsKey(id) || epics.containsKey(id) || subtasks.containsKey(id));
+            sweep = false;
+            cleared.clear();
+        }
+        TaskCsvCodec codec = CODEC.get();
+        StringBuilder row = new StringBuilder(128);
+        for (int id : dirty) {
+            Task task = find(id);
+            if (task == null) {
+                pages.remove(id);
+                continue;
+            }
+            row.setLength(0);
+            codec.write(task, row);
+            pages.put(id, row.toString());
+        }
+        dirty.clear();
+        pages.commit(getDurability().getLevel() != Durability.Level.ASYNC);
+    }
 
-                Task task = fromString(line);
-                int id = task.getId();
-                if (id > maxId) {
-                    maxId = id;
+    // Переписывает только сегменты, в которых что-то изменилось, и затем манифест
+    private synchronized void writeSegments() {
+        Set<Long> touched = new TreeSet<>();
+        if (sweep) {
+            for (String name : segments.names()) {
+                TaskSegments.Segment segment = segments.get(name);
+                touched.add(segmentKey(segment.type, segment.range));
+            }
+            sweep = false;
+            cleared.clear();
+        }
+        for (int id : dirty) {
+            Task task = find(id);
+            if (task != null) {
+                touched.add(segmentKey(task.getType(), id / TaskSegments.RANGE));
+                continue;
+            }
+            for (TaskType type : TaskType.values()) {
+                if (segments.get(TaskSegments.nameOf(type, id)) != null) {
+                    touched.add(segmentKey(type, id / TaskSegments.RANGE));
                 }
+            }
+        }
+
+        boolean force = getDurability().getLevel() != Durability.Level.ASYNC;
+        for (long key : touched) {
+            TaskType type = TaskType.values()[(int) (key >>> 32)];
+            int range = (int) key;
+            // холодный сегмент сначала читается, иначе его задачи пропадут при перезаписи
+            warm(TaskSegments.nameOf(type, range * TaskSegments.RANGE));
+
+            IntObjectMap<? extends Task> source = type == TaskType.TASK ? tasks
+                    : type == TaskType.EPIC ? epics : subtasks;
+            List<Task> rows = new ArrayList<>();
+            for (int id = range * TaskSegments.RANGE; id < (range + 1) * TaskSegments.RANGE; id++) {
+                Task task = source.get(id);
+                if (task != null) rows.add(task);
+            }
+            segments.write(type, range, rows, force);
+        }
+        segments.writeManifest(generatorId, force);
+        dirty.clear();
+    }
+
+    private static long segmentKey(TaskType type, int range) {
+        return ((long) type.ordinal() << 32) | range;
+    }
+
+    private synchronized void warm(String name) {
+        if (!cold.remove(name)) return;
+        for (Task task : segments.read(name)) {
+            putLoaded(task);
+            addToPrioritizedIfNeeded(task);
+        }
+    }
+
+    private synchronized void warmTask(int id) {
+        if (!cold.isEmpty()) {
+            warm(TaskSegments.nameOf(TaskType.TASK, id));
+        }
+    }
+
+    private synchronized void warmAll() {
+        for (String name : new ArrayList<>(cold)) {
+            warm(name);
+        }
+    }
+
+    private synchronized void warmOverlapping(Task candidate) {
+        if (cold.isEmpty() || candidate == null) return;
+        if (candidate.getStartTime() == null || candidate.getEndTime() == null) return;
+        for (String name : new ArrayList<>(cold)) {
+            if (segments.get(name).overlaps(candidate.getStartTime(), candidate.getEndTime())) {
+                warm(name);
+            }
+        }
+    }
+
+    synchronized int coldSegments() {
+        return cold.size();
+    }
+
+    private Task find(int id) {
+        Task task = tasks.get(id);
+        if (task == null) task = epics.get(id);
+        if (task == null) task = subtasks.get(id);
+        return task;
+    }
+
+    public CheckpointStats getCheckpointStats() {
+        CheckpointStats last = lastCheckpoint;
+        return new CheckpointStats(last.getCheckpoints(), last.getLsn(), last.getLastDuration(),
+                last.getLastBytesWritten(), journal.lsn() - last.getLsn(),
+                Duration.ofNanos(System.nanoTime() - lastCheckpointNanos));
+    }
+
+    private void awaitCheckpoint() {
+        if (checkpoint == null) return;
+        try {
+            checkpoint.join();
+        } catch (RuntimeException ignored) {
+            // неудачный чекпоинт оставил журнал в ротации, синхронный снимок его перекроет
+        }
+    }
+
+    private CheckpointStats writeCheckpoint(SnapshotView view) {
+        long started = System.nanoTime();
+        long bytes = writeSnapshot(view, true);
+        journal.dropRotated();
+
+        CheckpointStats last = lastCheckpoint;
+        lastCheckpointNanos = view.capturedAt;
+        lastCheckpoint = new CheckpointStats(last.getCheckpoints() + 1, view.lsn,
+                Duration.ofNanos(System.nanoTime() - started), bytes, 0, Duration.ZERO);
+        return lastCheckpoint;
+    }
+
+    private synchronized ExecutorService checkpointExecutor() {
+        if (checkpointExecutor == null) {
+            checkpointExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "checkpoint-" + file.getName());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return checkpointExecutor;
+    }
 
-                if (task instanceof Epic) {
-                    manager.epics.put(id, (Epic) task);
-                } else if (task instanceof Subtask) {
-                    manager.subtasks.put(id, (Subtask) task);
-                    manager.addToPrioritizedIfNeeded(task);
+    // Под замком только берётся готовая копия доски; списки задач строит тот, кто пишет файл
+    private synchronized SnapshotView capture() {
+        return new SnapshotView(board, journal.lsn(), ++capturedVersion);
+    }
+
+    // Снимки могут писать разные потоки; более старый снимок не должен затереть более новый
+    private long writeSnapshot(SnapshotView view, boolean force) {
+        Path target = file.toPath();
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        synchronized (writeLock) {
+            if (view.version <= writtenVersion) return 0;
+            try {
+                if (snapshotFormat == SnapshotFormat.BINARY) {
+                    writeBinary(tmp, view, force);
                 } else {
-                    manager.tasks.put(id, task);
-                    manager.addToPrioritizedIfNeeded(task);
+                    writeCsv(tmp, view.groups(), view.lsn, force);
                 }
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                writtenVersion = view.version;
+                return Files.size(target);
+            } catch (IOException e) {
+                throw new ManagerSaveException("Error while saving to file", e);
             }
+        }
+    }
+
+    static void writeCsv(Path path, List<List<? extends Task>> groups, long lsn, boolean force) throws IOException {
+        TaskCsvCodec codec = CODEC.get();
+        StringBuilder rows = new StringBuilder(WRITE_BUFFER + 1024);
+        char[] chunk = new char[0];
 
-            for (Subtask subtask : manager.subtasks.values()) {
-                Epic epic = manager.epics.get(subtask.getEpicId());
-                if (epic != null) {
-                    epic.getSubtasks().add(subtask);
+        try (FileOutputStream out = new FileOutputStream(path.toFile());
+             Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            rows.append(HEADER);
+            for (List<? extends Task> group : groups) {
+                for (Task task : group) {
+                    codec.write(task, rows);
+                    rows.append('\n');
+                    if (rows.length() >= WRITE_BUFFER) {
+                        chunk = drain(rows, chunk, writer);
+                    }
                 }
             }
+            if (lsn > 0) {
+                rows.append(LSN_PREFIX).append(lsn).append('\n');
+            }
+            drain(rows, chunk, writer);
+            writer.flush();
+            if (force) {
+                out.getFD().sync();
+            }
+        }
+    }
 
-            for (Epic epic : manager.epics.values()) {
-                manager.updateEpicStatusAndTime(epic);
+    private static char[] drain(StringBuilder rows, char[] chunk, Writer writer) throws IOException {
+        int length = rows.length();
+        if (chunk.length < length) {
+            chunk = new char[Math.max(length, WRITE_BUFFER * 2)];
+        }
+        rows.getChars(0, length, chunk, 0);
+        writer.write(chunk, 0, length);
+        rows.setLength(0);
+        return chunk;
+    }
+
+    private void writeBinary(Path path, SnapshotView view, boolean force) throws IOException {
+        try (FileChannel out = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            BinarySnapshot.write(out, view.groups(), view.lsn);
+            if (force) {
+                out.force(true);
             }
+        }
+    }
+
+    private String toString(Task task) {
+        StringBuilder row = new StringBuilder(64);
+        CODEC.get().write(task, row);
+        return row.toString();
+    }
+
+    private static Task fromString(String value) {
+        return CODEC.get().parse(value);
+    }
+
+    public static FileBackedTaskManager loadFromFile(File file) {
+        return loadFromFile(file, StorageMode.SNAPSHOT);
+    }
 
-            manager.generatorId = maxId + 1;
+    public static FileBackedTaskManager loadFromFile(File file, StorageMode mode) {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, mode);
+        long snapshotLsn = 0;
+        boolean paged = false;
+        boolean segmented = false;
+        manager.loading = true;
 
-        } catch (IOException e) {
-            throw new ManagerLoadException("Error while loading from file", e);
+        if (file.exists()) {
+            try {
+                // формат определяется по сигнатуре, старые CSV-файлы читаются как раньше
+                paged = PagedTaskFile.isPaged(file);
+                segmented = TaskSegments.isManifest(file);
+                if (paged) {
+                    manager.loadPaged();
+                } else if (segmented) {
+                    manager.loadSegments();
+                } else {
+                    snapshotLsn = BinarySnapshot.isBinary(file) ? manager.loadBinary() : manager.loadCsv();
+                }
+            } catch (IOException e) {
+                throw new ManagerLoadException("Error while loading from file", e);
+            }
         }
 
+        manager.journal.replay(snapshotLsn, manager::applyJournalRecord);
+        manager.rebuildLoaded();
+        manager.loading = false;
+        if (mode == StorageMode.PAGED && (!paged || manager.pages.isLegacy())) {
+            manager.rewritePages();
+        } else if (mode == StorageMode.SEGMENTED && !segmented) {
+            manager.rewriteAll();
+        } else if (manager.tracksDirty() && manager.journal.size() > 0) {
+            // запись пакета оборвалась: он уже повторён из журнала и дописывается в файл
+            manager.rewriteAll();
+        }
         return manager;
     }
-}
\ No newline at end of file
+
+    private long loadCsv() throws IOException {
+        return new ParallelCsvLoader(LSN_PREFIX, FileBackedTaskManager::fromString).load(file, this::putLoaded);
+    }
+
+    private void loadPaged() throws IOException {
+        PagedTaskFile source = pages != null ? pages : new PagedTaskFile(file);
+        try {
+            source.load(FileBackedTaskManager::fromString, this::putLoaded);
+        } finally {
+            if (source != pages) source.close();
+        }
+    }
+
+    // Переход на страничный формат: файл пишется заново из загруженного состояния
+    private synchronized void rewritePages() {
+        pages.reset();
+        tasks.forEachKey(dirty::add);
+        epics.forEachKey(dirty::add);
+        subtasks.forEachKey(dirty::add);
+        writePages();
+        journal.truncate();
+    }
+
+    // Сегменты читаются параллельно; в SEGMENTED-режиме полностью завершённые задачи
+    // остаются на диске, пока к ним не обратятся
+    private void loadSegments() throws IOException {
+        TaskSegments source = segments != null ? segments : new TaskSegments(file);
+        source.readManifest();
+        generatorId = Math.max(generatorId, source.nextId());
+
+        List<String> hot = new ArrayList<>();
+        for (String name : source.names()) {
+            TaskSegments.Segment segment = source.get(name);
+            // журнал после сбоя может менять любые задачи, поэтому тогда читаются все сегменты
+            if (segments != null && segment.type == TaskType.TASK && segment.done && journal.isEmpty()) {
+                cold.add(name);
+            } else {
+                hot.add(name);
+            }
+        }
+        hot.parallelStream().map(source::read).toList().forEach(rows -> rows.forEach(this::putLoaded));
+    }
+
+    // Переписывает все задачи поверх файла; журнал удаляется, только когда запись завершена
+    private synchronized void rewriteAll() {
+        sweep = true;
+        tasks.forEachKey(dirty::add);
+        epics.forEachKey(dirty::add);
+        subtasks.forEachKey(dirty::add);
+        writeChanges();
+        journal.truncate();
+    }
+
+    // Следующие снимки пишутся в том же формате, что и прочитанный
+    private long loadBinary() throws IOException {
+        snapshotFormat = SnapshotFormat.BINARY;
+        try (BinarySnapshot snapshot = BinarySnapshot.open(file)) {
+            for (int i = 0; i < snapshot.size(); i++) {
+                putLoaded(snapshot.get(i));
+            }
+            return snapshot.lsn();
+        }
+    }
+
+    private void putLoaded(Task task) {
+        int id = task.getId();
+        if (id >= generatorId) {
+            generatorId = id + 1;
+        }
+
+        if (task instanceof Epic) {
+            epics.put(id, (Epic) task);
+        } else if (task instanceof Subtask) {
+            subtasks.put(id, (Subtask) task);
+        } else {
+            tasks.put(id, task);
+        }
+    }
+
+    private void applyJournalRecord(String op, String payload) {
+        switch (op) {
+            case TaskJournal.PUT -> putLoaded(fromString(payload));
+            case TaskJournal.DELETE -> {
+                int id = Integer.parseInt(payload);
+                tasks.remove(id);
+                subtasks.remove(id);
+                if (epics.remove(id) != null) {
+                    subtasks.values().removeIf(subtask -> subtask.getEpicId() == id);
+                }
+            }
+            case TaskJournal.CLEAR -> {
+                switch (TaskType.valueOf(payload)) {
+                    case TASK -> tasks.clear();
+                    case SUBTASK -> subtasks.clear();
+                    case EPIC -> {
+                        epics.clear();
+                        subtasks.clear();
+                    }
+                }
+            }
+            default -> throw new ManagerLoadException("Unknown journal operation: " + op);
+        }
+    }
+
+    private void rebuildLoaded() {
+        for (Task task : tasks.values()) {
+            addToPrioritizedIfNeeded(task);
+        }
+        for (Subtask subtask : subtasks.values()) {
+            addToPrioritizedIfNeeded(subtask);
+        }
+
+        // каждый эпик пересчитывается независимо, поэтому связи и агрегаты строятся параллельно
+        Map<Integer, List<Subtask>> byEpic = subtasks.values().parallelStream()
+                .filter(subtask -> epics.containsKey(subtask.getEpicId()))
+                .collect(Collectors.groupingByConcurrent(Subtask::getEpicId));
+        epics.values().parallelStream().forEach(epic -> {
+            List<Subtask> own = byEpic.get(epic.getId());
+            if (own != null) {
+                own.sort(Comparator.comparing(Subtask::getId));
+                own.forEach(epic::addSubtask);
+            }
+            recalculateEpic(epic);
+        });
+        // индексы не потокобезопасны, эпики попадают в них уже после пересчёта
+        for (Epic epic : epics.values()) {
+            addToPrioritizedIfNeeded(epic);
+        }
+    }
+
+    private static class SnapshotView {
+        private final TaskSnapshot board;
+        private final long lsn;
+        private final long version;
+        private final long capturedAt = System.nanoTime();
+
+        private SnapshotView(TaskSnapshot board, long lsn, long version) {
+            this.board = board;
+            this.lsn = lsn;
+            this.version = version;
+        }
+
+        private List<List<? extends Task>> groups() {
+            return List.of(board.getTasks(), board.getEpicHeaders(), board.getSubtasks());
+        }
+    }
+}
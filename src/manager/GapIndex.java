@@ -0,0 +1,270 @@
+package manager;
+
+import tasks.Task;
+import tasks.TimeSlot;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+// Индекс свободного времени. Занятость хранится ступенчатой функцией: ключ — момент,
+// значение — сколько задач идёт с этого момента до следующего ключа. Промежутки с нулевой
+// занятостью между первым и последним ключом лежат отдельно в AVL-дереве по началу, где
+// в каждом узле хранится наибольшая длина окна в поддереве (как наибольший конец в IntervalIndex).
+// Поиск окна спускается только в поддеревья, где окно нужной длины есть, поэтому стоит O(log n).
+// Добавление и удаление задачи пересчитывают только соседние ступени.
+class GapIndex {
+    private final TreeMap<LocalDateTime, Integer> depth = new TreeMap<>();
+    // сколько задач кончается в момент: смежные задачи сливаются в одну ступень, а задача
+    // нулевой длины между ними помещается
+    private final TreeMap<LocalDateTime, Integer> ends = new TreeMap<>();
+    private final Map<Integer, LocalDateTime[]> byId = new HashMap<>();
+    private Gap gaps;
+
+    void add(Task task) {
+        if (task == null || task.getId() == null) return;
+        LocalDateTime start = task.getStartTime();
+        LocalDateTime end = task.getEndTime();
+        if (start == null || end == null || !start.isBefore(end)) return;
+
+        remove(task.getId());
+        byId.put(task.getId(), new LocalDateTime[]{start, end});
+        ends.merge(end, 1, Integer::sum);
+        apply(start, end, 1);
+    }
+
+    void remove(int id) {
+        LocalDateTime[] interval = byId.remove(id);
+        if (interval != null) {
+            ends.merge(interval[1], -1, (a, b) -> a + b == 0 ? null : a + b);
+            apply(interval[0], interval[1], -1);
+        }
+    }
+
+    // Самое раннее начало окна длиной duration не раньше notBefore
+    LocalDateTime findNextFreeSlot(Duration duration, LocalDateTime notBefore) {
+        long need = duration.toSeconds();
+        if (need == 0) return firstPoint(notBefore);
+        if (depthAt(notBefore) == 0) {
+            LocalDateTime busy = depth.higherKey(notBefore);
+            if (busy == null || seconds(notBefore, busy) >= need) return notBefore;
+        }
+        Gap gap = first(gaps, notBefore, need);
+        if (gap != null) return gap.start;
+        LocalDateTime last = depth.lastKey();
+        return last.isAfter(notBefore) ? last : notBefore;
+    }
+
+    // Задача нулевой длины пересекается только с задачей, строго внутри которой лежит, поэтому ей
+    // подходит начало задачи и стык смежных. Проходит концы задач внутри занятого промежутка
+    private LocalDateTime firstPoint(LocalDateTime from) {
+        LocalDateTime point = from;
+        while (inside(point)) {
+            point = ends.higherKey(point);
+        }
+        return point;
+    }
+
+    // Есть ли задача с началом раньше point и концом позже
+    private boolean inside(LocalDateTime point) {
+        Map.Entry<LocalDateTime, Integer> before = depth.lowerEntry(point);
+        int covering = before == null ? 0 : before.getValue();
+        return covering - ends.getOrDefault(point, 0) > 0;
+    }
+
+    // Свободные окна внутри [from, to) не короче minDuration
+    List<TimeSlot> freeSlots(LocalDateTime from, LocalDateTime to, Duration minDuration) {
+        List<TimeSlot> slots = new ArrayList<>();
+        long need = minDuration.toSeconds();
+        LocalDateTime freeFrom = depthAt(from) == 0 ? from : null;
+        for (Map.Entry<LocalDateTime, Integer> step : depth.subMap(from, false, to, false).entrySet()) {
+            if (step.getValue() == 0) {
+                if (freeFrom == null) freeFrom = step.getKey();
+            } else if (freeFrom != null) {
+                addSlot(slots, freeFrom, step.getKey(), need);
+                freeFrom = null;
+            }
+        }
+        if (freeFrom != null) addSlot(slots, freeFrom, to, need);
+        return slots;
+    }
+
+    private static void addSlot(List<TimeSlot> slots, LocalDateTime start, LocalDateTime end, long need) {
+        if (start.isBefore(end) && seconds(start, end) >= need) {
+            slots.add(new TimeSlot(start, end));
+        }
+    }
+
+    private int depthAt(LocalDateTime time) {
+        Map.Entry<LocalDateTime, Integer> step = depth.floorEntry(time);
+        return step == null ? 0 : step.getValue();
+    }
+
+    private void apply(LocalDateTime start, LocalDateTime end, int delta) {
+        // затронутое окно: от предыдущей ступени до следующей за концом
+        LocalDateTime low = depth.lowerKey(start);
+        LocalDateTime high = depth.higherKey(end);
+        List<LocalDateTime> touched = new ArrayList<>();
+        collect(gaps, low, high, touched);
+        for (LocalDateTime gapStart : touched) {
+            gaps = delete(gaps, gapStart);
+        }
+
+        depth.putIfAbsent(start, depthAt(start));
+        depth.putIfAbsent(end, depthAt(end));
+        for (Map.Entry<LocalDateTime, Integer> step : depth.subMap(start, true, end, false).entrySet()) {
+            step.setValue(step.getValue() + delta);
+        }
+        coalesce(start);
+        coalesce(end);
+
+        LocalDateTime gapStart = null;
+        NavigableMap<LocalDateTime, Integer> steps = low == null ? depth : depth.tailMap(low, true);
+        for (Map.Entry<LocalDateTime, Integer> step : steps.entrySet()) {
+            if (gapStart != null) {
+                gaps = insert(gaps, new Gap(gapStart, step.getKey()));
+                gapStart = null;
+            }
+            if (high != null && !step.getKey().isBefore(high)) break;
+            // ступень с нулём перед следующим ключом — окно внутри расписания
+            if (step.getValue() == 0) gapStart = step.getKey();
+        }
+    }
+
+    // Ступень, равная предыдущей, лишняя; ступень с нулём в самом начале тоже
+    private void coalesce(LocalDateTime key) {
+        Integer value = depth.get(key);
+        if (value == null) return;
+        Map.Entry<LocalDateTime, Integer> previous = depth.lowerEntry(key);
+        int before = previous == null ? 0 : previous.getValue();
+        if (before == value) depth.remove(key);
+    }
+
+    // Самое раннее окно, начинающееся после after и не короче need
+    private static Gap first(Gap node, LocalDateTime after, long need) {
+        while (node != null && node.maxLength >= need) {
+            if (!node.start.isAfter(after)) {
+                node = node.right;
+                continue;
+            }
+            Gap left = first(node.left, after, need);
+            if (left != null) return left;
+            if (node.length >= need) return node;
+            node = node.right;
+        }
+        return null;
+    }
+
+    // Начала окон в [low, high); null — без границы
+    private static void collect(Gap node, LocalDateTime low, LocalDateTime high, List<LocalDateTime> starts) {
+        if (node == null) return;
+        boolean fromLow = low == null || !node.start.isBefore(low);
+        boolean toHigh = high == null || node.start.isBefore(high);
+        if (fromLow) collect(node.left, low, high, starts);
+        if (fromLow && toHigh) starts.add(node.start);
+        if (toHigh) collect(node.right, low, high, starts);
+    }
+
+    private static Gap insert(Gap node, Gap added) {
+        if (node == null) return added;
+        if (added.start.isBefore(node.start)) {
+            node.left = insert(node.left, added);
+        } else {
+            node.right = insert(node.right, added);
+        }
+        return balance(node);
+    }
+
+    private static Gap delete(Gap node, LocalDateTime start) {
+        if (node == null) return null;
+        int cmp = start.compareTo(node.start);
+        if (cmp < 0) {
+            node.left = delete(node.left, start);
+        } else if (cmp > 0) {
+            node.right = delete(node.right, start);
+        } else {
+            if (node.left == null) return node.right;
+            if (node.right == null) return node.left;
+            Gap successor = node.right;
+            while (successor.left != null) successor = successor.left;
+            successor.right = deleteMin(node.right);
+            successor.left = node.left;
+            node = successor;
+        }
+        return balance(node);
+    }
+
+    private static Gap deleteMin(Gap node) {
+        if (node.left == null) return node.right;
+        node.left = deleteMin(node.left);
+        return balance(node);
+    }
+
+    private static Gap balance(Gap node) {
+        update(node);
+        int skew = height(node.left) - height(node.right);
+        if (skew > 1) {
+            if (height(node.left.left) < height(node.left.right)) node.left = rotateLeft(node.left);
+            return rotateRight(node);
+        }
+        if (skew < -1) {
+            if (height(node.right.right) < height(node.right.left)) node.right = rotateRight(node.right);
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private static Gap rotateRight(Gap node) {
+        Gap left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+    private static Gap rotateLeft(Gap node) {
+        Gap right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+
+    private static void update(Gap node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        long maxLength = node.length;
+        if (node.left != null) maxLength = Math.max(maxLength, node.left.maxLength);
+        if (node.right != null) maxLength = Math.max(maxLength, node.right.maxLength);
+        node.maxLength = maxLength;
+    }
+
+    private static int height(Gap node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static long seconds(LocalDateTime start, LocalDateTime end) {
+        return Duration.between(start, end).toSeconds();
+    }
+
+    private static class Gap {
+        private final LocalDateTime start;
+        private final long length;
+        private long maxLength;
+        private int height = 1;
+        private Gap left;
+        private Gap right;
+
+        private Gap(LocalDateTime start, LocalDateTime end) {
+            this.start = start;
+            this.length = seconds(start, end);
+            this.maxLength = length;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package manager;
+
+import java.util.Arrays;
+
+// Столбцы в массивах на куче: по массиву на поле, индекс — id задачи
+class HeapTaskColumns extends TaskColumns {
+    private byte[] types = new byte[16];
+    private byte[] statuses = new byte[16];
+    private long[] starts = new long[16];
+    private int[] durations = new int[16];
+    private int[] epicIds = new int[16];
+    private int[] next = new int[16];
+    private int[] prev = new int[16];
+    private String[] names = new String[16];
+    private String[] descriptions = new String[16];
+
+    @Override
+    int rows() {
+        return types.length;
+    }
+
+    @Override
+    void ensureCapacity(int id) {
+        if (id < types.length) return;
+        int capacity = Math.max(id + 1, types.length + (types.length >> 1));
+        types = Arrays.copyOf(types, capacity);
+        statuses = Arrays.copyOf(statuses, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        durations = Arrays.copyOf(durations, capacity);
+        epicIds = Arrays.copyOf(epicIds, capacity);
+        next = Arrays.copyOf(next, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+        names = Arrays.copyOf(names, capacity);
+        descriptions = Arrays.copyOf(descriptions, capacity);
+    }
+
+    @Override
+    byte typeCode(int id) {
+        return types[id];
+    }
+
+    @Override
+    void setTypeCode(int id, byte code) {
+        types[id] = code;
+    }
+
+    @Override
+    byte statusCode(int id) {
+        return statuses[id];
+    }
+
+    @Override
+    void setStatusCode(int id, byte code) {
+        statuses[id] = code;
+    }
+
+    @Override
+    long start(int id) {
+        return starts[id];
+    }
+
+    @Override
+    void setStart(int id, long minutes) {
+        starts[id] = minutes;
+    }
+
+    @Override
+    int duration(int id) {
+        return durations[id];
+    }
+
+    @Override
+    void setDuration(int id, int minutes) {
+        durations[id] = minutes;
+    }
+
+    @Override
+    int epicId(int id) {
+        return epicIds[id];
+    }
+
+    @Override
+    void setEpicId(int id, int epicId) {
+        epicIds[id] = epicId;
+    }
+
+    @Override
+    int next(int id) {
+        return next[id];
+    }
+
+    @Override
+    void setNext(int id, int next) {
+        this.next[id] = next;
+    }
+
+    @Override
+    int prev(int id) {
+        return prev[id];
+    }
+
+    @Override
+    void setPrev(int id, int prev) {
+        this.prev[id] = prev;
+    }
+
+    @Override
+    String name(int id) {
+        return names[id];
+    }
+
+    @Override
+    void setName(int id, String name) {
+        names[id] = name;
+    }
+
+    @Override
+    String description(int id) {
+        return descriptions[id];
+    }
+
+    @Override
+    void setDescription(int id, String description) {
+        descriptions[id] = description;
+    }
+}
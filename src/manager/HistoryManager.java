@@ -8,6 +8,9 @@ public interface HistoryManager {
 
     List<Task> getHistory();
 
+    // Не больше limit просмотров после задачи afterId (null — с начала истории)
+    List<Task> getHistory(Integer afterId, int limit);
+
     void remove(int id);
 
     void add(Task task);
@@ -3,30 +3,44 @@ package manager;
 import tasks.Task;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
+// Просмотры пишутся и под блокировкой чтения ConcurrentTaskManager, поэтому методы синхронизированы
 public class InMemoryHistoryManager implements HistoryManager {
     private Node head;
     private Node tail;
-    private final Map<Integer, Node> nodeMap = new HashMap<>();
+    private final IntObjectMap<Node> nodeMap = new IntObjectMap<>();
 
 
     @Override
-    public void add(Task task) {
+    public synchronized void add(Task task) {
         if (task == null) return;
         remove(task.getId());
         linkLast(task);
     }
 
     @Override
-    public List<Task> getHistory() {
+    public synchronized List<Task> getHistory() {
         return getTasks();
     }
 
     @Override
-    public void remove(int id) {
+    public synchronized List<Task> getHistory(Integer afterId, int limit) {
+        Node current = head;
+        if (afterId != null) {
+            Node after = nodeMap.get(afterId);
+            if (after == null) throw new IllegalArgumentException("Task " + afterId + " is not in history");
+            current = after.next;
+        }
+        List<Task> page = new ArrayList<>(Math.min(limit, nodeMap.size()));
+        for (; current != null && page.size() < limit; current = current.next) {
+            page.add(current.data);
+        }
+        return page;
+    }
+
+    @Override
+    public synchronized void remove(int id) {
         Node node = nodeMap.remove(id);
         if (node != null) {
             removeNode(node);
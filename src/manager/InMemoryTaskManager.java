@@ -4,17 +4,28 @@ import exception.NotFoundException;
 import exception.IntersectionException;
 import tasks.*;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.time.LocalDateTime;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 
 public class InMemoryTaskManager implements TaskManager {
-    protected final HashMap<Integer, Task> tasks = new HashMap<>();
-    protected final HashMap<Integer, Subtask> subtasks = new HashMap<>();
-    protected final HashMap<Integer, Epic> epics = new HashMap<>();
+    protected final IntObjectMap<Task> tasks = new IntObjectMap<>();
+    protected final IntObjectMap<Subtask> subtasks = new IntObjectMap<>();
+    protected final IntObjectMap<Epic> epics = new IntObjectMap<>();
     protected final HistoryManager historyManager = Managers.getDefaultHistory();
     protected int generatorId = 1;
 
@@ -30,13 +41,18 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public List<Task> getTasks() {
-        return new ArrayList<>(tasks.values());
+        return tasks.valuesByKey();
+    }
+
+    @Override
+    public Page<Task> getTasks(String cursor, int limit) {
+        return pageById(tasks, cursor, limit);
     }
 
     @Override
     public int createTask(Task task) {
         if (task == null) throw new IllegalArgumentException("Task is null");
-        if (hasAnyOverlap(task)) throw new IntersectionException("Task overlaps existing ones");
+        if (!inBatch() && hasAnyOverlap(task)) throw new IntersectionException("Task overlaps existing ones");
         task.setId(getNextId());
         tasks.put(task.getId(), task);
         addToPrioritizedIfNeeded(task);
@@ -47,7 +63,7 @@ public class InMemoryTaskManager implements TaskManager {
     public void updateTask(Task task) {
         if (task == null) throw new IllegalArgumentException("Task is null");
         if (!tasks.containsKey(task.getId())) throw new NotFoundException("Task " + task.getId() + " not found");
-        if (hasAnyOverlap(task)) throw new IntersectionException("Task overlaps existing ones");
+        if (!inBatch() && hasAnyOverlap(task)) throw new IntersectionException("Task overlaps existing ones");
 
         Task old = tasks.put(task.getId(), task);
         removeFromPrioritized(old);
@@ -81,7 +97,12 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public List<Subtask> getSubtasks() {
-        return new ArrayList<>(subtasks.values());
+        return subtasks.valuesByKey();
+    }
+
+    @Override
+    public Page<Subtask> getSubtasks(String cursor, int limit) {
+        return pageById(subtasks, cursor, limit);
     }
 
     @Override
@@ -94,12 +115,12 @@ public class InMemoryTaskManager implements TaskManager {
         Integer subtaskId = subtask.getId();
         if (subtaskId != null && subtaskId.equals(epicId))
             throw new IllegalArgumentException("Subtask id cannot be the same as epic id");
-        if (hasAnyOverlap(subtask)) throw new IntersectionException("Subtask overlaps existing ones");
+        if (!inBatch() && hasAnyOverlap(subtask)) throw new IntersectionException("Subtask overlaps existing ones");
 
         int newId = getNextId();
         subtask.setId(newId);
         subtasks.put(newId, subtask);
-        epic.getSubtasks().add(subtask);
+        epic.addSubtask(subtask);
         addToPrioritizedIfNeeded(subtask);
         updateEpicStatusAndTime(epic);
 
@@ -111,16 +132,23 @@ public class InMemoryTaskManager implements TaskManager {
         if (subtask == null) throw new IllegalArgumentException("Subtask is null");
         int id = subtask.getId();
         if (!subtasks.containsKey(id)) throw new NotFoundException("Subtask " + id + " not found");
-        if (hasAnyOverlap(subtask)) throw new IntersectionException("Subtask overlaps existing ones");
+        // эпик проверяется до любых изменений, иначе подзадача осталась бы без эпика
+        Integer epicId = subtask.getEpicId();
+        if (epicId == null) throw new IllegalArgumentException("EpicId is null");
+        Epic epic = epics.get(epicId);
+        if (epic == null) throw new NotFoundException("Epic " + epicId + " not found");
+        if (!inBatch() && hasAnyOverlap(subtask)) throw new IntersectionException("Subtask overlaps existing ones");
 
         Subtask old = subtasks.put(id, subtask);
         removeFromPrioritized(old);
         addToPrioritizedIfNeeded(subtask);
-        Epic epic = epics.get(subtask.getEpicId());
-        if (epic != null) {
-            epic.updateSubtask(subtask);
-            updateEpicStatusAndTime(epic);
+        Epic previous = old.getEpicId() == null ? null : epics.get(old.getEpicId());
+        if (previous != null && previous != epic) {
+            previous.removeSubtask(old);
+            updateEpicStatusAndTime(previous);
         }
+        epic.updateSubtask(subtask);
+        updateEpicStatusAndTime(epic);
     }
 
     @Override
@@ -130,7 +158,7 @@ public class InMemoryTaskManager implements TaskManager {
         removeFromPrioritized(subtask);
         Epic epic = epics.get(subtask.getEpicId());
         if (epic != null) {
-            epic.getSubtasks().remove(subtask);
+            epic.removeSubtask(subtask);
             updateEpicStatusAndTime(epic);
         }
         historyManager.remove(id);
@@ -143,7 +171,7 @@ public class InMemoryTaskManager implements TaskManager {
             historyManager.remove(subtask.getId());
         });
         epics.values().forEach(epic -> {
-            epic.getSubtasks().clear();
+            epic.clearSubtasks();
             updateEpicStatusAndTime(epic);
         });
         subtasks.clear();
@@ -159,7 +187,12 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public List<Epic> getEpics() {
-        return new ArrayList<>(epics.values());
+        return epics.valuesByKey();
+    }
+
+    @Override
+    public Page<Epic> getEpics(String cursor, int limit) {
+        return pageById(epics, cursor, limit);
     }
 
     @Override
@@ -195,12 +228,14 @@ public class InMemoryTaskManager implements TaskManager {
             removeFromPrioritized(subtask);
             historyManager.remove(subtask.getId());
         });
+        removeFromPrioritized(epic);
         historyManager.remove(id);
     }
 
     @Override
     public void deleteEpics() {
         epics.values().forEach(epic -> {
+            removeFromPrioritized(epic);
             historyManager.remove(epic.getId());
             epic.getSubtasks().forEach(subtask -> {
                 historyManager.remove(subtask.getId());
@@ -215,7 +250,7 @@ public class InMemoryTaskManager implements TaskManager {
     public List<Subtask> getSubtaskFromEpic(int epicId) {
         Epic epic = epics.get(epicId);
         if (epic == null) throw new NotFoundException("Epic " + epicId + " not found");
-        return epic.getSubtasks().stream().toList();
+        return epic.getSubtasks();
     }
 
     @Override
@@ -223,6 +258,188 @@ public class InMemoryTaskManager implements TaskManager {
         return historyManager.getHistory();
     }
 
+    @Override
+    public Page<Task> getHistory(String cursor, int limit) {
+        checkLimit(limit);
+        List<Task> items = historyManager.getHistory(parseIdCursor(cursor), limit + 1);
+        return trimmed(items, limit, task -> String.valueOf(task.getId()));
+    }
+
+    @Override
+    public List<Task> findTasks(TaskQuery query) {
+        if (query == null) throw new IllegalArgumentException("Query is null");
+        Collection<Subtask> epicSubtasks = null;
+        if (query.getEpicId() != null) {
+            Epic epic = epics.get(query.getEpicId());
+            epicSubtasks = epic == null ? List.of() : epic.getSubtasks();
+        }
+        List<Integer> ids = index.select(query, epicSubtasks);
+        List<Task> found = new ArrayList<>(ids.size());
+        for (int id : ids) {
+            found.add(findStored(id));
+        }
+        return found;
+    }
+
+    @Override
+    public List<Task> search(String query, int limit) {
+        if (query == null) throw new IllegalArgumentException("Query is null");
+        checkLimit(limit);
+        List<Task> found = new ArrayList<>();
+        for (int id : searchIndex.search(query, limit)) {
+            found.add(findStored(id));
+        }
+        return found;
+    }
+
+    // Пакет проверяется целиком до первого изменения, поэтому применяется весь или не применяется вовсе.
+    // Пересечения внутри пакета не проверяются по ходу: промежуточные состояния (например, обмен
+    // временем двух задач) могут пересекаться, важно только итоговое.
+    @Override
+    public List<Integer> applyBatch(List<Mutation> batch) {
+        checkBatch(batch);
+        List<Integer> ids = new ArrayList<>(batch.size());
+        batchEpics = new LinkedHashSet<>();
+        try {
+            for (Mutation mutation : batch) {
+                ids.add(mutation.applyTo(this));
+            }
+        } finally {
+            Set<Epic> affected = batchEpics;
+            batchEpics = null;
+            for (Epic epic : affected) {
+                if (epics.get(epic.getId()) == epic) updateEpicStatusAndTime(epic);
+            }
+        }
+        return ids;
+    }
+
+    protected boolean inBatch() {
+        return batchEpics != null;
+    }
+
+    // Пакет проигрывается на наложении поверх текущего состояния: id -> итоговая версия задачи,
+    // null — задача удалена. Созданным задачам наложение выдаёт те же id, что выдаст применение.
+    private void checkBatch(List<Mutation> batch) {
+        if (batch == null) throw new IllegalArgumentException("Batch is null");
+        Map<Integer, Task> overlay = new HashMap<>();
+        // номер изменения, последним тронувшего id, — для сообщений об ошибках
+        Map<Integer, Integer> origin = new HashMap<>();
+        Map<Integer, List<Integer>> createdSubtasks = new HashMap<>();
+        int nextId = generatorId;
+        for (int i = 0; i < batch.size(); i++) {
+            Mutation mutation = batch.get(i);
+            String at = "Mutation " + i + ": ";
+            if (mutation == null) throw new IllegalArgumentException(at + "mutation is null");
+            TaskType type = mutation.getType();
+            Integer id = mutation.getId();
+            switch (mutation.getKind()) {
+                case CREATE -> {
+                    if (mutation.getTask() instanceof Subtask subtask) {
+                        Integer epicId = subtask.getEpicId();
+                        if (epicId == null) throw new IllegalArgumentException(at + "EpicId is null");
+                        if (!isAlive(overlay, epicId, TaskType.EPIC)) {
+                            throw new NotFoundException(at + "Epic " + epicId + " not found");
+                        }
+                        if (epicId.equals(subtask.getId())) {
+                            throw new IllegalArgumentException(at + "Subtask id cannot be the same as epic id");
+                        }
+                        createdSubtasks.computeIfAbsent(epicId, key -> new ArrayList<>()).add(nextId);
+                    }
+                    overlay.put(nextId, mutation.getTask());
+                    origin.put(nextId, i);
+                    nextId++;
+                }
+                case UPDATE -> {
+                    if (!isAlive(overlay, id, type)) throw new NotFoundException(at + mutation.target() + " not found");
+                    if (mutation.getTask() instanceof Subtask subtask) {
+                        Integer epicId = subtask.getEpicId();
+                        if (epicId == null) throw new IllegalArgumentException(at + "EpicId is null");
+                        if (!isAlive(overlay, epicId, TaskType.EPIC)) {
+                            throw new NotFoundException(at + "Epic " + epicId + " not found");
+                        }
+                    }
+                    overlay.put(id, mutation.getTask());
+                    origin.put(id, i);
+                }
+                case DELETE -> {
+                    if (!isAlive(overlay, id, type)) throw new NotFoundException(at + mutation.target() + " not found");
+                    overlay.put(id, null);
+                    if (type == TaskType.EPIC) {
+                        // подзадачи удаляются вместе с эпиком — и сохранённые, и созданные пакетом
+                        Epic stored = epics.get(id);
+                        if (stored != null) stored.getSubtasks().forEach(subtask -> overlay.put(subtask.getId(), null));
+                        createdSubtasks.getOrDefault(id, List.of()).forEach(subtaskId -> overlay.put(subtaskId, null));
+                    }
+                }
+            }
+        }
+        checkBatchOverlaps(overlay, origin);
+    }
+
+    private boolean isAlive(Map<Integer, Task> overlay, int id, TaskType type) {
+        if (overlay.containsKey(id)) {
+            Task task = overlay.get(id);
+            return task != null && task.getType() == type;
+        }
+        return switch (type) {
+            case TASK -> tasks.containsKey(id);
+            case SUBTASK -> subtasks.containsKey(id);
+            case EPIC -> epics.containsKey(id);
+        };
+    }
+
+    // Итоговые интервалы пакета сортируются по началу и сверяются между собой одним проходом,
+    // с остальным расписанием — по дереву интервалов; старые интервалы тронутых пакетом задач не считаются
+    private void checkBatchOverlaps(Map<Integer, Task> overlay, Map<Integer, Integer> origin) {
+        List<Map.Entry<Integer, Task>> timed = new ArrayList<>();
+        for (Map.Entry<Integer, Task> entry : overlay.entrySet()) {
+            Task task = entry.getValue();
+            if (task != null && task.getType() != TaskType.EPIC
+                    && task.getStartTime() != null && task.getEndTime() != null) {
+                timed.add(entry);
+            }
+        }
+        timed.sort(Comparator.comparing(entry -> entry.getValue().getStartTime()));
+
+        // задача пакета с самым поздним концом среди уже пройденных
+        Task latest = null;
+        int latestId = 0;
+        for (Map.Entry<Integer, Task> entry : timed) {
+            Task task = entry.getValue();
+            String at = "Mutation " + origin.get(entry.getKey()) + ": ";
+            if (latest != null && latest.getEndTime().isAfter(task.getStartTime())
+                    && task.getEndTime().isAfter(latest.getStartTime())) {
+                throw new IntersectionException(at + "task overlaps mutation " + origin.get(latestId));
+            }
+            if (latest == null || task.getEndTime().isAfter(latest.getEndTime())) {
+                latest = task;
+                latestId = entry.getKey();
+            }
+            if (intervals.overlapsExcept(task.getStartTime(), task.getEndTime(), overlay::containsKey)) {
+                throw new IntersectionException(at + "task overlaps existing ones");
+            }
+        }
+    }
+
+    private Task findStored(int id) {
+        Task task = tasks.get(id);
+        if (task == null) task = subtasks.get(id);
+        if (task == null) task = epics.get(id);
+        return task;
+    }
+
+    @Override
+    public CompletableFuture<Void> whenDurable() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    // Однопоточный менеджер: текущий поток видит последнюю версию
+    @Override
+    public long version() {
+        return version;
+    }
+
     private int getNextId() {
         return generatorId++;
     }
@@ -232,7 +449,139 @@ public class InMemoryTaskManager implements TaskManager {
         return new ArrayList<>(prioritized);
     }
 
-    protected final TreeSet<Task> prioritized = new TreeSet<>((a, b) -> {
+    // Курсор — начало и id последней задачи страницы, продолжение ищется в TreeSet за O(log n)
+    @Override
+    public Page<Task> getPrioritizedTasks(String cursor, int limit) {
+        return getPrioritizedBetween(null, null, cursor, limit);
+    }
+
+    // Границы диапазона находятся в TreeSet за O(log n), копируются только задачи внутри него
+    @Override
+    public List<Task> getPrioritizedBetween(LocalDateTime from, LocalDateTime to) {
+        checkRange(from, to);
+        return new ArrayList<>(prioritizedRange(from == null ? null : priorityProbe(from), to));
+    }
+
+    @Override
+    public Page<Task> getPrioritizedBetween(LocalDateTime from, LocalDateTime to, String cursor, int limit) {
+        checkLimit(limit);
+        checkRange(from, to);
+        List<Task> items = new ArrayList<>(Math.min(limit + 1, prioritized.size()));
+        for (Task task : prioritizedRange(priorityLowerBound(from, cursor), to)) {
+            items.add(task);
+            if (items.size() > limit) break;
+        }
+        return trimmed(items, limit, InMemoryTaskManager::priorityCursor);
+    }
+
+    // Задачи после after (null — с начала), начавшиеся раньше to (null — без конца)
+    private NavigableSet<Task> prioritizedRange(Task after, LocalDateTime to) {
+        if (to == null) return after == null ? prioritized : prioritized.tailSet(after, false);
+        Task before = priorityProbe(to);
+        if (after == null) return prioritized.headSet(before, false);
+        if (PRIORITY.compare(after, before) >= 0) return Collections.emptyNavigableSet();
+        return prioritized.subSet(after, false, before, false);
+    }
+
+    // Задача-образец перед всеми задачами, начинающимися в start: id настоящих задач положительны
+    static Task priorityProbe(LocalDateTime start) {
+        Task probe = new Task(Integer.MIN_VALUE, null, null, null);
+        probe.setStartTime(start);
+        return probe;
+    }
+
+    // Нижняя граница страницы: задача из курсора или образец начала диапазона, что из них дальше
+    static Task priorityLowerBound(LocalDateTime from, String cursor) {
+        Task after = parsePriorityCursor(cursor);
+        Task lower = from == null ? null : priorityProbe(from);
+        return after != null && (lower == null || PRIORITY.compare(after, lower) > 0) ? after : lower;
+    }
+
+    static void checkRange(LocalDateTime from, LocalDateTime to) {
+        if (from != null && to != null && from.isAfter(to)) throw new IllegalArgumentException("Bad time range");
+    }
+
+    // Задача-образец с началом и id из курсора, null для первой страницы
+    static Task parsePriorityCursor(String cursor) {
+        if (cursor == null) return null;
+        int split = cursor.lastIndexOf('_');
+        try {
+            Task probe = new Task(Integer.parseInt(cursor.substring(split + 1)), null, null, null);
+            probe.setStartTime(LocalDateTime.parse(cursor.substring(0, split)));
+            return probe;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    static String priorityCursor(Task task) {
+        return task.getStartTime() + "_" + task.getId();
+    }
+
+    // Живые представления без копирования для вызывающих в том же процессе
+    public Collection<Task> tasksView() {
+        return Collections.unmodifiableCollection(tasks.values());
+    }
+
+    public Collection<Subtask> subtasksView() {
+        return Collections.unmodifiableCollection(subtasks.values());
+    }
+
+    public Collection<Epic> epicsView() {
+        return Collections.unmodifiableCollection(epics.values());
+    }
+
+    public SortedSet<Task> prioritizedView() {
+        return Collections.unmodifiableSortedSet(prioritized);
+    }
+
+    static void checkLimit(int limit) {
+        if (limit < 1) throw new IllegalArgumentException("Page limit must be positive");
+    }
+
+    static Integer parseIdCursor(String cursor) {
+        if (cursor == null) return null;
+        try {
+            return Integer.parseInt(cursor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    // Из limit + 1 прочитанных элементов последний только сообщает, что страница не последняя
+    static <T> Page<T> trimmed(List<T> items, int limit, Function<T, String> cursorOf) {
+        if (items.size() <= limit) return new Page<>(items, null);
+        List<T> page = items.subList(0, limit);
+        return new Page<>(new ArrayList<>(page), cursorOf.apply(page.getLast()));
+    }
+
+    private static <T extends Task> Page<T> pageById(IntObjectMap<T> map, String cursor, int limit) {
+        checkLimit(limit);
+        Integer after = parseIdCursor(cursor);
+        List<T> items = new ArrayList<>(Math.min(limit, map.size()));
+        boolean more = map.valuesAfter(after == null ? Integer.MIN_VALUE : after, limit, items);
+        return new Page<>(items, more ? String.valueOf(items.getLast().getId()) : null);
+    }
+
+    @Override
+    public LocalDateTime findNextFreeSlot(Duration duration, LocalDateTime notBefore) {
+        checkSlotArguments(duration, notBefore);
+        return gaps.findNextFreeSlot(duration, notBefore);
+    }
+
+    @Override
+    public List<TimeSlot> freeSlots(LocalDateTime from, LocalDateTime to, Duration minDuration) {
+        checkSlotArguments(minDuration, from);
+        if (to == null || !from.isBefore(to)) throw new IllegalArgumentException("Empty time range");
+        return gaps.freeSlots(from, to, minDuration);
+    }
+
+    static void checkSlotArguments(Duration duration, LocalDateTime from) {
+        if (duration == null || duration.isNegative()) throw new IllegalArgumentException("Bad duration");
+        if (from == null) throw new IllegalArgumentException("Start of search is null");
+    }
+
+    static final Comparator<Task> PRIORITY = (a, b) -> {
         LocalDateTime taskAStart = a.getStartTime();
         LocalDateTime taskBStart = b.getStartTime();
 
@@ -254,66 +603,77 @@ public class InMemoryTaskManager implements TaskManager {
         if (taskAId == null) return -1;
         if (taskBid == null) return 1;
         return taskAId.compareTo(taskBid);
-    });
+    };
+
+    protected final TreeSet<Task> prioritized = new TreeSet<>(PRIORITY);
+
+    // Индексы ведутся вместе с prioritized: интервалы отвечают на проверку пересечений,
+    // окна — на поиск свободного времени, index — на выборки по статусу, типу и началу,
+    // searchIndex — на поиск по словам названия и описания
+    protected final IntervalIndex intervals = new IntervalIndex();
+    protected final GapIndex gaps = new GapIndex();
+    protected final TaskIndex index = new TaskIndex();
+    protected final SearchIndex searchIndex = new SearchIndex();
+    // число изменений задач с создания менеджера
+    private long version;
+    // эпики, пересчёт которых отложен до конца пакета; не null, пока применяется applyBatch
+    private Set<Epic> batchEpics;
 
     protected void addToPrioritizedIfNeeded(Task task) {
-        if (task != null && task.getStartTime() != null) {
+        if (task == null) return;
+        version++;
+        index.put(task);
+        searchIndex.put(task);
+        if (task.getStartTime() != null) {
 
             if (task.getType() != TaskType.EPIC) {
                 prioritized.add(task);
+                intervals.add(task);
+                gaps.add(task);
             }
         }
     }
 
     protected void removeFromPrioritized(Task task) {
         if (task != null) {
+            version++;
             prioritized.remove(task);
+            if (task.getId() != null) {
+                index.remove(task.getId());
+                searchIndex.remove(task.getId());
+                intervals.remove(task.getId());
+                gaps.remove(task.getId());
+            }
         }
     }
 
-    private boolean isOverlapping(Task a, Task b) {
-        if (a == null || b == null) return false;
-        if (a.getStartTime() == null || a.getEndTime() == null) return false;
-        if (b.getStartTime() == null || b.getEndTime() == null) return false;
-
-        boolean cond1 = a.getStartTime().isBefore(b.getEndTime());
-        boolean cond2 = b.getStartTime().isBefore(a.getEndTime());
-        return cond1 && cond2;
-    }
-
     public boolean hasAnyOverlap(Task candidate) {
         if (candidate == null) return false;
         if (candidate.getStartTime() == null || candidate.getEndTime() == null) return false;
 
-        return prioritized.stream()
-                .filter(task -> candidate.getId() == null || !task.getId().equals(candidate.getId()))
-                .takeWhile(task -> task.getStartTime().isBefore(candidate.getEndTime()))
-                .anyMatch(task -> isOverlapping(candidate, task));
+        return intervals.overlaps(candidate.getStartTime(), candidate.getEndTime(), candidate.getId());
     }
 
     protected void updateEpicStatusAndTime(Epic epic) {
         if (epic == null) return;
-
-        ArrayList<Subtask> list = epic.getSubtasks();
-        if (list.isEmpty()) {
-            epic.setTaskStatus(TaskStatus.NEW);
-            epic.recalculateTimeFromSubtasks();
+        if (batchEpics != null) {
+            batchEpics.add(epic);
             return;
         }
+        recalculateEpic(epic);
+        version++;
+        index.put(epic);
+        searchIndex.put(epic);
+    }
 
-        boolean allNew = true;
-        boolean allDone = true;
-        for (Subtask subtask : list) {
-            if (subtask.getTaskStatus() != TaskStatus.NEW) allNew = false;
-            if (subtask.getTaskStatus() != TaskStatus.DONE) allDone = false;
-        }
-        if (allNew) epic.setTaskStatus(TaskStatus.NEW);
-        else if (allDone) epic.setTaskStatus(TaskStatus.DONE);
+    // Не трогает индексы, поэтому эпики можно пересчитывать параллельно
+    static void recalculateEpic(Epic epic) {
+        // счётчики статусов и границы времени эпик ведёт сам, пересчёт не обходит подзадачи
+        int total = epic.getSubtasks().size();
+        if (total == 0 || epic.countSubtasks(TaskStatus.NEW) == total) epic.setTaskStatus(TaskStatus.NEW);
+        else if (epic.countSubtasks(TaskStatus.DONE) == total) epic.setTaskStatus(TaskStatus.DONE);
         else epic.setTaskStatus(TaskStatus.IN_PROGRESS);
 
-        epic.recalculateTimeFromSubtasks();
-
+        epic.refreshTimeFromSubtasks();
     }
 }
-
-
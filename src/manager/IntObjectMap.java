@@ -0,0 +1,290 @@
+package manager;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+
+// Отображение int -> объект с открытой адресацией и линейным пробированием: ключи лежат
+// в int[], значения — в параллельном массиве, без упаковки ключей и без узла на запись.
+// Пустая ячейка — та, где значение null, поэтому null хранить нельзя. Удаление сдвигает
+// следующие записи цепочки назад, так что «надгробий» нет и поиск не деградирует.
+// Для постраничного обхода по возрастанию ключа рядом ведётся массив ключей в порядке
+// добавления: новые id обычно больше прежних, поэтому он почти всегда уже отсортирован.
+// Удалённые ключи вычищаются из него лениво.
+class IntObjectMap<V> {
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+    private int resizeAt;
+    private int modCount;
+    private int[] order = new int[MIN_CAPACITY];
+    private int orderSize;
+    private boolean orderSorted = true;
+
+    IntObjectMap() {
+        this(MIN_CAPACITY);
+    }
+
+    IntObjectMap(int expected) {
+        allocate(capacityFor(expected));
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    V get(int key) {
+        int slot = find(key);
+        return slot < 0 ? null : value(slot);
+    }
+
+    boolean containsKey(int key) {
+        return find(key) >= 0;
+    }
+
+    V put(int key, V value) {
+        if (value == null) throw new NullPointerException("IntObjectMap does not store null values");
+        int slot = hash(key) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                V old = value(slot);
+                values[slot] = value;
+                return old;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        modCount++;
+        appendOrder(key);
+        if (++size > resizeAt) {
+            rehash(values.length * 2);
+        }
+        return null;
+    }
+
+    V remove(int key) {
+        int slot = find(key);
+        if (slot < 0) return null;
+        V old = value(slot);
+        removeSlot(slot);
+        if (orderSize > 2 * size + MIN_CAPACITY) {
+            compactOrder();
+        }
+        return old;
+    }
+
+    void clear() {
+        if (size == 0) return;
+        Arrays.fill(values, null);
+        size = 0;
+        orderSize = 0;
+        orderSorted = true;
+        modCount++;
+    }
+
+    // Значения с ключами больше afterKey по возрастанию ключа, не больше limit штук.
+    // Возвращает true, если за последним добавленным есть ещё записи.
+    boolean valuesAfter(int afterKey, int limit, List<? super V> out) {
+        ensureOrdered();
+        int low = 0;
+        int high = orderSize;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (order[mid] <= afterKey) low = mid + 1;
+            else high = mid;
+        }
+        int added = 0;
+        int previous = afterKey;
+        for (int i = low; i < orderSize; i++) {
+            int key = order[i];
+            if (key == previous) continue;
+            int slot = find(key);
+            if (slot < 0) continue;
+            if (added == limit) return true;
+            out.add(value(slot));
+            added++;
+            previous = key;
+        }
+        return false;
+    }
+
+    List<V> valuesByKey() {
+        List<V> out = new ArrayList<>(size);
+        valuesAfter(Integer.MIN_VALUE, Integer.MAX_VALUE, out);
+        return out;
+    }
+
+    void forEachKey(IntConsumer action) {
+        int expected = modCount;
+        for (int slot = 0; slot < values.length; slot++) {
+            if (values[slot] != null) action.accept(keys[slot]);
+        }
+        if (modCount != expected) throw new ConcurrentModificationException();
+    }
+
+    // Живое представление значений; удаление через removeIf
+    Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new ValueIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean removeIf(Predicate<? super V> filter) {
+                List<Integer> doomed = new ArrayList<>();
+                for (int slot = 0; slot < values.length; slot++) {
+                    if (values[slot] != null && filter.test(value(slot))) doomed.add(keys[slot]);
+                }
+                doomed.forEach(IntObjectMap.this::remove);
+                return !doomed.isEmpty();
+            }
+        };
+    }
+
+    private void appendOrder(int key) {
+        if (orderSize == order.length) {
+            order = Arrays.copyOf(order, order.length * 2);
+        }
+        if (orderSize > 0 && key <= order[orderSize - 1]) {
+            orderSorted = false;
+        }
+        order[orderSize++] = key;
+    }
+
+    // Вызывается и параллельными читателями под общей блокировкой ConcurrentTaskManager,
+    // поэтому ленивая сортировка синхронизирована
+    private synchronized void ensureOrdered() {
+        if (!orderSorted) compactOrder();
+    }
+
+    // Сортирует массив ключей и убирает из него удалённые и повторные
+    private void compactOrder() {
+        if (!orderSorted) {
+            Arrays.sort(order, 0, orderSize);
+            orderSorted = true;
+        }
+        int live = 0;
+        for (int i = 0; i < orderSize; i++) {
+            int key = order[i];
+            if ((live == 0 || order[live - 1] != key) && find(key) >= 0) {
+                order[live++] = key;
+            }
+        }
+        orderSize = live;
+        if (order.length > MIN_CAPACITY && live < order.length / 4) {
+            order = Arrays.copyOf(order, Math.max(MIN_CAPACITY, live * 2));
+        }
+    }
+
+    private int find(int key) {
+        int slot = hash(key) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == key) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void removeSlot(int slot) {
+        // сдвиг назад: запись переезжает в освободившуюся ячейку, если та лежит
+        // на пути от её домашней ячейки
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (values[next] != null) {
+            int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        values[gap] = null;
+        size--;
+        modCount++;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] == null) continue;
+            int slot = hash(oldKeys[i]) & mask;
+            while (values[slot] != null) slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeAt = capacity / 4 * 3;
+    }
+
+    private static int capacityFor(int expected) {
+        int capacity = MIN_CAPACITY;
+        while (capacity / 4 * 3 < expected) capacity <<= 1;
+        return capacity;
+    }
+
+    // Фибоначчиево перемешивание. Без него id, выдаваемые подряд, занимали бы одну сплошную
+    // цепочку ячеек, и сдвиг при удалении проходил бы её до конца — O(n) на каждое удаление.
+    // Порядок обхода values() поэтому произвольный, по возрастанию ключа — valuesByKey()
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V value(int slot) {
+        return (V) values[slot];
+    }
+
+    private class ValueIterator implements Iterator<V> {
+        private final int expected = modCount;
+        private int slot = advance(0);
+
+        private int advance(int from) {
+            while (from < values.length && values[from] == null) from++;
+            return from;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return slot < values.length;
+        }
+
+        @Override
+        public V next() {
+            if (modCount != expected) throw new ConcurrentModificationException();
+            if (slot >= values.length) throw new NoSuchElementException();
+            V value = value(slot);
+            slot = advance(slot + 1);
+            return value;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package manager;
+
+import tasks.Task;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+// Интервальное дерево для проверки пересечений: AVL-дерево по (началу, id), в каждом узле
+// хранится наибольший конец в поддереве. Поиск отбрасывает поддеревья, где всё закончилось
+// до начала кандидата или начинается после его конца, поэтому стоит O(log n + k).
+class IntervalIndex {
+    // узел ищется по запомненному при вставке началу, даже если задачу потом изменили снаружи
+    private final Map<Integer, Node> byId = new HashMap<>();
+    private Node root;
+
+    void add(Task task) {
+        if (task == null || task.getId() == null) return;
+        LocalDateTime start = task.getStartTime();
+        LocalDateTime end = task.getEndTime();
+        if (start == null || end == null) return;
+
+        remove(task.getId());
+        Node node = new Node(start, end, task.getId());
+        root = insert(root, node);
+        byId.put(node.id, node);
+    }
+
+    void remove(int id) {
+        Node node = byId.remove(id);
+        if (node != null) {
+            root = delete(root, node.start, node.id);
+        }
+    }
+
+    void clear() {
+        byId.clear();
+        root = null;
+    }
+
+    int size() {
+        return byId.size();
+    }
+
+    boolean overlaps(LocalDateTime start, LocalDateTime end, Integer excludeId) {
+        int exclude = excludeId == null ? Integer.MIN_VALUE : excludeId;
+        return overlaps(root, start, end, id -> id == exclude);
+    }
+
+    // skip — задачи, которые не считаются (например, меняемые тем же пакетом)
+    boolean overlapsExcept(LocalDateTime start, LocalDateTime end, IntPredicate skip) {
+        return overlaps(root, start, end, skip);
+    }
+
+    private static boolean overlaps(Node node, LocalDateTime start, LocalDateTime end, IntPredicate skip) {
+        while (node != null && node.maxEnd.isAfter(start)) {
+            if (overlaps(node.left, start, end, skip)) return true;
+            if (!node.start.isBefore(end)) return false;
+            if (node.end.isAfter(start) && !skip.test(node.id)) return true;
+            node = node.right;
+        }
+        return false;
+    }
+
+    private static int compare(LocalDateTime start, int id, Node node) {
+        int byStart = start.compareTo(node.start);
+        return byStart != 0 ? byStart : Integer.compare(id, node.id);
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) return added;
+        if (compare(added.start, added.id, node) < 0) {
+            node.left = insert(node.left, added);
+        } else {
+            node.right = insert(node.right, added);
+        }
+        return balance(node);
+    }
+
+    private static Node delete(Node node, LocalDateTime start, int id) {
+        if (node == null) return null;
+        int cmp = compare(start, id, node);
+        if (cmp < 0) {
+            node.left = delete(node.left, start, id);
+        } else if (cmp > 0) {
+            node.right = delete(node.right, start, id);
+        } else {
+            if (node.left == null) return node.right;
+            if (node.right == null) return node.left;
+            Node successor = node.right;
+            while (successor.left != null) successor = successor.left;
+            successor.right = deleteMin(node.right);
+            successor.left = node.left;
+            node = successor;
+        }
+        return balance(node);
+    }
+
+    private static Node deleteMin(Node node) {
+        if (node.left == null) return node.right;
+        node.left = deleteMin(node.left);
+        return balance(node);
+    }
+
+    private static Node balance(Node node) {
+        update(node);
+        int skew = height(node.left) - height(node.right);
+        if (skew > 1) {
+            if (height(node.left.left) < height(node.left.right)) node.left = rotateLeft(node.left);
+            return rotateRight(node);
+        }
+        if (skew < -1) {
+            if (height(node.right.right) < height(node.right.left)) node.right = rotateRight(node.right);
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+
+    private static void update(Node node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        LocalDateTime maxEnd = node.end;
+        if (node.left != null && node.left.maxEnd.isAfter(maxEnd)) maxEnd = node.left.maxEnd;
+        if (node.right != null && node.right.maxEnd.isAfter(maxEnd)) maxEnd = node.right.maxEnd;
+        node.maxEnd = maxEnd;
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static class Node {
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        private final int id;
+        private LocalDateTime maxEnd;
+        private int height = 1;
+        private Node left;
+        private Node right;
+
+        private Node(LocalDateTime start, LocalDateTime end, int id) {
+            this.start = start;
+            this.end = end;
+            this.id = id;
+            this.maxEnd = end;
+        }
+    }
+}
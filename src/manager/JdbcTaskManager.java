@@ -0,0 +1,888 @@
+package manager;
+
+import exception.IntersectionException;
+import exception.ManagerLoadException;
+import exception.ManagerSaveException;
+import exception.NotFoundException;
+import tasks.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+// Менеджер поверх встроенной БД (H2 в файловом режиме). Все задачи лежат в одной таблице,
+// пересечения и приоритетный список считаются запросами по индексу start_time,
+// поэтому доска может быть больше кучи. В памяти держится только история просмотров.
+public class JdbcTaskManager implements TaskManager, AutoCloseable {
+    private static final String COLUMNS = "id, type, name, description, status, epic_id, start_time, end_time, "
+            + "duration_minutes";
+    private static final String SELECT = "SELECT " + COLUMNS + " FROM tasks ";
+
+    private final Connection connection;
+    private final HistoryManager historyManager = Managers.getDefaultHistory();
+    // пока применяется пакет: эпики для пересчёта в конце и id для удаления из истории после commit
+    private Set<Integer> batchEpics;
+    private List<Integer> batchForgotten;
+    // число записей в базу этим менеджером; снимков здесь нет, версию задаёт сама база
+    private long version;
+
+    public JdbcTaskManager(String url) {
+        try {
+            this.connection = DriverManager.getConnection(url);
+            createSchema();
+        } catch (SQLException e) {
+            throw new ManagerLoadException("Error while opening database " + url, e);
+        }
+    }
+
+    private void createSchema() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS tasks ("
+                    + "id INT PRIMARY KEY, "
+                    + "type VARCHAR(16) NOT NULL, "
+                    + "name VARCHAR, "
+                    + "description VARCHAR, "
+                    + "status VARCHAR(16) NOT NULL, "
+                    + "epic_id INT, "
+                    + "start_time TIMESTAMP(9), "
+                    + "end_time TIMESTAMP(9), "
+                    + "duration_minutes BIGINT)");
+            statement.execute("CREATE INDEX IF NOT EXISTS tasks_start_time ON tasks(start_time, id)");
+            statement.execute("CREATE INDEX IF NOT EXISTS tasks_status ON tasks(status)");
+            statement.execute("CREATE INDEX IF NOT EXISTS tasks_epic_id ON tasks(epic_id)");
+            // максимум длительности ограничивает снизу диапазон поиска пересечений
+            statement.execute("CREATE INDEX IF NOT EXISTS tasks_duration ON tasks(duration_minutes)");
+            statement.execute("CREATE SEQUENCE IF NOT EXISTS task_ids START WITH 1");
+        }
+    }
+
+    @Override
+    public synchronized Task getTasksById(int id) {
+        Task task = findOne(SELECT + "WHERE id = ? AND type = 'TASK'", id);
+        if (task == null) {
+            throw new NotFoundException("Task with id " + id + " not found");
+        }
+        historyManager.add(task);
+        return task;
+    }
+
+    @Override
+    public synchronized List<Task> getTasks() {
+        return findAll(SELECT + "WHERE type = 'TASK' ORDER BY id");
+    }
+
+    // Страницы выбираются по ключу (id > курсора) с LIMIT, без OFFSET
+    @Override
+    public synchronized Page<Task> getTasks(String cursor, int limit) {
+        return pageById("TASK", cursor, limit);
+    }
+
+    @Override
+    public synchronized int createTask(Task task) {
+        if (task == null) throw new IllegalArgumentException("Task is null");
+        if (!inBatch() && hasAnyOverlap(task)) throw new IntersectionException("Task overlaps existing ones");
+        task.setId(nextId());
+        insert(task);
+        return task.getId();
+    }
+
+    @Override
+    public synchronized void updateTask(Task task) {
+        if (task == null) throw new IllegalArgumentException("Task is null");
+        if (!exists(task.getId(), TaskType.TASK)) throw new NotFoundException("Task " + task.getId() + " not found");
+        if (!inBatch() && hasAnyOverlap(task)) throw new IntersectionException("Task overlaps existing ones");
+        update(task);
+    }
+
+    @Override
+    public synchronized void deleteTaskById(int id) {
+        if (execute("DELETE FROM tasks WHERE id = ? AND type = 'TASK'", id) == 0) {
+            throw new NotFoundException("Task " + id + " not found");
+        }
+        forget(id);
+    }
+
+    @Override
+    public synchronized void deleteTask() {
+        deleteAll(TaskType.TASK);
+    }
+
+    @Override
+    public synchronized Subtask getSubtaskById(int id) {
+        Task subtask = findOne(SELECT + "WHERE id = ? AND type = 'SUBTASK'", id);
+        if (subtask == null) throw new NotFoundException("Subtask " + id + " not found");
+        historyManager.add(subtask);
+        return (Subtask) subtask;
+    }
+
+    @Override
+    public synchronized List<Subtask> getSubtasks() {
+        return subtasks(SELECT + "WHERE type = 'SUBTASK' ORDER BY id");
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public synchronized Page<Subtask> getSubtasks(String cursor, int limit) {
+        Page<? extends Task> page = pageById("SUBTASK", cursor, limit);
+        return (Page<Subtask>) page;
+    }
+
+    @Override
+    public synchronized int createSubtask(Subtask subtask) {
+        if (subtask == null) throw new IllegalArgumentException("Subtask is null");
+        Integer epicId = subtask.getEpicId();
+        if (epicId == null) throw new IllegalArgumentException("EpicId is null");
+        if (!exists(epicId, TaskType.EPIC)) throw new NotFoundException("Epic " + epicId + " not found");
+        Integer subtaskId = subtask.getId();
+        if (subtaskId != null && subtaskId.equals(epicId))
+            throw new IllegalArgumentException("Subtask id cannot be the same as epic id");
+        if (!inBatch() && hasAnyOverlap(subtask)) throw new IntersectionException("Subtask overlaps existing ones");
+
+        subtask.setId(nextId());
+        insert(subtask);
+        updateEpicStatusAndTime(epicId);
+        return subtask.getId();
+    }
+
+    @Override
+    public synchronized void updateSubtask(Subtask subtask) {
+        if (subtask == null) throw new IllegalArgumentException("Subtask is null");
+        int id = subtask.getId();
+        Task old = findOne(SELECT + "WHERE id = ? AND type = 'SUBTASK'", id);
+        if (old == null) throw new NotFoundException("Subtask " + id + " not found");
+        Integer epicId = subtask.getEpicId();
+        if (epicId == null) throw new IllegalArgumentException("EpicId is null");
+        if (!exists(epicId, TaskType.EPIC)) throw new NotFoundException("Epic " + epicId + " not found");
+        if (!inBatch() && hasAnyOverlap(subtask)) throw new IntersectionException("Subtask overlaps existing ones");
+
+        update(subtask);
+        updateEpicStatusAndTime(((Subtask) old).getEpicId());
+        if (!epicId.equals(((Subtask) old).getEpicId())) {
+            updateEpicStatusAndTime(epicId);
+        }
+    }
+
+    @Override
+    public synchronized void deleteSubtaskById(int id) {
+        Task subtask = findOne(SELECT + "WHERE id = ? AND type = 'SUBTASK'", id);
+        if (subtask == null) throw new NotFoundException("Subtask " + id + " not found");
+        execute("DELETE FROM tasks WHERE id = ?", id);
+        updateEpicStatusAndTime(((Subtask) subtask).getEpicId());
+        forget(id);
+    }
+
+    @Override
+    public synchronized void deleteSubtasks() {
+        deleteAll(TaskType.SUBTASK);
+        execute("UPDATE tasks SET status = 'NEW', start_time = NULL, end_time = NULL, duration_minutes = 0 "
+                + "WHERE type = 'EPIC'");
+    }
+
+    @Override
+    public synchronized Epic getEpicById(int id) {
+        Epic epic = findEpic(id);
+        if (epic == null) throw new NotFoundException("Epic " + id + " not found");
+        historyManager.add(epic);
+        return epic;
+    }
+
+    @Override
+    public synchronized List<Epic> getEpics() {
+        Map<Integer, ArrayList<Subtask>> byEpic = new HashMap<>();
+        for (Subtask subtask : subtasks(SELECT + "WHERE type = 'SUBTASK' ORDER BY id")) {
+            byEpic.computeIfAbsent(subtask.getEpicId(), key -> new ArrayList<>()).add(subtask);
+        }
+        List<Epic> epics = new ArrayList<>();
+        for (Task task : findAll(SELECT + "WHERE type = 'EPIC' ORDER BY id")) {
+            Epic epic = (Epic) task;
+            epic.setSubtasks(byEpic.get(epic.getId()));
+            epic.recalculateTimeFromSubtasks();
+            epics.add(epic);
+        }
+        return epics;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public synchronized Page<Epic> getEpics(String cursor, int limit) {
+        Page<? extends Task> page = pageById("EPIC", cursor, limit);
+        for (Task task : page.getItems()) {
+            Epic epic = (Epic) task;
+            epic.setSubtasks(subtasks(SELECT + "WHERE epic_id = ? ORDER BY id", epic.getId()));
+            epic.recalculateTimeFromSubtasks();
+        }
+        return (Page<Epic>) page;
+    }
+
+    @Override
+    public synchronized int createEpic(Epic epic) {
+        if (epic == null) {
+            return -1;
+        }
+        epic.setId(nextId());
+        epic.setTaskStatus(TaskStatus.NEW);
+        epic.clearSubtasks();
+        epic.recalculateTimeFromSubtasks();
+        insert(epic);
+        return epic.getId();
+    }
+
+    @Override
+    public synchronized void updateEpic(Epic epic) {
+        if (epic == null) {
+            return;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(
+                "UPDATE tasks SET name = ?, description = ? WHERE id = ? AND type = 'EPIC'")) {
+            statement.setString(1, epic.getName());
+            statement.setString(2, epic.getDescription());
+            statement.setInt(3, epic.getId());
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new ManagerSaveException("Error while updating epic " + epic.getId(), e);
+        }
+    }
+
+    @Override
+    public synchronized void deleteEpicById(int id) {
+        if (!exists(id, TaskType.EPIC)) throw new NotFoundException("Epic " + id + " not found");
+        for (Integer subtaskId : ids("SELECT id FROM tasks WHERE epic_id = ?", id)) {
+            forget(subtaskId);
+        }
+        execute("DELETE FROM tasks WHERE epic_id = ? OR id = ?", id, id);
+        forget(id);
+    }
+
+    @Override
+    public synchronized void deleteEpics() {
+        deleteAll(TaskType.SUBTASK);
+        deleteAll(TaskType.EPIC);
+    }
+
+    @Override
+    public synchronized List<Subtask> getSubtaskFromEpic(int epicId) {
+        if (!exists(epicId, TaskType.EPIC)) throw new NotFoundException("Epic " + epicId + " not found");
+        return subtasks(SELECT + "WHERE epic_id = ? ORDER BY id", epicId);
+    }
+
+    @Override
+    public synchronized List<Task> getHistory() {
+        return historyManager.getHistory();
+    }
+
+    @Override
+    public synchronized Page<Task> getHistory(String cursor, int limit) {
+        InMemoryTaskManager.checkLimit(limit);
+        List<Task> items = historyManager.getHistory(InMemoryTaskManager.parseIdCursor(cursor), limit + 1);
+        return InMemoryTaskManager.trimmed(items, limit, task -> String.valueOf(task.getId()));
+    }
+
+    // Условия переводятся в WHERE, индекс выбирает сама БД
+    @Override
+    public synchronized List<Task> findTasks(TaskQuery query) {
+        if (query == null) throw new IllegalArgumentException("Query is null");
+        StringBuilder sql = new StringBuilder(SELECT).append("WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        if (query.getStatuses() != null) {
+            sql.append(" AND status IN (").append(placeholders(query.getStatuses().size())).append(')');
+            query.getStatuses().forEach(status -> params.add(status.name()));
+        }
+        if (query.getTypes() != null) {
+            sql.append(" AND type IN (").append(placeholders(query.getTypes().size())).append(')');
+            query.getTypes().forEach(type -> params.add(type.name()));
+        }
+        if (query.getEpicId() != null) {
+            sql.append(" AND epic_id = ?");
+            params.add(query.getEpicId());
+        }
+        if (query.hasStartRange()) {
+            sql.append(" AND start_time IS NOT NULL");
+            if (query.getStartFrom() != null) {
+                sql.append(" AND start_time >= ?");
+                params.add(query.getStartFrom());
+            }
+            if (query.getStartTo() != null) {
+                sql.append(" AND start_time < ?");
+                params.add(query.getStartTo());
+            }
+        }
+        List<Task> found = findAll(sql.append(" ORDER BY id").toString(), params.toArray());
+        for (Task task : found) {
+            if (task instanceof Epic epic) {
+                epic.setSubtasks(subtasks(SELECT + "WHERE epic_id = ? ORDER BY id", epic.getId()));
+                epic.recalculateTimeFromSubtasks();
+            }
+        }
+        return found;
+    }
+
+    // БД отбирает задачи, где каждое слово встречается как подстрока, а порядок
+    // считается тем же индексом, что и в памяти, только по отобранным задачам
+    @Override
+    public synchronized List<Task> search(String query, int limit) {
+        if (query == null) throw new IllegalArgumentException("Query is null");
+        InMemoryTaskManager.checkLimit(limit);
+        List<String> words = SearchIndex.tokenize(query);
+        if (words.isEmpty()) return List.of();
+
+        StringBuilder sql = new StringBuilder(SELECT).append("WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        for (String word : words) {
+            // в словах только буквы и цифры, экранировать % и _ не нужно
+            sql.append(" AND (LOWER(name) LIKE ? OR LOWER(description) LIKE ?)");
+            String pattern = "%" + word + "%";
+            params.add(pattern);
+            params.add(pattern);
+        }
+        Map<Integer, Task> candidates = new HashMap<>();
+        SearchIndex ranking = new SearchIndex();
+        for (Task task : findAll(sql.toString(), params.toArray())) {
+            candidates.put(task.getId(), task);
+            ranking.put(task);
+        }
+        List<Task> found = new ArrayList<>();
+        for (int id : ranking.search(query, limit)) {
+            Task task = candidates.get(id);
+            if (task instanceof Epic epic) {
+                epic.setSubtasks(subtasks(SELECT + "WHERE epic_id = ? ORDER BY id", id));
+                epic.recalculateTimeFromSubtasks();
+            }
+            found.add(task);
+        }
+        return found;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    @Override
+    public synchronized List<Task> getPrioritizedTasks() {
+        return findAll(SELECT + "WHERE type <> 'EPIC' AND start_time IS NOT NULL ORDER BY start_time, id");
+    }
+
+    @Override
+    public synchronized Page<Task> getPrioritizedTasks(String cursor, int limit) {
+        return getPrioritizedBetween(null, null, cursor, limit);
+    }
+
+    @Override
+    public synchronized List<Task> getPrioritizedBetween(LocalDateTime from, LocalDateTime to) {
+        InMemoryTaskManager.checkRange(from, to);
+        List<Object> params = new ArrayList<>();
+        String where = prioritizedWhere(from, to, params);
+        return findAll(SELECT + where + " ORDER BY start_time, id", params.toArray());
+    }
+
+    // Диапазон и продолжение после курсора — условия по индексу start_time, id
+    @Override
+    public synchronized Page<Task> getPrioritizedBetween(LocalDateTime from, LocalDateTime to, String cursor,
+                                                         int limit) {
+        InMemoryTaskManager.checkLimit(limit);
+        InMemoryTaskManager.checkRange(from, to);
+        Task after = InMemoryTaskManager.parsePriorityCursor(cursor);
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(SELECT).append(prioritizedWhere(from, to, params));
+        if (after != null) {
+            sql.append(" AND (start_time > ? OR (start_time = ? AND id > ?))");
+            params.add(after.getStartTime());
+            params.add(after.getStartTime());
+            params.add(after.getId());
+        }
+        sql.append(" ORDER BY start_time, id LIMIT ?");
+        params.add(limit + 1);
+        List<Task> items = findAll(sql.toString(), params.toArray());
+        return InMemoryTaskManager.trimmed(items, limit, InMemoryTaskManager::priorityCursor);
+    }
+
+    private static String prioritizedWhere(LocalDateTime from, LocalDateTime to, List<Object> params) {
+        StringBuilder where = new StringBuilder("WHERE type <> 'EPIC' AND start_time IS NOT NULL");
+        if (from != null) {
+            where.append(" AND start_time >= ?");
+            params.add(from);
+        }
+        if (to != null) {
+            where.append(" AND start_time < ?");
+            params.add(to);
+        }
+        return where.toString();
+    }
+
+    // Окна ищутся обходом задач по индексу start_time от notBefore - max(duration);
+    // курсор отмечает конец занятого времени, чтение прекращается на первом подходящем окне
+    @Override
+    public synchronized LocalDateTime findNextFreeSlot(Duration duration, LocalDateTime notBefore) {
+        InMemoryTaskManager.checkSlotArguments(duration, notBefore);
+        long maxDuration = longValue("SELECT MAX(duration_minutes) FROM tasks WHERE type <> 'EPIC'");
+        try (PreparedStatement statement = connection.prepareStatement("SELECT start_time, end_time FROM tasks "
+                + "WHERE type <> 'EPIC' AND start_time >= ? AND end_time > ? AND end_time > start_time "
+                + "ORDER BY start_time")) {
+            statement.setObject(1, notBefore.minusMinutes(maxDuration));
+            statement.setObject(2, notBefore);
+            try (ResultSet rows = statement.executeQuery()) {
+                LocalDateTime cursor = notBefore;
+                while (rows.next()) {
+                    LocalDateTime start = rows.getObject(1, LocalDateTime.class);
+                    if (!cursor.plus(duration).isAfter(start)) return cursor;
+                    LocalDateTime end = rows.getObject(2, LocalDateTime.class);
+                    if (end.isAfter(cursor)) cursor = end;
+                }
+                return cursor;
+            }
+        } catch (SQLException e) {
+            throw new ManagerLoadException("Error while searching free slots", e);
+        }
+    }
+
+    @Override
+    public synchronized List<TimeSlot> freeSlots(LocalDateTime from, LocalDateTime to, Duration minDuration) {
+        InMemoryTaskManager.checkSlotArguments(minDuration, from);
+        if (to == null || !from.isBefore(to)) throw new IllegalArgumentException("Empty time range");
+        long maxDuration = longValue("SELECT MAX(duration_minutes) FROM tasks WHERE type <> 'EPIC'");
+        try (PreparedStatement statement = connection.prepareStatement("SELECT start_time, end_time FROM tasks "
+                + "WHERE type <> 'EPIC' AND start_time >= ? AND start_time < ? AND end_time > ? "
+                + "AND end_time > start_time ORDER BY start_time")) {
+            statement.setObject(1, from.minusMinutes(maxDuration));
+            statement.setObject(2, to);
+            statement.setObject(3, from);
+            try (ResultSet rows = statement.executeQuery()) {
+                List<TimeSlot> slots = new ArrayList<>();
+                LocalDateTime cursor = from;
+                while (rows.next()) {
+                    LocalDateTime start = rows.getObject(1, LocalDateTime.class);
+                    if (start.isAfter(cursor) && !cursor.plus(minDuration).isAfter(start)) {
+                        slots.add(new TimeSlot(cursor, start));
+                    }
+                    LocalDateTime end = rows.getObject(2, LocalDateTime.class);
+                    if (end.isAfter(cursor)) cursor = end;
+                }
+                if (to.isAfter(cursor) && !cursor.plus(minDuration).isAfter(to)) {
+                    slots.add(new TimeSlot(cursor, to));
+                }
+                return slots;
+            }
+        } catch (SQLException e) {
+            throw new ManagerLoadException("Error while searching free slots", e);
+        }
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    @Override
+    public synchronized long version() {
+        return version;
+    }
+
+    @Override
+    public CompletableFuture<Void> whenDurable() {
+        // каждое изменение фиксируется своей транзакцией до возврата из метода
+        return CompletableFuture.completedFuture(null);
+    }
+
+    // Пересекающаяся задача начинается не раньше start - max(duration), поэтому хватает
+    // ограниченного диапазона по индексу start_time
+    public synchronized boolean hasAnyOverlap(Task candidate) {
+        if (candidate == null) return false;
+        if (candidate.getStartTime() == null || candidate.getEndTime() == null) return false;
+
+        long maxDuration = longValue("SELECT MAX(duration_minutes) FROM tasks WHERE type <> 'EPIC'");
+        try (PreparedStatement statement = connection.prepareStatement("SELECT 1 FROM tasks "
+                + "WHERE type <> 'EPIC' AND start_time >= ? AND start_time < ? AND end_time > ? AND id <> ? "
+                + "LIMIT 1")) {
+            statement.setObject(1, candidate.getStartTime().minusMinutes(maxDuration));
+            statement.setObject(2, candidate.getEndTime());
+            statement.setObject(3, candidate.getStartTime());
+            statement.setInt(4, candidate.getId() == null ? 0 : candidate.getId());
+            try (ResultSet rows = statement.executeQuery()) {
+                return rows.next();
+            }
+        } catch (SQLException e) {
+            throw new ManagerLoadException("Error while checking overlaps", e);
+        }
+    }
+
+    // Пакет применяется в одной транзакции обычными методами. Пересечения проверяются не по ходу,
+    // а по итоговому состоянию перед commit, эпики пересчитываются по разу в конце.
+    // При любой ошибке транзакция откатывается; id, выданные откатанным созданиям, пропадают.
+    @Override
+    public synchronized List<Integer> applyBatch(List<Mutation> batch) {
+        if (batch == null) throw new IllegalArgumentException("Batch is null");
+        List<Integer> ids = new ArrayList<>(batch.size());
+        // id -> номер последнего изменения, задавшего задаче итоговую версию
+        Map<Integer, Integer> lastChange = new LinkedHashMap<>();
+        batchEpics = new LinkedHashSet<>();
+        batchForgotten = new ArrayList<>();
+        List<Integer> forgotten = batchForgotten;
+        try {
+            connection.setAutoCommit(false);
+            for (int i = 0; i < batch.size(); i++) {
+                Mutation mutation = batch.get(i);
+                String at = "Mutation " + i + ": ";
+                if (mutation == null) throw new IllegalArgumentException(at + "mutation is null");
+                // одиночный updateEpic молча пропускает отсутствующий эпик, пакет так не делает
+                if (mutation.getKind() == Mutation.Kind.UPDATE && mutation.getType() == TaskType.EPIC
+                        && !exists(mutation.getId(), TaskType.EPIC)) {
+                    throw new NotFoundException(at + mutation.target() + " not found");
+                }
+                try {
+                    ids.add(mutation.applyTo(this));
+                } catch (NotFoundException e) {
+                    throw new NotFoundException(at + e.getMessage());
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException(at + e.getMessage());
+                }
+                if (mutation.getTask() != null) lastChange.put(ids.get(i), i);
+            }
+            for (Map.Entry<Integer, Integer> entry : lastChange.entrySet()) {
+                Task task = batch.get(entry.getValue()).getTask();
+                if (task.getType() == TaskType.EPIC || !exists(entry.getKey(), task.getType())) continue;
+                if (hasAnyOverlap(task)) {
+                    throw new IntersectionException("Mutation " + entry.getValue() + ": task overlaps existing ones");
+                }
+            }
+            Set<Integer> affected = batchEpics;
+            batchEpics = null;
+            for (Integer epicId : affected) {
+                updateEpicStatusAndTime(epicId);
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            rollback();
+            throw new ManagerSaveException("Error while applying batch", e);
+        } catch (RuntimeException e) {
+            rollback();
+            throw e;
+        } finally {
+            batchEpics = null;
+            batchForgotten = null;
+            autoCommit();
+        }
+        forgotten.forEach(historyManager::remove);
+        return ids;
+    }
+
+    private boolean inBatch() {
+        return batchEpics != null;
+    }
+
+    // Удалённые пакетом задачи убираются из истории только после commit
+    private void forget(int id) {
+        if (batchForgotten != null) {
+            batchForgotten.add(id);
+        } else {
+            historyManager.remove(id);
+        }
+    }
+
+    // Пакетная загрузка готовых задач с их id, например при переносе с файлового менеджера.
+    // Пересечения не проверяются: источник уже гарантирует их отсутствие.
+    public synchronized void importTasks(List<? extends Task> imported) {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "MERGE INTO tasks (" + COLUMNS + ") KEY (id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            connection.setAutoCommit(false);
+            for (Task task : imported) {
+                bind(statement, task);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            version++;
+            for (Integer epicId : ids("SELECT id FROM tasks WHERE type = 'EPIC'")) {
+                updateEpicStatusAndTime(epicId);
+            }
+            // id из импорта не должны выдаваться повторно
+            long next = Math.max(longValue("SELECT MAX(id) FROM tasks") + 1, nextPeek());
+            try (Statement restart = connection.createStatement()) {
+                restart.execute("ALTER SEQUENCE task_ids RESTART WITH " + next);
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            rollback();
+            throw new ManagerSaveException("Error while importing tasks", e);
+        } finally {
+            autoCommit();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            throw new ManagerSaveException("Error while closing database", e);
+        }
+    }
+
+    private Page<Task> pageById(String type, String cursor, int limit) {
+        InMemoryTaskManager.checkLimit(limit);
+        Integer after = InMemoryTaskManager.parseIdCursor(cursor);
+        List<Task> items = findAll(SELECT + "WHERE type = ? AND id > ? ORDER BY id LIMIT ?",
+                type, after == null ? Integer.MIN_VALUE : after, limit + 1);
+        return InMemoryTaskManager.trimmed(items, limit, task -> String.valueOf(task.getId()));
+    }
+
+    private void updateEpicStatusAndTime(int epicId) {
+        if (batchEpics != null) {
+            batchEpics.add(epicId);
+            return;
+        }
+        try (PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*), "
+                + "COUNT(CASE WHEN status = 'NEW' THEN 1 END), COUNT(CASE WHEN status = 'DONE' THEN 1 END), "
+                + "MIN(start_time), MAX(end_time), COALESCE(SUM(duration_minutes), 0) "
+                + "FROM tasks WHERE epic_id = ?")) {
+            statement.setInt(1, epicId);
+            try (ResultSet rows = statement.executeQuery()) {
+                rows.next();
+                int total = rows.getInt(1);
+                TaskStatus status;
+                if (total == 0 || rows.getInt(2) == total) status = TaskStatus.NEW;
+                else if (rows.getInt(3) == total) status = TaskStatus.DONE;
+                else status = TaskStatus.IN_PROGRESS;
+
+                try (PreparedStatement update = connection.prepareStatement("UPDATE tasks SET status = ?, "
+                        + "start_time = ?, end_time = ?, duration_minutes = ? WHERE id = ?")) {
+                    update.setString(1, status.name());
+                    update.setObject(2, rows.getObject(4, LocalDateTime.class));
+                    update.setObject(3, rows.getObject(5, LocalDateTime.class));
+                    update.setLong(4, rows.getLong(6));
+                    update.setInt(5, epicId);
+                    update.executeUpdate();
+                    version++;
+                }
+            }
+        } catch (SQLException e) {
+            throw new ManagerSaveException("Error while updating epic " + epicId, e);
+        }
+    }
+
+    private Epic findEpic(int id) {
+        Task task = findOne(SELECT + "WHERE id = ? AND type = 'EPIC'", id);
+        if (task == null) return null;
+        Epic epic = (Epic) task;
+        epic.setSubtasks(new ArrayList<>(subtasks(SELECT + "WHERE epic_id = ? ORDER BY id", id)));
+        epic.recalculateTimeFromSubtasks();
+        return epic;
+    }
+
+    private void deleteAll(TaskType type) {
+        for (Integer id : ids("SELECT id FROM tasks WHERE type = '" + type.name() + "'")) {
+            historyManager.remove(id);
+        }
+        execute("DELETE FROM tasks WHERE type = '" + type.name() + "'");
+    }
+
+    private int nextId() {
+        return (int) longValue("SELECT NEXT VALUE FOR task_ids");
+    }
+
+    private long nextPeek() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES "
+                     + "WHERE SEQUENCE_NAME = 'TASK_IDS'")) {
+            return rows.next() ? rows.getLong(1) : 1;
+        }
+    }
+
+    private boolean exists(Integer id, TaskType type) {
+        if (id == null) return false;
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT 1 FROM tasks WHERE id = ? AND type = ?")) {
+            statement.setInt(1, id);
+            statement.setString(2, type.name());
+            try (ResultSet rows = statement.executeQuery()) {
+                return rows.next();
+            }
+        } catch (SQLException e) {
+            throw new ManagerLoadException("Error while reading task " + id, e);
+        }
+    }
+
+    private void insert(Task task) {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO tasks (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            bind(statement, task);
+            statement.executeUpdate();
+            version++;
+        } catch (SQLException e) {
+            throw new ManagerSaveException("Error while saving task " + task.getId(), e);
+        }
+    }
+
+    private void update(Task task) {
+        try (PreparedStatement statement = connection.prepareStatement("UPDATE tasks SET name = ?, "
+                + "description = ?, status = ?, epic_id = ?, start_time = ?, end_time = ?, duration_minutes = ? "
+                + "WHERE id = ?")) {
+            statement.setString(1, task.getName());
+            statement.setString(2, task.getDescription());
+            statement.setString(3, task.getTaskStatus().name());
+            setEpicId(statement, 4, task);
+            statement.setObject(5, task.getStartTime());
+            statement.setObject(6, task.getEndTime());
+            setDuration(statement, 7, task.getDuration());
+            statement.setInt(8, task.getId());
+            statement.executeUpdate();
+            version++;
+        } catch (SQLException e) {
+            throw new ManagerSaveException("Error while saving task " + task.getId(), e);
+        }
+    }
+
+    private static void bind(PreparedStatement statement, Task task) throws SQLException {
+        statement.setInt(1, task.getId());
+        statement.setString(2, task.getType().name());
+        statement.setString(3, task.getName());
+        statement.setString(4, task.getDescription());
+        statement.setString(5, task.getTaskStatus().name());
+        setEpicId(statement, 6, task);
+        statement.setObject(7, task.getStartTime());
+        statement.setObject(8, task.getEndTime());
+        setDuration(statement, 9, task.getDuration());
+    }
+
+    private static void setEpicId(PreparedStatement statement, int index, Task task) throws SQLException {
+        if (task instanceof Subtask && ((Subtask) task).getEpicId() != null) {
+            statement.setInt(index, ((Subtask) task).getEpicId());
+        } else {
+            statement.setNull(index, Types.INTEGER);
+        }
+    }
+
+    private static void setDuration(PreparedStatement statement, int index, Duration duration) throws SQLException {
+        if (duration != null) {
+            statement.setLong(index, duration.toMinutes());
+        } else {
+            statement.setNull(index, Types.BIGINT);
+        }
+    }
+
+    private Task findOne(String sql, Object... params) {
+        List<Task> found = findAll(sql, params);
+        return found.isEmpty() ? null : found.getFirst();
+    }
+
+    private List<Subtask> subtasks(String sql, Object... params) {
+        List<Subtask> subtasks = new ArrayList<>();
+        for (Task task : findAll(sql, params)) {
+            subtasks.add((Subtask) task);
+        }
+        return subtasks;
+    }
+
+    private List<Task> findAll(String sql, Object... params) {
+        try (PreparedStatement statement = prepare(sql, params);
+             ResultSet rows = statement.executeQuery()) {
+            List<Task> found = new ArrayList<>();
+            while (rows.next()) {
+                found.add(read(rows));
+            }
+            return found;
+        } catch (SQLException e) {
+            throw new ManagerLoadException("Error while reading tasks", e);
+        }
+    }
+
+    private static Task read(ResultSet rows) throws SQLException {
+        int id = rows.getInt(1);
+        TaskType type = TaskType.valueOf(rows.getString(2));
+        String name = rows.getString(3);
+        String description = rows.getString(4);
+        TaskStatus status = TaskStatus.valueOf(rows.getString(5));
+        LocalDateTime start = rows.getObject(7, LocalDateTime.class);
+        long minutes = rows.getLong(9);
+        Duration duration = rows.wasNull() ? null : Duration.ofMinutes(minutes);
+
+        switch (type) {
+            case TASK:
+                Task task = new Task(id, name, description, status);
+                task.setStartTime(start);
+                task.setDuration(duration);
+                return task;
+            case EPIC:
+                Epic epic = new Epic(name, description);
+                epic.setId(id);
+                epic.setTaskStatus(status);
+                return epic;
+            case SUBTASK:
+                Subtask subtask = new Subtask(name, description, status, rows.getInt(6));
+                subtask.setId(id);
+                subtask.setStartTime(start);
+                subtask.setDuration(duration);
+                return subtask;
+            default:
+                throw new IllegalArgumentException("Unknown task type: " + type);
+        }
+    }
+
+    private List<Integer> ids(String sql, Object... params) {
+        try (PreparedStatement statement = prepare(sql, params);
+             ResultSet rows = statement.executeQuery()) {
+            List<Integer> ids = new ArrayList<>();
+            while (rows.next()) {
+                ids.add(rows.getInt(1));
+            }
+            return ids;
+        } catch (SQLException e) {
+            throw new ManagerLoadException("Error while reading tasks", e);
+        }
+    }
+
+    private long longValue(String sql) {
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery(sql)) {
+            return rows.next() ? rows.getLong(1) : 0;
+        } catch (SQLException e) {
+            throw new ManagerLoadException("Error while reading tasks", e);
+        }
+    }
+
+    private int execute(String sql, Object... params) {
+        try (PreparedStatement statement = prepare(sql, params)) {
+            int changed = statement.executeUpdate();
+            if (changed > 0) version++;
+            return changed;
+        } catch (SQLException e) {
+            throw new ManagerSaveException("Error while saving tasks", e);
+        }
+    }
+
+    private PreparedStatement prepare(String sql, Object... params) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql);
+        for (int i = 0; i < params.length; i++) {
+            statement.setObject(i + 1, params[i]);
+        }
+        return statement;
+    }
+
+    private void rollback() {
+        try {
+            connection.rollback();
+        } catch (SQLException ignored) {
+            // исходная ошибка важнее
+        }
+    }
+
+    private void autoCommit() {
+        try {
+            connection.setAutoCommit(true);
+        } catch (SQLException e) {
+            throw new ManagerSaveException("Error while restoring auto-commit", e);
+        }
+    }
+}
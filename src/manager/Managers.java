@@ -1,8 +1,51 @@
 package manager;
 
+import exception.ManagerSaveException;
+
+import java.io.File;
+
 public class Managers {
+    // Реализация выбирается свойством kanban.manager: memory (по умолчанию), file, jdbc или columnar;
+    // columnar хранит задачи по kanban.columnar.storage: heap (по умолчанию), offheap или mapped (в kanban.file)
     public static TaskManager getDefault() {
-        return new InMemoryTaskManager();
+        String kind = System.getProperty("kanban.manager", "memory");
+        switch (kind) {
+            case "memory":
+                return new ConcurrentTaskManager();
+            case "file":
+                return FileBackedTaskManager.loadFromFile(new File(System.getProperty("kanban.file", "tasks.csv")));
+            case "jdbc":
+                return new JdbcTaskManager(System.getProperty("kanban.jdbc.url", "jdbc:h2:./tasks"));
+            case "columnar":
+                return columnar(System.getProperty("kanban.columnar.storage", "heap"));
+            default:
+                throw new IllegalArgumentException("Unknown manager: " + kind);
+        }
+    }
+
+    private static TaskManager columnar(String storage) {
+        switch (storage) {
+            case "heap":
+                return new ColumnarTaskManager();
+            case "offheap":
+                return ColumnarTaskManager.offHeap();
+            case "mapped":
+                return ColumnarTaskManager.mapped(new File(System.getProperty("kanban.file", "tasks.bin")));
+            default:
+                throw new IllegalArgumentException("Unknown columnar storage: " + storage);
+        }
+    }
+
+    // Доски для /boards/{id}: у каждой свой ColumnarTaskManager в файле <id>.bin каталога kanban.boards.dir;
+    // открытыми держится не больше kanban.boards.open досок, остальные ждут на диске
+    public static BoardRegistry getBoards() {
+        File directory = new File(System.getProperty("kanban.boards.dir", "boards"));
+        return new BoardRegistry(id -> {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new ManagerSaveException("Cannot create board directory " + directory);
+            }
+            return ColumnarTaskManager.mapped(new File(directory, id + ".bin"));
+        }, Integer.getInteger("kanban.boards.open", 1000));
     }
 
     public static HistoryManager getDefaultHistory() {
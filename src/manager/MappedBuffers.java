@@ -0,0 +1,37 @@
+package manager;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+
+// Отображённый и прямой буфер освобождаются сборщиком мусора, то есть когда-нибудь: до тех пор
+// файл остаётся отображённым, и Windows не даёт его переименовать или обрезать. Arena из
+// java.lang.foreign в Java 21 ещё preview, поэтому буфер освобождается сразу через invokeCleaner;
+// без jdk.unsupported остаётся прежнее поведение. После unmap к буферу обращаться нельзя.
+class MappedBuffers {
+    private static final MethodHandle CLEANER = cleaner();
+
+    static void unmap(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect() || CLEANER == null) return;
+        try {
+            CLEANER.invokeExact(buffer);
+        } catch (Throwable e) {
+            // не освободили сейчас — освободит сборщик
+        }
+    }
+
+    private static MethodHandle cleaner() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return MethodHandles.lookup()
+                    .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(field.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
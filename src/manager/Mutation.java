@@ -0,0 +1,94 @@
+package manager;
+
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskType;
+
+// Одно изменение в пакете applyBatch: создание, обновление или удаление задачи любого типа
+public class Mutation {
+    public enum Kind {
+        CREATE,
+        UPDATE,
+        DELETE
+    }
+
+    private final Kind kind;
+    private final TaskType type;
+    private final Task task;
+    private final Integer id;
+
+    private Mutation(Kind kind, TaskType type, Task task, Integer id) {
+        this.kind = kind;
+        this.type = type;
+        this.task = task;
+        this.id = id;
+    }
+
+    public static Mutation create(Task task) {
+        if (task == null) throw new IllegalArgumentException("Task is null");
+        return new Mutation(Kind.CREATE, task.getType(), task, null);
+    }
+
+    public static Mutation update(Task task) {
+        if (task == null) throw new IllegalArgumentException("Task is null");
+        if (task.getId() == null) throw new IllegalArgumentException("Task id is null");
+        return new Mutation(Kind.UPDATE, task.getType(), task, task.getId());
+    }
+
+    public static Mutation delete(TaskType type, int id) {
+        if (type == null) throw new IllegalArgumentException("Type is null");
+        return new Mutation(Kind.DELETE, type, null, id);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public TaskType getType() {
+        return type;
+    }
+
+    public Task getTask() {
+        return task;
+    }
+
+    // id изменяемой задачи; у создания — null, id выдаётся при применении
+    public Integer getId() {
+        return id;
+    }
+
+    // "Task 5", "Epic 7" — для сообщений об ошибках
+    String target() {
+        String name = type.name().charAt(0) + type.name().substring(1).toLowerCase();
+        return name + " " + id;
+    }
+
+    // Применяет изменение обычным методом менеджера, возвращает id созданной или изменённой задачи
+    int applyTo(TaskManager manager) {
+        switch (kind) {
+            case CREATE -> {
+                return switch (type) {
+                    case TASK -> manager.createTask(task);
+                    case SUBTASK -> manager.createSubtask((Subtask) task);
+                    case EPIC -> manager.createEpic((Epic) task);
+                };
+            }
+            case UPDATE -> {
+                switch (type) {
+                    case TASK -> manager.updateTask(task);
+                    case SUBTASK -> manager.updateSubtask((Subtask) task);
+                    case EPIC -> manager.updateEpic((Epic) task);
+                }
+            }
+            case DELETE -> {
+                switch (type) {
+                    case TASK -> manager.deleteTaskById(id);
+                    case SUBTASK -> manager.deleteSubtaskById(id);
+                    case EPIC -> manager.deleteEpicById(id);
+                }
+            }
+        }
+        return id;
+    }
+}
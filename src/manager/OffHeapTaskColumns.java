@@ -0,0 +1,357 @@
+package manager;
+
+import exception.ManagerLoadException;
+import exception.ManagerSaveException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+// Столбцы вне кучи: строка задачи — запись фиксированного размера в одном буфере,
+// имена и описания — в отдельной области строк. Сборщик мусора видит только два буфера,
+// поэтому паузы не растут вместе с доской. Буферы либо прямые (allocateDirect),
+// либо отображённые на файл и его соседа ".strings": тогда доска открывается заново
+// без разбора, данные уже на месте.
+// Запись: тип, статус, id эпика, начало, длительность, кольцо next/prev, смещения строк.
+// Строка в области: длина и UTF-8; смещение 0 — null. Область только дописывается,
+// а когда место кончается и больше половины её занято старыми версиями, переписывается заново.
+// Заменённый при росте и закрытый буферы освобождаются сразу (MappedBuffers), не дожидаясь сборщика.
+class OffHeapTaskColumns extends TaskColumns {
+    static final int MAGIC = 0x4B4E4F48;
+    static final int STRINGS_MAGIC = 0x4B4E5354;
+    static final int VERSION = 1;
+    static final int RECORD_SIZE = 40;
+
+    private static final int HEADER = 16;
+    private static final int TYPE = 0;
+    private static final int STATUS = 1;
+    private static final int EPIC = 4;
+    private static final int START = 8;
+    private static final int DURATION = 16;
+    private static final int NEXT = 20;
+    private static final int PREV = 24;
+    private static final int NAME = 28;
+    private static final int DESCRIPTION = 32;
+    private static final int INITIAL_ROWS = 1024;
+    private static final int INITIAL_STRINGS = 64 * 1024;
+
+    private final File file;
+    private final File stringsFile;
+    private ByteBuffer records;
+    private ByteBuffer strings;
+    private int rows;
+    // конец занятой части области строк и байты в ней, на которые больше никто не ссылается
+    private int used;
+    private long garbage;
+
+    // Прямые буферы в памяти процесса
+    OffHeapTaskColumns() {
+        this.file = null;
+        this.stringsFile = null;
+        this.records = ByteBuffer.allocateDirect(HEADER + INITIAL_ROWS * RECORD_SIZE);
+        this.strings = ByteBuffer.allocateDirect(INITIAL_STRINGS);
+        this.rows = INITIAL_ROWS;
+        this.used = HEADER;
+        writeHeaders();
+    }
+
+    // Буферы, отображённые на file и file.strings; существующие файлы открываются как есть.
+    // Отображению открытый файл не нужен, поэтому каналы закрываются сразу и досками не расходуются
+    OffHeapTaskColumns(File file) {
+        this.file = file;
+        this.stringsFile = new File(file.getPath() + ".strings");
+        try {
+            if (file.length() == 0) {
+                records = map(file, HEADER + (long) INITIAL_ROWS * RECORD_SIZE);
+                strings = map(stringsFile, INITIAL_STRINGS);
+                rows = INITIAL_ROWS;
+                used = HEADER;
+                writeHeaders();
+            } else {
+                open();
+            }
+        } catch (IOException e) {
+            release();
+            throw new ManagerSaveException("Error while opening " + file, e);
+        } catch (RuntimeException e) {
+            release();
+            throw e;
+        }
+    }
+
+    @Override
+    int rows() {
+        return rows;
+    }
+
+    @Override
+    void ensureCapacity(int id) {
+        if (id < rows) return;
+        long capacity = Math.max(id + 1L, rows + (long) (rows >> 1));
+        long size = HEADER + capacity * RECORD_SIZE;
+        if (size > Integer.MAX_VALUE) throw new ManagerSaveException("Off-heap task store is larger than 2 GB");
+        records = grow(records, file, (int) size);
+        rows = (int) capacity;
+        records.putInt(12, rows);
+    }
+
+    @Override
+    byte typeCode(int id) {
+        return records.get(at(id) + TYPE);
+    }
+
+    @Override
+    void setTypeCode(int id, byte code) {
+        records.put(at(id) + TYPE, code);
+    }
+
+    @Override
+    byte statusCode(int id) {
+        return records.get(at(id) + STATUS);
+    }
+
+    @Override
+    void setStatusCode(int id, byte code) {
+        records.put(at(id) + STATUS, code);
+    }
+
+    @Override
+    long start(int id) {
+        return records.getLong(at(id) + START);
+    }
+
+    @Override
+    void setStart(int id, long minutes) {
+        records.putLong(at(id) + START, minutes);
+    }
+
+    @Override
+    int duration(int id) {
+        return records.getInt(at(id) + DURATION);
+    }
+
+    @Override
+    void setDuration(int id, int minutes) {
+        records.putInt(at(id) + DURATION, minutes);
+    }
+
+    @Override
+    int epicId(int id) {
+        return records.getInt(at(id) + EPIC);
+    }
+
+    @Override
+    void setEpicId(int id, int epicId) {
+        records.putInt(at(id) + EPIC, epicId);
+    }
+
+    @Override
+    int next(int id) {
+        return records.getInt(at(id) + NEXT);
+    }
+
+    @Override
+    void setNext(int id, int next) {
+        records.putInt(at(id) + NEXT, next);
+    }
+
+    @Override
+    int prev(int id) {
+        return records.getInt(at(id) + PREV);
+    }
+
+    @Override
+    void setPrev(int id, int prev) {
+        records.putInt(at(id) + PREV, prev);
+    }
+
+    @Override
+    String name(int id) {
+        return string(records.getInt(at(id) + NAME));
+    }
+
+    @Override
+    void setName(int id, String name) {
+        setString(id, NAME, name);
+    }
+
+    @Override
+    String description(int id) {
+        return string(records.getInt(at(id) + DESCRIPTION));
+    }
+
+    @Override
+    void setDescription(int id, String description) {
+        setString(id, DESCRIPTION, description);
+    }
+
+    // Отображённые буферы сбрасываются на диск
+    @Override
+    void force() {
+        if (file == null || records == null) return;
+        ((MappedByteBuffer) records).force();
+        ((MappedByteBuffer) strings).force();
+    }
+
+    // Буферы освобождаются сразу; дальнейшие обращения к столбцам падают с NullPointerException,
+    // а не читают освобождённую память
+    @Override
+    public void close() {
+        if (records == null) return;
+        try {
+            force();
+        } finally {
+            release();
+        }
+    }
+
+    private void open() throws IOException {
+        long size = file.length();
+        long stringsSize = stringsFile.length();
+        if (size < HEADER || size > Integer.MAX_VALUE || stringsSize < HEADER || stringsSize > Integer.MAX_VALUE) {
+            throw new ManagerLoadException("Unsupported off-heap task file: " + file);
+        }
+        records = map(file, size);
+        strings = map(stringsFile, stringsSize);
+        rows = records.getInt(12);
+        used = strings.getInt(8);
+        if (records.getInt(0) != MAGIC || records.getInt(4) != VERSION || records.getInt(8) != RECORD_SIZE
+                || rows < 0 || HEADER + (long) rows * RECORD_SIZE > size
+                || strings.getInt(0) != STRINGS_MAGIC || strings.getInt(4) != VERSION
+                || used < HEADER || used > strings.capacity()) {
+            throw new ManagerLoadException("Unsupported off-heap task file: " + file);
+        }
+        long live = 0;
+        for (int id = 1; id < rows; id++) {
+            if (typeCode(id) == 0) continue;
+            live += length(records.getInt(at(id) + NAME)) + length(records.getInt(at(id) + DESCRIPTION));
+        }
+        garbage = used - HEADER - live;
+    }
+
+    private void writeHeaders() {
+        records.putInt(0, MAGIC);
+        records.putInt(4, VERSION);
+        records.putInt(8, RECORD_SIZE);
+        records.putInt(12, rows);
+        strings.putInt(0, STRINGS_MAGIC);
+        strings.putInt(4, VERSION);
+        strings.putInt(8, used);
+    }
+
+    private static int at(int id) {
+        return HEADER + id * RECORD_SIZE;
+    }
+
+    private String string(int offset) {
+        if (offset == 0) return null;
+        byte[] bytes = new byte[strings.getInt(offset)];
+        strings.get(offset + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Байты, которые занимает строка в области, вместе с длиной
+    private int length(int offset) {
+        return offset == 0 ? 0 : 4 + strings.getInt(offset);
+    }
+
+    private void setString(int id, int field, String value) {
+        int old = records.getInt(at(id) + field);
+        if (value == null) {
+            garbage += length(old);
+            records.putInt(at(id) + field, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        // та же строка уже лежит в области: переписывать её незачем
+        if (old != 0 && strings.getInt(old) == bytes.length && sameBytes(old + 4, bytes)) return;
+        garbage += length(old);
+        records.putInt(at(id) + field, 0);
+        int offset = allocate(4 + bytes.length);
+        strings.putInt(offset, bytes.length);
+        strings.put(offset + 4, bytes);
+        records.putInt(at(id) + field, offset);
+    }
+
+    private boolean sameBytes(int offset, byte[] bytes) {
+        for (int i = 0; i < bytes.length; i++) {
+            if (strings.get(offset + i) != bytes[i]) return false;
+        }
+        return true;
+    }
+
+    private int allocate(int size) {
+        if ((long) used + size > strings.capacity()) {
+            if (garbage > (used - HEADER) / 2) compact();
+            if ((long) used + size > strings.capacity()) {
+                long capacity = Math.max((long) used + size, strings.capacity() + (long) (strings.capacity() >> 1));
+                if (capacity > Integer.MAX_VALUE) {
+                    throw new ManagerSaveException("Off-heap string area is larger than 2 GB");
+                }
+                strings = grow(strings, stringsFile, (int) capacity);
+            }
+        }
+        int offset = used;
+        used += size;
+        strings.putInt(8, used);
+        return offset;
+    }
+
+    // Переписывает живые строки подряд с начала области, выбрасывая старые версии
+    private void compact() {
+        ByteBuffer live = ByteBuffer.allocateDirect((int) (used - HEADER - garbage));
+        int[] fields = {NAME, DESCRIPTION};
+        for (int id = 1; id < rows; id++) {
+            if (typeCode(id) == 0) continue;
+            for (int field : fields) {
+                int offset = records.getInt(at(id) + field);
+                if (offset == 0) continue;
+                int size = length(offset);
+                records.putInt(at(id) + field, HEADER + live.position());
+                live.put(live.position(), strings, offset, size);
+                live.position(live.position() + size);
+            }
+        }
+        strings.put(HEADER, live, 0, live.position());
+        used = HEADER + live.position();
+        garbage = 0;
+        strings.putInt(8, used);
+        MappedBuffers.unmap(live);
+    }
+
+    // Прежний буфер освобождается: отображение — после того как новое уже создано
+    private static ByteBuffer grow(ByteBuffer buffer, File file, int capacity) {
+        ByteBuffer grown;
+        if (file != null) {
+            try {
+                grown = map(file, capacity);
+            } catch (IOException e) {
+                throw new ManagerSaveException("Error while growing off-heap task file", e);
+            }
+        } else {
+            grown = ByteBuffer.allocateDirect(capacity);
+            grown.put(0, buffer, 0, buffer.capacity());
+        }
+        MappedBuffers.unmap(buffer);
+        return grown;
+    }
+
+    // Отображение на size байт; файл при этом дорастает до size
+    private static MappedByteBuffer map(File file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private void release() {
+        MappedBuffers.unmap(records);
+        MappedBuffers.unmap(strings);
+        records = null;
+        strings = null;
+    }
+}
@@ -0,0 +1,313 @@
+package manager;
+
+import exception.ManagerLoadException;
+import exception.ManagerSaveException;
+import tasks.Task;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.zip.CRC32;
+
+// Файл из страниц по 4 КБ, нарезанных на слоты по 128 байт. Запись занимает несколько подряд
+// идущих слотов внутри одной страницы. Новая версия записи всегда пишется в свободный участок,
+// а старая освобождается только в commit, после force: сбой посреди записи оставляет прежнюю копию.
+// Заголовок записи: число слотов, id (0 — свободно), длина и CRC32 строки CSV, номер версии.
+// При загрузке из нескольких копий одного id берётся старшая целая; запись с неверной CRC пропускается.
+class PagedTaskFile {
+    static final int MAGIC = 0x4B4E5047;
+    static final int VERSION = 2;
+    static final int PAGE_SIZE = 4096;
+    static final int SLOT_SIZE = 128;
+
+    private static final int SLOTS_PER_PAGE = PAGE_SIZE / SLOT_SIZE;
+    private static final int RECORD_HEADER = 24;
+    // в первой версии формата записи были без номера версии
+    private static final int LEGACY_HEADER = 16;
+    private static final int FREE = 0;
+
+    private final File file;
+    private final Map<Integer, Extent> extents = new HashMap<>();
+    // свободные участки по размеру в слотах
+    private final TreeMap<Integer, ArrayDeque<Long>> free = new TreeMap<>();
+    // старые копии перезаписанных записей: освобождаются в commit, когда новые уже на диске
+    private final List<Extent> retired = new ArrayList<>();
+    private final Map<Integer, Long> versions = new HashMap<>();
+    private final CRC32 crc = new CRC32();
+    private FileChannel channel;
+    private long endSlot;
+    private long nextVersion = 1;
+    private long bytesWritten;
+    private boolean legacy;
+
+    PagedTaskFile(File file) {
+        this.file = file;
+    }
+
+    static boolean isPaged(File file) throws IOException {
+        if (!file.exists() || file.length() < PAGE_SIZE) return false;
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            return in.readInt() == MAGIC;
+        }
+    }
+
+    void load(Function<String, Task> parser, Consumer<Task> sink) throws IOException {
+        FileChannel in = channel();
+        if (in.size() > Integer.MAX_VALUE) {
+            throw new ManagerLoadException("Paged file is larger than 2 GB");
+        }
+        // строки разбираются после просмотра всего файла, когда известна последняя копия каждой записи
+        Map<Integer, String> rows = new HashMap<>();
+        MappedByteBuffer buffer = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+        // отображение снимается сразу после чтения: reset и запись идут в тот же файл
+        try {
+            int version = buffer.getInt(4);
+            if (buffer.getInt(0) != MAGIC || version < 1 || version > VERSION || buffer.getInt(8) != SLOT_SIZE) {
+                throw new ManagerLoadException("Unsupported paged file: " + file);
+            }
+            legacy = version < VERSION;
+            int header = legacy ? LEGACY_HEADER : RECORD_HEADER;
+
+            long slot = SLOTS_PER_PAGE;
+            // последняя запись может не занимать свой участок целиком
+            long slots = (buffer.capacity() + SLOT_SIZE - 1) / SLOT_SIZE;
+            byte[] bytes = new byte[SLOT_SIZE];
+            while (slot < slots) {
+                int at = (int) (slot * SLOT_SIZE);
+                int length = buffer.getInt(at);
+                int id = buffer.getInt(at + 4);
+                if (length <= 0) {
+                    throw new ManagerLoadException("Corrupted record at slot " + slot);
+                }
+                if (slot + length > slots) {
+                    // недописанный хвост файла: место за ним снова свободно
+                    break;
+                }
+
+                int size = buffer.getInt(at + 8);
+                if (id == FREE) {
+                    addFree(slot, length);
+                } else if (size < 0 || size > length * SLOT_SIZE - header || at + header + size > buffer.capacity()) {
+                    // недописанная копия: место свободно, в силе остаётся прежняя копия, если она есть
+                    addFree(slot, length);
+                } else {
+                    if (bytes.length < size) bytes = new byte[size];
+                    buffer.get(at + header, bytes, 0, size);
+                    crc.reset();
+                    crc.update(bytes, 0, size);
+                    long recordVersion = legacy ? 0 : buffer.getLong(at + 16);
+                    Extent previous = extents.get(id);
+                    if ((int) crc.getValue() != buffer.getInt(at + 12)) {
+                        addFree(slot, length);
+                    } else if (previous != null && versions.get(id) > recordVersion) {
+                        addFree(slot, length);
+                    } else {
+                        if (previous != null) addFree(previous.start, previous.length);
+                        extents.put(id, new Extent(slot, length));
+                        versions.put(id, recordVersion);
+                        rows.put(id, new String(bytes, 0, size, StandardCharsets.UTF_8));
+                        nextVersion = Math.max(nextVersion, recordVersion + 1);
+                    }
+                }
+                slot += length;
+            }
+            endSlot = slot;
+        } finally {
+            MappedBuffers.unmap(buffer);
+        }
+        for (String row : rows.values()) {
+            sink.accept(parser.apply(row));
+        }
+    }
+
+    // Начинает файл заново: используется при переходе на страничный формат со снимка
+    void reset() {
+        try {
+            FileChannel out = channel();
+            out.truncate(0);
+            ByteBuffer header = ByteBuffer.allocate(PAGE_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(SLOT_SIZE).putInt(PAGE_SIZE);
+            header.clear();
+            writeFully(out, header, 0);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Error while resetting paged file", e);
+        }
+        extents.clear();
+        free.clear();
+        retired.clear();
+        versions.clear();
+        endSlot = SLOTS_PER_PAGE;
+        legacy = false;
+    }
+
+    void put(int id, String row) {
+        if (endSlot == 0) {
+            // файл ещё не загружен и не создан — прежнее содержимое не используется
+            reset();
+        }
+        byte[] bytes = row.getBytes(StandardCharsets.UTF_8);
+        Extent extent = allocate(slotsFor(bytes.length));
+        long version = nextVersion++;
+
+        crc.reset();
+        crc.update(bytes);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + bytes.length);
+        record.putInt(extent.length).putInt(id).putInt(bytes.length).putInt((int) crc.getValue())
+                .putLong(version).put(bytes);
+        record.flip();
+        write(record, extent.start);
+        Extent old = extents.put(id, extent);
+        versions.put(id, version);
+        if (old != null) retired.add(old);
+    }
+
+    void remove(int id) {
+        versions.remove(id);
+        Extent extent = extents.remove(id);
+        if (extent != null) release(extent);
+    }
+
+    // Освобождает записи, которых больше нет в менеджере
+    void retain(IntPredicate live) {
+        Iterator<Map.Entry<Integer, Extent>> it = extents.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, Extent> entry = it.next();
+            if (!live.test(entry.getKey())) {
+                release(entry.getValue());
+                versions.remove(entry.getKey());
+                it.remove();
+            }
+        }
+    }
+
+    // Завершает серию put: при sync новые копии сначала сбрасываются на диск,
+    // и только потом освобождается место старых
+    void commit(boolean sync) {
+        if (sync) force();
+        for (Extent extent : retired) {
+            release(extent);
+        }
+        retired.clear();
+    }
+
+    void force() {
+        try {
+            if (channel != null) channel.force(false);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Error while syncing paged file", e);
+        }
+    }
+
+    void close() {
+        try {
+            if (channel != null) channel.close();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Error while closing paged file", e);
+        } finally {
+            channel = null;
+        }
+    }
+
+    int size() {
+        return extents.size();
+    }
+
+    long bytesWritten() {
+        return bytesWritten;
+    }
+
+    // Файл первой версии формата: его нужно переписать, прежде чем дописывать новые записи
+    boolean isLegacy() {
+        return legacy;
+    }
+
+    private Extent allocate(int need) {
+        Map.Entry<Integer, ArrayDeque<Long>> fit = free.ceilingEntry(need);
+        if (fit != null) {
+            long start = fit.getValue().poll();
+            if (fit.getValue().isEmpty()) free.remove(fit.getKey());
+            if (fit.getKey() > need) {
+                markFree(start + need, fit.getKey() - need);
+            }
+            return new Extent(start, need);
+        }
+
+        // запись не пересекает границу страницы, остаток страницы уходит в свободные
+        long inPage = endSlot % SLOTS_PER_PAGE;
+        if (need <= SLOTS_PER_PAGE && inPage + need > SLOTS_PER_PAGE) {
+            markFree(endSlot, (int) (SLOTS_PER_PAGE - inPage));
+            endSlot += SLOTS_PER_PAGE - inPage;
+        }
+        Extent extent = new Extent(endSlot, need);
+        endSlot += need;
+        return extent;
+    }
+
+    private void release(Extent extent) {
+        markFree(extent.start, extent.length);
+    }
+
+    private void markFree(long start, int length) {
+        ByteBuffer header = ByteBuffer.allocate(8);
+        header.putInt(length).putInt(FREE);
+        header.flip();
+        write(header, start);
+        addFree(start, length);
+    }
+
+    private void addFree(long start, int length) {
+        free.computeIfAbsent(length, key -> new ArrayDeque<>()).add(start);
+    }
+
+    private void write(ByteBuffer buffer, long slot) {
+        try {
+            bytesWritten += buffer.remaining();
+            writeFully(channel(), buffer, slot * SLOT_SIZE);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Error while writing paged file", e);
+        }
+    }
+
+    private FileChannel channel() throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+        }
+        return channel;
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += out.write(buffer, position);
+        }
+    }
+
+    private static int slotsFor(int bytes) {
+        return (RECORD_HEADER + bytes + SLOT_SIZE - 1) / SLOT_SIZE;
+    }
+
+    private static class Extent {
+        private final long start;
+        private final int length;
+
+        private Extent(long start, int length) {
+            this.start = start;
+            this.length = length;
+        }
+    }
+}
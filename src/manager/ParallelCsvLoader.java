@@ -0,0 +1,121 @@
+package manager;
+
+import tasks.Task;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Читает CSV кусками по границам записей и разбирает их параллельно.
+// В памяти одновременно держится не больше нескольких кусков, порядок строк сохраняется.
+class ParallelCsvLoader {
+    static final int CHUNK_SIZE = 1 << 20;
+
+    private final String lsnPrefix;
+    private final Function<String, Task> parser;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    ParallelCsvLoader(String lsnPrefix, Function<String, Task> parser) {
+        this(lsnPrefix, parser, ForkJoinPool.commonPool(), CHUNK_SIZE);
+    }
+
+    ParallelCsvLoader(String lsnPrefix, Function<String, Task> parser, ForkJoinPool pool, int chunkSize) {
+        this.lsnPrefix = lsnPrefix;
+        this.parser = parser;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    long load(File file, Consumer<Task> sink) throws IOException {
+        int maxInFlight = Math.max(2, pool.getParallelism() * 2);
+        ArrayDeque<ForkJoinTask<Chunk>> inFlight = new ArrayDeque<>();
+        long lsn = 0;
+
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] pending = new byte[chunkSize];
+            int filled = 0;
+            boolean first = true;
+            int read;
+
+            while ((read = in.read(pending, filled, pending.length - filled)) != -1) {
+                filled += read;
+                if (filled < pending.length) continue;
+
+                int cut = TaskCsvCodec.lastRecordEnd(pending, filled);
+                if (cut == -1) {
+                    // строка длиннее куска — увеличиваем буфер и читаем дальше
+                    pending = Arrays.copyOf(pending, pending.length * 2);
+                    continue;
+                }
+
+                inFlight.add(submit(Arrays.copyOf(pending, cut + 1), first));
+                first = false;
+                filled -= cut + 1;
+                System.arraycopy(pending, cut + 1, pending, 0, filled);
+
+                while (inFlight.size() >= maxInFlight) {
+                    lsn = Math.max(lsn, merge(inFlight.poll(), sink));
+                }
+            }
+            if (filled > 0) {
+                inFlight.add(submit(Arrays.copyOf(pending, filled), first));
+            }
+        }
+
+        while (!inFlight.isEmpty()) {
+            lsn = Math.max(lsn, merge(inFlight.poll(), sink));
+        }
+        return lsn;
+    }
+
+    private ForkJoinTask<Chunk> submit(byte[] bytes, boolean skipHeader) {
+        return pool.submit(() -> parse(bytes, skipHeader));
+    }
+
+    private long merge(ForkJoinTask<Chunk> task, Consumer<Task> sink) {
+        Chunk chunk = task.join();
+        chunk.tasks.forEach(sink);
+        return chunk.lsn;
+    }
+
+    private Chunk parse(byte[] bytes, boolean skipHeader) {
+        String text = new String(bytes, StandardCharsets.UTF_8);
+        Chunk chunk = new Chunk();
+        int start = 0;
+        if (skipHeader) {
+            int headerEnd = text.indexOf('\n');
+            start = headerEnd == -1 ? text.length() : headerEnd + 1;
+        }
+
+        while (start < text.length()) {
+            int end = TaskCsvCodec.recordEnd(text, start);
+            if (end == -1) end = text.length();
+            String line = text.substring(start, end).trim();
+            start = end + 1;
+
+            if (line.isEmpty()) continue;
+            if (line.startsWith(lsnPrefix)) {
+                chunk.lsn = Long.parseLong(line.substring(lsnPrefix.length()));
+                continue;
+            }
+            chunk.tasks.add(parser.apply(line));
+        }
+        return chunk;
+    }
+
+    private static class Chunk {
+        private final List<Task> tasks = new ArrayList<>();
+        private long lsn;
+    }
+}
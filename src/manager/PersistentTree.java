@@ -0,0 +1,158 @@
+package manager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Неизменяемое AVL-дерево: put и remove возвращают новое дерево, копируя только путь
+// от корня до изменённого узла (O(log n) узлов), остальные узлы общие со старой версией.
+// Старая версия остаётся целой, поэтому её можно читать без блокировок, пока строятся новые.
+class PersistentTree<K, V> {
+    private final Comparator<? super K> comparator;
+    private final Node<K, V> root;
+
+    private PersistentTree(Comparator<? super K> comparator, Node<K, V> root) {
+        this.comparator = comparator;
+        this.root = root;
+    }
+
+    static <K, V> PersistentTree<K, V> empty(Comparator<? super K> comparator) {
+        return new PersistentTree<>(comparator, null);
+    }
+
+    int size() {
+        return size(root);
+    }
+
+    V get(K key) {
+        Node<K, V> node = root;
+        while (node != null) {
+            int cmp = comparator.compare(key, node.key);
+            if (cmp == 0) return node.value;
+            node = cmp < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    PersistentTree<K, V> put(K key, V value) {
+        return new PersistentTree<>(comparator, put(root, key, value));
+    }
+
+    PersistentTree<K, V> remove(K key) {
+        Node<K, V> changed = remove(root, key);
+        return changed == root ? this : new PersistentTree<>(comparator, changed);
+    }
+
+    List<V> values() {
+        List<V> values = new ArrayList<>(size());
+        valuesAfter(null, Integer.MAX_VALUE, values);
+        return values;
+    }
+
+    // Дописывает в items до limit значений с ключами больше after (null — с начала);
+    // true, если за ними есть ещё
+    boolean valuesAfter(K after, int limit, List<V> items) {
+        return valuesBetween(after, null, limit, items);
+    }
+
+    // То же, но только ключи меньше before (null — без верхней границы)
+    boolean valuesBetween(K after, K before, int limit, List<V> items) {
+        int end = limit > Integer.MAX_VALUE - items.size() ? Integer.MAX_VALUE : items.size() + limit;
+        return collect(root, after, before, end, items);
+    }
+
+    // Обход по порядку с отсечением: поддеревья вне (after, before) не посещаются, обход
+    // останавливается на первом значении сверх end
+    private boolean collect(Node<K, V> node, K after, K before, int end, List<V> items) {
+        if (node == null) return false;
+        if (after == null || comparator.compare(node.key, after) > 0) {
+            if (collect(node.left, after, before, end, items)) return true;
+            // правее только ключи не меньше before
+            if (before != null && comparator.compare(node.key, before) >= 0) return false;
+            if (items.size() == end) return true;
+            items.add(node.value);
+        }
+        return collect(node.right, after, before, end, items);
+    }
+
+    private Node<K, V> put(Node<K, V> node, K key, V value) {
+        if (node == null) return new Node<>(key, value, null, null);
+        int cmp = comparator.compare(key, node.key);
+        if (cmp < 0) return balance(node.key, node.value, put(node.left, key, value), node.right);
+        if (cmp > 0) return balance(node.key, node.value, node.left, put(node.right, key, value));
+        return new Node<>(key, value, node.left, node.right);
+    }
+
+    // Если ключа нет, возвращает тот же узел: вызывающий по этому видит, что копировать нечего
+    private Node<K, V> remove(Node<K, V> node, K key) {
+        if (node == null) return null;
+        int cmp = comparator.compare(key, node.key);
+        if (cmp < 0) {
+            Node<K, V> left = remove(node.left, key);
+            return left == node.left ? node : balance(node.key, node.value, left, node.right);
+        }
+        if (cmp > 0) {
+            Node<K, V> right = remove(node.right, key);
+            return right == node.right ? node : balance(node.key, node.value, node.left, right);
+        }
+        if (node.left == null) return node.right;
+        if (node.right == null) return node.left;
+        Node<K, V> successor = node.right;
+        while (successor.left != null) successor = successor.left;
+        return balance(successor.key, successor.value, node.left, removeMin(node.right));
+    }
+
+    private static <K, V> Node<K, V> removeMin(Node<K, V> node) {
+        if (node.left == null) return node.right;
+        return balance(node.key, node.value, removeMin(node.left), node.right);
+    }
+
+    private static <K, V> Node<K, V> balance(K key, V value, Node<K, V> left, Node<K, V> right) {
+        int skew = height(left) - height(right);
+        if (skew > 1) {
+            if (height(left.left) < height(left.right)) left = rotateLeft(left.key, left.value, left.left, left.right);
+            return rotateRight(key, value, left, right);
+        }
+        if (skew < -1) {
+            if (height(right.right) < height(right.left)) {
+                right = rotateRight(right.key, right.value, right.left, right.right);
+            }
+            return rotateLeft(key, value, left, right);
+        }
+        return new Node<>(key, value, left, right);
+    }
+
+    private static <K, V> Node<K, V> rotateRight(K key, V value, Node<K, V> left, Node<K, V> right) {
+        return new Node<>(left.key, left.value, left.left, new Node<>(key, value, left.right, right));
+    }
+
+    private static <K, V> Node<K, V> rotateLeft(K key, V value, Node<K, V> left, Node<K, V> right) {
+        return new Node<>(right.key, right.value, new Node<>(key, value, left, right.left), right.right);
+    }
+
+    private static int height(Node<?, ?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static int size(Node<?, ?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static class Node<K, V> {
+        private final K key;
+        private final V value;
+        private final Node<K, V> left;
+        private final Node<K, V> right;
+        private final int height;
+        private final int size;
+
+        private Node(K key, V value, Node<K, V> left, Node<K, V> right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = 1 + Math.max(height(left), height(right));
+            this.size = 1 + size(left) + size(right);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package manager;
+
+import tasks.Task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+// Инвертированный индекс по названию и описанию: слово -> id задач.
+// Слова запроса ищутся как префиксы, задача должна содержать все слова запроса.
+// Вес слова в задаче — число вхождений, в названии каждое считается за NAME_WEIGHT;
+// оценка задачи — сумма по словам запроса веса, умноженного на idf (редкие слова важнее),
+// точное совпадение слова весит вдвое больше, чем совпадение только по префиксу.
+// Задача хранит номера своих слов, а не строки: оценка кандидата не ходит по строкам.
+class SearchIndex {
+    private static final int NAME_WEIGHT = 3;
+    private static final Comparator<Hit> BY_RANK = Comparator.comparingDouble((Hit hit) -> -hit.score)
+            .thenComparingInt(hit -> hit.id);
+
+    private final TreeMap<String, Postings> postings = new TreeMap<>();
+    private final IntObjectMap<Postings> byTermId = new IntObjectMap<>();
+    private final IntObjectMap<Document> documents = new IntObjectMap<>();
+    private int nextTermId = 1;
+
+    void put(Task task) {
+        if (task == null || task.getId() == null) return;
+        int id = task.getId();
+        Document old = documents.get(id);
+        // пересчёт эпика не меняет текст, разбирать его заново незачем
+        if (old != null && Objects.equals(old.name, task.getName())
+                && Objects.equals(old.description, task.getDescription())) {
+            return;
+        }
+        if (old != null) unlink(id, old);
+
+        Map<String, Integer> weights = new HashMap<>();
+        for (String term : tokenize(task.getName())) weights.merge(term, NAME_WEIGHT, Integer::sum);
+        for (String term : tokenize(task.getDescription())) weights.merge(term, 1, Integer::sum);
+        Document document = new Document(task.getName(), task.getDescription(), weights.size());
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+            Postings own = postings.computeIfAbsent(entry.getKey(), this::newPostings);
+            own.add(id);
+            document.terms[i] = own.termId;
+            document.weights[i] = entry.getValue();
+            i++;
+        }
+        documents.put(id, document);
+    }
+
+    void remove(int id) {
+        Document old = documents.remove(id);
+        if (old != null) unlink(id, old);
+    }
+
+    // id лучших совпадений по убыванию оценки, при равенстве — по возрастанию id
+    List<Integer> search(String text, int limit) {
+        List<String> words = new ArrayList<>(new LinkedHashSet<>(tokenize(text)));
+        if (words.isEmpty()) return List.of();
+
+        // для каждого слова запроса — множители подходящих слов индекса;
+        // перебор идёт по самому редкому слову, остальные проверяются по словам задачи
+        List<IntObjectMap<Double>> factors = new ArrayList<>(words.size());
+        NavigableMap<String, Postings> driver = null;
+        long best = Long.MAX_VALUE;
+        for (String word : words) {
+            NavigableMap<String, Postings> matching = withPrefix(word);
+            IntObjectMap<Double> own = new IntObjectMap<>(matching.size());
+            long size = 0;
+            for (Map.Entry<String, Postings> entry : matching.entrySet()) {
+                Postings list = entry.getValue();
+                double idf = Math.log(1 + (double) documents.size() / list.live());
+                own.put(list.termId, entry.getKey().length() == word.length() ? idf : idf / 2);
+                size += list.live();
+            }
+            factors.add(own);
+            if (size < best) {
+                best = size;
+                driver = matching;
+            }
+        }
+        if (best == 0) return List.of();
+
+        // в куче limit лучших, на вершине худший из них
+        PriorityQueue<Hit> top = new PriorityQueue<>(limit + 1, BY_RANK.reversed());
+        // задача с несколькими подходящими словами оценивается один раз
+        BitSet seen = new BitSet();
+        for (Postings own : driver.values()) {
+            for (int i = 0; i < own.size; i++) {
+                int id = own.ids[i];
+                if (seen.get(id)) continue;
+                seen.set(id);
+                Document document = documents.get(id);
+                // мёртвый id в списке слова получит 0, если других подходящих слов у задачи нет
+                double score = document == null ? 0 : score(document, factors);
+                if (score == 0) continue;
+                Hit hit = new Hit(id, score);
+                if (top.size() == limit && BY_RANK.compare(top.peek(), hit) <= 0) continue;
+                top.add(hit);
+                if (top.size() > limit) top.poll();
+            }
+        }
+
+        List<Hit> ranked = new ArrayList<>(top);
+        ranked.sort(BY_RANK);
+        List<Integer> ids = new ArrayList<>(ranked.size());
+        for (Hit hit : ranked) {
+            ids.add(hit.id);
+        }
+        return ids;
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) return terms;
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean word = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                terms.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    // 0, если какого-то слова запроса в задаче нет
+    private static double score(Document document, List<IntObjectMap<Double>> factors) {
+        double total = 0;
+        for (IntObjectMap<Double> own : factors) {
+            double best = 0;
+            for (int i = 0; i < document.terms.length; i++) {
+                Double factor = own.get(document.terms[i]);
+                if (factor != null) best = Math.max(best, document.weights[i] * factor);
+            }
+            if (best == 0) return 0;
+            total += best;
+        }
+        return total;
+    }
+
+    private NavigableMap<String, Postings> withPrefix(String prefix) {
+        return postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    private Postings newPostings(String term) {
+        Postings own = new Postings(term, nextTermId++);
+        byTermId.put(own.termId, own);
+        return own;
+    }
+
+    private void unlink(int id, Document document) {
+        for (int termId : document.terms) {
+            Postings own = byTermId.get(termId);
+            if (own == null) continue;
+            own.dead++;
+            if (own.live() == 0) {
+                postings.remove(own.term);
+                byTermId.remove(termId);
+            } else if (own.dead > own.live() && own.dead > 16) {
+                own.compact(documents, id);
+            }
+        }
+    }
+
+    private static class Document {
+        // текст, из которого получены слова: по нему видно, что задачу не нужно разбирать заново
+        private final String name;
+        private final String description;
+        private final int[] terms;
+        private final int[] weights;
+
+        private Document(String name, String description, int size) {
+            this.name = name;
+            this.description = description;
+            this.terms = new int[size];
+            this.weights = new int[size];
+        }
+
+        private boolean has(int termId) {
+            for (int own : terms) {
+                if (own == termId) return true;
+            }
+            return false;
+        }
+    }
+
+    private static class Hit {
+        private final int id;
+        private final double score;
+
+        private Hit(int id, double score) {
+            this.id = id;
+            this.score = score;
+        }
+    }
+
+    // Массив id только дописывается: при удалении слова у задачи её id остаётся в массиве
+    // и лишь считается мёртвым, иначе снятие частого слова сдвигало бы большой массив.
+    // Когда мёртвых становится больше живых, массив чистится от них и от повторов.
+    private static class Postings {
+        private final String term;
+        private final int termId;
+        private int[] ids = new int[2];
+        private int size;
+        private int dead;
+
+        private Postings(String term, int termId) {
+            this.term = term;
+            this.termId = termId;
+        }
+
+        private int live() {
+            return size - dead;
+        }
+
+        private void add(int id) {
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+
+        // removing — id, который сейчас снимается и ещё может числиться в documents
+        private void compact(IntObjectMap<Document> documents, int removing) {
+            Arrays.sort(ids, 0, size);
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int id = ids[i];
+                if (id == removing || (kept > 0 && ids[kept - 1] == id)) continue;
+                Document document = documents.get(id);
+                if (document != null && document.has(termId)) ids[kept++] = id;
+            }
+            size = kept;
+            dead = 0;
+            ids = Arrays.copyOf(ids, Math.max(2, kept));
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package manager;
+
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+// Упорядоченное множество long без упаковки: ключи лежат в отсортированных блоках до CHUNK
+// штук, блоки упорядочены между собой. Поиск — двоичный по первым ключам блоков и внутри блока,
+// вставка и удаление сдвигают не больше одного блока. Ключи, добавляемые по возрастанию,
+// открывают новый блок вместо деления последнего, поэтому такие блоки остаются полными.
+class SortedLongSet {
+    static final long NONE = Long.MIN_VALUE;
+    private static final int CHUNK = 1024;
+
+    private long[][] chunks = new long[4][];
+    private int[] sizes = new int[4];
+    private int chunkCount;
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        chunks = new long[4][];
+        sizes = new int[4];
+        chunkCount = 0;
+        size = 0;
+    }
+
+    boolean add(long key) {
+        if (chunkCount == 0) {
+            insertChunk(0, new long[CHUNK]);
+        }
+        int c = chunkFor(key);
+        long[] chunk = chunks[c];
+        int at = Arrays.binarySearch(chunk, 0, sizes[c], key);
+        if (at >= 0) return false;
+        at = -at - 1;
+        if (sizes[c] == CHUNK) {
+            if (at == CHUNK && c == chunkCount - 1) {
+                insertChunk(c + 1, new long[CHUNK]);
+                c++;
+                at = 0;
+            } else {
+                split(c);
+                if (at > sizes[c]) {
+                    at -= sizes[c];
+                    c++;
+                }
+            }
+            chunk = chunks[c];
+        }
+        System.arraycopy(chunk, at, chunk, at + 1, sizes[c] - at);
+        chunk[at] = key;
+        sizes[c]++;
+        size++;
+        return true;
+    }
+
+    boolean remove(long key) {
+        if (chunkCount == 0) return false;
+        int c = chunkFor(key);
+        int at = Arrays.binarySearch(chunks[c], 0, sizes[c], key);
+        if (at < 0) return false;
+        long[] chunk = chunks[c];
+        System.arraycopy(chunk, at + 1, chunk, at, sizes[c] - at - 1);
+        sizes[c]--;
+        size--;
+        if (sizes[c] == 0) removeChunk(c);
+        return true;
+    }
+
+    // Наименьший ключ больше key или NONE
+    long higher(long key) {
+        if (chunkCount == 0) return NONE;
+        int c = chunkFor(key);
+        int at = Arrays.binarySearch(chunks[c], 0, sizes[c], key);
+        at = at >= 0 ? at + 1 : -at - 1;
+        if (at < sizes[c]) return chunks[c][at];
+        return c + 1 < chunkCount ? chunks[c + 1][0] : NONE;
+    }
+
+    // Наибольший ключ меньше key или NONE
+    long lower(long key) {
+        if (chunkCount == 0) return NONE;
+        int c = chunkFor(key);
+        int at = Arrays.binarySearch(chunks[c], 0, sizes[c], key);
+        at = (at >= 0 ? at : -at - 1) - 1;
+        if (at >= 0) return chunks[c][at];
+        return c > 0 ? chunks[c - 1][sizes[c - 1] - 1] : NONE;
+    }
+
+    // Передаёт ключи больше after по возрастанию, пока action возвращает true;
+    // after = NONE — с самого начала
+    void forEachAfter(long after, LongPredicate action) {
+        if (chunkCount == 0) return;
+        int c = after == NONE ? 0 : chunkFor(after);
+        int at = 0;
+        if (after != NONE) {
+            at = Arrays.binarySearch(chunks[c], 0, sizes[c], after);
+            at = at >= 0 ? at + 1 : -at - 1;
+        }
+        for (; c < chunkCount; c++, at = 0) {
+            long[] chunk = chunks[c];
+            for (int end = sizes[c]; at < end; at++) {
+                if (!action.test(chunk[at])) return;
+            }
+        }
+    }
+
+    // Последний блок, первый ключ которого не больше key (или первый блок)
+    private int chunkFor(long key) {
+        int low = 0;
+        int high = chunkCount - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (chunks[middle][0] <= key) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private void split(int c) {
+        int half = sizes[c] / 2;
+        long[] right = new long[CHUNK];
+        System.arraycopy(chunks[c], half, right, 0, sizes[c] - half);
+        insertChunk(c + 1, right);
+        sizes[c + 1] = sizes[c] - half;
+        sizes[c] = half;
+    }
+
+    private void insertChunk(int at, long[] chunk) {
+        if (chunkCount == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunkCount * 2);
+            sizes = Arrays.copyOf(sizes, chunkCount * 2);
+        }
+        System.arraycopy(chunks, at, chunks, at + 1, chunkCount - at);
+        System.arraycopy(sizes, at, sizes, at + 1, chunkCount - at);
+        chunks[at] = chunk;
+        sizes[at] = 0;
+        chunkCount++;
+    }
+
+    private void removeChunk(int c) {
+        System.arraycopy(chunks, c + 1, chunks, c, chunkCount - c - 1);
+        System.arraycopy(sizes, c + 1, sizes, c, chunkCount - c - 1);
+        chunkCount--;
+        chunks[chunkCount] = null;
+    }
+}
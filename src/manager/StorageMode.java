@@ -0,0 +1,8 @@
+package manager;
+
+public enum StorageMode {
+    SNAPSHOT,
+    JOURNAL,
+    PAGED,
+    SEGMENTED
+}
@@ -0,0 +1,276 @@
+package manager;
+
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskStatus;
+import tasks.TaskType;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+// Задачи по столбцам: строка — id задачи, каждое поле хранится отдельно от объектов Task,
+// которые создаются только при чтении. Где лежат поля, решает наследник: в массивах на куче
+// (HeapTaskColumns) или в записях фиксированного размера вне кучи (OffHeapTaskColumns).
+// Время хранится в минутах от эпохи (UTC), длительность — в целых минутах,
+// как duration_minutes в JdbcTaskManager.
+// Подзадачи эпика связаны в кольцо через next/prev: у строки эпика next — первая подзадача,
+// prev — последняя, у пустого эпика обе ссылки указывают на него самого.
+abstract class TaskColumns implements AutoCloseable {
+    static final long NO_START = Long.MIN_VALUE;
+    static final int NO_DURATION = Integer.MIN_VALUE;
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+
+    private final int[] counts = new int[TYPES.length];
+
+    // Поля строки; коды типа и статуса — ordinal + 1, 0 — строки нет или статус null
+    abstract int rows();
+
+    abstract void ensureCapacity(int id);
+
+    abstract byte typeCode(int id);
+
+    abstract void setTypeCode(int id, byte code);
+
+    abstract byte statusCode(int id);
+
+    abstract void setStatusCode(int id, byte code);
+
+    abstract long start(int id);
+
+    abstract void setStart(int id, long minutes);
+
+    abstract int duration(int id);
+
+    abstract void setDuration(int id, int minutes);
+
+    abstract int epicId(int id);
+
+    abstract void setEpicId(int id, int epicId);
+
+    abstract int next(int id);
+
+    abstract void setNext(int id, int next);
+
+    abstract int prev(int id);
+
+    abstract void setPrev(int id, int prev);
+
+    abstract String name(int id);
+
+    abstract void setName(int id, String name);
+
+    abstract String description(int id);
+
+    abstract void setDescription(int id, String description);
+
+    // Сбрасывает на диск хранилище, отображённое на файл
+    void force() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    // Счётчики по типам для уже заполненного хранилища, например открытого из файла
+    void recount() {
+        Arrays.fill(counts, 0);
+        for (int id = 1; id < rows(); id++) {
+            if (typeCode(id) != 0) counts[typeCode(id) - 1]++;
+        }
+    }
+
+    TaskType type(int id) {
+        if (id <= 0 || id >= rows() || typeCode(id) == 0) return null;
+        return TYPES[typeCode(id) - 1];
+    }
+
+    int count(TaskType type) {
+        return counts[type.ordinal()];
+    }
+
+    TaskStatus status(int id) {
+        byte code = statusCode(id);
+        return code == 0 ? null : STATUSES[code - 1];
+    }
+
+    // Пишет поля задачи в строку id; кольцо подзадач не трогает
+    void write(int id, Task task) {
+        ensureCapacity(id);
+        TaskType type = task.getType();
+        if (typeCode(id) == 0) counts[type.ordinal()]++;
+        setTypeCode(id, (byte) (type.ordinal() + 1));
+        setName(id, task.getName());
+        setDescription(id, task.getDescription());
+        if (type == TaskType.EPIC) {
+            // статус и время эпика выводятся из подзадач при чтении
+            setStatusCode(id, (byte) 0);
+            setStart(id, NO_START);
+            setDuration(id, NO_DURATION);
+            setEpicId(id, 0);
+            return;
+        }
+        setStatusCode(id, task.getTaskStatus() == null ? 0 : (byte) (task.getTaskStatus().ordinal() + 1));
+        setStart(id, task.getStartTime() == null ? NO_START : minutes(task.getStartTime()));
+        setDuration(id, task.getDuration() == null ? NO_DURATION : minutes(task.getDuration()));
+        setEpicId(id, task instanceof Subtask subtask && subtask.getEpicId() != null ? subtask.getEpicId() : 0);
+    }
+
+    void setText(int id, String name, String description) {
+        setName(id, name);
+        setDescription(id, description);
+    }
+
+    void clear(int id) {
+        if (type(id) == null) return;
+        counts[typeCode(id) - 1]--;
+        setTypeCode(id, (byte) 0);
+        setStatusCode(id, (byte) 0);
+        setStart(id, NO_START);
+        setDuration(id, NO_DURATION);
+        setEpicId(id, 0);
+        setNext(id, 0);
+        setPrev(id, 0);
+        setName(id, null);
+        setDescription(id, null);
+    }
+
+    void emptyRing(int epicId) {
+        setNext(epicId, epicId);
+        setPrev(epicId, epicId);
+    }
+
+    void append(int epicId, int subtaskId) {
+        int last = prev(epicId);
+        setNext(last, subtaskId);
+        setPrev(subtaskId, last);
+        setNext(subtaskId, epicId);
+        setPrev(epicId, subtaskId);
+    }
+
+    void unlink(int subtaskId) {
+        setNext(prev(subtaskId), next(subtaskId));
+        setPrev(next(subtaskId), prev(subtaskId));
+        setNext(subtaskId, 0);
+        setPrev(subtaskId, 0);
+    }
+
+    // Обход кольца: for (int s = firstSubtask(e); s != e; s = nextSubtask(s))
+    int firstSubtask(int epicId) {
+        return next(epicId);
+    }
+
+    int nextSubtask(int subtaskId) {
+        return next(subtaskId);
+    }
+
+    int[] ring(int epicId) {
+        int[] ids = new int[8];
+        int size = 0;
+        for (int s = next(epicId); s != epicId; s = next(s)) {
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = s;
+        }
+        return Arrays.copyOf(ids, size);
+    }
+
+    void restoreRing(int epicId, int[] subtaskIds) {
+        emptyRing(epicId);
+        for (int subtaskId : subtaskIds) {
+            append(epicId, subtaskId);
+        }
+    }
+
+    Task task(int id) {
+        Task task = new Task(id, name(id), description(id), status(id));
+        setTime(task, id);
+        return task;
+    }
+
+    Subtask subtask(int id) {
+        int epicId = epicId(id);
+        Subtask subtask = new Subtask(name(id), description(id), status(id), epicId == 0 ? null : epicId);
+        subtask.setId(id);
+        setTime(subtask, id);
+        return subtask;
+    }
+
+    // Эпик без подзадач; их, статус и время добавляет вызывающий
+    Epic epicHeader(int id) {
+        Epic epic = new Epic(name(id), description(id));
+        epic.setId(id);
+        return epic;
+    }
+
+    // Строка целиком (без колец) — для отката пакета
+    Row row(int id) {
+        if (type(id) == null) return new Row((byte) 0, (byte) 0, NO_START, NO_DURATION, 0, null, null);
+        return new Row(typeCode(id), statusCode(id), start(id), duration(id), epicId(id), name(id), description(id));
+    }
+
+    // Кольца подзадач не трогает: их восстанавливает restoreRing
+    void restore(int id, Row row) {
+        if (row.type == 0) {
+            clear(id);
+            return;
+        }
+        ensureCapacity(id);
+        if (typeCode(id) != 0) counts[typeCode(id) - 1]--;
+        counts[row.type - 1]++;
+        setTypeCode(id, row.type);
+        setStatusCode(id, row.status);
+        setStart(id, row.start);
+        setDuration(id, row.duration);
+        setEpicId(id, row.epicId);
+        setName(id, row.name);
+        setDescription(id, row.description);
+    }
+
+    static long minutes(LocalDateTime time) {
+        long minutes = Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+        // начало должно помещаться в старшую половину ключа расписания
+        if (minutes < Integer.MIN_VALUE || minutes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Start time out of range: " + time);
+        }
+        return minutes;
+    }
+
+    static int minutes(Duration duration) {
+        if (duration.isNegative()) throw new IllegalArgumentException("Duration is negative");
+        long minutes = duration.toMinutes();
+        if (minutes > Integer.MAX_VALUE) throw new IllegalArgumentException("Duration out of range: " + duration);
+        return (int) minutes;
+    }
+
+    static LocalDateTime time(long minutes) {
+        return LocalDateTime.ofEpochSecond(minutes * 60, 0, ZoneOffset.UTC);
+    }
+
+    private void setTime(Task task, int id) {
+        if (start(id) != NO_START) task.setStartTime(time(start(id)));
+        if (duration(id) != NO_DURATION) task.setDuration(Duration.ofMinutes(duration(id)));
+    }
+
+    static final class Row {
+        private final byte type;
+        private final byte status;
+        private final long start;
+        private final int duration;
+        private final int epicId;
+        private final String name;
+        private final String description;
+
+        private Row(byte type, byte status, long start, int duration, int epicId, String name, String description) {
+            this.type = type;
+            this.status = status;
+            this.start = start;
+            this.duration = duration;
+            this.epicId = epicId;
+            this.name = name;
+            this.description = description;
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package manager;
+
+import tasks.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+// Кодек строки CSV: пишет прямо в переданный буфер и разбирает поля по позициям,
+// без split и промежуточных подстрок. Поля с запятыми, кавычками и переводами строк
+// заключаются в кавычки по RFC 4180. Пустое поле — null, пустая строка пишется как "".
+// Экземпляр не потокобезопасен.
+class TaskCsvCodec {
+    private static final int FIELDS = 8;
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+
+    private final int[] starts = new int[FIELDS];
+    private final int[] ends = new int[FIELDS];
+    private final boolean[] quoted = new boolean[FIELDS];
+    private final StringBuilder unescaped = new StringBuilder();
+    private int fields;
+
+    void write(Task task, StringBuilder out) {
+        out.append(task.getId().intValue()).append(',');
+        out.append(task.getType().name()).append(',');
+        appendText(out, task.getName());
+        out.append(',');
+        out.append(task.getTaskStatus().name()).append(',');
+        appendText(out, task.getDescription());
+        out.append(',');
+        if (task instanceof Subtask && ((Subtask) task).getEpicId() != null) {
+            out.append(((Subtask) task).getEpicId().intValue());
+        }
+        out.append(',');
+        appendTime(out, task.getStartTime());
+        out.append(',');
+        if (task.getDuration() != null) {
+            out.append(task.getDuration().toMinutes());
+        }
+    }
+
+    Task parse(String line) {
+        split(line);
+        if (fields < 5) {
+            throw new IllegalArgumentException("Not enough fields in line: " + line);
+        }
+
+        int id = (int) parseLong(line, 0);
+        TaskType type = parseEnum(line, 1, TYPES, "task type");
+        String name = isEmpty(2) ? null : text(line, 2);
+        TaskStatus status = parseEnum(line, 3, STATUSES, "task status");
+        String description = isEmpty(4) ? null : text(line, 4);
+        LocalDateTime start = isEmpty(6) ? null : parseTime(line, 6);
+        Duration duration = isEmpty(7) ? null : Duration.ofMinutes(parseLong(line, 7));
+
+        switch (type) {
+            case TASK:
+                Task task = new Task(name, description, status);
+                task.setId(id);
+                task.setStartTime(start);
+                task.setDuration(duration);
+                return task;
+            case EPIC:
+                Epic epic = new Epic(name, description);
+                epic.setId(id);
+                epic.setTaskStatus(status);
+                return epic;
+            case SUBTASK:
+                if (isEmpty(5)) throw new IllegalArgumentException("Subtask without epic: " + line);
+                Subtask subtask = new Subtask(name, description, status, (int) parseLong(line, 5));
+                subtask.setId(id);
+                subtask.setStartTime(start);
+                subtask.setDuration(duration);
+                return subtask;
+            default:
+                throw new IllegalArgumentException("Unknown task type: " + type);
+        }
+    }
+
+    // Конец записи — перевод строки вне кавычек; -1, если запись не завершена.
+    // Кавычка открывает поле только в его начале: в старых строках без экранирования
+    // она может стоять посреди текста и ничего не значит
+    static int recordEnd(CharSequence text, int from) {
+        boolean fieldStart = true;
+        boolean quotedField = false;
+        boolean inQuotes = false;
+        for (int i = from; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                if (fieldStart) quotedField = true;
+                if (quotedField) inQuotes = !inQuotes;
+            } else if (!inQuotes && c == '\n') {
+                return i;
+            } else if (!inQuotes && c == ',') {
+                quotedField = false;
+                fieldStart = true;
+                continue;
+            }
+            fieldStart = false;
+        }
+        return -1;
+    }
+
+    // То же для байтов UTF-8: кавычка, запятая и перевод строки не встречаются внутри многобайтовых символов
+    static int lastRecordEnd(byte[] bytes, int length) {
+        boolean fieldStart = true;
+        boolean quotedField = false;
+        boolean inQuotes = false;
+        int last = -1;
+        for (int i = 0; i < length; i++) {
+            byte b = bytes[i];
+            if (b == '"') {
+                if (fieldStart) quotedField = true;
+                if (quotedField) inQuotes = !inQuotes;
+            } else if (!inQuotes && (b == '\n' || b == ',')) {
+                if (b == '\n') last = i;
+                quotedField = false;
+                fieldStart = true;
+                continue;
+            }
+            fieldStart = false;
+        }
+        return last;
+    }
+
+    private void split(String line) {
+        fields = 0;
+        int length = line.length();
+        int pos = 0;
+        while (fields < FIELDS) {
+            if (pos < length && line.charAt(pos) == '"') {
+                int close = pos + 1;
+                while (true) {
+                    close = line.indexOf('"', close);
+                    if (close == -1) throw new IllegalArgumentException("Unterminated quote in line: " + line);
+                    if (close + 1 < length && line.charAt(close + 1) == '"') {
+                        close += 2;
+                    } else {
+                        break;
+                    }
+                }
+                starts[fields] = pos + 1;
+                ends[fields] = close;
+                quoted[fields] = true;
+                pos = close + 1;
+            } else {
+                int comma = line.indexOf(',', pos);
+                int end = comma == -1 ? length : comma;
+                starts[fields] = pos;
+                ends[fields] = end;
+                quoted[fields] = false;
+                pos = end;
+            }
+            fields++;
+            if (pos >= length) break;
+            if (line.charAt(pos) != ',') throw new IllegalArgumentException("Unexpected character in line: " + line);
+            pos++;
+            if (pos == length && fields < FIELDS) {
+                starts[fields] = pos;
+                ends[fields] = pos;
+                quoted[fields] = false;
+                fields++;
+                break;
+            }
+        }
+    }
+
+    private boolean isEmpty(int field) {
+        return field >= fields || (!quoted[field] && starts[field] == ends[field]);
+    }
+
+    private String text(String line, int field) {
+        int start = starts[field];
+        int end = ends[field];
+        if (start == end) return "";
+        int quote = quoted[field] ? line.indexOf('"', start) : -1;
+        if (quote == -1 || quote >= end) {
+            return line.substring(start, end);
+        }
+        unescaped.setLength(0);
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
+            unescaped.append(c);
+            if (c == '"') i++;
+        }
+        return unescaped.toString();
+    }
+
+    private long parseLong(String line, int field) {
+        int start = starts[field];
+        int end = ends[field];
+        boolean negative = start < end && line.charAt(start) == '-';
+        int i = negative ? start + 1 : start;
+        if (i == end) throw new NumberFormatException("Empty number in line: " + line);
+
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = line.charAt(i) - '0';
+            if (digit < 0 || digit > 9) throw new NumberFormatException("Bad number in line: " + line);
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    private <E extends Enum<E>> E parseEnum(String line, int field, E[] values, String what) {
+        int start = starts[field];
+        int length = ends[field] - start;
+        for (E value : values) {
+            String name = value.name();
+            if (name.length() == length && line.regionMatches(start, name, 0, length)) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Unknown " + what + ": " + line.substring(start, ends[field]));
+    }
+
+    // yyyy-MM-ddTHH:mm[:ss[.fffffffff]] — формат LocalDateTime.toString для четырёхзначных лет
+    private LocalDateTime parseTime(String line, int field) {
+        int s = starts[field];
+        int end = ends[field];
+        int length = end - s;
+        if (length < 16 || line.charAt(s + 4) != '-' || line.charAt(s + 7) != '-'
+                || line.charAt(s + 10) != 'T' || line.charAt(s + 13) != ':') {
+            return LocalDateTime.parse(line.substring(s, end));
+        }
+
+        int second = 0;
+        int nano = 0;
+        if (length > 16) {
+            if (line.charAt(s + 16) != ':' || length < 19) return LocalDateTime.parse(line.substring(s, end));
+            second = digits(line, s + 17, 2);
+            if (length > 19) {
+                if (line.charAt(s + 19) != '.' || length > 29) return LocalDateTime.parse(line.substring(s, end));
+                int fraction = length - 20;
+                nano = digits(line, s + 20, fraction);
+                for (int i = fraction; i < 9; i++) {
+                    nano *= 10;
+                }
+            }
+        }
+        return LocalDateTime.of(digits(line, s, 4), digits(line, s + 5, 2), digits(line, s + 8, 2),
+                digits(line, s + 11, 2), digits(line, s + 14, 2), second, nano);
+    }
+
+    private static int digits(String line, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = line.charAt(i) - '0';
+            if (digit < 0 || digit > 9) throw new NumberFormatException("Bad date in line: " + line);
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static void appendText(StringBuilder out, String value) {
+        if (value == null) return;
+        boolean quote = value.isEmpty();
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.append(value);
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') out.append('"');
+            out.append(c);
+        }
+        out.append('"');
+    }
+
+    private static void appendTime(StringBuilder out, LocalDateTime time) {
+        if (time == null) return;
+        int year = time.getYear();
+        if (year < 1000 || year > 9999) {
+            out.append(time);
+            return;
+        }
+        out.append(year).append('-');
+        pad(out, time.getMonthValue(), 2);
+        out.append('-');
+        pad(out, time.getDayOfMonth(), 2);
+        out.append('T');
+        pad(out, time.getHour(), 2);
+        out.append(':');
+        pad(out, time.getMinute(), 2);
+
+        int second = time.getSecond();
+        int nano = time.getNano();
+        if (second > 0 || nano > 0) {
+            out.append(':');
+            pad(out, second, 2);
+            if (nano > 0) {
+                out.append('.');
+                if (nano % 1_000_000 == 0) {
+                    pad(out, nano / 1_000_000, 3);
+                } else if (nano % 1000 == 0) {
+                    pad(out, nano / 1000, 6);
+                } else {
+                    pad(out, nano, 9);
+                }
+            }
+        }
+    }
+
+    private static void pad(StringBuilder out, int value, int width) {
+        for (int limit = 10; width > 1; width--, limit *= 10) {
+            if (value < limit) out.append('0');
+        }
+        out.append(value);
+    }
+}
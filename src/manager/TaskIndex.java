@@ -0,0 +1,164 @@
+package manager;
+
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskStatus;
+import tasks.TaskType;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+// Вторичные индексы для выборок: id по статусу, id по типу и задачи по началу.
+// Для каждого id запоминается проиндексированное состояние, поэтому запись удаляется
+// правильно, даже если объект задачи успели изменить на месте (как статус эпика).
+class TaskIndex {
+    private static final Comparator<Entry> BY_START = Comparator.comparing((Entry entry) -> entry.start)
+            .thenComparingInt(entry -> entry.id);
+
+    private final IntObjectMap<Entry> entries = new IntObjectMap<>();
+    private final Map<TaskStatus, TreeSet<Integer>> byStatus = new EnumMap<>(TaskStatus.class);
+    private final Map<TaskType, TreeSet<Integer>> byType = new EnumMap<>(TaskType.class);
+    private final TreeSet<Entry> byStart = new TreeSet<>(BY_START);
+
+    void put(Task task) {
+        if (task == null || task.getId() == null) return;
+        Entry entry = new Entry(task);
+        Entry old = entries.put(entry.id, entry);
+        if (old != null) {
+            if (old.sameKeys(entry)) return;
+            unlink(old);
+        }
+        if (entry.status != null) byStatus.computeIfAbsent(entry.status, key -> new TreeSet<>()).add(entry.id);
+        byType.computeIfAbsent(entry.type, key -> new TreeSet<>()).add(entry.id);
+        if (entry.start != null) byStart.add(entry);
+    }
+
+    void remove(int id) {
+        Entry old = entries.remove(id);
+        if (old != null) unlink(old);
+    }
+
+    // Кандидаты берутся из самого узкого индекса, остальные условия проверяются по записям.
+    // Размер диапазона по началу считается только до размера лучшего из уже найденных.
+    // epicSubtasks — подзадачи эпика из условия или null, если эпик не задан.
+    List<Integer> select(TaskQuery query, Collection<? extends Task> epicSubtasks) {
+        Collection<Integer> ids = null;
+        int best = entries.size();
+        if (epicSubtasks != null && epicSubtasks.size() < best) {
+            List<Integer> own = new ArrayList<>(epicSubtasks.size());
+            epicSubtasks.forEach(subtask -> own.add(subtask.getId()));
+            ids = own;
+            best = own.size();
+        }
+        if (query.getStatuses() != null && sizeOf(byStatus, query.getStatuses()) < best) {
+            ids = union(byStatus, query.getStatuses());
+            best = ids.size();
+        }
+        if (query.getTypes() != null && sizeOf(byType, query.getTypes()) < best) {
+            ids = union(byType, query.getTypes());
+            best = ids.size();
+        }
+        if (query.hasStartRange()) {
+            NavigableSet<Entry> range = startRange(query.getStartFrom(), query.getStartTo());
+            int count = 0;
+            for (Entry ignored : range) {
+                if (++count >= best) break;
+            }
+            if (count < best) {
+                List<Integer> inRange = new ArrayList<>(count);
+                range.forEach(entry -> inRange.add(entry.id));
+                ids = inRange;
+            }
+        }
+
+        List<Integer> found = new ArrayList<>();
+        if (ids == null) {
+            entries.forEachKey(id -> collect(query, id, found));
+        } else {
+            ids.forEach(id -> collect(query, id, found));
+        }
+        found.sort(null);
+        return found;
+    }
+
+    private void collect(TaskQuery query, int id, List<Integer> found) {
+        Entry entry = entries.get(id);
+        if (entry != null && query.matches(entry.type, entry.status, entry.epicId, entry.start)) {
+            found.add(id);
+        }
+    }
+
+    private NavigableSet<Entry> startRange(LocalDateTime from, LocalDateTime to) {
+        NavigableSet<Entry> range = byStart;
+        if (from != null) range = range.tailSet(probe(from, Integer.MIN_VALUE), true);
+        if (to != null) range = range.headSet(probe(to, Integer.MIN_VALUE), false);
+        return range;
+    }
+
+    private void unlink(Entry entry) {
+        if (entry.status != null) removeId(byStatus, entry.status, entry.id);
+        removeId(byType, entry.type, entry.id);
+        if (entry.start != null) byStart.remove(entry);
+    }
+
+    private static <K> void removeId(Map<K, TreeSet<Integer>> index, K key, int id) {
+        TreeSet<Integer> ids = index.get(key);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) index.remove(key);
+    }
+
+    private static <K> int sizeOf(Map<K, TreeSet<Integer>> index, Set<K> keys) {
+        int size = 0;
+        for (K key : keys) {
+            TreeSet<Integer> ids = index.get(key);
+            if (ids != null) size += ids.size();
+        }
+        return size;
+    }
+
+    private static <K> List<Integer> union(Map<K, TreeSet<Integer>> index, Set<K> keys) {
+        List<Integer> ids = new ArrayList<>(sizeOf(index, keys));
+        for (K key : keys) {
+            TreeSet<Integer> own = index.get(key);
+            if (own != null) ids.addAll(own);
+        }
+        return ids;
+    }
+
+    private static Entry probe(LocalDateTime start, int id) {
+        return new Entry(id, TaskType.TASK, null, null, start);
+    }
+
+    private static class Entry {
+        private final int id;
+        private final TaskType type;
+        private final TaskStatus status;
+        private final Integer epicId;
+        private final LocalDateTime start;
+
+        private Entry(Task task) {
+            this(task.getId(), task.getType(), task.getTaskStatus(),
+                    task instanceof Subtask ? ((Subtask) task).getEpicId() : null, task.getStartTime());
+        }
+
+        private Entry(int id, TaskType type, TaskStatus status, Integer epicId, LocalDateTime start) {
+            this.id = id;
+            this.type = type;
+            this.status = status;
+            this.epicId = epicId;
+            this.start = start;
+        }
+
+        private boolean sameKeys(Entry other) {
+            return type == other.type && status == other.status && Objects.equals(start, other.start);
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package manager;
+
+import exception.ManagerLoadException;
+import exception.ManagerSaveException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+// Журнал изменений: одна строка "lsn,операция,данные" на каждую мутацию.
+// Пакет изменений пишется заголовком "lsn,BATCH,n" и следующими за ним n строками.
+class TaskJournal {
+    static final String PUT = "PUT";
+    static final String DELETE = "DEL";
+    static final String CLEAR = "CLEAR";
+    static final String BATCH = "BATCH";
+
+    private static final CompletableFuture<Void> DURABLE = CompletableFuture.completedFuture(null);
+
+    private final File file;
+    private final File rotated;
+    private long lsn;
+    private int records;
+    private FileChannel channel;
+    private Durability durability = Durability.ASYNC;
+    private CompletableFuture<Void> pendingGroup;
+    private ScheduledExecutorService committer;
+
+    TaskJournal(File snapshot) {
+        this.file = new File(snapshot.getPath() + ".journal");
+        this.rotated = new File(snapshot.getPath() + ".journal.1");
+    }
+
+    synchronized void setDurability(Durability durability) {
+        commitPending();
+        this.durability = durability;
+    }
+
+    synchronized Durability getDurability() {
+        return durability;
+    }
+
+    // Возвращает future, который завершится, когда запись гарантированно окажется на диске
+    synchronized CompletableFuture<Void> append(String op, String payload) {
+        long next = lsn + 1;
+        return write(next + "," + op + "," + payload + "\n", next, 1);
+    }
+
+    // Пакет уходит одной записью в файл и одним force; records — пары {операция, данные}
+    synchronized CompletableFuture<Void> appendBatch(List<String[]> batch) {
+        long next = lsn + 1;
+        StringBuilder text = new StringBuilder();
+        text.append(next).append(',').append(BATCH).append(',').append(batch.size()).append('\n');
+        for (String[] record : batch) {
+            text.append(++next).append(',').append(record[0]).append(',').append(record[1]).append('\n');
+        }
+        return write(text, next, batch.size() + 1);
+    }
+
+    // Сбрасывает записанное на диск, не дожидаясь окна группового коммита
+    synchronized void force() {
+        if (pendingGroup != null) {
+            commitPending();
+            return;
+        }
+        try {
+            if (channel != null) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Error while syncing journal", e);
+        }
+    }
+
+    private CompletableFuture<Void> write(CharSequence text, long last, int count) {
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(text));
+        try {
+            FileChannel out = channel();
+            while (bytes.hasRemaining()) {
+                out.write(bytes);
+            }
+            if (durability.getLevel() == Durability.Level.SYNC_EACH) {
+                out.force(false);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Error while appending to journal", e);
+        }
+        lsn = last;
+        records += count;
+
+        if (durability.getLevel() != Durability.Level.GROUP_COMMIT) {
+            return DURABLE;
+        }
+        if (pendingGroup == null) {
+            pendingGroup = new CompletableFuture<>();
+            committer().schedule(this::commitGroup, durability.getWindow().toNanos(), TimeUnit.NANOSECONDS);
+        }
+        return pendingGroup;
+    }
+
+    private void commitGroup() {
+        CompletableFuture<Void> group;
+        FileChannel out;
+        synchronized (this) {
+            group = pendingGroup;
+            out = channel;
+            pendingGroup = null;
+        }
+        if (group == null) return;
+        // force выполняется без блокировки, чтобы следующая группа могла писать параллельно
+        try {
+            if (out != null && out.isOpen()) {
+                out.force(false);
+            }
+            group.complete(null);
+        } catch (IOException e) {
+            group.completeExceptionally(new ManagerSaveException("Error while syncing journal", e));
+        }
+    }
+
+    private void commitPending() {
+        if (pendingGroup == null) return;
+        CompletableFuture<Void> group = pendingGroup;
+        pendingGroup = null;
+        try {
+            if (channel != null) {
+                channel.force(false);
+            }
+            group.complete(null);
+        } catch (IOException e) {
+            group.completeExceptionally(new ManagerSaveException("Error while syncing journal", e));
+        }
+    }
+
+    private FileChannel channel() throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+        return channel;
+    }
+
+    private ScheduledExecutorService committer() {
+        if (committer == null) {
+            committer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "journal-commit-" + file.getName());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return committer;
+    }
+
+    synchronized void close() {
+        commitPending();
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Error while closing journal", e);
+        } finally {
+            channel = null;
+        }
+    }
+
+    void replay(long afterLsn, BiConsumer<String, String> consumer) {
+        lsn = Math.max(lsn, afterLsn);
+        for (File part : List.of(rotated, file)) {
+            if (part.exists()) {
+                replay(part, afterLsn, consumer);
+            }
+        }
+    }
+
+    private void replay(File part, long afterLsn, BiConsumer<String, String> consumer) {
+        String content;
+        try {
+            content = Files.readString(part.toPath(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new ManagerLoadException("Error while reading journal", e);
+        }
+
+        int start = 0;
+        int end;
+        // конец последней целой записи или целого пакета
+        int applied = 0;
+        List<String[]> batch = null;
+        int expected = 0;
+        // хвост без перевода строки или пакет без всех записей — недописанное при сбое, пропускаем
+        while ((end = TaskCsvCodec.recordEnd(content, start)) != -1) {
+            String line = content.substring(start, end);
+            start = end + 1;
+            if (line.isBlank()) {
+                if (batch == null) applied = start;
+                continue;
+            }
+
+            String[] parts = line.split(",", 3);
+            if (parts.length < 3) {
+                throw new ManagerLoadException("Corrupted journal record: " + line);
+            }
+            long recordLsn = Long.parseLong(parts[0]);
+            if (batch == null && BATCH.equals(parts[1])) {
+                expected = Integer.parseInt(parts[2]);
+                batch = new ArrayList<>(expected);
+            } else if (batch != null) {
+                batch.add(parts);
+            } else if (recordLsn > afterLsn) {
+                consumer.accept(parts[1], parts[2]);
+            }
+            if (batch != null && batch.size() < expected) continue;
+
+            int count = 1;
+            if (batch != null) {
+                for (String[] record : batch) {
+                    if (Long.parseLong(record[0]) > afterLsn) consumer.accept(record[1], record[2]);
+                }
+                count += batch.size();
+                batch = null;
+            }
+            if (recordLsn > afterLsn) {
+                lsn = Math.max(lsn, recordLsn);
+                records += count;
+            }
+            applied = start;
+        }
+        if (applied < content.length()) {
+            cutTail(part, content.substring(0, applied));
+        }
+    }
+
+    // Новые записи не должны дописываться за обрывком, иначе при следующем чтении они склеятся с ним
+    private static void cutTail(File part, String kept) {
+        try (FileChannel out = FileChannel.open(part.toPath(), StandardOpenOption.WRITE)) {
+            out.truncate(kept.getBytes(StandardCharsets.UTF_8).length);
+        } catch (IOException e) {
+            throw new ManagerLoadException("Error while truncating journal tail", e);
+        }
+    }
+
+    // Текущий журнал уходит в ротацию, новые записи пишутся в свежий файл
+    synchronized void rotate() {
+        close();
+        try {
+            if (file.exists()) {
+                if (rotated.exists()) {
+                    // прошлый чекпоинт не завершился — дописываем, чтобы не потерять его записи
+                    Files.write(rotated.toPath(), Files.readAllBytes(file.toPath()), StandardOpenOption.APPEND);
+                    Files.delete(file.toPath());
+                } else {
+                    Files.move(file.toPath(), rotated.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Error while rotating journal", e);
+        }
+        records = 0;
+    }
+
+    void dropRotated() {
+        try {
+            Files.deleteIfExists(rotated.toPath());
+        } catch (IOException e) {
+            throw new ManagerSaveException("Error while truncating journal", e);
+        }
+    }
+
+    synchronized void truncate() {
+        close();
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            throw new ManagerSaveException("Error while truncating journal", e);
+        }
+        dropRotated();
+        records = 0;
+    }
+
+    // На диске нет записей — ни в текущем журнале, ни в ротации
+    synchronized boolean isEmpty() {
+        return file.length() == 0 && rotated.length() == 0;
+    }
+
+    synchronized long lsn() {
+        return lsn;
+    }
+
+    synchronized int size() {
+        return records;
+    }
+}
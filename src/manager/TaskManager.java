@@ -3,8 +3,12 @@ package manager;
 import tasks.Epic;
 import tasks.Subtask;
 import tasks.Task;
+import tasks.TimeSlot;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface TaskManager {
 
@@ -12,6 +16,9 @@ public interface TaskManager {
 
     List<Task> getTasks();
 
+    // Постраничные варианты списков: cursor из предыдущей страницы или null для первой
+    Page<Task> getTasks(String cursor, int limit);
+
     int createTask(Task task);
 
     void updateTask(Task task);
@@ -24,6 +31,8 @@ public interface TaskManager {
 
     List<Subtask> getSubtasks();
 
+    Page<Subtask> getSubtasks(String cursor, int limit);
+
     int createSubtask(Subtask subtask);
 
     void updateSubtask(Subtask subtask);
@@ -36,6 +45,8 @@ public interface TaskManager {
 
     List<Epic> getEpics();
 
+    Page<Epic> getEpics(String cursor, int limit);
+
     int createEpic(Epic epic);
 
     void updateEpic(Epic epic);
@@ -48,5 +59,37 @@ public interface TaskManager {
 
     List<Task> getHistory();
 
+    Page<Task> getHistory(String cursor, int limit);
+
+    // Задачи всех типов, подходящие под условия, в порядке id
+    List<Task> findTasks(TaskQuery query);
+
+    // Задачи, в названии или описании которых есть все слова запроса (как префиксы), лучшие первыми
+    List<Task> search(String query, int limit);
+
+    // Изменения применяются все или ни одного; возвращает id по каждому изменению
+    List<Integer> applyBatch(List<Mutation> batch);
+
     List<Task> getPrioritizedTasks();
+
+    Page<Task> getPrioritizedTasks(String cursor, int limit);
+
+    // Задачи с началом в [from, to) в порядке приоритета; null — без границы с этой стороны
+    List<Task> getPrioritizedBetween(LocalDateTime from, LocalDateTime to);
+
+    Page<Task> getPrioritizedBetween(LocalDateTime from, LocalDateTime to, String cursor, int limit);
+
+    LocalDateTime findNextFreeSlot(Duration duration, LocalDateTime notBefore);
+
+    List<TimeSlot> freeSlots(LocalDateTime from, LocalDateTime to, Duration minDuration);
+
+    CompletableFuture<Void> whenDurable();
+
+    // Версия последних опубликованных данных; растёт с каждым изменением
+    long version();
+
+    // true, если методы можно вызывать из нескольких потоков сразу; иначе HttpTaskServer вызывает их по одному
+    default boolean isThreadSafe() {
+        return false;
+    }
 }
@@ -0,0 +1,97 @@
+package manager;
+
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskStatus;
+import tasks.TaskType;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.Set;
+
+// Условия выборки задач, все заданные условия должны выполняться одновременно.
+// Начало задачи проверяется по полуинтервалу [from, to), любая граница может быть null.
+public class TaskQuery {
+    private EnumSet<TaskStatus> statuses;
+    private EnumSet<TaskType> types;
+    private Integer epicId;
+    private boolean byStart;
+    private LocalDateTime startFrom;
+    private LocalDateTime startTo;
+
+    private TaskQuery() {
+    }
+
+    public static TaskQuery all() {
+        return new TaskQuery();
+    }
+
+    public static TaskQuery status(TaskStatus first, TaskStatus... rest) {
+        if (first == null) throw new IllegalArgumentException("Status is null");
+        TaskQuery query = new TaskQuery();
+        query.statuses = EnumSet.of(first, rest);
+        return query;
+    }
+
+    public TaskQuery type(TaskType first, TaskType... rest) {
+        if (first == null) throw new IllegalArgumentException("Type is null");
+        types = EnumSet.of(first, rest);
+        return this;
+    }
+
+    public TaskQuery epic(int epicId) {
+        this.epicId = epicId;
+        return this;
+    }
+
+    public TaskQuery startBetween(LocalDateTime from, LocalDateTime to) {
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException("Empty time range");
+        }
+        byStart = true;
+        startFrom = from;
+        startTo = to;
+        return this;
+    }
+
+    Set<TaskStatus> getStatuses() {
+        return statuses;
+    }
+
+    Set<TaskType> getTypes() {
+        return types;
+    }
+
+    Integer getEpicId() {
+        return epicId;
+    }
+
+    boolean hasStartRange() {
+        return byStart;
+    }
+
+    LocalDateTime getStartFrom() {
+        return startFrom;
+    }
+
+    LocalDateTime getStartTo() {
+        return startTo;
+    }
+
+    public boolean matches(Task task) {
+        Integer epic = task instanceof Subtask ? ((Subtask) task).getEpicId() : null;
+        return matches(task.getType(), task.getTaskStatus(), epic, task.getStartTime());
+    }
+
+    boolean matches(TaskType type, TaskStatus status, Integer epic, LocalDateTime start) {
+        if (statuses != null && (status == null || !statuses.contains(status))) return false;
+        if (types != null && !types.contains(type)) return false;
+        if (epicId != null && !epicId.equals(epic)) return false;
+        if (byStart) {
+            if (start == null) return false;
+            if (startFrom != null && start.isBefore(startFrom)) return false;
+            if (startTo != null && !start.isBefore(startTo)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,203 @@
+package manager;
+
+import exception.ManagerLoadException;
+import exception.ManagerSaveException;
+import tasks.Task;
+import tasks.TaskStatus;
+import tasks.TaskType;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+// Сегменты хранения: отдельный CSV-файл на каждый тип задач и диапазон id.
+// Основной файл становится манифестом со списком сегментов и их сводкой:
+// число записей, все ли задачи DONE и границы занятого времени.
+class TaskSegments {
+    static final String MAGIC = "#segments,1";
+    static final int RANGE = 1024;
+
+    private static final String NEXT_PREFIX = "#next,";
+
+    private final File manifest;
+    private final Map<String, Segment> segments = new TreeMap<>();
+    // файлы опустевших сегментов: удаляются, только когда новый манифест уже на месте
+    private final Set<String> unreferenced = new TreeSet<>();
+    private int nextId = 1;
+
+    TaskSegments(File manifest) {
+        this.manifest = manifest;
+    }
+
+    static boolean isManifest(File file) throws IOException {
+        if (!file.exists()) return false;
+        byte[] magic = MAGIC.getBytes(StandardCharsets.UTF_8);
+        byte[] head = new byte[magic.length];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            return in.readNBytes(head, 0, head.length) == head.length && Arrays.equals(head, magic);
+        }
+    }
+
+    static String nameOf(TaskType type, int id) {
+        return name(type, id / RANGE);
+    }
+
+    private static String name(TaskType type, int range) {
+        return type.name().toLowerCase() + "-" + range;
+    }
+
+    void readManifest() throws IOException {
+        segments.clear();
+        List<String> lines = Files.readAllLines(manifest.toPath(), StandardCharsets.UTF_8);
+        for (String line : lines) {
+            if (line.isBlank() || line.equals(MAGIC)) continue;
+            if (line.startsWith(NEXT_PREFIX)) {
+                nextId = Integer.parseInt(line.substring(NEXT_PREFIX.length()));
+                continue;
+            }
+            String[] fields = line.split(",", -1);
+            if (fields.length != 7) {
+                throw new ManagerLoadException("Bad manifest line: " + line);
+            }
+            Segment segment = new Segment(TaskType.valueOf(fields[1]), Integer.parseInt(fields[2]));
+            segment.count = Integer.parseInt(fields[3]);
+            segment.done = fields[4].equals("1");
+            segment.minStart = fields[5].isEmpty() ? null : LocalDateTime.parse(fields[5]);
+            segment.maxEnd = fields[6].isEmpty() ? null : LocalDateTime.parse(fields[6]);
+            segments.put(fields[0], segment);
+        }
+    }
+
+    Collection<String> names() {
+        return segments.keySet();
+    }
+
+    Segment get(String name) {
+        return segments.get(name);
+    }
+
+    int nextId() {
+        return nextId;
+    }
+
+    List<Task> read(String name) {
+        File file = fileOf(name);
+        try {
+            String content = Files.readString(file.toPath(), StandardCharsets.UTF_8);
+            TaskCsvCodec codec = new TaskCsvCodec();
+            List<Task> rows = new ArrayList<>(segments.get(name).count);
+            int start = content.indexOf('\n') + 1;
+            int end;
+            while (start > 0 && (end = TaskCsvCodec.recordEnd(content, start)) != -1) {
+                String line = content.substring(start, end);
+                start = end + 1;
+                if (!line.isBlank()) rows.add(codec.parse(line));
+            }
+            return rows;
+        } catch (IOException e) {
+            throw new ManagerLoadException("Error while loading segment " + file, e);
+        }
+    }
+
+    // Пустой сегмент пропадает из манифеста, а его файл удаляет следующий writeManifest
+    void write(TaskType type, int range, List<? extends Task> rows, boolean force) {
+        String name = name(type, range);
+        Path target = fileOf(name).toPath();
+        if (rows.isEmpty()) {
+            if (segments.remove(name) != null) unreferenced.add(name);
+            return;
+        }
+        unreferenced.remove(name);
+        try {
+            Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+            FileBackedTaskManager.writeCsv(tmp, List.of(rows), 0, force);
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Error while saving segment " + name, e);
+        }
+
+        Segment segment = new Segment(type, range);
+        segment.count = rows.size();
+        segment.done = true;
+        for (Task task : rows) {
+            segment.done &= task.getTaskStatus() == TaskStatus.DONE;
+            if (task.getStartTime() != null && task.getEndTime() != null) {
+                if (segment.minStart == null || task.getStartTime().isBefore(segment.minStart)) {
+                    segment.minStart = task.getStartTime();
+                }
+                if (segment.maxEnd == null || task.getEndTime().isAfter(segment.maxEnd)) {
+                    segment.maxEnd = task.getEndTime();
+                }
+            }
+        }
+        segments.put(name, segment);
+    }
+
+    void writeManifest(int nextId, boolean force) {
+        this.nextId = nextId;
+        StringBuilder out = new StringBuilder(MAGIC).append('\n');
+        out.append(NEXT_PREFIX).append(nextId).append('\n');
+        segments.forEach((name, segment) -> out.append(name).append(',')
+                .append(segment.type.name()).append(',')
+                .append(segment.range).append(',')
+                .append(segment.count).append(',')
+                .append(segment.done ? 1 : 0).append(',')
+                .append(segment.minStart == null ? "" : segment.minStart).append(',')
+                .append(segment.maxEnd == null ? "" : segment.maxEnd).append('\n'));
+
+        Path target = manifest.toPath();
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            Files.writeString(tmp, out, StandardCharsets.UTF_8);
+            if (force) {
+                try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                    channel.force(true);
+                }
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            for (String name : unreferenced) {
+                Files.deleteIfExists(fileOf(name).toPath());
+            }
+            unreferenced.clear();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Error while saving manifest", e);
+        }
+    }
+
+    private File fileOf(String name) {
+        return new File(manifest.getPath() + "." + name);
+    }
+
+    static class Segment {
+        final TaskType type;
+        final int range;
+        int count;
+        boolean done;
+        LocalDateTime minStart;
+        LocalDateTime maxEnd;
+
+        Segment(TaskType type, int range) {
+            this.type = type;
+            this.range = range;
+        }
+
+        boolean overlaps(LocalDateTime start, LocalDateTime end) {
+            return minStart != null && minStart.isBefore(end) && start.isBefore(maxEnd);
+        }
+    }
+}
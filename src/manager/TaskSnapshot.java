@@ -0,0 +1,295 @@
+package manager;
+
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskType;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Неизменяемый снимок доски с номером версии. Задачи копируются при изменении, поэтому снимок
+// остаётся прежним, даже если менеджер потом меняет свои объекты (например, пересчитывает эпик).
+// Изменение строит новый снимок за O(log n), разделяя с прежним все нетронутые узлы.
+// Задачи из снимка — общие для всех его читателей, менять их нельзя. У эпика хранится заголовок
+// со статусом и временем, которые менеджер уже посчитал по агрегатам, и дерево его подзадач:
+// изменение подзадачи заменяет только их, за O(log n). Эпик со списком подзадач собирается при
+// первом чтении и отдаётся тот же, пока его подзадачи или заголовок не изменятся.
+public class TaskSnapshot {
+    static final TaskSnapshot EMPTY = new TaskSnapshot(0, PersistentTree.empty(Comparator.naturalOrder()),
+            PersistentTree.empty(Comparator.naturalOrder()), PersistentTree.empty(Comparator.naturalOrder()),
+            PersistentTree.empty(Comparator.naturalOrder()), PersistentTree.empty(InMemoryTaskManager.PRIORITY));
+
+    private final long version;
+    private final PersistentTree<Integer, Task> tasks;
+    private final PersistentTree<Integer, Subtask> subtasks;
+    // подзадачи эпика по id лежат ещё и в epicSubtasks: там они и у эпика, которого в снимке пока нет
+    private final PersistentTree<Integer, EpicEntry> epics;
+    private final PersistentTree<Integer, PersistentTree<Integer, Subtask>> epicSubtasks;
+    private final PersistentTree<Task, Task> prioritized;
+
+    private TaskSnapshot(long version, PersistentTree<Integer, Task> tasks, PersistentTree<Integer, Subtask> subtasks,
+                         PersistentTree<Integer, EpicEntry> epics,
+                         PersistentTree<Integer, PersistentTree<Integer, Subtask>> epicSubtasks,
+                         PersistentTree<Task, Task> prioritized) {
+        this.version = version;
+        this.tasks = tasks;
+        this.subtasks = subtasks;
+        this.epics = epics;
+        this.epicSubtasks = epicSubtasks;
+        this.prioritized = prioritized;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<Task> getTasks() {
+        return tasks.values();
+    }
+
+    public Page<Task> getTasks(String cursor, int limit) {
+        return pageById(tasks, cursor, limit);
+    }
+
+    // null, если задачи нет
+    public Task getTask(int id) {
+        return tasks.get(id);
+    }
+
+    public List<Subtask> getSubtasks() {
+        return subtasks.values();
+    }
+
+    public Page<Subtask> getSubtasks(String cursor, int limit) {
+        return pageById(subtasks, cursor, limit);
+    }
+
+    public Subtask getSubtask(int id) {
+        return subtasks.get(id);
+    }
+
+    public List<Epic> getEpics() {
+        return assembled(epics.values());
+    }
+
+    public Page<Epic> getEpics(String cursor, int limit) {
+        InMemoryTaskManager.checkLimit(limit);
+        Integer after = InMemoryTaskManager.parseIdCursor(cursor);
+        List<EpicEntry> entries = new ArrayList<>(Math.min(limit, epics.size()));
+        boolean more = epics.valuesAfter(after, limit, entries);
+        List<Epic> items = assembled(entries);
+        return new Page<>(items, more ? String.valueOf(items.getLast().getId()) : null);
+    }
+
+    // null, если эпика нет
+    public Epic getEpic(int id) {
+        EpicEntry entry = epics.get(id);
+        return entry == null ? null : entry.epic();
+    }
+
+    // Эпики без списков подзадач — для записи на диск, где нужны только их поля
+    List<Epic> getEpicHeaders() {
+        List<EpicEntry> entries = epics.values();
+        List<Epic> headers = new ArrayList<>(entries.size());
+        for (EpicEntry entry : entries) {
+            headers.add(entry.header);
+        }
+        return headers;
+    }
+
+    // null, если эпика нет
+    public List<Subtask> getEpicSubtasks(int epicId) {
+        return epics.get(epicId) == null ? null : subtasksOf(epicId);
+    }
+
+    public List<Task> getPrioritizedTasks() {
+        return prioritized.values();
+    }
+
+    public Page<Task> getPrioritizedTasks(String cursor, int limit) {
+        return getPrioritizedBetween(null, null, cursor, limit);
+    }
+
+    public List<Task> getPrioritizedBetween(LocalDateTime from, LocalDateTime to) {
+        InMemoryTaskManager.checkRange(from, to);
+        List<Task> items = new ArrayList<>();
+        prioritized.valuesBetween(from == null ? null : InMemoryTaskManager.priorityProbe(from),
+                to == null ? null : InMemoryTaskManager.priorityProbe(to), Integer.MAX_VALUE, items);
+        return items;
+    }
+
+    public Page<Task> getPrioritizedBetween(LocalDateTime from, LocalDateTime to, String cursor, int limit) {
+        InMemoryTaskManager.checkLimit(limit);
+        InMemoryTaskManager.checkRange(from, to);
+        Task lower = InMemoryTaskManager.priorityLowerBound(from, cursor);
+        List<Task> items = new ArrayList<>(Math.min(limit + 1, prioritized.size()));
+        prioritized.valuesBetween(lower, to == null ? null : InMemoryTaskManager.priorityProbe(to), limit + 1, items);
+        return InMemoryTaskManager.trimmed(items, limit, InMemoryTaskManager::priorityCursor);
+    }
+
+    // Следующая версия с задачей в её текущем состоянии; прежняя версия задачи заменяется
+    TaskSnapshot put(Task task) {
+        int id = task.getId();
+        switch (task.getType()) {
+            case EPIC -> {
+                EpicEntry entry = new EpicEntry(header(task), epicSubtasks.get(id));
+                return new TaskSnapshot(version + 1, tasks, subtasks, epics.put(id, entry), epicSubtasks,
+                        prioritized);
+            }
+            case SUBTASK -> {
+                Subtask copy = (Subtask) copyOf(task);
+                Subtask old = subtasks.get(id);
+                Integer epicId = copy.getEpicId();
+                // статус и время эпиков приходят следом, когда менеджер кладёт пересчитанный эпик
+                TaskSnapshot base = old == null ? this : removeSubtask(old);
+                PersistentTree<Integer, PersistentTree<Integer, Subtask>> byEpic = base.epicSubtasks;
+                PersistentTree<Integer, EpicEntry> entries = base.epics;
+                if (epicId != null) {
+                    PersistentTree<Integer, Subtask> own = byEpic.get(epicId);
+                    if (own == null) own = PersistentTree.empty(Comparator.naturalOrder());
+                    own = own.put(id, copy);
+                    byEpic = byEpic.put(epicId, own);
+                    entries = withSubtasks(entries, epicId, own);
+                }
+                return new TaskSnapshot(version + 1, tasks, base.subtasks.put(id, copy), entries, byEpic,
+                        withPriority(base.prioritized, copy));
+            }
+            default -> {
+                Task copy = copyOf(task);
+                TaskSnapshot base = remove(TaskType.TASK, id);
+                return new TaskSnapshot(version + 1, base.tasks.put(id, copy), subtasks, epics, epicSubtasks,
+                        withPriority(base.prioritized, copy));
+            }
+        }
+    }
+
+    // Следующая версия без задачи; у эпика уходят и его подзадачи в epicSubtasks,
+    // сами подзадачи удаляются из снимка отдельно, как и из менеджера
+    TaskSnapshot remove(TaskType type, int id) {
+        switch (type) {
+            case EPIC -> {
+                if (epics.get(id) == null) return this;
+                return new TaskSnapshot(version + 1, tasks, subtasks, epics.remove(id), epicSubtasks.remove(id),
+                        prioritized);
+            }
+            case SUBTASK -> {
+                Subtask old = subtasks.get(id);
+                return old == null ? this : removeSubtask(old);
+            }
+            default -> {
+                Task old = tasks.get(id);
+                if (old == null) return this;
+                return new TaskSnapshot(version + 1, tasks.remove(id), subtasks, epics, epicSubtasks,
+                        prioritized.remove(old));
+            }
+        }
+    }
+
+    private TaskSnapshot removeSubtask(Subtask old) {
+        int id = old.getId();
+        Integer epicId = old.getEpicId();
+        PersistentTree<Integer, PersistentTree<Integer, Subtask>> byEpic = epicSubtasks;
+        PersistentTree<Integer, EpicEntry> entries = epics;
+        PersistentTree<Integer, Subtask> own = epicId == null ? null : byEpic.get(epicId);
+        if (own != null) {
+            own = own.remove(id);
+            byEpic = own.size() == 0 ? byEpic.remove(epicId) : byEpic.put(epicId, own);
+            entries = withSubtasks(entries, epicId, own.size() == 0 ? null : own);
+        }
+        return new TaskSnapshot(version + 1, tasks, subtasks.remove(id), entries, byEpic, prioritized.remove(old));
+    }
+
+    // Эпик с новым набором подзадач и прежним заголовком; эпика может ещё не быть в снимке
+    private static PersistentTree<Integer, EpicEntry> withSubtasks(PersistentTree<Integer, EpicEntry> epics,
+                                                                   int epicId, PersistentTree<Integer, Subtask> own) {
+        EpicEntry current = epics.get(epicId);
+        return current == null ? epics : epics.put(epicId, new EpicEntry(current.header, own));
+    }
+
+    // Поля эпика без подзадач; статус и время копируются, а не считаются заново
+    private static Epic header(Task source) {
+        Epic epic = new Epic(source.getName(), source.getDescription());
+        epic.setId(source.getId());
+        epic.setTaskStatus(source.getTaskStatus());
+        epic.setTime(source.getStartTime(), source.getDuration(), source.getEndTime());
+        return epic;
+    }
+
+    private static List<Epic> assembled(List<EpicEntry> entries) {
+        List<Epic> items = new ArrayList<>(entries.size());
+        for (EpicEntry entry : entries) {
+            items.add(entry.epic());
+        }
+        return items;
+    }
+
+    private List<Subtask> subtasksOf(int epicId) {
+        PersistentTree<Integer, Subtask> own = epicSubtasks.get(epicId);
+        return own == null ? new ArrayList<>() : own.values();
+    }
+
+    private static PersistentTree<Task, Task> withPriority(PersistentTree<Task, Task> prioritized, Task task) {
+        return task.getStartTime() == null ? prioritized : prioritized.put(task, task);
+    }
+
+    // Отдельная копия задачи, которую вызывающий может менять, не задевая снимок; null остаётся null
+    @SuppressWarnings("unchecked")
+    static <T extends Task> T copyOf(T task) {
+        if (task == null) return null;
+        if (task instanceof Epic epic) {
+            Epic copy = new Epic(epic.getName(), epic.getDescription());
+            copy.setId(epic.getId());
+            copy.setTaskStatus(epic.getTaskStatus());
+            List<Subtask> subtasks = new ArrayList<>(epic.getSubtasks().size());
+            for (Subtask subtask : epic.getSubtasks()) {
+                subtasks.add(copyOf(subtask));
+            }
+            copy.setSubtasks(subtasks);
+            copy.recalculateTimeFromSubtasks();
+            return (T) copy;
+        }
+        Task copy = task instanceof Subtask subtask
+                ? new Subtask(task.getName(), task.getDescription(), task.getTaskStatus(), subtask.getEpicId())
+                : new Task(task.getName(), task.getDescription(), task.getTaskStatus());
+        copy.setId(task.getId());
+        copy.setStartTime(task.getStartTime());
+        copy.setDuration(task.getDuration());
+        return (T) copy;
+    }
+
+    private static <T extends Task> Page<T> pageById(PersistentTree<Integer, T> tree, String cursor, int limit) {
+        InMemoryTaskManager.checkLimit(limit);
+        Integer after = InMemoryTaskManager.parseIdCursor(cursor);
+        List<T> items = new ArrayList<>(Math.min(limit, tree.size()));
+        boolean more = tree.valuesAfter(after, limit, items);
+        return new Page<>(items, more ? String.valueOf(items.getLast().getId()) : null);
+    }
+
+    // Эпик в снимке. Собранный эпик запоминается: гонка двух читателей даёт лишь две одинаковые сборки
+    private static final class EpicEntry {
+        private final Epic header;
+        private final PersistentTree<Integer, Subtask> own;
+        private volatile Epic assembled;
+
+        private EpicEntry(Epic header, PersistentTree<Integer, Subtask> own) {
+            this.header = header;
+            this.own = own;
+        }
+
+        private Epic epic() {
+            Epic epic = assembled;
+            if (epic == null) {
+                epic = new Epic(header.getName(), header.getDescription());
+                epic.setId(header.getId());
+                epic.setTaskStatus(header.getTaskStatus());
+                epic.setSubtasks(own == null ? new ArrayList<>() : own.values());
+                epic.setTime(header.getStartTime(), header.getDuration(), header.getEndTime());
+                assembled = epic;
+            }
+            return epic;
+        }
+    }
+}
@@ -1,12 +1,15 @@
 package tasks;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.time.Duration;
 
 public class Epic extends Task {
-    private ArrayList<Subtask> subtasks = new ArrayList<>();
+    private SubtaskList subtasks = new SubtaskList();
     protected LocalDateTime endTime;
+    private transient EpicAggregate aggregate;
 
     public Epic(String name, String description) {
         super(name, description, TaskStatus.NEW);
@@ -15,22 +18,42 @@ public class Epic extends Task {
         this.endTime = null;
     }
 
-    public ArrayList<Subtask> getSubtasks() {
-        if (subtasks == null) {
-            subtasks = new ArrayList<>();
-        }
-        return subtasks;
+    // Только для чтения: состав меняется через addSubtask/removeSubtask/updateSubtask/clearSubtasks,
+    // которые ведут агрегаты
+    public List<Subtask> getSubtasks() {
+        return Collections.unmodifiableList(list());
+    }
+
+    public void setSubtasks(Collection<? extends Subtask> subtasks) {
+        SubtaskList list = new SubtaskList();
+        if (subtasks != null) list.addAll(subtasks);
+        this.subtasks = list;
+        this.aggregate = null;
     }
 
-    public void setSubtasks(ArrayList<Subtask> subtasks) {
-        this.subtasks = (subtasks == null) ? new ArrayList<>() : subtasks;
+    // Прежний вклад подзадачи с тем же id агрегат помнит сам, даже если объект изменён на месте
+    public void addSubtask(Subtask subtask) {
+        list().put(subtask);
+        if (aggregate != null) aggregate.put(subtask);
     }
 
+    public void removeSubtask(Subtask subtask) {
+        Subtask old = list().removeById(subtask.getId());
+        if (old != null && aggregate != null) aggregate.remove(old.getId());
+    }
+
+    // Подзадача остаётся на своём месте в порядке эпика
     public void updateSubtask(Subtask subtask) {
-        ArrayList<Subtask> list = getSubtasks();
-        list.remove(subtask);
-        list.add(subtask);
+        addSubtask(subtask);
+    }
+
+    public void clearSubtasks() {
+        list().clear();
+        aggregate = null;
+    }
 
+    public int countSubtasks(TaskStatus status) {
+        return aggregate().count(status);
     }
 
     @Override
@@ -43,41 +66,40 @@ public class Epic extends Task {
         return endTime;
     }
 
+    // Время эпика из накопленных агрегатов: O(1), без обхода подзадач
+    public void refreshTimeFromSubtasks() {
+        EpicAggregate current = aggregate();
+        this.duration = current.duration();
+        this.startTime = current.minStart();
+        this.endTime = current.maxEnd();
+    }
+
+    // Время, уже посчитанное по тем же подзадачам в другом месте (например, снимком менеджера)
+    public void setTime(LocalDateTime startTime, Duration duration, LocalDateTime endTime) {
+        this.startTime = startTime;
+        this.duration = duration;
+        this.endTime = endTime;
+    }
+
     public void recalculateTimeFromSubtasks() {
-        ArrayList<Subtask> list = getSubtasks();
-        if (list.isEmpty()) {
-            this.duration = Duration.ZERO;
-            this.startTime = null;
-            this.endTime = null;
-            return;
-        }
+        aggregate = null;
+        refreshTimeFromSubtasks();
+    }
 
-        Duration sum = Duration.ZERO;
-        LocalDateTime minStart = null;
-        LocalDateTime maxEnd = null;
-
-        for (Subtask s : list) {
-            if (s.getDuration() != null) {
-                sum = sum.plus(s.getDuration());
-            }
-            LocalDateTime st = s.getStartTime();
-            LocalDateTime en = s.getEndTime();
-
-            if (st != null) {
-                if (minStart == null || st.isBefore(minStart)) {
-                    minStart = st;
-                }
-            }
-            if (en != null) {
-                if (maxEnd == null || en.isAfter(maxEnd)) {
-                    maxEnd = en;
-                }
-            }
+    private SubtaskList list() {
+        // поле может остаться null, если эпик создан Gson из JSON без подзадач
+        if (subtasks == null) {
+            subtasks = new SubtaskList();
         }
+        return subtasks;
+    }
 
-        this.duration = sum;
-        this.startTime = minStart;
-        this.endTime = maxEnd;
+    private EpicAggregate aggregate() {
+        // поле transient и не инициализируется при создании через Gson, поэтому строится лениво
+        if (aggregate == null) {
+            aggregate = EpicAggregate.of(list());
+        }
+        return aggregate;
     }
 
     @Override
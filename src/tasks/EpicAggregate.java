@@ -0,0 +1,87 @@
+package tasks;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Накопленные по подзадачам эпика значения: счётчики статусов, сумма длительностей
+// и мультимножества начал и концов. Добавление и удаление подзадачи — O(log n).
+// Вклад каждой подзадачи запоминается при добавлении и при удалении вычитается именно он:
+// подзадачу могли изменить на месте, и её текущие поля уже не те, что были учтены.
+class EpicAggregate {
+    private final int[] statusCounts = new int[TaskStatus.values().length];
+    private final TreeMap<LocalDateTime, Integer> starts = new TreeMap<>();
+    private final TreeMap<LocalDateTime, Integer> ends = new TreeMap<>();
+    private final Map<Integer, Contribution> contributions = new HashMap<>();
+    private Duration duration = Duration.ZERO;
+
+    static EpicAggregate of(Iterable<Subtask> subtasks) {
+        EpicAggregate aggregate = new EpicAggregate();
+        for (Subtask subtask : subtasks) {
+            aggregate.put(subtask);
+        }
+        return aggregate;
+    }
+
+    // Учитывает подзадачу в её текущем состоянии вместо прежнего вклада с тем же id
+    void put(Subtask subtask) {
+        remove(subtask.getId());
+        Contribution contribution = new Contribution(subtask);
+        contributions.put(subtask.getId(), contribution);
+        apply(contribution, 1);
+    }
+
+    void remove(Integer subtaskId) {
+        Contribution contribution = contributions.remove(subtaskId);
+        if (contribution != null) apply(contribution, -1);
+    }
+
+    int count(TaskStatus status) {
+        return statusCounts[status.ordinal()];
+    }
+
+    Duration duration() {
+        return duration;
+    }
+
+    LocalDateTime minStart() {
+        return starts.isEmpty() ? null : starts.firstKey();
+    }
+
+    LocalDateTime maxEnd() {
+        return ends.isEmpty() ? null : ends.lastKey();
+    }
+
+    private void apply(Contribution contribution, int delta) {
+        if (contribution.status != null) {
+            statusCounts[contribution.status.ordinal()] += delta;
+        }
+        if (contribution.duration != null) {
+            duration = delta > 0 ? duration.plus(contribution.duration) : duration.minus(contribution.duration);
+        }
+        count(starts, contribution.start, delta);
+        count(ends, contribution.end, delta);
+    }
+
+    private static void count(TreeMap<LocalDateTime, Integer> multiset, LocalDateTime time, int delta) {
+        if (time != null) {
+            multiset.merge(time, delta, (a, b) -> a + b == 0 ? null : a + b);
+        }
+    }
+
+    private static final class Contribution {
+        private final TaskStatus status;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        private final Duration duration;
+
+        private Contribution(Subtask subtask) {
+            this.status = subtask.getTaskStatus();
+            this.start = subtask.getStartTime();
+            this.end = subtask.getEndTime();
+            this.duration = subtask.getDuration();
+        }
+    }
+}
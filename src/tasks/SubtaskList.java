@@ -0,0 +1,74 @@
+package tasks;
+
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+// Подзадачи эпика в порядке добавления с индексом по id: замена и удаление — O(1),
+// замена не меняет позицию. Снаружи видна как список (в том числе для Gson).
+class SubtaskList extends AbstractList<Subtask> {
+    private final LinkedHashMap<Integer, Subtask> byId = new LinkedHashMap<>();
+
+    // Заменяет подзадачу с тем же id на её месте или добавляет в конец; возвращает прежнюю
+    Subtask put(Subtask subtask) {
+        return byId.put(subtask.getId(), subtask);
+    }
+
+    Subtask removeById(Integer id) {
+        return byId.remove(id);
+    }
+
+    @Override
+    public boolean add(Subtask subtask) {
+        put(subtask);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        byId.clear();
+    }
+
+    @Override
+    public int size() {
+        return byId.size();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Subtask subtask && byId.containsKey(subtask.getId());
+    }
+
+    @Override
+    public Iterator<Subtask> iterator() {
+        return Collections.unmodifiableCollection(byId.values()).iterator();
+    }
+
+    // Доступ по индексу идёт обходом; для первого и последнего элемента есть быстрые пути
+    @Override
+    public Subtask get(int index) {
+        if (index < 0 || index >= byId.size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + byId.size());
+        }
+        Iterator<Subtask> it = byId.values().iterator();
+        for (int i = 0; i < index; i++) it.next();
+        return it.next();
+    }
+
+    @Override
+    public Subtask getFirst() {
+        Map.Entry<Integer, Subtask> first = byId.firstEntry();
+        if (first == null) throw new NoSuchElementException();
+        return first.getValue();
+    }
+
+    @Override
+    public Subtask getLast() {
+        Map.Entry<Integer, Subtask> last = byId.lastEntry();
+        if (last == null) throw new NoSuchElementException();
+        return last.getValue();
+    }
+}
@@ -24,7 +24,7 @@ public abstract class BaseHttpHandlerTest {
     @BeforeEach
     public void setUp() throws IOException {
         manager = new InMemoryTaskManager();
-        server = new HttpTaskServer(manager);
+        server = createServer(manager);
         client = HttpClient.newHttpClient();
         gson = new GsonBuilder()
                 .registerTypeAdapter(LocalDateTime.class,
@@ -46,6 +46,10 @@ public abstract class BaseHttpHandlerTest {
         server.start();
     }
 
+    protected HttpTaskServer createServer(TaskManager manager) throws IOException {
+        return new HttpTaskServer(manager);
+    }
+
     @AfterEach
     public void tearDown() {
         server.stop();
@@ -0,0 +1,47 @@
+package http;
+
+import org.junit.jupiter.api.Test;
+import tasks.Epic;
+import tasks.Task;
+import tasks.TaskStatus;
+
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchHandlerTest extends BaseHttpHandlerTest {
+
+    @Test
+    void batchIsAppliedAndReturnsIds() throws Exception {
+        int oldId = manager.createTask(new Task("Old", "d", TaskStatus.NEW));
+        int epicId = manager.createEpic(new Epic("Epic", "d"));
+        String body = "["
+                + "{\"op\":\"CREATE\",\"type\":\"TASK\",\"task\":{\"name\":\"New\",\"description\":\"d\","
+                + "\"taskStatus\":\"NEW\",\"startTime\":\"2025-01-01T09:00\",\"duration\":\"PT30M\"}},"
+                + "{\"op\":\"CREATE\",\"type\":\"SUBTASK\",\"task\":{\"name\":\"Sub\",\"description\":\"d\","
+                + "\"taskStatus\":\"DONE\",\"epicId\":" + epicId + "}},"
+                + "{\"op\":\"DELETE\",\"type\":\"TASK\",\"id\":" + oldId + "}]";
+
+        HttpResponse<String> resp = httpPost("/batch", body);
+        assertEquals(200, resp.statusCode());
+        Integer[] ids = gson.fromJson(resp.body(), Integer[].class);
+        assertEquals(3, ids.length);
+        assertEquals(oldId, ids[2]);
+        assertEquals("New", manager.getTasksById(ids[0]).getName());
+        assertEquals(TaskStatus.DONE, manager.getEpicById(epicId).getTaskStatus());
+        assertEquals(1, manager.getTasks().size());
+    }
+
+    @Test
+    void failedBatchReturnsErrorAndChangesNothing() throws Exception {
+        String create = "{\"op\":\"CREATE\",\"type\":\"TASK\",\"task\":{\"name\":\"New\",\"description\":\"d\","
+                + "\"taskStatus\":\"NEW\",\"startTime\":\"2025-01-01T09:00\",\"duration\":\"PT30M\"}}";
+
+        assertEquals(404, httpPost("/batch", "[" + create + ",{\"op\":\"DELETE\",\"type\":\"TASK\",\"id\":999}]")
+                .statusCode());
+        assertEquals(406, httpPost("/batch", "[" + create + "," + create + "]").statusCode());
+        assertEquals(400, httpPost("/batch", "[" + create + ",{\"op\":\"MOVE\",\"type\":\"TASK\"}]").statusCode());
+        assertEquals(400, httpPost("/batch", "{}").statusCode());
+        assertTrue(manager.getTasks().isEmpty());
+    }
+}
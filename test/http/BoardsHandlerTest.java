@@ -0,0 +1,57 @@
+package http;
+
+import manager.BoardRegistry;
+import manager.ColumnarTaskManager;
+import manager.TaskManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tasks.Task;
+import tasks.TaskStatus;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoardsHandlerTest extends BaseHttpHandlerTest {
+    @TempDir
+    Path tempDir;
+
+    private BoardRegistry boards;
+
+    @Override
+    protected HttpTaskServer createServer(TaskManager manager) throws IOException {
+        boards = new BoardRegistry(id -> ColumnarTaskManager.mapped(new File(tempDir.toFile(), id + ".bin")), 2);
+        return new HttpTaskServer(manager, boards);
+    }
+
+    @AfterEach
+    void closeBoards() {
+        boards.close();
+    }
+
+    @Test
+    void boardsAreIndependentOfEachOtherAndOfDefaultManager() throws Exception {
+        Task task = new Task("Team A", "d", TaskStatus.NEW);
+        assertEquals(201, httpPost("/boards/team-a/tasks", gson.toJson(task)).statusCode());
+
+        HttpResponse<String> resp = httpGet("/boards/team-a/tasks?limit=10");
+        assertEquals(200, resp.statusCode());
+        assertTrue(resp.body().contains("Team A"));
+        assertNotNull(resp.headers().firstValue("X-Snapshot-Version").orElse(null));
+        assertEquals("[]", httpGet("/boards/team-b/tasks").body());
+        assertTrue(manager.getTasks().isEmpty());
+        assertEquals(200, httpGet("/boards/team-a/tasks/1").statusCode());
+        assertEquals(404, httpGet("/boards/team-b/tasks/1").statusCode());
+    }
+
+    @Test
+    void unknownBoardPathsAreRejected() throws Exception {
+        assertEquals(404, httpGet("/boards/team-a").statusCode());
+        assertEquals(404, httpGet("/boards/team-a/unknown").statusCode());
+        assertEquals(400, httpGet("/boards/bad%20id/tasks").statusCode());
+    }
+}
@@ -66,4 +66,17 @@ public class EpicsHandlerTest extends BaseHttpHandlerTest {
         assertEquals(200, resp.statusCode());
         assertTrue(resp.body().startsWith("["));
     }
+
+    @Test
+    void epicJsonKeepsSubtasksAsArray() throws Exception {
+        int epicId = manager.createEpic(new Epic("E", "d"));
+        int subtaskId = manager.createSubtask(new Subtask("S1", "d", TaskStatus.DONE, epicId));
+
+        HttpResponse<String> resp = httpGet("/epics/" + epicId);
+        assertEquals(200, resp.statusCode());
+        assertTrue(resp.body().contains("\"subtasks\":[{"));
+        Epic parsed = gson.fromJson(resp.body(), Epic.class);
+        assertEquals(subtaskId, parsed.getSubtasks().getFirst().getId());
+        assertEquals(1, parsed.countSubtasks(TaskStatus.DONE));
+    }
 }
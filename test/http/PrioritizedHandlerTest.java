@@ -3,10 +3,13 @@ package http;
 import org.junit.jupiter.api.Test;
 import tasks.Task;
 import tasks.TaskStatus;
+import tasks.TimeSlot;
 
 import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -34,4 +37,58 @@ public class PrioritizedHandlerTest extends BaseHttpHandlerTest {
         assertTrue(bIdx < aIdx);
         assertEquals(-1, cIdx);
     }
+
+    @Test
+    void prioritizedIsLimitedToRequestedRange() throws Exception {
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 9, 0);
+        for (int i = 0; i < 5; i++) {
+            Task task = new Task("T" + i, "d", TaskStatus.NEW);
+            task.setStartTime(base.plusHours(i));
+            task.setDuration(Duration.ofMinutes(30));
+            manager.createTask(task);
+        }
+
+        HttpResponse<String> resp = httpGet("/prioritized?from=" + base.plusHours(1) + "&to=" + base.plusHours(4));
+        assertEquals(200, resp.statusCode());
+        Task[] tasks = gson.fromJson(resp.body(), Task[].class);
+        assertEquals(List.of("T1", "T2", "T3"), Arrays.stream(tasks).map(Task::getName).toList());
+
+        resp = httpGet("/prioritized?from=" + base.plusHours(1) + "&limit=2");
+        assertEquals(200, resp.statusCode());
+        assertTrue(resp.body().contains("\"name\":\"T2\"") && !resp.body().contains("\"name\":\"T3\""));
+        assertEquals(400, httpGet("/prioritized?from=tomorrow").statusCode());
+        assertEquals(400, httpGet("/prioritized?from=" + base + "&to=" + base.minusHours(1)).statusCode());
+    }
+
+    @Test
+    void freeSlotsAreReturnedForRange() throws Exception {
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 9, 0);
+        Task task = new Task("A", "d", TaskStatus.NEW);
+        task.setStartTime(base);
+        task.setDuration(Duration.ofMinutes(60));
+        manager.createTask(task);
+
+        HttpResponse<String> resp = httpGet("/prioritized/free-slots?from=" + base.minusHours(1)
+                + "&to=" + base.plusHours(2) + "&duration=PT30M");
+        assertEquals(200, resp.statusCode());
+        TimeSlot[] slots = gson.fromJson(resp.body(), TimeSlot[].class);
+        assertArrayEquals(new TimeSlot[]{
+                new TimeSlot(base.minusHours(1), base),
+                new TimeSlot(base.plusHours(1), base.plusHours(2))}, slots);
+    }
+
+    @Test
+    void nextFreeSlotStartsAfterBusyTime() throws Exception {
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 9, 0);
+        Task task = new Task("A", "d", TaskStatus.NEW);
+        task.setStartTime(base);
+        task.setDuration(Duration.ofMinutes(60));
+        manager.createTask(task);
+
+        HttpResponse<String> resp = httpGet("/prioritized/free-slots/next?duration=PT15M&notBefore=" + base);
+        assertEquals(200, resp.statusCode());
+        assertEquals(new TimeSlot(base.plusHours(1), base.plusMinutes(75)), gson.fromJson(resp.body(), TimeSlot.class));
+
+        assertEquals(400, httpGet("/prioritized/free-slots?from=" + base).statusCode());
+    }
 }
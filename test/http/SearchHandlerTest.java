@@ -0,0 +1,35 @@
+package http;
+
+import org.junit.jupiter.api.Test;
+import tasks.Task;
+import tasks.TaskStatus;
+
+import java.net.URLEncoder;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchHandlerTest extends BaseHttpHandlerTest {
+
+    @Test
+    void searchReturnsRankedTasks() throws Exception {
+        manager.createTask(new Task("Other", "mentions deploy", TaskStatus.NEW));
+        manager.createTask(new Task("Deploy backend", "d", TaskStatus.NEW));
+
+        HttpResponse<String> resp = httpGet("/search?q=" + URLEncoder.encode("deploy", StandardCharsets.UTF_8));
+        assertEquals(200, resp.statusCode());
+        Task[] found = gson.fromJson(resp.body(), Task[].class);
+        assertEquals(2, found.length);
+        assertEquals("Deploy backend", found[0].getName());
+
+        assertEquals(1, gson.fromJson(httpGet("/search?q=dep&limit=1").body(), Task[].class).length);
+    }
+
+    @Test
+    void missingQueryOrBadLimitReturns400() throws Exception {
+        assertEquals(400, httpGet("/search").statusCode());
+        assertEquals(400, httpGet("/search?q=x&limit=0").statusCode());
+        assertEquals(400, httpGet("/search?q=x&limit=abc").statusCode());
+    }
+}
@@ -51,4 +51,22 @@ public class SubtasksHandlerTest extends BaseHttpHandlerTest {
         assertEquals(406, resp.statusCode());
         assertTrue(resp.body().toLowerCase().contains("overlap"));
     }
+
+    @Test
+    void subtasksAreFilteredByStatusAndEpic() throws Exception {
+        int epicId = manager.createEpic(new Epic("E", "d"));
+        int otherId = manager.createEpic(new Epic("E2", "d"));
+        manager.createSubtask(new Subtask("A", "d", TaskStatus.DONE, epicId));
+        manager.createSubtask(new Subtask("B", "d", TaskStatus.NEW, epicId));
+        manager.createSubtask(new Subtask("C", "d", TaskStatus.DONE, otherId));
+
+        HttpResponse<String> resp = httpGet("/subtasks?status=done&epic=" + epicId);
+        assertEquals(200, resp.statusCode());
+        Subtask[] found = gson.fromJson(resp.body(), Subtask[].class);
+        assertEquals(1, found.length);
+        assertEquals("A", found[0].getName());
+
+        assertEquals(400, httpGet("/subtasks?status=LATE").statusCode());
+        assertEquals(400, httpGet("/subtasks?from=yesterday").statusCode());
+    }
 }
@@ -1,13 +1,21 @@
 package http;
 
+import com.google.gson.JsonObject;
+import manager.InMemoryTaskManager;
 import org.junit.jupiter.api.Test;
 import tasks.Task;
 import tasks.TaskStatus;
 
+import java.net.URI;
+import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -26,6 +34,16 @@ public class TasksHandlerTest extends BaseHttpHandlerTest {
         assertEquals("T1", list.getFirst().getName());
     }
 
+    @Test
+    void responsesCarrySnapshotVersion() throws Exception {
+        long before = Long.parseLong(httpGet("/tasks").headers().firstValue("X-Snapshot-Version").orElseThrow());
+        Task t = new Task("T1", "desc", TaskStatus.NEW);
+        HttpResponse<String> created = httpPost("/tasks", gson.toJson(t));
+        long after = Long.parseLong(created.headers().firstValue("X-Snapshot-Version").orElseThrow());
+        assertTrue(after > before);
+        assertEquals(String.valueOf(after), httpGet("/tasks").headers().firstValue("X-Snapshot-Version").orElseThrow());
+    }
+
     @Test
     void getTasksReturns200AndJsonArray() throws Exception {
         Task a = new Task("A", "d", TaskStatus.NEW);
@@ -95,4 +113,55 @@ public class TasksHandlerTest extends BaseHttpHandlerTest {
         assertEquals(500, resp.statusCode());
         assertTrue(resp.body().contains("Method not supported"));
     }
+
+    @Test
+    void tasksArePagedWhenLimitIsGiven() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            manager.createTask(new Task("T" + i, "d", TaskStatus.NEW));
+        }
+
+        HttpResponse<String> first = httpGet("/tasks?limit=2");
+        assertEquals(200, first.statusCode());
+        JsonObject page = gson.fromJson(first.body(), JsonObject.class);
+        assertEquals(2, page.getAsJsonArray("items").size());
+        String cursor = page.get("nextCursor").getAsString();
+
+        JsonObject last = gson.fromJson(httpGet("/tasks?limit=2&cursor=" + cursor).body(), JsonObject.class);
+        assertEquals(1, last.getAsJsonArray("items").size());
+        assertFalse(last.has("nextCursor"));
+
+        assertEquals(400, httpGet("/tasks?limit=0").statusCode());
+        assertEquals(400, httpGet("/tasks?limit=2&cursor=x").statusCode());
+    }
+
+    // Менеджер без isThreadSafe обслуживается одним потоком, сколько бы запросов ни пришло сразу
+    @Test
+    void managerThatIsNotThreadSafeIsCalledFromOneThread() throws Exception {
+        server.stop();
+        Set<Thread> callers = ConcurrentHashMap.newKeySet();
+        manager = new InMemoryTaskManager() {
+            @Override
+            public int createTask(Task task) {
+                callers.add(Thread.currentThread());
+                return super.createTask(task);
+            }
+        };
+        server = new HttpTaskServer(manager, 8);
+        server.start();
+
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/tasks"))
+                    .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(new Task("T" + i, "d", TaskStatus.NEW))))
+                    .build();
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        }
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            assertEquals(201, response.join().statusCode());
+        }
+
+        assertEquals(20, manager.getTasks().size());
+        assertEquals(1, callers.size());
+    }
 }
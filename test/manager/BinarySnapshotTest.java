@@ -0,0 +1,99 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tasks.*;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinarySnapshotTest {
+    @TempDir
+    Path tempDir;
+
+    private File write(List<List<? extends Task>> groups, long lsn) throws Exception {
+        File file = tempDir.resolve("tasks.bin").toFile();
+        try (FileChannel out = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            BinarySnapshot.write(out, groups, lsn);
+        }
+        return file;
+    }
+
+    @Test
+    void roundTripKeepsAllFields() throws Exception {
+        Task task = new Task(7, "Task, with comma", "Описание", TaskStatus.IN_PROGRESS);
+        task.setStartTime(LocalDateTime.of(2025, 3, 4, 5, 6, 7, 890));
+        task.setDuration(Duration.ofMinutes(45));
+        Epic epic = new Epic("Epic", "Epic description");
+        epic.setId(3);
+        epic.setTaskStatus(TaskStatus.DONE);
+        Subtask subtask = new Subtask("Sub", null, TaskStatus.NEW, 3);
+        subtask.setId(5);
+
+        File file = write(List.of(List.of(task), List.of(epic), List.of(subtask)), 42);
+        BinarySnapshot snapshot = BinarySnapshot.open(file);
+
+        assertEquals(42, snapshot.lsn());
+        assertEquals(3, snapshot.size());
+
+        Task loadedTask = snapshot.get(0);
+        assertEquals(TaskType.TASK, loadedTask.getType());
+        assertEquals(7, loadedTask.getId());
+        assertEquals("Task, with comma", loadedTask.getName());
+        assertEquals("Описание", loadedTask.getDescription());
+        assertEquals(TaskStatus.IN_PROGRESS, loadedTask.getTaskStatus());
+        assertEquals(LocalDateTime.of(2025, 3, 4, 5, 6, 7, 890), loadedTask.getStartTime());
+        assertEquals(Duration.ofMinutes(45), loadedTask.getDuration());
+
+        Task loadedEpic = snapshot.get(1);
+        assertInstanceOf(Epic.class, loadedEpic);
+        assertEquals(TaskStatus.DONE, loadedEpic.getTaskStatus());
+
+        Subtask loadedSubtask = (Subtask) snapshot.get(2);
+        assertEquals(3, loadedSubtask.getEpicId());
+        assertNull(loadedSubtask.getDescription());
+        assertNull(loadedSubtask.getStartTime());
+        assertNull(loadedSubtask.getDuration());
+    }
+
+    @Test
+    void findUsesIndexById() throws Exception {
+        Task a = new Task(30, "A", "same", TaskStatus.NEW);
+        Task b = new Task(10, "B", "same", TaskStatus.NEW);
+        Task c = new Task(20, "C", "same", TaskStatus.NEW);
+
+        BinarySnapshot snapshot = BinarySnapshot.open(write(List.of(List.of(a, b, c)), 0));
+
+        assertEquals("A", snapshot.find(30).getName());
+        assertEquals("B", snapshot.find(10).getName());
+        assertEquals("C", snapshot.find(20).getName());
+        assertNull(snapshot.find(15));
+    }
+
+    @Test
+    void timesBeforeEpochAreKept() throws Exception {
+        Task task = new Task(1, "Old", "", TaskStatus.NEW);
+        task.setStartTime(LocalDateTime.of(1960, 12, 31, 23, 59, 1));
+        task.setDuration(Duration.ofMinutes(1));
+
+        BinarySnapshot snapshot = BinarySnapshot.open(write(List.of(List.of(task)), 0));
+        assertEquals(LocalDateTime.of(1960, 12, 31, 23, 59, 1), snapshot.get(0).getStartTime());
+    }
+
+    @Test
+    void csvFileIsNotDetectedAsBinary() throws Exception {
+        File csv = tempDir.resolve("tasks.csv").toFile();
+        Files.writeString(csv.toPath(), "id,type,name,status,description,epic,startTime,durationMinutes\n" +
+                "1,TASK,Task,NEW,d,,,\n");
+        assertFalse(BinarySnapshot.isBinary(csv));
+        assertTrue(BinarySnapshot.isBinary(write(List.of(List.of()), 0)));
+    }
+}
@@ -0,0 +1,142 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tasks.Task;
+import tasks.TaskStatus;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoardRegistryTest {
+    @TempDir
+    Path tempDir;
+
+    private final List<String> opened = new ArrayList<>();
+
+    private BoardRegistry registry(int maxOpen) {
+        return new BoardRegistry(id -> {
+            opened.add(id);
+            return ColumnarTaskManager.mapped(new File(tempDir.toFile(), id + ".bin"));
+        }, maxOpen);
+    }
+
+    @Test
+    void boardsHaveSeparateIdSpaces() {
+        try (BoardRegistry boards = registry(10)) {
+            int first = boards.acquire("a").createTask(new Task("A", "d", TaskStatus.NEW));
+            boards.release("a");
+            int second = boards.acquire("b").createTask(new Task("B", "d", TaskStatus.NEW));
+            boards.release("b");
+
+            assertEquals(first, second);
+            assertEquals("A", boards.acquire("a").getTasksById(first).getName());
+            boards.release("a");
+            assertEquals(List.of("a", "b"), opened);
+        }
+    }
+
+    @Test
+    void idleBoardsAreEvictedAndReopenedFromDisk() {
+        try (BoardRegistry boards = registry(2)) {
+            for (String id : List.of("a", "b", "c")) {
+                boards.acquire(id).createTask(new Task("Task " + id, "d", TaskStatus.NEW));
+                boards.release(id);
+            }
+            assertEquals(2, boards.openBoards());
+
+            assertEquals("Task a", boards.acquire("a").getTasksById(1).getName());
+            boards.release("a");
+            assertEquals(List.of("a", "b", "c", "a"), opened);
+        }
+    }
+
+    @Test
+    void boardInUseIsNotEvicted() {
+        try (BoardRegistry boards = registry(1)) {
+            TaskManager a = boards.acquire("a");
+            boards.acquire("b");
+            assertEquals(2, boards.openBoards());
+
+            a.createTask(new Task("Still open", "d", TaskStatus.NEW));
+            boards.release("b");
+            boards.release("a");
+            assertEquals(1, boards.openBoards());
+        }
+    }
+
+    @Test
+    void invalidIdsAreRejected() {
+        try (BoardRegistry boards = registry(1)) {
+            assertThrows(IllegalArgumentException.class, () -> boards.acquire("../etc"));
+            assertThrows(IllegalArgumentException.class, () -> boards.acquire(""));
+            assertThrows(IllegalStateException.class, () -> boards.release("a"));
+        }
+    }
+
+    @Test
+    void idsDifferingInCaseNameTheSameBoard() {
+        try (BoardRegistry boards = registry(10)) {
+            int id = boards.acquire("Team").createTask(new Task("Shared", "d", TaskStatus.NEW));
+            assertEquals("Shared", boards.acquire("team").getTasksById(id).getName());
+            boards.release("TEAM");
+            boards.release("Team");
+
+            assertEquals(1, boards.openBoards());
+            assertEquals(List.of("team"), opened);
+        }
+    }
+
+    @Test
+    void failedCloseOfOneBoardStillClosesTheOthers() {
+        Set<String> closed = new HashSet<>();
+        BoardRegistry boards = new BoardRegistry(id -> new ClosingManager(id, closed), 10);
+        for (String id : List.of("a", "b", "c")) {
+            boards.acquire(id);
+            boards.release(id);
+        }
+
+        IllegalStateException failure = assertThrows(IllegalStateException.class, boards::close);
+        assertEquals("a failed to close", failure.getMessage());
+        assertEquals(Set.of("a", "b", "c"), closed);
+        assertThrows(IllegalStateException.class, () -> boards.acquire("b"));
+    }
+
+    @Test
+    void failedEvictionDoesNotPinTheAcquiredBoard() {
+        Set<String> closed = new HashSet<>();
+        try (BoardRegistry boards = new BoardRegistry(id -> new ClosingManager(id, closed), 1)) {
+            boards.acquire("a");
+            boards.release("a");
+
+            assertThrows(IllegalStateException.class, () -> boards.acquire("b"));
+            assertEquals(Set.of("a"), closed);
+            // неудачный acquire не оставляет b занятой
+            IllegalStateException notInUse = assertThrows(IllegalStateException.class, () -> boards.release("b"));
+            assertEquals("Board b is not in use", notInUse.getMessage());
+        }
+    }
+
+    // Менеджер, закрытие которого у доски "a" падает
+    private static class ClosingManager extends InMemoryTaskManager implements AutoCloseable {
+        private final String id;
+        private final Set<String> closed;
+
+        private ClosingManager(String id, Set<String> closed) {
+            this.id = id;
+            this.closed = closed;
+        }
+
+        @Override
+        public void close() {
+            closed.add(id);
+            if (id.equals("a")) throw new IllegalStateException("a failed to close");
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package manager;
+
+import exception.IntersectionException;
+import org.junit.jupiter.api.Test;
+import tasks.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColumnarTaskManagerTest extends TaskManagerTest<ColumnarTaskManager> {
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @Override
+    protected ColumnarTaskManager makeManager() {
+        return new ColumnarTaskManager();
+    }
+
+    @Test
+    void timeIsStoredInWholeMinutes() {
+        Task task = newTask("T", BASE.plusSeconds(90), 0);
+        task.setDuration(Duration.ofSeconds(150));
+        int id = add(task);
+
+        Task stored = manager.getTasksById(id);
+        assertEquals(BASE.plusMinutes(1), stored.getStartTime());
+        assertEquals(Duration.ofMinutes(2), stored.getDuration());
+        assertThrows(IllegalArgumentException.class, () -> add(newTask("Far", LocalDateTime.of(9000, 1, 1, 0, 0), 5)));
+    }
+
+    @Test
+    void failedBatchRestoresEpicOrderAndSchedule() {
+        int epicId = addEpic("Epic");
+        int first = addSub(epicId, "S1", TaskStatus.NEW, BASE, 30);
+        int second = addSub(epicId, "S2", TaskStatus.DONE, BASE.plusHours(1), 30);
+        int taskId = add(newTask("T", BASE.plusHours(2), 30));
+        Subtask moved = new Subtask("S1", "", TaskStatus.DONE, epicId);
+        moved.setId(first);
+        moved.setStartTime(BASE.plusHours(5));
+        moved.setDuration(Duration.ofMinutes(30));
+
+        assertThrows(IntersectionException.class, () -> manager.applyBatch(List.of(
+                Mutation.delete(TaskType.SUBTASK, first),
+                Mutation.create(moved),
+                Mutation.delete(TaskType.TASK, taskId),
+                Mutation.create(newTask("Clash", BASE.plusHours(1), 10)))));
+
+        assertEquals(List.of(first, second),
+                manager.getSubtaskFromEpic(epicId).stream().map(Task::getId).toList());
+        assertEquals(TaskStatus.IN_PROGRESS, manager.getEpicById(epicId).getTaskStatus());
+        assertEquals(List.of(first, second, taskId),
+                manager.getPrioritizedTasks().stream().map(Task::getId).toList());
+        assertEquals(taskId + 1, add(new Task("Next", "", TaskStatus.NEW)));
+    }
+
+    // Пустые задачи и задачи без длительности: ответы должны совпадать с интервальным деревом
+    @Test
+    void overlapsAndSlotsMatchInMemoryManager() {
+        Random random = new Random(3);
+        InMemoryTaskManager reference = new InMemoryTaskManager();
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            Task task = new Task("T" + i, "", TaskStatus.NEW);
+            task.setStartTime(BASE.plusMinutes(5L * random.nextInt(400)));
+            int kind = random.nextInt(6);
+            if (kind > 0) task.setDuration(Duration.ofMinutes(kind == 1 ? 0 : 5L * random.nextInt(6)));
+            boolean update = !ids.isEmpty() && random.nextInt(4) == 0;
+            if (update) task.setId(ids.get(random.nextInt(ids.size())));
+
+            Task copy = new Task(task.getId(), task.getName(), "", TaskStatus.NEW);
+            copy.setStartTime(task.getStartTime());
+            copy.setDuration(task.getDuration());
+            boolean expected = reference.hasAnyOverlap(task);
+            assertEquals(expected, manager.hasAnyOverlap(copy), task.getStartTime() + " " + task.getDuration());
+            if (expected) continue;
+            if (update) {
+                reference.updateTask(task);
+                manager.updateTask(copy);
+            } else {
+                assertEquals(reference.createTask(task), manager.createTask(copy));
+                ids.add(task.getId());
+            }
+            if (random.nextInt(10) == 0) {
+                int id = ids.remove(random.nextInt(ids.size()));
+                reference.deleteTaskById(id);
+                manager.deleteTaskById(id);
+            }
+        }
+
+        assertEquals(reference.getPrioritizedTasks().stream().map(Task::getId).toList(),
+                manager.getPrioritizedTasks().stream().map(Task::getId).toList());
+        for (int i = 0; i < 50; i++) {
+            LocalDateTime from = BASE.plusMinutes(random.nextInt(2100));
+            Duration need = Duration.ofMinutes(random.nextInt(20));
+            assertEquals(reference.findNextFreeSlot(need, from), manager.findNextFreeSlot(need, from));
+            assertEquals(reference.freeSlots(from, from.plusHours(3), need), manager.freeSlots(from, from.plusHours(3), need));
+        }
+    }
+}
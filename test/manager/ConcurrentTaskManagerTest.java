@@ -0,0 +1,324 @@
+package manager;
+
+import exception.IntersectionException;
+import exception.NotFoundException;
+import org.junit.jupiter.api.Test;
+import tasks.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentTaskManagerTest extends TaskManagerTest<ConcurrentTaskManager> {
+    private static final int THREADS = 8;
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @Override
+    protected ConcurrentTaskManager makeManager() {
+        return new ConcurrentTaskManager();
+    }
+
+    @Test
+    void contendedSlotIsGrantedToExactlyOneCreator() throws Exception {
+        int slots = 200;
+        AtomicInteger granted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        runConcurrently(THREADS, thread -> {
+            List<Integer> order = new ArrayList<>();
+            for (int i = 0; i < slots; i++) order.add(i);
+            Collections.shuffle(order, new Random(thread));
+            for (int slot : order) {
+                try {
+                    add(newTask("T" + thread + "-" + slot, BASE.plusHours(slot), 60));
+                    granted.incrementAndGet();
+                } catch (IntersectionException e) {
+                    rejected.incrementAndGet();
+                }
+            }
+        });
+
+        assertEquals(slots, granted.get());
+        assertEquals(slots * (THREADS - 1), rejected.get());
+        assertEquals(slots, manager.getTasks().size());
+        assertEquals(slots, manager.getTasks().stream().map(Task::getId).distinct().count());
+        assertNoOverlaps(manager.getPrioritizedTasks());
+    }
+
+    @Test
+    void mixedWorkloadKeepsEpicsAndPrioritizedConsistent() throws Exception {
+        List<Integer> epicIds = new ArrayList<>();
+        for (int i = 0; i < 4; i++) epicIds.add(addEpic("Epic " + i));
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ConcurrentLinkedQueue<String> readerErrors = new ConcurrentLinkedQueue<>();
+
+        ExecutorService readers = Executors.newFixedThreadPool(2);
+        for (int r = 0; r < 2; r++) {
+            readers.submit(() -> {
+                while (writing.get()) {
+                    try {
+                        assertNoOverlaps(manager.getPrioritizedTasks());
+                        manager.getEpics().forEach(epic -> manager.getSubtaskFromEpic(epic.getId()));
+                    } catch (Throwable e) {
+                        readerErrors.add(e.toString());
+                    }
+                }
+            });
+        }
+
+        runConcurrently(THREADS, thread -> {
+            Random random = new Random(thread);
+            List<Integer> own = new ArrayList<>();
+            for (int i = 0; i < 300; i++) {
+                int epicId = epicIds.get(random.nextInt(epicIds.size()));
+                LocalDateTime start = BASE.plusMinutes(30L * random.nextInt(2000));
+                TaskStatus status = TaskStatus.values()[random.nextInt(3)];
+                try {
+                    switch (random.nextInt(3)) {
+                        case 0 -> own.add(addSub(epicId, "S", status, start, 30));
+                        case 1 -> {
+                            if (own.isEmpty()) break;
+                            int id = own.get(random.nextInt(own.size()));
+                            Subtask changed = new Subtask("S", "", status, manager.getSubtaskById(id).getEpicId());
+                            changed.setId(id);
+                            changed.setStartTime(start);
+                            changed.setDuration(Duration.ofMinutes(30));
+                            manager.updateSubtask(changed);
+                        }
+                        default -> {
+                            if (own.isEmpty()) break;
+                            manager.deleteSubtaskById(own.remove(random.nextInt(own.size())));
+                        }
+                    }
+                } catch (IntersectionException ignored) {
+                    // слот уже занят другим потоком
+                }
+            }
+        });
+        writing.set(false);
+        readers.shutdown();
+        assertTrue(readers.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertTrue(readerErrors.isEmpty(), () -> readerErrors.peek());
+        List<Subtask> subtasks = manager.getSubtasks();
+        assertEquals(new HashSet<>(subtasks), new HashSet<>(manager.getPrioritizedTasks()));
+        assertNoOverlaps(manager.getPrioritizedTasks());
+
+        Set<Subtask> attached = new HashSet<>();
+        for (Epic epic : manager.getEpics()) {
+            List<Subtask> own = manager.getSubtaskFromEpic(epic.getId());
+            attached.addAll(own);
+            assertEquals(expectedStatus(own), epic.getTaskStatus());
+            LocalDateTime start = own.stream().map(Task::getStartTime).min(LocalDateTime::compareTo).orElse(null);
+            assertEquals(start, epic.getStartTime());
+        }
+        assertEquals(new HashSet<>(subtasks), attached);
+    }
+
+    @Test
+    void concurrentDeletesRemoveEachTaskOnce() throws Exception {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 500; i++) ids.add(add(new Task("T" + i, "", TaskStatus.NEW)));
+        ids.forEach(manager::getTasksById);
+        AtomicInteger deleted = new AtomicInteger();
+
+        runConcurrently(THREADS, thread -> {
+            for (int id : ids) {
+                try {
+                    manager.deleteTaskById(id);
+                    deleted.incrementAndGet();
+                } catch (NotFoundException ignored) {
+                    // уже удалена другим потоком
+                }
+            }
+        });
+
+        assertEquals(ids.size(), deleted.get());
+        assertTrue(manager.getTasks().isEmpty());
+        assertTrue(manager.getHistory().isEmpty());
+    }
+
+    @Test
+    void publishedSnapshotIsNotChangedByLaterWrites() {
+        int epicId = addEpic("Epic");
+        int subId = addSub(epicId, "S", TaskStatus.NEW, BASE, 30);
+        int taskId = add(newTask("T", BASE.plusHours(1), 30));
+        TaskSnapshot before = manager.snapshot();
+
+        Subtask done = new Subtask("S", "", TaskStatus.DONE, epicId);
+        done.setId(subId);
+        done.setStartTime(BASE.plusHours(2));
+        done.setDuration(Duration.ofMinutes(30));
+        manager.updateSubtask(done);
+        manager.deleteTaskById(taskId);
+        TaskSnapshot after = manager.snapshot();
+
+        assertTrue(after.getVersion() > before.getVersion());
+        assertEquals(TaskStatus.NEW, before.getEpic(epicId).getTaskStatus());
+        assertEquals(BASE, before.getSubtask(subId).getStartTime());
+        assertNotNull(before.getTask(taskId));
+        assertEquals(2, before.getPrioritizedTasks().size());
+
+        assertEquals(TaskStatus.DONE, after.getEpic(epicId).getTaskStatus());
+        assertEquals(BASE.plusHours(2), after.getEpic(epicId).getStartTime());
+        assertNull(after.getTask(taskId));
+        assertEquals(List.of(subId), after.getPrioritizedTasks().stream().map(Task::getId).toList());
+    }
+
+    @Test
+    void batchIsPublishedAsOneVersion() {
+        long start = manager.snapshot().getVersion();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ConcurrentLinkedQueue<Integer> seenSizes = new ConcurrentLinkedQueue<>();
+        Thread reader = new Thread(() -> {
+            while (writing.get()) seenSizes.add(manager.getTasks().size());
+        });
+        reader.start();
+
+        List<Mutation> batch = new ArrayList<>();
+        for (int i = 0; i < 50; i++) batch.add(Mutation.create(newTask("T" + i, BASE.plusHours(i), 30)));
+        manager.applyBatch(batch);
+        writing.set(false);
+        assertDoesNotThrow(() -> reader.join());
+
+        assertTrue(manager.version() > start);
+        assertEquals(manager.version(), manager.snapshot().getVersion());
+        assertTrue(seenSizes.stream().allMatch(size -> size == 0 || size == 50), seenSizes::toString);
+    }
+
+    @Test
+    void epicReadByIdCanBeWalkedWhileSubtasksAreWritten() throws Exception {
+        int epicId = addEpic("Epic");
+        AtomicInteger walked = new AtomicInteger();
+
+        runConcurrently(4, thread -> {
+            for (int i = 0; i < 300; i++) {
+                if (thread < 2) {
+                    int id = addSub(epicId, "S" + thread + "-" + i, TaskStatus.NEW, null, 0);
+                    if (i % 2 == 0) manager.deleteSubtaskById(id);
+                } else {
+                    // сериализация ответа обходит подзадачи уже без блокировки менеджера
+                    Epic epic = manager.getEpicById(epicId);
+                    assertNotNull(epic.toString());
+                    epic.getSubtasks().forEach(subtask -> walked.incrementAndGet());
+                }
+            }
+        });
+
+        Epic epic = manager.getEpicById(epicId);
+        assertEquals(300, epic.getSubtasks().size());
+        epic.setName("Changed by caller");
+        assertEquals("Epic", manager.getEpicById(epicId).getName());
+    }
+
+    @Test
+    void snapshotKeepsAssembledEpicUntilItsSubtasksChange() {
+        int first = addEpic("First");
+        int second = addEpic("Second");
+        addSub(first, "S1", TaskStatus.NEW, BASE, 30);
+        TaskSnapshot before = manager.snapshot();
+        assertSame(before.getEpic(first), before.getEpics().getFirst());
+
+        addSub(second, "S2", TaskStatus.DONE, BASE.plusHours(1), 30);
+        TaskSnapshot after = manager.snapshot();
+
+        assertSame(before.getEpic(first), after.getEpic(first));
+        assertEquals(List.of("S2"), after.getEpic(second).getSubtasks().stream().map(Task::getName).toList());
+        assertEquals(BASE.plusHours(1), after.getEpic(second).getStartTime());
+        assertTrue(before.getEpic(second).getSubtasks().isEmpty());
+    }
+
+    // Изменение подзадачи не пересобирает эпик в снимке: список подзадач собирается при чтении
+    @Test
+    void subtaskUpdatesInLargeEpicDoNotRebuildIt() {
+        int epicId = addEpic("Large");
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            ids.add(addSub(epicId, "S" + i, TaskStatus.NEW, null, 0));
+        }
+
+        assertTimeout(Duration.ofSeconds(5), () -> {
+            for (int i = 0; i < 2_000; i++) {
+                Subtask changed = new Subtask("S", "", i % 2 == 0 ? TaskStatus.DONE : TaskStatus.NEW, epicId);
+                changed.setId(ids.get(i));
+                changed.setStartTime(BASE.plusHours(i));
+                changed.setDuration(Duration.ofMinutes(30));
+                manager.updateSubtask(changed);
+            }
+        });
+
+        Epic epic = manager.snapshot().getEpic(epicId);
+        assertEquals(10_000, epic.getSubtasks().size());
+        assertEquals(TaskStatus.IN_PROGRESS, epic.getTaskStatus());
+        assertEquals(BASE, epic.getStartTime());
+        assertEquals(BASE.plusHours(1_999).plusMinutes(30), epic.getEndTime());
+        assertSame(epic, manager.snapshot().getEpic(epicId));
+    }
+
+    @Test
+    void versionIsLatestPublishedOnPooledThreads() throws Exception {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        long seen = pool.submit(() -> {
+            manager.getTasks();
+            return manager.version();
+        }).get();
+
+        manager.createTask(newTask("Written elsewhere", null, 0));
+
+        assertEquals(manager.snapshot().getVersion(), (long) pool.submit(manager::version).get());
+        assertTrue(manager.version() > seen);
+        pool.shutdown();
+    }
+
+    private void runConcurrently(int threads, ThreadBody body) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                body.run(thread);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+    }
+
+    private static void assertNoOverlaps(List<? extends Task> prioritized) {
+        for (int i = 1; i < prioritized.size(); i++) {
+            Task prev = prioritized.get(i - 1);
+            Task next = prioritized.get(i);
+            assertFalse(prev.getEndTime().isAfter(next.getStartTime()), () -> prev + " overlaps " + next);
+        }
+    }
+
+    private static TaskStatus expectedStatus(List<Subtask> subtasks) {
+        if (subtasks.stream().allMatch(s -> s.getTaskStatus() == TaskStatus.NEW)) return TaskStatus.NEW;
+        if (subtasks.stream().allMatch(s -> s.getTaskStatus() == TaskStatus.DONE)) return TaskStatus.DONE;
+        return TaskStatus.IN_PROGRESS;
+    }
+
+    private interface ThreadBody {
+        void run(int thread) throws Exception;
+    }
+}
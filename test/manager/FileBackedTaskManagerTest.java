@@ -8,7 +8,12 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.io.TempDir;
 
@@ -171,4 +176,190 @@ public class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskMan
 
         assertDoesNotThrow(() -> FileBackedTaskManager.loadFromFile(headerOnly));
     }
+
+    @Test
+    void binarySnapshotIsLoadedTransparently() {
+        manager.setSnapshotFormat(SnapshotFormat.BINARY);
+        Task task = newTask("Task 1", LocalDateTime.of(2025, 1, 1, 9, 0), 30);
+        int taskId = manager.createTask(task);
+        int epicId = addEpic("Epic 1");
+        int subtaskId = addSub(epicId, "Subtask 1", TaskStatus.DONE, LocalDateTime.of(2025, 1, 1, 10, 0), 20);
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(dataFile);
+
+        assertEquals("Task 1", loadedManager.getTasksById(taskId).getName());
+        assertEquals(TaskStatus.DONE, loadedManager.getEpicById(epicId).getTaskStatus());
+        assertEquals(epicId, loadedManager.getSubtaskById(subtaskId).getEpicId());
+        assertEquals(2, loadedManager.getPrioritizedTasks().size());
+    }
+
+    @Test
+    void binarySnapshotStaysBinaryAfterReload() throws Exception {
+        manager.setSnapshotFormat(SnapshotFormat.BINARY);
+        int taskId = manager.createTask(new Task("Task 1", "d", TaskStatus.NEW));
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(dataFile);
+        assertEquals(SnapshotFormat.BINARY, loadedManager.getSnapshotFormat());
+        // прочитанный снимок уже не отображён, иначе на Windows его нельзя заменить
+        Path maps = Path.of("/proc/self/maps");
+        if (Files.isReadable(maps)) {
+            String path = dataFile.getCanonicalPath();
+            assertTrue(Files.readAllLines(maps).stream().noneMatch(line -> line.endsWith(" " + path)));
+        }
+        loadedManager.updateTask(new Task(taskId, "Task 2", "d", TaskStatus.DONE));
+
+        assertTrue(BinarySnapshot.isBinary(dataFile));
+        assertEquals("Task 2", FileBackedTaskManager.loadFromFile(dataFile).getTasksById(taskId).getName());
+    }
+
+    @Test
+    void csvSnapshotIsStillReadAfterSwitchingFormat() {
+        int taskId = manager.createTask(new Task("Task 1", "Description 1", TaskStatus.NEW));
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(dataFile);
+        loadedManager.setSnapshotFormat(SnapshotFormat.BINARY);
+        int secondId = loadedManager.createTask(new Task("Task 2", "Description 2", TaskStatus.NEW));
+
+        FileBackedTaskManager reloaded = FileBackedTaskManager.loadFromFile(dataFile);
+        assertEquals("Task 1", reloaded.getTasksById(taskId).getName());
+        assertEquals("Task 2", reloaded.getTasksById(secondId).getName());
+    }
+
+    @Test
+    void namesWithSeparatorsSurviveSaveAndLoad() {
+        String name = "Купить молоко, хлеб";
+        String description = "Сказать \"привет\"\nи уйти";
+        int taskId = manager.createTask(new Task(name, description, TaskStatus.NEW));
+        int epicId = manager.createEpic(new Epic("Эпик,\r\nс переносом", "\""));
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(dataFile);
+
+        assertEquals(name, loadedManager.getTasksById(taskId).getName());
+        assertEquals(description, loadedManager.getTasksById(taskId).getDescription());
+        assertEquals("Эпик,\r\nс переносом", loadedManager.getEpicById(epicId).getName());
+        assertEquals("\"", loadedManager.getEpicById(epicId).getDescription());
+    }
+
+    @Test
+    void backgroundSaverCoalescesBurstIntoOneSnapshot() {
+        manager.setMaxStaleness(Duration.ofHours(1));
+        for (int i = 0; i < 100; i++) {
+            manager.createTask(new Task("Task " + i, "d", TaskStatus.NEW));
+        }
+        assertFalse(dataFile.exists());
+
+        manager.flush();
+
+        assertEquals(100, FileBackedTaskManager.loadFromFile(dataFile).getTasks().size());
+    }
+
+    @Test
+    void backgroundSaverWritesWithinMaxStaleness() throws Exception {
+        manager.setMaxStaleness(Duration.ofMillis(50));
+        int id = manager.createTask(new Task("Task 1", "d", TaskStatus.NEW));
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!dataFile.exists() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("Task 1", FileBackedTaskManager.loadFromFile(dataFile).getTasksById(id).getName());
+    }
+
+    // Фоновый снимок пишет доску такой, какой она была при захвате: эпик, пересчитанный уже
+    // во время записи, не должен расходиться со своими подзадачами в том же файле
+    @Test
+    void backgroundSnapshotKeepsEpicInStepWithItsSubtasks() throws Exception {
+        for (int i = 0; i < 20_000; i++) {
+            manager.createTask(new Task("Filler " + i, "d", TaskStatus.NEW));
+        }
+        int epicId = manager.createEpic(new Epic("Epic", "d"));
+        int subtaskId = manager.createSubtask(new Subtask("Sub", "d", TaskStatus.NEW, epicId));
+        manager.setMaxStaleness(Duration.ofMillis(1));
+
+        for (int i = 0; i < 200; i++) {
+            TaskStatus status = i % 2 == 0 ? TaskStatus.DONE : TaskStatus.NEW;
+            Subtask changed = new Subtask("Sub", "d", status, epicId);
+            changed.setId(subtaskId);
+            manager.updateSubtask(changed);
+            List<String> lines = Files.readAllLines(dataFile.toPath());
+            assertEquals(status(lines, subtaskId), status(lines, epicId), "iteration " + i);
+        }
+        manager.setMaxStaleness(Duration.ZERO);
+    }
+
+    private static String status(List<String> lines, int id) {
+        return lines.stream().filter(line -> line.startsWith(id + ",")).findFirst().orElseThrow().split(",")[3];
+    }
+
+    @Test
+    void durableWriteWaitsForBackgroundSave() {
+        manager.setDurability(Durability.SYNC_EACH);
+        manager.setMaxStaleness(Duration.ofMillis(20));
+        int id = manager.createTask(new Task("Task 1", "d", TaskStatus.NEW));
+
+        manager.whenDurable().join();
+
+        assertEquals("Task 1", FileBackedTaskManager.loadFromFile(dataFile).getTasksById(id).getName());
+    }
+
+    @Test
+    void closeFlushesAndLaterChangesAreSavedInline() {
+        manager.setMaxStaleness(Duration.ofHours(1));
+        manager.createTask(new Task("Task 1", "d", TaskStatus.NEW));
+        manager.close();
+        assertEquals(1, FileBackedTaskManager.loadFromFile(dataFile).getTasks().size());
+
+        manager.createTask(new Task("Task 2", "d", TaskStatus.NEW));
+        assertEquals(2, FileBackedTaskManager.loadFromFile(dataFile).getTasks().size());
+    }
+
+    @Test
+    void switchingBackToInlineSavingFlushesPendingChanges() {
+        manager.setMaxStaleness(Duration.ofHours(1));
+        manager.createTask(new Task("Task 1", "d", TaskStatus.NEW));
+        manager.setMaxStaleness(Duration.ZERO);
+
+        assertEquals(1, FileBackedTaskManager.loadFromFile(dataFile).getTasks().size());
+    }
+
+    @Test
+    void maxStalenessIsValidated() {
+        assertThrows(IllegalArgumentException.class, () -> manager.setMaxStaleness(Duration.ofMillis(-1)));
+        assertThrows(IllegalArgumentException.class, () -> manager.setMaxStaleness(null));
+        FileBackedTaskManager journaled = new FileBackedTaskManager(dataFile, StorageMode.JOURNAL);
+        assertThrows(IllegalStateException.class, () -> journaled.setMaxStaleness(Duration.ofSeconds(1)));
+    }
+
+    @Test
+    void readsAreSafeWhileOtherThreadsWrite() throws Exception {
+        manager.setMaxStaleness(Duration.ofMillis(50));
+        int epicId = addEpic("Epic");
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < 300; i++) {
+                    if (thread < 2) {
+                        addSub(epicId, "S" + thread + "-" + i, TaskStatus.NEW, null, 0);
+                    } else {
+                        // ответ сериализуется уже без монитора менеджера
+                        manager.getEpicById(epicId).getSubtasks().forEach(Task::getName);
+                        manager.getSubtasks().forEach(Task::getName);
+                        manager.getHistory();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+        manager.flush();
+
+        assertTrue(manager.isThreadSafe());
+        assertEquals(600, manager.getSubtasks().size());
+        assertEquals(600, FileBackedTaskManager.loadFromFile(dataFile).getSubtaskFromEpic(epicId).size());
+    }
 }
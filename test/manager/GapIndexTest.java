@@ -0,0 +1,163 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+import tasks.Task;
+import tasks.TaskStatus;
+import tasks.TimeSlot;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GapIndexTest {
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final int HORIZON = 2_000;
+
+    private static Task task(int id, int startMinute, int minutes) {
+        Task task = new Task(id, "T" + id, "", TaskStatus.NEW);
+        task.setStartTime(BASE.plusMinutes(startMinute));
+        task.setDuration(Duration.ofMinutes(minutes));
+        return task;
+    }
+
+    @Test
+    void emptyIndexIsFreeEverywhere() {
+        GapIndex index = new GapIndex();
+
+        assertEquals(BASE, index.findNextFreeSlot(Duration.ofHours(5), BASE));
+        assertEquals(List.of(new TimeSlot(BASE, BASE.plusHours(1))),
+                index.freeSlots(BASE, BASE.plusHours(1), Duration.ZERO));
+    }
+
+    @Test
+    void overlappingTasksKeepTimeBusyUntilBothAreRemoved() {
+        GapIndex index = new GapIndex();
+        index.add(task(1, 0, 60));
+        index.add(task(2, 30, 60));
+
+        index.remove(1);
+        assertEquals(BASE, index.findNextFreeSlot(Duration.ofMinutes(30), BASE));
+        assertEquals(BASE.plusMinutes(90), index.findNextFreeSlot(Duration.ofMinutes(31), BASE));
+
+        index.remove(2);
+        assertEquals(BASE, index.findNextFreeSlot(Duration.ofMinutes(120), BASE));
+    }
+
+    // Задаче нулевой длины мешает только задача, строго внутри которой она оказалась
+    @Test
+    void zeroDurationFitsAtStartsAndJoints() {
+        GapIndex index = new GapIndex();
+        index.add(task(1, 0, 60));
+        index.add(task(2, 30, 60));
+        index.add(task(3, 90, 10));
+        index.add(task(4, 200, 10));
+
+        assertEquals(BASE, index.findNextFreeSlot(Duration.ZERO, BASE));
+        assertEquals(BASE.plusMinutes(90), index.findNextFreeSlot(Duration.ZERO, BASE.plusMinutes(10)));
+        assertEquals(BASE.plusMinutes(100), index.findNextFreeSlot(Duration.ZERO, BASE.plusMinutes(95)));
+        assertEquals(BASE.plusMinutes(200), index.findNextFreeSlot(Duration.ZERO, BASE.plusMinutes(200)));
+
+        index.remove(2);
+        assertEquals(BASE.plusMinutes(60), index.findNextFreeSlot(Duration.ZERO, BASE.plusMinutes(10)));
+    }
+
+    // Длинное окно после множества коротких находится спуском по дереву, а не перебором окон
+    @Test
+    void longGapAfterManyShortOnesIsFoundQuickly() {
+        GapIndex index = new GapIndex();
+        int tasks = 50_000;
+        for (int i = 0; i < tasks; i++) {
+            index.add(task(i + 1, i * 2, 1));
+        }
+        index.add(task(tasks + 1, tasks * 2 + 60, 1));
+
+        assertTimeout(Duration.ofSeconds(5), () -> {
+            for (int i = 0; i < 20_000; i++) {
+                assertEquals(BASE.plusMinutes(tasks * 2L - 1),
+                        index.findNextFreeSlot(Duration.ofMinutes(2), BASE.plusMinutes(i % 100)));
+            }
+        });
+    }
+
+    // Индекс сверяется с минутной картой занятости
+    @Test
+    void randomChangesMatchMinuteByMinuteModel() {
+        Random random = new Random(7);
+        GapIndex index = new GapIndex();
+        Map<Integer, Task> live = new HashMap<>();
+
+        for (int step = 0; step < 3_000; step++) {
+            int id = 1 + random.nextInt(60);
+            if (random.nextInt(3) == 0) {
+                index.remove(id);
+                live.remove(id);
+            } else {
+                Task task = task(id, random.nextInt(HORIZON - 200), 1 + random.nextInt(120));
+                index.add(task);
+                live.put(id, task);
+            }
+
+            boolean[] busy = busy(live);
+            int notBefore = random.nextInt(HORIZON);
+            int need = 1 + random.nextInt(60);
+            assertEquals(BASE.plusMinutes(nextFree(busy, notBefore, need)),
+                    index.findNextFreeSlot(Duration.ofMinutes(need), BASE.plusMinutes(notBefore)), "step " + step);
+            assertEquals(BASE.plusMinutes(firstPoint(live, notBefore)),
+                    index.findNextFreeSlot(Duration.ZERO, BASE.plusMinutes(notBefore)), "step " + step);
+
+            int from = random.nextInt(HORIZON / 2);
+            int to = from + 1 + random.nextInt(HORIZON / 2);
+            assertEquals(freeSlots(busy, from, to, need),
+                    index.freeSlots(BASE.plusMinutes(from), BASE.plusMinutes(to), Duration.ofMinutes(need)),
+                    "step " + step);
+        }
+    }
+
+    private static boolean[] busy(Map<Integer, Task> live) {
+        boolean[] busy = new boolean[HORIZON + 1];
+        for (Task task : live.values()) {
+            int start = (int) Duration.between(BASE, task.getStartTime()).toMinutes();
+            for (int m = start; m < start + task.getDuration().toMinutes(); m++) busy[m] = true;
+        }
+        return busy;
+    }
+
+    private static int nextFree(boolean[] busy, int notBefore, int need) {
+        for (int start = notBefore; ; start++) {
+            int m = start;
+            while (m < busy.length && !busy[m] && m - start < need) m++;
+            if (m - start >= need || m == busy.length) return start;
+            start = m;
+        }
+    }
+
+    // Первая минута, которая не лежит строго внутри задачи
+    private static int firstPoint(Map<Integer, Task> live, int notBefore) {
+        for (int point = notBefore; ; point++) {
+            LocalDateTime at = BASE.plusMinutes(point);
+            if (live.values().stream().noneMatch(task -> task.getStartTime().isBefore(at)
+                    && task.getEndTime().isAfter(at))) return point;
+        }
+    }
+
+    private static List<TimeSlot> freeSlots(boolean[] busy, int from, int to, int need) {
+        List<TimeSlot> slots = new ArrayList<>();
+        int m = from;
+        while (m < to) {
+            if (busy[m]) {
+                m++;
+                continue;
+            }
+            int start = m;
+            while (m < to && !busy[m]) m++;
+            if (m - start >= need) slots.add(new TimeSlot(BASE.plusMinutes(start), BASE.plusMinutes(m)));
+        }
+        return slots;
+    }
+}
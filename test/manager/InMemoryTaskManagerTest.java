@@ -1,9 +1,37 @@
 package manager;
 
+import org.junit.jupiter.api.Test;
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.TaskStatus;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
 public class InMemoryTaskManagerTest extends TaskManagerTest<InMemoryTaskManager> {
 
     @Override
     protected InMemoryTaskManager makeManager() {
         return new InMemoryTaskManager();
     }
+
+    @Test
+    void deletingSubtaskChangedInPlaceRestoresEpicAggregate() {
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 10, 0);
+        int epicId = addEpic("E");
+        addSub(epicId, "S1", TaskStatus.NEW, base, 30);
+        int second = addSub(epicId, "S2", TaskStatus.NEW, base.plusDays(1), 30);
+
+        // хранимый объект меняется в обход updateSubtask
+        Subtask stored = manager.getSubtaskById(second);
+        stored.setTaskStatus(TaskStatus.DONE);
+        stored.setStartTime(LocalDateTime.of(2024, 1, 1, 0, 0));
+        manager.deleteSubtaskById(second);
+
+        Epic epic = manager.getEpicById(epicId);
+        assertEquals(TaskStatus.NEW, epic.getTaskStatus());
+        assertEquals(base, epic.getStartTime());
+        assertEquals(base.plusMinutes(30), epic.getEndTime());
+    }
 }
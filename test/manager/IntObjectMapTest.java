@@ -0,0 +1,129 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IntObjectMapTest {
+
+    @Test
+    void randomOperationsMatchHashMap() {
+        Random random = new Random(3);
+        IntObjectMap<String> map = new IntObjectMap<>();
+        Map<Integer, String> expected = new HashMap<>();
+
+        for (int step = 0; step < 200_000; step++) {
+            // узкий диапазон с отрицательными ключами и кратными ёмкости — много коллизий
+            int key = random.nextBoolean() ? random.nextInt(2_000) - 1_000 : random.nextInt(64) * 1024;
+            switch (random.nextInt(4)) {
+                case 0, 1 -> assertEquals(expected.put(key, "v" + step), map.put(key, "v" + step));
+                case 2 -> assertEquals(expected.remove(key), map.remove(key));
+                default -> assertEquals(expected.get(key), map.get(key));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (Map.Entry<Integer, String> entry : expected.entrySet()) {
+            assertTrue(map.containsKey(entry.getKey()));
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+        assertEquals(expected.values().stream().sorted().toList(), map.values().stream().sorted().toList());
+    }
+
+    @Test
+    void valuesByKeyAreSortedWhateverTheSlotOrder() {
+        IntObjectMap<Integer> map = new IntObjectMap<>();
+        for (int id = 100; id >= 1; id--) map.put(id, id);
+        map.remove(50);
+
+        List<Integer> keys = new ArrayList<>();
+        map.forEachKey(keys::add);
+        assertEquals(new ArrayList<>(map.values()), keys);
+
+        List<Integer> sorted = map.valuesByKey();
+        assertEquals(99, sorted.size());
+        assertEquals(1, sorted.getFirst());
+        assertEquals(100, sorted.getLast());
+        assertFalse(sorted.contains(50));
+        for (int i = 1; i < sorted.size(); i++) assertTrue(sorted.get(i - 1) < sorted.get(i));
+    }
+
+    @Test
+    void removeIfDropsMatchingValues() {
+        IntObjectMap<Integer> map = new IntObjectMap<>();
+        for (int id = 0; id < 1000; id++) map.put(id, id);
+
+        assertTrue(map.values().removeIf(value -> value % 3 == 0));
+
+        assertEquals(666, map.size());
+        assertNull(map.get(999));
+        assertEquals(998, map.get(998));
+    }
+
+    @Test
+    void nullValuesAreRejectedAndClearEmptiesMap() {
+        IntObjectMap<String> map = new IntObjectMap<>();
+        assertThrows(NullPointerException.class, () -> map.put(1, null));
+
+        map.put(1, "a");
+        map.clear();
+
+        assertTrue(map.isEmpty());
+        assertNull(map.get(1));
+        assertNull(map.put(1, "b"));
+    }
+
+    @Test
+    void iteratorFailsFastOnModification() {
+        IntObjectMap<String> map = new IntObjectMap<>();
+        map.put(1, "a");
+        map.put(2, "b");
+        Iterator<String> it = map.values().iterator();
+        it.next();
+        map.put(3, "c");
+
+        assertThrows(ConcurrentModificationException.class, it::next);
+    }
+
+    @Test
+    void valuesAfterWalksKeysInOrder() {
+        IntObjectMap<Integer> map = new IntObjectMap<>();
+        for (int key : new int[]{5, 1, 9, 3, 7}) {
+            map.put(key, key);
+        }
+        map.remove(3);
+        map.remove(5);
+        map.put(5, 5);
+        map.put(5, 50);
+
+        List<Integer> out = new ArrayList<>();
+        assertTrue(map.valuesAfter(Integer.MIN_VALUE, 2, out));
+        assertEquals(List.of(1, 50), out);
+        out.clear();
+        assertFalse(map.valuesAfter(5, 2, out));
+        assertEquals(List.of(7, 9), out);
+        out.clear();
+        assertFalse(map.valuesAfter(9, 2, out));
+        assertTrue(out.isEmpty());
+    }
+
+    // id выдаются подряд; удаление не должно проходить всю цепочку занятых за ними ячеек
+    @Test
+    void sequentialIdsAreRemovedWithoutWalkingTheWholeTable() {
+        IntObjectMap<Integer> map = new IntObjectMap<>();
+        for (int id = 1; id <= 300_000; id++) map.put(id, id);
+
+        assertTimeout(Duration.ofSeconds(5), () -> {
+            for (int id = 1; id <= 300_000; id++) map.remove(id);
+        });
+        assertEquals(0, map.size());
+    }
+}
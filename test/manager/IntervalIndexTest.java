@@ -0,0 +1,94 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+import tasks.Task;
+import tasks.TaskStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IntervalIndexTest {
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    private static Task task(int id, long startMinute, long minutes) {
+        Task task = new Task(id, "T" + id, "", TaskStatus.NEW);
+        task.setStartTime(BASE.plusMinutes(startMinute));
+        task.setDuration(Duration.ofMinutes(minutes));
+        return task;
+    }
+
+    @Test
+    void touchingIntervalsDoNotOverlap() {
+        IntervalIndex index = new IntervalIndex();
+        index.add(task(1, 60, 60));
+
+        assertFalse(index.overlaps(BASE, BASE.plusMinutes(60), null));
+        assertFalse(index.overlaps(BASE.plusMinutes(120), BASE.plusMinutes(180), null));
+        assertTrue(index.overlaps(BASE.plusMinutes(119), BASE.plusMinutes(180), null));
+        assertFalse(index.overlaps(BASE.plusMinutes(90), BASE.plusMinutes(100), 1));
+    }
+
+    @Test
+    void longIntervalFarToTheLeftIsFound() {
+        IntervalIndex index = new IntervalIndex();
+        index.add(task(1, 0, 100_000));
+        for (int i = 2; i < 1000; i++) {
+            index.add(task(i, 200_000 + i * 10L, 5));
+        }
+
+        assertTrue(index.overlaps(BASE.plusMinutes(50_000), BASE.plusMinutes(50_001), null));
+        assertFalse(index.overlaps(BASE.plusMinutes(150_000), BASE.plusMinutes(150_001), null));
+    }
+
+    @Test
+    void taskChangedAfterInsertIsStillRemovedById() {
+        IntervalIndex index = new IntervalIndex();
+        Task task = task(1, 0, 30);
+        index.add(task);
+        task.setStartTime(BASE.plusDays(1));
+
+        index.remove(1);
+
+        assertEquals(0, index.size());
+        assertFalse(index.overlaps(BASE, BASE.plusMinutes(30), null));
+    }
+
+    @Test
+    void randomOperationsMatchLinearScan() {
+        Random random = new Random(12);
+        IntervalIndex index = new IntervalIndex();
+        Map<Integer, Task> live = new HashMap<>();
+
+        for (int step = 0; step < 20_000; step++) {
+            int id = 1 + random.nextInt(500);
+            if (random.nextInt(3) == 0) {
+                index.remove(id);
+                live.remove(id);
+            } else {
+                Task task = task(id, random.nextInt(10_000), 1 + random.nextInt(300));
+                index.add(task);
+                live.put(id, task);
+            }
+
+            LocalDateTime start = BASE.plusMinutes(random.nextInt(10_500));
+            LocalDateTime end = start.plusMinutes(1 + random.nextInt(200));
+            Integer exclude = random.nextBoolean() ? id : null;
+            assertEquals(linear(new ArrayList<>(live.values()), start, end, exclude),
+                    index.overlaps(start, end, exclude), "step " + step);
+        }
+        assertEquals(live.size(), index.size());
+    }
+
+    private static boolean linear(List<Task> tasks, LocalDateTime start, LocalDateTime end, Integer exclude) {
+        return tasks.stream()
+                .filter(task -> !task.getId().equals(exclude))
+                .anyMatch(task -> task.getStartTime().isBefore(end) && start.isBefore(task.getEndTime()));
+    }
+}
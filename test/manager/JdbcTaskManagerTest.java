@@ -0,0 +1,98 @@
+package manager;
+
+import exception.IntersectionException;
+import exception.NotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tasks.*;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JdbcTaskManagerTest extends TaskManagerTest<JdbcTaskManager> {
+    @TempDir
+    Path tempDir;
+
+    private String url;
+
+    @Override
+    protected JdbcTaskManager makeManager() {
+        url = "jdbc:h2:file:" + tempDir.resolve("tasks").toAbsolutePath();
+        return new JdbcTaskManager(url);
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.close();
+    }
+
+    @Test
+    void tasksSurviveReopen() {
+        int taskId = add(newTask("Task 1", LocalDateTime.of(2025, 1, 1, 9, 0), 30));
+        int epicId = addEpic("Epic 1");
+        int subtaskId = addSub(epicId, "Subtask 1", TaskStatus.DONE, LocalDateTime.of(2025, 1, 1, 10, 0), 20);
+        manager.close();
+
+        manager = new JdbcTaskManager(url);
+        assertEquals("Task 1", manager.getTasksById(taskId).getName());
+        Epic epic = manager.getEpicById(epicId);
+        assertEquals(TaskStatus.DONE, epic.getTaskStatus());
+        assertEquals(subtaskId, epic.getSubtasks().getFirst().getId());
+        assertEquals(LocalDateTime.of(2025, 1, 1, 10, 20), epic.getEndTime());
+        assertEquals(2, manager.getPrioritizedTasks().size());
+        assertTrue(manager.createTask(new Task("Next", "d", TaskStatus.NEW)) > subtaskId);
+    }
+
+    @Test
+    void importKeepsIdsAndRecomputesEpics() {
+        Epic epic = new Epic("Epic", "d");
+        epic.setId(10);
+        Subtask subtask = new Subtask("Subtask", "d", TaskStatus.IN_PROGRESS, 10);
+        subtask.setId(11);
+        subtask.setStartTime(LocalDateTime.of(2025, 1, 1, 9, 0));
+        subtask.setDuration(Duration.ofMinutes(60));
+        List<Task> tasks = new ArrayList<>(List.of(epic, subtask));
+        for (int i = 0; i < 100; i++) {
+            Task task = new Task(100 + i, "Task " + i, "d", TaskStatus.NEW);
+            task.setStartTime(LocalDateTime.of(2025, 2, 1, 0, 0).plusHours(i));
+            task.setDuration(Duration.ofMinutes(30));
+            tasks.add(task);
+        }
+
+        manager.importTasks(tasks);
+
+        assertEquals(100, manager.getTasks().size());
+        assertEquals(TaskStatus.IN_PROGRESS, manager.getEpicById(10).getTaskStatus());
+        assertEquals(101, manager.getPrioritizedTasks().size());
+        assertTrue(manager.createTask(new Task("Next", "d", TaskStatus.NEW)) > 199);
+    }
+
+    @Test
+    void longTaskFarBeforeCandidateIsStillDetectedAsOverlap() {
+        add(newTask("Long", LocalDateTime.of(2025, 1, 1, 0, 0), 60 * 24 * 7));
+        for (int i = 0; i < 50; i++) {
+            add(newTask("Short " + i, LocalDateTime.of(2025, 2, 1, 0, 0).plusHours(i), 30));
+        }
+
+        assertThrows(IntersectionException.class,
+                () -> add(newTask("Clash", LocalDateTime.of(2025, 1, 5, 12, 0), 10)));
+        assertFalse(manager.hasAnyOverlap(newTask("Free", LocalDateTime.of(2025, 1, 9, 0, 0), 10)));
+    }
+
+    @Test
+    void deletingEpicRemovesSubtasksFromStorage() {
+        int epicId = addEpic("Epic 1");
+        int subtaskId = addSub(epicId, "Subtask 1", TaskStatus.NEW, null, 0);
+
+        manager.deleteEpicById(epicId);
+
+        assertThrows(NotFoundException.class, () -> manager.getSubtaskById(subtaskId));
+        assertTrue(manager.getSubtasks().isEmpty());
+    }
+}
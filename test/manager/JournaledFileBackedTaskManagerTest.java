@@ -0,0 +1,311 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tasks.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JournaledFileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskManager> {
+    @TempDir
+    Path tempDir;
+
+    private File dataFile;
+
+    @Override
+    protected FileBackedTaskManager makeManager() {
+        dataFile = tempDir.resolve("tasks.csv").toFile();
+        return new FileBackedTaskManager(dataFile, StorageMode.JOURNAL);
+    }
+
+    private File journalFile() {
+        return new File(dataFile.getPath() + ".journal");
+    }
+
+    @Test
+    void mutationsAreAppendedToJournalWithoutSnapshot() {
+        manager.createTask(new Task("Task 1", "Description 1", TaskStatus.NEW));
+        manager.createEpic(new Epic("Epic 1", "Epic Description"));
+
+        assertFalse(dataFile.exists());
+        assertTrue(journalFile().exists());
+    }
+
+    // Копия доски для снимков меняет у эпика только заголовок и дерево подзадач
+    @Test
+    void subtaskUpdatesInLargeEpicStayCheapAndReachCheckpoint() {
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 0, 0);
+        int epicId = manager.createEpic(new Epic("Large", "d"));
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            ids.add(addSub(epicId, "S" + i, TaskStatus.NEW, null, 0));
+        }
+
+        assertTimeout(Duration.ofSeconds(5), () -> {
+            for (int i = 0; i < 2_000; i++) {
+                Subtask changed = new Subtask("S", "", TaskStatus.DONE, epicId);
+                changed.setId(ids.get(i));
+                changed.setStartTime(base.plusHours(i));
+                changed.setDuration(Duration.ofMinutes(30));
+                manager.updateSubtask(changed);
+            }
+        });
+        manager.checkpoint().join();
+        manager.close();
+
+        Epic epic = FileBackedTaskManager.loadFromFile(dataFile, StorageMode.JOURNAL).getEpicById(epicId);
+        assertEquals(TaskStatus.IN_PROGRESS, epic.getTaskStatus());
+        assertEquals(base, epic.getStartTime());
+        assertEquals(base.plusHours(1_999).plusMinutes(30), epic.getEndTime());
+    }
+
+    @Test
+    void loadReplaysJournalWithoutSnapshot() {
+        Task task = newTask("Task 1", LocalDateTime.of(2025, 1, 1, 9, 0), 30);
+        int taskId = manager.createTask(task);
+        int epicId = manager.createEpic(new Epic("Epic 1", "Epic Description"));
+        int subtaskId = addSub(epicId, "Subtask 1", TaskStatus.DONE, LocalDateTime.of(2025, 1, 1, 10, 0), 20);
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(dataFile, StorageMode.JOURNAL);
+
+        assertEquals("Task 1", loaded.getTasksById(taskId).getName());
+        Epic epic = loaded.getEpicById(epicId);
+        assertEquals(TaskStatus.DONE, epic.getTaskStatus());
+        assertEquals(1, epic.getSubtasks().size());
+        assertEquals(subtaskId, epic.getSubtasks().getFirst().getId());
+        assertEquals(2, loaded.getPrioritizedTasks().size());
+    }
+
+    @Test
+    void loadReplaysJournalTailOnTopOfSnapshot() {
+        int keptId = manager.createTask(new Task("Kept", "d", TaskStatus.NEW));
+        int removedId = manager.createTask(new Task("Removed", "d", TaskStatus.NEW));
+        manager.save();
+        assertFalse(journalFile().exists());
+
+        Task upd = new Task(keptId, "Kept-upd", "d", TaskStatus.IN_PROGRESS);
+        manager.updateTask(upd);
+        manager.deleteTaskById(removedId);
+        int epicId = manager.createEpic(new Epic("Epic", "d"));
+        addSub(epicId, "S", TaskStatus.NEW, LocalDateTime.of(2025, 1, 1, 9, 0), 10);
+        manager.deleteEpicById(epicId);
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(dataFile, StorageMode.JOURNAL);
+
+        assertEquals(1, loaded.getTasks().size());
+        assertEquals("Kept-upd", loaded.getTasksById(keptId).getName());
+        assertEquals(TaskStatus.IN_PROGRESS, loaded.getTasksById(keptId).getTaskStatus());
+        assertTrue(loaded.getEpics().isEmpty());
+        assertTrue(loaded.getSubtasks().isEmpty());
+    }
+
+    @Test
+    void clearRecordsAreReplayed() {
+        int epicId = manager.createEpic(new Epic("Epic", "d"));
+        addSub(epicId, "S", TaskStatus.NEW, null, 0);
+        manager.createTask(new Task("T", "d", TaskStatus.NEW));
+        manager.deleteSubtasks();
+        manager.deleteTask();
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(dataFile, StorageMode.JOURNAL);
+
+        assertTrue(loaded.getTasks().isEmpty());
+        assertTrue(loaded.getSubtasks().isEmpty());
+        assertEquals(1, loaded.getEpics().size());
+    }
+
+    @Test
+    void recordsCoveredBySnapshotAreNotReplayedTwice() throws Exception {
+        int id = manager.createTask(new Task("T", "d", TaskStatus.NEW));
+        String journalBeforeSave = Files.readString(journalFile().toPath());
+        manager.deleteTaskById(id);
+        manager.save();
+
+        // имитируем сбой между записью снимка и очисткой журнала
+        Files.writeString(journalFile().toPath(), journalBeforeSave);
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(dataFile, StorageMode.JOURNAL);
+        assertTrue(loaded.getTasks().isEmpty());
+    }
+
+    @Test
+    void tornTailRecordIsIgnored() throws Exception {
+        int id = manager.createTask(new Task("T", "d", TaskStatus.NEW));
+        Files.writeString(journalFile().toPath(), "2,PUT,3,TASK,Par", StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND);
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(dataFile, StorageMode.JOURNAL);
+        assertEquals(1, loaded.getTasks().size());
+        assertEquals("T", loaded.getTasksById(id).getName());
+    }
+
+    @Test
+    void batchIsReplayedAsOneRecord() throws Exception {
+        int keptId = manager.createTask(new Task("Kept", "d", TaskStatus.NEW));
+        int epicId = manager.createEpic(new Epic("Epic", "d"));
+        List<Integer> ids = manager.applyBatch(List.of(
+                Mutation.create(new Task("A", "d", TaskStatus.NEW)),
+                Mutation.create(new Subtask("Sub", "d", TaskStatus.DONE, epicId)),
+                Mutation.delete(TaskType.TASK, keptId)));
+
+        String journal = Files.readString(journalFile().toPath());
+        assertTrue(journal.contains(",BATCH,3\n"));
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(dataFile, StorageMode.JOURNAL);
+        assertEquals(List.of(ids.get(0)), loaded.getTasks().stream().map(Task::getId).toList());
+        assertEquals(TaskStatus.DONE, loaded.getEpicById(epicId).getTaskStatus());
+    }
+
+    @Test
+    void tornBatchIsDroppedWhole() throws Exception {
+        int id = manager.createTask(new Task("T", "d", TaskStatus.NEW));
+        manager.applyBatch(List.of(
+                Mutation.create(new Task("A", "d", TaskStatus.NEW)),
+                Mutation.delete(TaskType.TASK, id)));
+        // сбой после первой записи пакета: вторая не дописана
+        String journal = Files.readString(journalFile().toPath());
+        Files.writeString(journalFile().toPath(), journal.substring(0, journal.lastIndexOf(",DEL,") - 1));
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(dataFile, StorageMode.JOURNAL);
+        assertEquals(List.of(id), loaded.getTasks().stream().map(Task::getId).toList());
+
+        // обрывок отрезан, новые записи не склеиваются с ним
+        int next = loaded.createTask(new Task("B", "d", TaskStatus.NEW));
+        FileBackedTaskManager reloaded = FileBackedTaskManager.loadFromFile(dataFile, StorageMode.JOURNAL);
+        assertEquals(List.of(id, next), reloaded.getTasks().stream().map(Task::getId).toList());
+    }
+
+    @Test
+    void multiLineNamesAreReplayedFromJournal() {
+        int id = manager.createTask(new Task("first\nsecond, \"third\"", "d", TaskStatus.NEW));
+        manager.createTask(new Task("next", "d", TaskStatus.NEW));
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(dataFile, StorageMode.JOURNAL);
+        assertEquals(2, loaded.getTasks().size());
+        assertEquals("first\nsecond, \"third\"", loaded.getTasksById(id).getName());
+    }
+
+    @Test
+    void generatedIdsDoNotReuseDeletedOnes() {
+        int first = manager.createTask(new Task("A", "d", TaskStatus.NEW));
+        int second = manager.createTask(new Task("B", "d", TaskStatus.NEW));
+        manager.deleteTaskById(second);
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(dataFile, StorageMode.JOURNAL);
+        int third = loaded.createTask(new Task("C", "d", TaskStatus.NEW));
+        assertTrue(third > second);
+        assertNotEquals(first, third);
+    }
+
+    @Test
+    void journalIsCompactedIntoSnapshot() {
+        Task task = new Task("T", "d", TaskStatus.NEW);
+        int id = manager.createTask(task);
+        for (int i = 0; i < 1500; i++) {
+            Task upd = new Task(id, "T" + i, "d", TaskStatus.NEW);
+            upd.setDuration(Duration.ofMinutes(i));
+            manager.updateTask(upd);
+        }
+
+        // компактизация идёт фоновым чекпоинтом
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (manager.getCheckpointStats().getCheckpoints() == 0 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertTrue(manager.getCheckpointStats().getCheckpoints() > 0);
+        assertTrue(dataFile.exists());
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(dataFile, StorageMode.JOURNAL);
+        assertEquals("T1499", loaded.getTasksById(id).getName());
+    }
+
+    @Test
+    void checkpointWritesSnapshotAndDropsCoveredJournal() {
+        manager.createTask(new Task("T", "d", TaskStatus.NEW));
+        manager.createEpic(new Epic("E", "d"));
+
+        CheckpointStats stats = manager.checkpoint().join();
+
+        assertTrue(dataFile.exists());
+        assertFalse(journalFile().exists());
+        assertFalse(new File(dataFile.getPath() + ".journal.1").exists());
+        assertEquals(1, stats.getCheckpoints());
+        assertEquals(2, stats.getLsn());
+        assertEquals(dataFile.length(), stats.getLastBytesWritten());
+        assertEquals(0, manager.getCheckpointStats().getLagRecords());
+    }
+
+    @Test
+    void mutationsDuringCheckpointAreKept() {
+        int first = manager.createTask(new Task("A", "d", TaskStatus.NEW));
+        var pending = manager.checkpoint();
+        int second = manager.createTask(new Task("B", "d", TaskStatus.NEW));
+        manager.updateTask(new Task(first, "A-upd", "d", TaskStatus.DONE));
+        pending.join();
+
+        assertEquals(2, manager.getCheckpointStats().getLagRecords());
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(dataFile, StorageMode.JOURNAL);
+        assertEquals("A-upd", loaded.getTasksById(first).getName());
+        assertEquals("B", loaded.getTasksById(second).getName());
+    }
+
+    @Test
+    void interruptedCheckpointIsRecoveredFromRotatedJournal() throws Exception {
+        int id = manager.createTask(new Task("A", "d", TaskStatus.NEW));
+        manager.checkpoint().join();
+        manager.updateTask(new Task(id, "A-upd", "d", TaskStatus.NEW));
+        Files.move(journalFile().toPath(), tempDir.resolve("tasks.csv.journal.1"));
+        manager.createTask(new Task("B", "d", TaskStatus.NEW));
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(dataFile, StorageMode.JOURNAL);
+        assertEquals("A-upd", loaded.getTasksById(id).getName());
+        assertEquals(2, loaded.getTasks().size());
+    }
+
+    @Test
+    void syncEachWriteIsDurableOnReturn() {
+        manager.setDurability(Durability.SYNC_EACH);
+        manager.createTask(new Task("T", "d", TaskStatus.NEW));
+        assertTrue(manager.whenDurable().isDone());
+    }
+
+    @Test
+    void groupCommitSharesOneSyncPerWindow() throws Exception {
+        manager.setDurability(Durability.groupCommit(Duration.ofMillis(200)));
+        manager.createTask(new Task("A", "d", TaskStatus.NEW));
+        CompletableFuture<Void> first = manager.whenDurable();
+        manager.createTask(new Task("B", "d", TaskStatus.NEW));
+        CompletableFuture<Void> second = manager.whenDurable();
+
+        assertSame(first, second);
+        second.get(5, TimeUnit.SECONDS);
+        assertEquals(2, FileBackedTaskManager.loadFromFile(dataFile, StorageMode.JOURNAL).getTasks().size());
+    }
+
+    @Test
+    void switchingDurabilityCommitsPendingGroup() {
+        manager.setDurability(Durability.groupCommit(Duration.ofMinutes(1)));
+        manager.createTask(new Task("A", "d", TaskStatus.NEW));
+        CompletableFuture<Void> pending = manager.whenDurable();
+        assertFalse(pending.isDone());
+
+        manager.setDurability(Durability.SYNC_EACH);
+        assertTrue(pending.isDone());
+    }
+
+    @Test
+    void groupCommitRequiresPositiveWindow() {
+        assertThrows(IllegalArgumentException.class, () -> Durability.groupCommit(Duration.ZERO));
+    }
+}
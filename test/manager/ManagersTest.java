@@ -49,4 +49,14 @@ public class ManagersTest {
         history.add(task);
         assertEquals(1, history.getHistory().size());
     }
+
+    @Test
+    void TestGetDefaultShouldRejectUnknownManagerKind() {
+        System.setProperty("kanban.manager", "cloud");
+        try {
+            assertThrows(IllegalArgumentException.class, Managers::getDefault);
+        } finally {
+            System.clearProperty("kanban.manager");
+        }
+    }
 }
@@ -0,0 +1,149 @@
+package manager;
+
+import exception.ManagerLoadException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tasks.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class MappedColumnarTaskManagerTest extends TaskManagerTest<ColumnarTaskManager> {
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @TempDir
+    Path tempDir;
+
+    private File dataFile;
+
+    @Override
+    protected ColumnarTaskManager makeManager() {
+        dataFile = tempDir.resolve("tasks.bin").toFile();
+        return ColumnarTaskManager.mapped(dataFile);
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.close();
+    }
+
+    @Test
+    void boardIsReopenedFromFile() {
+        int taskId = add(newTask("Task", BASE, 30));
+        int epicId = addEpic("Epic");
+        int first = addSub(epicId, "S1", TaskStatus.DONE, BASE.plusHours(1), 30);
+        int second = addSub(epicId, "S2", TaskStatus.DONE, BASE.plusHours(2), 30);
+        int deleted = add(newTask("Deleted", null, 0));
+        manager.deleteTaskById(deleted);
+        manager.close();
+
+        manager = ColumnarTaskManager.mapped(dataFile);
+        assertEquals("Task", manager.getTasksById(taskId).getName());
+        assertEquals(TaskStatus.DONE, manager.getEpicById(epicId).getTaskStatus());
+        assertEquals(BASE.plusHours(1), manager.getEpicById(epicId).getStartTime());
+        assertEquals(List.of(first, second),
+                manager.getSubtaskFromEpic(epicId).stream().map(Task::getId).toList());
+        assertEquals(3, manager.getPrioritizedTasks().size());
+        assertTrue(add(newTask("Next", null, 0)) > second);
+    }
+
+    @Test
+    void storeGrowsPastInitialCapacity() {
+        for (int i = 0; i < 3000; i++) {
+            add(newTask("Task " + i, BASE.plusMinutes(i * 10L), 5));
+        }
+        manager.close();
+
+        manager = ColumnarTaskManager.mapped(dataFile);
+        assertEquals(3000, manager.getTasks().size());
+        assertEquals("Task 2999", manager.getTasksById(3000).getName());
+        assertEquals(1, manager.getPrioritizedTasks().getFirst().getId());
+    }
+
+    @Test
+    void rewrittenNamesDoNotGrowStringsFile() {
+        int id = add(new Task("Hot", "d", TaskStatus.NEW));
+        add(new Task("Cold", "Описание", TaskStatus.NEW));
+        for (int i = 0; i < 20_000; i++) {
+            manager.updateTask(new Task(id, "Hot " + i, "d", TaskStatus.IN_PROGRESS));
+        }
+        manager.close();
+
+        assertTrue(new File(dataFile.getPath() + ".strings").length() < 128 * 1024);
+        manager = ColumnarTaskManager.mapped(dataFile);
+        assertEquals("Hot 19999", manager.getTasksById(id).getName());
+        assertEquals("Описание", manager.getTasksById(id + 1).getDescription());
+    }
+
+    @Test
+    void offHeapManagerKeepsTasksOutsideFile() {
+        ColumnarTaskManager offHeap = ColumnarTaskManager.offHeap();
+        for (int i = 0; i < 3000; i++) {
+            offHeap.createTask(new Task("Task " + i, i % 2 == 0 ? null : "d", TaskStatus.NEW));
+        }
+
+        assertEquals("Task 1500", offHeap.getTasksById(1501).getName());
+        assertNull(offHeap.getTasksById(1501).getDescription());
+        assertEquals("d", offHeap.getTasksById(1502).getDescription());
+    }
+
+    @Test
+    void foreignFileIsRejected() throws IOException {
+        manager.close();
+        File foreign = tempDir.resolve("foreign.bin").toFile();
+        Files.write(foreign.toPath(), new byte[64]);
+
+        assertThrows(ManagerLoadException.class, () -> ColumnarTaskManager.mapped(foreign));
+    }
+
+    @Test
+    void growingAndClosingUnmapTheFile() throws IOException {
+        Path maps = Path.of("/proc/self/maps");
+        assumeTrue(Files.isReadable(maps), "needs /proc/self/maps");
+        for (int i = 0; i < 3000; i++) {
+            add(newTask("Task " + i, null, 0));
+        }
+        manager.whenDurable().join();
+        assertEquals(1, mappings(maps));
+
+        manager.close();
+        assertEquals(0, mappings(maps));
+        manager = ColumnarTaskManager.mapped(dataFile);
+        assertEquals(3000, manager.getTasks().size());
+    }
+
+    // Отображения файла доски в адресном пространстве процесса
+    private long mappings(Path maps) throws IOException {
+        String path = dataFile.getCanonicalPath();
+        return Files.readAllLines(maps).stream().filter(line -> line.endsWith(" " + path)).count();
+    }
+
+    @Test
+    void openBoardHoldsNoFileHandles() throws IOException {
+        Path fds = Path.of("/proc/self/fd");
+        assumeTrue(Files.isDirectory(fds), "needs /proc/self/fd");
+        for (int i = 0; i < 3000; i++) {
+            add(newTask("Task " + i, null, 0));
+        }
+
+        String path = dataFile.getCanonicalPath();
+        try (Stream<Path> links = Files.list(fds)) {
+            assertEquals(0, links.filter(link -> {
+                try {
+                    return Files.readSymbolicLink(link).toString().startsWith(path);
+                } catch (IOException e) {
+                    return false;
+                }
+            }).count());
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package manager;
+
+import exception.NotFoundException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tasks.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PagedFileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskManager> {
+    @TempDir
+    Path tempDir;
+
+    private File dataFile;
+
+    @Override
+    protected FileBackedTaskManager makeManager() {
+        dataFile = tempDir.resolve("tasks.db").toFile();
+        return new FileBackedTaskManager(dataFile, StorageMode.PAGED);
+    }
+
+    private FileBackedTaskManager reload() {
+        return FileBackedTaskManager.loadFromFile(dataFile, StorageMode.PAGED);
+    }
+
+    @Test
+    void changesAreWrittenAsPages() throws Exception {
+        Task task = newTask("Task 1", LocalDateTime.of(2025, 1, 1, 9, 0), 30);
+        int taskId = manager.createTask(task);
+        int epicId = addEpic("Epic 1");
+        int subtaskId = addSub(epicId, "Subtask 1", TaskStatus.DONE, LocalDateTime.of(2025, 1, 1, 10, 0), 20);
+
+        assertTrue(PagedTaskFile.isPaged(dataFile));
+        FileBackedTaskManager loaded = reload();
+        assertEquals("Task 1", loaded.getTasksById(taskId).getName());
+        assertEquals(TaskStatus.DONE, loaded.getEpicById(epicId).getTaskStatus());
+        assertEquals(subtaskId, loaded.getEpicById(epicId).getSubtasks().getFirst().getId());
+        assertEquals(2, loaded.getPrioritizedTasks().size());
+    }
+
+    @Test
+    void repeatedUpdatesReuseFreedSlots() {
+        int id = manager.createTask(new Task("Hot", "d", TaskStatus.NEW));
+        for (int i = 0; i < 100; i++) {
+            manager.createTask(new Task("Task " + i, "d", TaskStatus.NEW));
+        }
+        // новая версия пишется рядом со старой, дальше они меняются местами
+        manager.updateTask(new Task(id, "Hot 00", "d", TaskStatus.IN_PROGRESS));
+        long size = dataFile.length();
+
+        for (int i = 10; i < 60; i++) {
+            manager.updateTask(new Task(id, "Hot " + i, "d", TaskStatus.IN_PROGRESS));
+        }
+
+        assertEquals(size, dataFile.length());
+        assertEquals("Hot 59", reload().getTasksById(id).getName());
+    }
+
+    @Test
+    void epicAggregateIsRewrittenWhenSubtaskChanges() {
+        int epicId = addEpic("Epic 1");
+        int subtaskId = addSub(epicId, "Subtask 1", TaskStatus.NEW, null, 0);
+
+        Subtask done = new Subtask("Subtask 1", "d", TaskStatus.DONE, epicId);
+        done.setId(subtaskId);
+        manager.updateSubtask(done);
+
+        assertEquals(TaskStatus.DONE, reload().getEpicById(epicId).getTaskStatus());
+    }
+
+    @Test
+    void deletedRecordsFreeTheirSlots() {
+        int first = manager.createTask(new Task("A", "d", TaskStatus.NEW));
+        manager.createTask(new Task("B", "d", TaskStatus.NEW));
+        long size = dataFile.length();
+
+        manager.deleteTaskById(first);
+        manager.createTask(new Task("C", "d", TaskStatus.NEW));
+
+        assertEquals(size, dataFile.length());
+        FileBackedTaskManager loaded = reload();
+        assertEquals(2, loaded.getTasks().size());
+        assertThrows(NotFoundException.class, () -> loaded.getTasksById(first));
+    }
+
+    @Test
+    void epicDeletionRemovesItsSubtasksFromFile() {
+        int epicId = addEpic("Epic 1");
+        addSub(epicId, "Subtask 1", TaskStatus.NEW, null, 0);
+        addSub(epicId, "Subtask 2", TaskStatus.NEW, null, 0);
+        int taskId = manager.createTask(new Task("Task", "d", TaskStatus.NEW));
+
+        manager.deleteEpicById(epicId);
+        manager.deleteTask();
+
+        FileBackedTaskManager loaded = reload();
+        assertTrue(loaded.getEpics().isEmpty());
+        assertTrue(loaded.getSubtasks().isEmpty());
+        assertTrue(loaded.getTasks().isEmpty());
+        assertThrows(NotFoundException.class, () -> loaded.getTasksById(taskId));
+    }
+
+    @Test
+    void backgroundSaverWritesOnlyLatestVersions() {
+        manager.setMaxStaleness(Duration.ofHours(1));
+        int id = manager.createTask(new Task("Hot", "d", TaskStatus.NEW));
+        for (int i = 0; i < 50; i++) {
+            manager.updateTask(new Task(id, "Hot " + i, "d", TaskStatus.NEW));
+        }
+        assertFalse(dataFile.exists());
+
+        manager.flush();
+
+        assertEquals("Hot 49", reload().getTasksById(id).getName());
+    }
+
+    @Test
+    void snapshotIsConvertedToPagesOnLoad() throws Exception {
+        FileBackedTaskManager snapshot = new FileBackedTaskManager(dataFile);
+        int id = snapshot.createTask(new Task("From CSV", "d", TaskStatus.NEW));
+
+        FileBackedTaskManager paged = reload();
+        assertTrue(PagedTaskFile.isPaged(dataFile));
+        paged.updateTask(new Task(id, "Updated", "d", TaskStatus.DONE));
+
+        assertEquals("Updated", reload().getTasksById(id).getName());
+        assertEquals("Updated", FileBackedTaskManager.loadFromFile(dataFile).getTasksById(id).getName());
+    }
+
+    @Test
+    void interruptedRewriteKeepsPreviousCopy() throws Exception {
+        File raw = tempDir.resolve("raw.db").toFile();
+        PagedTaskFile pages = new PagedTaskFile(raw);
+        pages.put(1, "first");
+        pages.put(2, "other");
+        pages.commit(true);
+        // сбой до commit: новая копия уже в файле, старая ещё не освобождена
+        pages.put(1, "second");
+        pages.close();
+
+        assertEquals(List.of("other", "second"), loadRows(raw));
+
+        corrupt(raw, "second");
+        assertEquals(List.of("first", "other"), loadRows(raw));
+    }
+
+    @Test
+    void recordWithBadChecksumIsSkipped() throws Exception {
+        int kept = manager.createTask(new Task("Kept", "d", TaskStatus.NEW));
+        manager.createTask(new Task("Broken", "d", TaskStatus.NEW));
+
+        corrupt(dataFile, "Broken");
+
+        FileBackedTaskManager loaded = reload();
+        assertEquals(1, loaded.getTasks().size());
+        assertEquals("Kept", loaded.getTasksById(kept).getName());
+    }
+
+    @Test
+    void interruptedBatchIsRedoneFromJournal() {
+        int id = manager.createTask(new Task("Old", "d", TaskStatus.NEW));
+        // пакет уже в журнале, а запись на месте не успела начаться
+        journalBatch(new Task(id, "New", "d", TaskStatus.DONE), new Task(id + 1, "Added", "d", TaskStatus.NEW));
+
+        FileBackedTaskManager recovered = reload();
+        assertEquals("New", recovered.getTasksById(id).getName());
+        assertEquals("Added", recovered.getTasksById(id + 1).getName());
+        assertFalse(journalFile().exists());
+        assertEquals(2, reload().getTasks().size());
+    }
+
+    @Test
+    void appliedBatchLeavesNoJournal() {
+        int id = manager.createTask(new Task("Old", "d", TaskStatus.NEW));
+        manager.applyBatch(List.of(
+                Mutation.update(new Task(id, "New", "d", TaskStatus.DONE)),
+                Mutation.create(new Task("Added", "d", TaskStatus.NEW))));
+
+        assertFalse(journalFile().exists());
+        assertEquals("New", reload().getTasksById(id).getName());
+    }
+
+    private File journalFile() {
+        return new File(dataFile.getPath() + ".journal");
+    }
+
+    private void journalBatch(Task... rows) {
+        manager.close();
+        TaskCsvCodec codec = new TaskCsvCodec();
+        List<String[]> records = new ArrayList<>();
+        for (Task row : rows) {
+            StringBuilder out = new StringBuilder();
+            codec.write(row, out);
+            records.add(new String[]{TaskJournal.PUT, out.toString()});
+        }
+        TaskJournal journal = new TaskJournal(dataFile);
+        journal.appendBatch(records);
+        journal.close();
+    }
+
+    private static List<String> loadRows(File file) throws Exception {
+        PagedTaskFile pages = new PagedTaskFile(file);
+        List<String> rows = new ArrayList<>();
+        try {
+            pages.load(row -> {
+                rows.add(row);
+                return null;
+            }, task -> { });
+        } finally {
+            pages.close();
+        }
+        return rows.stream().sorted().toList();
+    }
+
+    // Портит первый байт строки text в файле, как недописанная запись
+    private static void corrupt(File file, String text) throws Exception {
+        byte[] content = Files.readAllBytes(file.toPath());
+        byte[] needle = text.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i + needle.length <= content.length; i++) {
+            if (Arrays.equals(content, i, i + needle.length, needle, 0, needle.length)) {
+                try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+                    out.seek(i);
+                    out.write(needle[0] ^ 0x20);
+                }
+                return;
+            }
+        }
+        fail("Text not found: " + text);
+    }
+}
@@ -0,0 +1,97 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tasks.Task;
+import tasks.TaskStatus;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelCsvLoaderTest {
+    @TempDir
+    Path tempDir;
+
+    private static Task parse(String line) {
+        String[] fields = line.split(",", -1);
+        return new Task(Integer.parseInt(fields[0]), fields[1], "", TaskStatus.NEW);
+    }
+
+    private File write(String content) throws Exception {
+        File file = tempDir.resolve("tasks.csv").toFile();
+        Files.writeString(file.toPath(), content);
+        return file;
+    }
+
+    @Test
+    void smallChunksKeepOrderAcrossLineBoundaries() throws Exception {
+        StringBuilder csv = new StringBuilder("id,name\n");
+        for (int i = 1; i <= 500; i++) {
+            csv.append(i).append(",Task ").append(i).append('\n');
+        }
+        csv.append("#lsn,77\n");
+        ForkJoinPool pool = new ForkJoinPool(4);
+        List<Task> loaded = new ArrayList<>();
+
+        long lsn = new ParallelCsvLoader("#lsn,", ParallelCsvLoaderTest::parse, pool, 64)
+                .load(write(csv.toString()), loaded::add);
+
+        assertEquals(77, lsn);
+        assertEquals(500, loaded.size());
+        for (int i = 0; i < loaded.size(); i++) {
+            assertEquals(i + 1, loaded.get(i).getId());
+            assertEquals("Task " + (i + 1), loaded.get(i).getName());
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    void lineLongerThanChunkIsRead() throws Exception {
+        String longName = "x".repeat(1000);
+        List<Task> loaded = new ArrayList<>();
+
+        new ParallelCsvLoader("#lsn,", ParallelCsvLoaderTest::parse, ForkJoinPool.commonPool(), 16)
+                .load(write("id,name\n1," + longName + "\n2,short"), loaded::add);
+
+        assertEquals(2, loaded.size());
+        assertEquals(longName, loaded.get(0).getName());
+        assertEquals("short", loaded.get(1).getName());
+    }
+
+    @Test
+    void quotedNewlinesDoNotSplitRecords() throws Exception {
+        StringBuilder csv = new StringBuilder("id,type,name,status,description,epic,startTime,durationMinutes\n");
+        for (int i = 1; i <= 200; i++) {
+            csv.append(i).append(",TASK,\"line\n").append(i).append("\",NEW,\"a,\"\"b\"\"\",,,\n");
+        }
+        TaskCsvCodec codec = new TaskCsvCodec();
+        List<Task> loaded = new ArrayList<>();
+
+        new ParallelCsvLoader("#lsn,", codec::parse, new ForkJoinPool(1), 32).load(write(csv.toString()), loaded::add);
+
+        assertEquals(200, loaded.size());
+        assertEquals("line\n200", loaded.get(199).getName());
+        assertEquals("a,\"b\"", loaded.get(199).getDescription());
+    }
+
+    @Test
+    void headerOnlyFileLoadsNothing() throws Exception {
+        List<Task> loaded = new ArrayList<>();
+        long lsn = new ParallelCsvLoader("#lsn,", ParallelCsvLoaderTest::parse).load(write("id,name\n"), loaded::add);
+        assertEquals(0, lsn);
+        assertTrue(loaded.isEmpty());
+    }
+
+    @Test
+    void parseErrorKeepsItsType() throws Exception {
+        File file = write("id,name\n1,ok\nbroken,row\n");
+        assertThrows(NumberFormatException.class, () ->
+                new ParallelCsvLoader("#lsn,", ParallelCsvLoaderTest::parse).load(file, task -> { }));
+    }
+}
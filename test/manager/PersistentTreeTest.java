@@ -0,0 +1,65 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersistentTreeTest {
+
+    @Test
+    void randomPutsAndRemovesMatchTreeMap() {
+        Random random = new Random(7);
+        PersistentTree<Integer, String> tree = PersistentTree.empty(Comparator.naturalOrder());
+        TreeMap<Integer, String> expected = new TreeMap<>();
+        for (int i = 0; i < 5000; i++) {
+            int key = random.nextInt(500);
+            if (random.nextInt(3) == 0) {
+                tree = tree.remove(key);
+                expected.remove(key);
+            } else {
+                tree = tree.put(key, "v" + i);
+                expected.put(key, "v" + i);
+            }
+        }
+        assertEquals(expected.size(), tree.size());
+        assertEquals(new ArrayList<>(expected.values()), tree.values());
+        for (int key = 0; key < 500; key++) assertEquals(expected.get(key), tree.get(key));
+    }
+
+    @Test
+    void oldVersionIsNotChangedByNewOnes() {
+        PersistentTree<Integer, String> first = PersistentTree.empty(Comparator.naturalOrder());
+        for (int i = 0; i < 100; i++) first = first.put(i, "a" + i);
+
+        PersistentTree<Integer, String> second = first.put(5, "b").remove(50).put(200, "c");
+
+        assertEquals(100, first.size());
+        assertEquals("a5", first.get(5));
+        assertEquals("a50", first.get(50));
+        assertNull(first.get(200));
+        assertEquals(100, second.size());
+        assertEquals("b", second.get(5));
+        assertNull(second.get(50));
+        assertSame(first, first.remove(1000));
+    }
+
+    @Test
+    void valuesAfterReturnsPageAndReportsRest() {
+        PersistentTree<Integer, Integer> tree = PersistentTree.empty(Comparator.naturalOrder());
+        for (int i = 0; i < 10; i++) tree = tree.put(i * 2, i * 2);
+
+        List<Integer> page = new ArrayList<>();
+        assertTrue(tree.valuesAfter(5, 3, page));
+        assertEquals(List.of(6, 8, 10), page);
+
+        page.clear();
+        assertFalse(tree.valuesAfter(14, 3, page));
+        assertEquals(List.of(16, 18), page);
+    }
+}
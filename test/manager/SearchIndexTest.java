@@ -0,0 +1,95 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+import tasks.Task;
+import tasks.TaskStatus;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchIndexTest {
+
+    private static Task task(int id, String name, String description) {
+        return new Task(id, name, description, TaskStatus.NEW);
+    }
+
+    @Test
+    void tokenizeSplitsOnPunctuationAndLowercases() {
+        assertEquals(List.of("fix", "http", "500", "ошибку", "в", "api"),
+                SearchIndex.tokenize("Fix HTTP-500: ошибку в API!"));
+        assertTrue(SearchIndex.tokenize(null).isEmpty());
+    }
+
+    @Test
+    void allWordsMustMatchAsPrefixes() {
+        SearchIndex index = new SearchIndex();
+        index.put(task(1, "Release notes", "write for version 2"));
+        index.put(task(2, "Release build", "ci pipeline"));
+        index.put(task(3, "Notes", "meeting"));
+
+        assertEquals(List.of(1), index.search("rel note", 10));
+        assertEquals(List.of(1, 2), index.search("release", 10));
+        assertEquals(List.of(), index.search("release meeting", 10));
+        assertEquals(List.of(), index.search("   ", 10));
+    }
+
+    @Test
+    void nameAndExactMatchesRankHigher() {
+        SearchIndex index = new SearchIndex();
+        index.put(task(1, "Other", "deploy"));
+        index.put(task(2, "Deploy", "backend"));
+        index.put(task(3, "Deployment", "frontend"));
+
+        assertEquals(List.of(2, 3, 1), index.search("deploy", 10));
+        assertEquals(List.of(2), index.search("deploy", 1));
+    }
+
+    @Test
+    void updateAndRemoveReplaceWords() {
+        SearchIndex index = new SearchIndex();
+        index.put(task(1, "Old name", ""));
+        index.put(task(1, "New name", ""));
+
+        assertEquals(List.of(), index.search("old", 10));
+        assertEquals(List.of(1), index.search("new", 10));
+
+        index.remove(1);
+        assertEquals(List.of(), index.search("name", 10));
+    }
+
+    @Test
+    void repeatedUpdatesAndDeletesMatchFullScan() {
+        Random random = new Random(11);
+        String[] vocabulary = {"alpha", "alps", "beta", "bet", "gamma", "delta", "deploy", "design"};
+        SearchIndex index = new SearchIndex();
+        Map<Integer, String> texts = new HashMap<>();
+
+        for (int step = 0; step < 20_000; step++) {
+            int id = random.nextInt(200) + 1;
+            if (random.nextInt(5) == 0) {
+                texts.remove(id);
+                index.remove(id);
+            } else {
+                String text = vocabulary[random.nextInt(vocabulary.length)] + " "
+                        + vocabulary[random.nextInt(vocabulary.length)];
+                texts.put(id, text);
+                index.put(task(id, text, ""));
+            }
+            if (step % 500 == 0) {
+                String prefix = vocabulary[random.nextInt(vocabulary.length)].substring(0, 2 + random.nextInt(2));
+                TreeSet<Integer> expected = new TreeSet<>();
+                texts.forEach((key, text) -> {
+                    for (String word : text.split(" ")) {
+                        if (word.startsWith(prefix)) expected.add(key);
+                    }
+                });
+                assertEquals(expected, new TreeSet<>(index.search(prefix, 1_000)));
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package manager;
+
+import exception.IntersectionException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tasks.*;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SegmentedFileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskManager> {
+    @TempDir
+    Path tempDir;
+
+    private File dataFile;
+
+    @Override
+    protected FileBackedTaskManager makeManager() {
+        dataFile = tempDir.resolve("tasks.csv").toFile();
+        return new FileBackedTaskManager(dataFile, StorageMode.SEGMENTED);
+    }
+
+    private FileBackedTaskManager reload() {
+        return FileBackedTaskManager.loadFromFile(dataFile, StorageMode.SEGMENTED);
+    }
+
+    private File segment(String name) {
+        return new File(dataFile.getPath() + "." + name);
+    }
+
+    @Test
+    void tasksAreSplitByTypeAndIdRange() throws Exception {
+        manager.setMaxStaleness(Duration.ofHours(1));
+        for (int i = 0; i < TaskSegments.RANGE + 10; i++) {
+            manager.createTask(new Task("Task " + i, "d", TaskStatus.NEW));
+        }
+        int epicId = addEpic("Epic 1");
+        int subtaskId = addSub(epicId, "Subtask 1", TaskStatus.DONE, LocalDateTime.of(2025, 1, 1, 10, 0), 20);
+        manager.flush();
+
+        assertTrue(TaskSegments.isManifest(dataFile));
+        assertTrue(segment("task-0").exists());
+        assertTrue(segment("task-1").exists());
+        assertTrue(segment("epic-1").exists());
+        assertTrue(segment("subtask-1").exists());
+
+        FileBackedTaskManager loaded = reload();
+        assertEquals(TaskSegments.RANGE + 10, loaded.getTasks().size());
+        assertEquals(TaskStatus.DONE, loaded.getEpicById(epicId).getTaskStatus());
+        assertEquals(subtaskId, loaded.getEpicById(epicId).getSubtasks().getFirst().getId());
+    }
+
+    @Test
+    void changeRewritesOnlyItsSegment() {
+        int taskId = manager.createTask(new Task("Task", "d", TaskStatus.NEW));
+        int epicId = addEpic("Epic 1");
+        assertTrue(segment("epic-0").setLastModified(0));
+
+        manager.updateTask(new Task(taskId, "Task 2", "d", TaskStatus.IN_PROGRESS));
+
+        assertEquals(0, segment("epic-0").lastModified());
+        assertEquals("Task 2", reload().getTasksById(taskId).getName());
+        assertEquals("Epic 1", reload().getEpicById(epicId).getName());
+    }
+
+    @Test
+    void emptySegmentIsRemoved() {
+        int taskId = manager.createTask(new Task("Task", "d", TaskStatus.NEW));
+        assertTrue(segment("task-0").exists());
+
+        manager.deleteTaskById(taskId);
+
+        assertFalse(segment("task-0").exists());
+        assertTrue(reload().getTasks().isEmpty());
+    }
+
+    @Test
+    void doneSegmentStaysColdUntilAccessed() {
+        int doneId = manager.createTask(new Task("Done", "d", TaskStatus.DONE));
+        addEpic("Epic 1");
+
+        FileBackedTaskManager loaded = reload();
+        assertEquals(1, loaded.coldSegments());
+        assertEquals(1, loaded.getEpics().size());
+
+        assertEquals("Done", loaded.getTasksById(doneId).getName());
+        assertEquals(0, loaded.coldSegments());
+    }
+
+    @Test
+    void coldSegmentIsKeptWhenNewTaskLandsInItsRange() {
+        manager.createTask(new Task("Done 1", "d", TaskStatus.DONE));
+        manager.createTask(new Task("Done 2", "d", TaskStatus.DONE));
+
+        FileBackedTaskManager loaded = reload();
+        int newId = loaded.createTask(new Task("New", "d", TaskStatus.NEW));
+
+        assertEquals(3, reload().getTasks().size());
+        assertEquals("New", reload().getTasksById(newId).getName());
+    }
+
+    @Test
+    void overlapWithColdTaskIsDetected() {
+        Task done = newTask("Done", LocalDateTime.of(2025, 1, 1, 9, 0), 60);
+        done.setTaskStatus(TaskStatus.DONE);
+        manager.createTask(done);
+
+        FileBackedTaskManager loaded = reload();
+        assertEquals(1, loaded.coldSegments());
+        assertFalse(loaded.hasAnyOverlap(newTask("Later", LocalDateTime.of(2025, 1, 2, 9, 0), 60)));
+        assertEquals(1, loaded.coldSegments());
+
+        assertThrows(IntersectionException.class,
+                () -> loaded.createTask(newTask("Clash", LocalDateTime.of(2025, 1, 1, 9, 30), 10)));
+    }
+
+    @Test
+    void idsAreNotReusedAfterReload() {
+        manager.createTask(new Task("A", "d", TaskStatus.NEW));
+        int last = manager.createTask(new Task("B", "d", TaskStatus.NEW));
+        manager.deleteTaskById(last);
+
+        assertTrue(reload().createTask(new Task("C", "d", TaskStatus.NEW)) > last);
+    }
+
+    @Test
+    void snapshotIsConvertedToSegmentsOnLoad() throws Exception {
+        FileBackedTaskManager snapshot = new FileBackedTaskManager(dataFile);
+        int id = snapshot.createTask(new Task("From CSV", "d", TaskStatus.NEW));
+
+        FileBackedTaskManager segmented = reload();
+
+        assertTrue(TaskSegments.isManifest(dataFile));
+        assertEquals("From CSV", segmented.getTasksById(id).getName());
+        assertEquals("From CSV", FileBackedTaskManager.loadFromFile(dataFile).getTasksById(id).getName());
+    }
+    @Test
+    void interruptedBatchOverridesColdSegment() {
+        int id = manager.createTask(new Task("Old", "d", TaskStatus.DONE));
+        // пакет уже в журнале, а запись сегментов не успела начаться
+        manager.close();
+        StringBuilder row = new StringBuilder();
+        new TaskCsvCodec().write(new Task(id, "New", "d", TaskStatus.DONE), row);
+        TaskJournal journal = new TaskJournal(dataFile);
+        journal.appendBatch(List.<String[]>of(new String[]{TaskJournal.PUT, row.toString()}));
+        journal.close();
+
+        assertEquals("New", reload().getTasksById(id).getName());
+        assertFalse(new File(dataFile.getPath() + ".journal").exists());
+        assertEquals("New", reload().getTasksById(id).getName());
+    }
+
+    @Test
+    void emptiedSegmentOutlivesOldManifest() throws Exception {
+        TaskSegments segments = new TaskSegments(dataFile);
+        Task task = new Task(1, "Task", "d", TaskStatus.NEW);
+        segments.write(TaskType.TASK, 0, List.of(task), false);
+        segments.writeManifest(2, false);
+
+        // сбой до записи нового манифеста: старый ещё ссылается на сегмент
+        segments.write(TaskType.TASK, 0, List.of(), false);
+        TaskSegments old = new TaskSegments(dataFile);
+        old.readManifest();
+        assertEquals("Task", old.read("task-0").getFirst().getName());
+
+        segments.writeManifest(2, false);
+        assertFalse(segment("task-0").exists());
+    }
+}
@@ -0,0 +1,54 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SortedLongSetTest {
+
+    @Test
+    void randomAddsAndRemovesMatchTreeSet() {
+        Random random = new Random(11);
+        SortedLongSet set = new SortedLongSet();
+        TreeSet<Long> expected = new TreeSet<>();
+        for (int i = 0; i < 50_000; i++) {
+            long key = random.nextInt(5000) - 2500L;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), set.remove(key));
+            } else {
+                assertEquals(expected.add(key), set.add(key));
+            }
+        }
+        assertEquals(expected.size(), set.size());
+        List<Long> all = new ArrayList<>();
+        set.forEachAfter(SortedLongSet.NONE, all::add);
+        assertEquals(new ArrayList<>(expected), all);
+        for (long key = -2600; key < 2600; key += 7) {
+            Long higher = expected.higher(key);
+            Long lower = expected.lower(key);
+            assertEquals(higher == null ? SortedLongSet.NONE : higher, set.higher(key));
+            assertEquals(lower == null ? SortedLongSet.NONE : lower, set.lower(key));
+        }
+    }
+
+    @Test
+    void ascendingKeysFillChunksAndStopEarly() {
+        SortedLongSet set = new SortedLongSet();
+        for (long key = 0; key < 10_000; key++) set.add(key);
+
+        List<Long> page = new ArrayList<>();
+        set.forEachAfter(4999, key -> {
+            page.add(key);
+            return page.size() < 3;
+        });
+
+        assertEquals(List.of(5000L, 5001L, 5002L), page);
+        assertEquals(SortedLongSet.NONE, set.higher(9999));
+        assertEquals(SortedLongSet.NONE, set.lower(0));
+    }
+}
@@ -0,0 +1,163 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+import tasks.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TaskCsvCodecTest {
+    private static final String[] PIECES = {"a", "Задача", ",", "\"", "\n", "\r\n", " ", "😀", "x,\"y\"", ""};
+
+    private final TaskCsvCodec codec = new TaskCsvCodec();
+
+    private String write(Task task) {
+        StringBuilder row = new StringBuilder();
+        codec.write(task, row);
+        return row.toString();
+    }
+
+    private static String randomText(Random random) {
+        StringBuilder text = new StringBuilder();
+        int pieces = random.nextInt(6);
+        for (int i = 0; i < pieces; i++) {
+            text.append(PIECES[random.nextInt(PIECES.length)]);
+        }
+        return text.toString();
+    }
+
+    private static Task randomTask(Random random, int id) {
+        String name = randomText(random);
+        String description = randomText(random);
+        TaskStatus status = TaskStatus.values()[random.nextInt(TaskStatus.values().length)];
+        Task task;
+        switch (random.nextInt(3)) {
+            case 0:
+                task = new Task(name, description, status);
+                break;
+            case 1:
+                task = new Epic(name, description);
+                task.setTaskStatus(status);
+                return withId(task, id);
+            default:
+                task = new Subtask(name, description, status, random.nextInt(1000));
+        }
+        if (random.nextBoolean()) {
+            int nano = random.nextInt(4) == 0 ? random.nextInt(1_000_000_000) : random.nextInt(3) * 1_000_000;
+            task.setStartTime(LocalDateTime.of(1900 + random.nextInt(200), 1 + random.nextInt(12),
+                    1 + random.nextInt(28), random.nextInt(24), random.nextInt(60), random.nextInt(60), nano));
+            task.setDuration(Duration.ofMinutes(random.nextInt(10_000)));
+        }
+        return withId(task, id);
+    }
+
+    private static Task withId(Task task, int id) {
+        task.setId(id);
+        return task;
+    }
+
+    @Test
+    void randomTasksSurviveRoundTrip() {
+        Random random = new Random(20250101);
+        for (int i = 1; i <= 5000; i++) {
+            Task task = randomTask(random, i);
+            String row = write(task);
+            assertEquals(row.length(), TaskCsvCodec.recordEnd(row + "\n", 0), row);
+
+            Task parsed = codec.parse(row);
+            assertEquals(task.getType(), parsed.getType(), row);
+            assertEquals(task.getId(), parsed.getId(), row);
+            assertEquals(task.getName(), parsed.getName(), row);
+            assertEquals(task.getDescription(), parsed.getDescription(), row);
+            assertEquals(task.getTaskStatus(), parsed.getTaskStatus(), row);
+            if (task instanceof Subtask) {
+                assertEquals(((Subtask) task).getEpicId(), ((Subtask) parsed).getEpicId(), row);
+            }
+            if (!(task instanceof Epic)) {
+                assertEquals(task.getStartTime(), parsed.getStartTime(), row);
+                assertEquals(task.getDuration(), parsed.getDuration(), row);
+            }
+        }
+    }
+
+    @Test
+    void plainRowsAreWrittenWithoutQuotes() {
+        Task task = new Task(1, "Task 1", "Description 1", TaskStatus.NEW);
+        task.setStartTime(LocalDateTime.of(2025, 1, 1, 9, 0));
+        task.setDuration(Duration.ofMinutes(30));
+
+        assertEquals("1,TASK,Task 1,NEW,Description 1,,2025-01-01T09:00,30", write(task));
+    }
+
+    @Test
+    void fieldsWithSeparatorsAreQuoted() {
+        Task task = new Task(2, "a,b", "say \"hi\"\nbye", TaskStatus.DONE);
+
+        assertEquals("2,TASK,\"a,b\",DONE,\"say \"\"hi\"\"\nbye\",,,", write(task));
+    }
+
+    @Test
+    void rowsWrittenBeforeQuotingAreStillRead() {
+        Task task = codec.parse("3,TASK,Old,IN_PROGRESS,d");
+        assertEquals("Old", task.getName());
+        assertNull(task.getStartTime());
+
+        Subtask subtask = (Subtask) codec.parse("4,SUBTASK,Sub,NEW,d,3,2025-01-01T10:00:15.5,20");
+        assertEquals(3, subtask.getEpicId());
+        assertEquals(LocalDateTime.of(2025, 1, 1, 10, 0, 15, 500_000_000), subtask.getStartTime());
+    }
+
+    @Test
+    void yearsOutsideFourDigitsUseIsoFallback() {
+        Task task = new Task(5, "Far", "", TaskStatus.NEW);
+        task.setStartTime(LocalDateTime.of(12345, 6, 7, 8, 9));
+        task.setDuration(Duration.ofMinutes(1));
+
+        assertEquals(task.getStartTime(), codec.parse(write(task)).getStartTime());
+    }
+
+    @Test
+    void malformedRowsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> codec.parse("1,UNKNOWN,n,NEW,d,,,"));
+        assertThrows(IllegalArgumentException.class, () -> codec.parse("1,TASK,\"open,NEW,d,,,"));
+        assertThrows(IllegalArgumentException.class, () -> codec.parse("1,TASK,n"));
+        assertThrows(IllegalArgumentException.class, () -> codec.parse("1,SUBTASK,n,NEW,d,,,"));
+        assertThrows(NumberFormatException.class, () -> codec.parse("x,TASK,n,NEW,d,,,"));
+    }
+
+    @Test
+    void recordEndSkipsNewlinesInsideQuotes() {
+        String text = "1,TASK,\"a\nb\",NEW,d,,,\n2,TASK,c,NEW,d,,,\n";
+        int first = TaskCsvCodec.recordEnd(text, 0);
+        assertEquals("1,TASK,\"a\nb\",NEW,d,,,", text.substring(0, first));
+        assertEquals(text.length() - 1, TaskCsvCodec.recordEnd(text, first + 1));
+
+        byte[] bytes = "1,\"x\ny\"\n2,\"z\n".getBytes();
+        assertEquals(7, TaskCsvCodec.lastRecordEnd(bytes, bytes.length));
+    }
+
+    @Test
+    void quoteInsideUnquotedFieldDoesNotOpenQuotes() {
+        // старая строка без экранирования: кавычка посреди названия
+        String text = "1,TASK,say \"hi,NEW,d,,,\n2,TASK,c,NEW,d,,,\n";
+        int first = TaskCsvCodec.recordEnd(text, 0);
+        assertEquals("1,TASK,say \"hi,NEW,d,,,", text.substring(0, first));
+        assertEquals("say \"hi", codec.parse(text.substring(0, first)).getName());
+
+        byte[] bytes = text.getBytes();
+        assertEquals(text.length() - 1, TaskCsvCodec.lastRecordEnd(bytes, bytes.length));
+    }
+
+    @Test
+    void nullAndEmptyTextAreKeptApart() {
+        Task empty = codec.parse(write(new Task(1, "", "", TaskStatus.NEW)));
+        assertEquals("", empty.getName());
+        assertEquals("", empty.getDescription());
+
+        Task missing = codec.parse(write(new Task(2, "Name", null, TaskStatus.NEW)));
+        assertNull(missing.getDescription());
+    }
+}
@@ -0,0 +1,78 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskStatus;
+import tasks.TaskType;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TaskIndexTest {
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    private static Task task(int id, TaskStatus status, Long startMinute) {
+        Task task = id % 3 == 0 ? new Subtask("S" + id, "", status, id % 2) : new Task(id, "T" + id, "", status);
+        task.setId(id);
+        if (startMinute != null) {
+            task.setStartTime(BASE.plusMinutes(startMinute));
+            task.setDuration(Duration.ofMinutes(10));
+        }
+        return task;
+    }
+
+    @Test
+    void randomQueriesMatchFullScan() {
+        Random random = new Random(5);
+        TaskIndex index = new TaskIndex();
+        Map<Integer, Task> stored = new TreeMap<>();
+        TaskStatus[] statuses = TaskStatus.values();
+
+        for (int step = 0; step < 20_000; step++) {
+            int id = random.nextInt(500) + 1;
+            if (random.nextInt(4) == 0) {
+                stored.remove(id);
+                index.remove(id);
+            } else {
+                Task task = task(id, statuses[random.nextInt(statuses.length)],
+                        random.nextInt(5) == 0 ? null : (long) random.nextInt(1_000));
+                stored.put(id, task);
+                index.put(task);
+            }
+
+            if (step % 100 == 0) {
+                TaskQuery query = random.nextBoolean() ? TaskQuery.all()
+                        : TaskQuery.status(statuses[random.nextInt(statuses.length)]);
+                if (random.nextBoolean()) query.type(random.nextBoolean() ? TaskType.TASK : TaskType.SUBTASK);
+                if (random.nextBoolean()) {
+                    long from = random.nextInt(900);
+                    query.startBetween(BASE.plusMinutes(from), BASE.plusMinutes(from + random.nextInt(100) + 1));
+                }
+                List<Integer> expected = stored.values().stream().filter(query::matches).map(Task::getId).toList();
+                assertEquals(expected, index.select(query, null));
+            }
+        }
+    }
+
+    @Test
+    void statusChangedInPlaceIsReindexedOnPut() {
+        TaskIndex index = new TaskIndex();
+        Task task = task(1, TaskStatus.NEW, 0L);
+        index.put(task);
+
+        task.setTaskStatus(TaskStatus.DONE);
+        index.put(task);
+
+        assertEquals(List.of(), index.select(TaskQuery.status(TaskStatus.NEW), null));
+        assertEquals(List.of(1), index.select(TaskQuery.status(TaskStatus.DONE), null));
+        index.remove(1);
+        assertEquals(List.of(), index.select(TaskQuery.all(), null));
+    }
+}
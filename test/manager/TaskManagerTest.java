@@ -115,6 +115,41 @@ public abstract class TaskManagerTest<T extends TaskManager> {
                 addSub(999, "S", TaskStatus.NEW, LocalDateTime.of(2025, 1, 2, 9, 0), 20));
     }
 
+    @Test
+    void updateSubtaskWithoutKnownEpicChangesNothing() {
+        int epicId = addEpic("E");
+        int sid = addSub(epicId, "S", TaskStatus.NEW, LocalDateTime.of(2025, 1, 2, 9, 0), 20);
+        Subtask orphan = new Subtask("S", "", TaskStatus.DONE, null);
+        orphan.setId(sid);
+        Subtask lost = new Subtask("S", "", TaskStatus.DONE, epicId + 100);
+        lost.setId(sid);
+
+        assertThrows(IllegalArgumentException.class, () -> manager.updateSubtask(orphan));
+        assertThrows(NotFoundException.class, () -> manager.updateSubtask(lost));
+        assertThrows(IllegalArgumentException.class, () -> manager.applyBatch(List.of(Mutation.update(orphan))));
+        assertThrows(NotFoundException.class, () -> manager.applyBatch(List.of(Mutation.update(lost))));
+
+        assertEquals(TaskStatus.NEW, manager.getSubtaskById(sid).getTaskStatus());
+        assertEquals(epicId, manager.getSubtaskById(sid).getEpicId());
+        assertEquals(TaskStatus.NEW, manager.getEpicById(epicId).getTaskStatus());
+    }
+
+    @Test
+    void subtaskMovedToAnotherEpicLeavesTheOldOne() {
+        int first = addEpic("First");
+        int second = addEpic("Second");
+        int sid = addSub(first, "S", TaskStatus.NEW, null, 0);
+        Subtask moved = new Subtask("S", "", TaskStatus.DONE, second);
+        moved.setId(sid);
+
+        manager.updateSubtask(moved);
+
+        assertTrue(manager.getSubtaskFromEpic(first).isEmpty());
+        assertEquals(TaskStatus.NEW, manager.getEpicById(first).getTaskStatus());
+        assertEquals(List.of(sid), ids(manager.getSubtaskFromEpic(second)));
+        assertEquals(TaskStatus.DONE, manager.getEpicById(second).getTaskStatus());
+    }
+
     @Test
     void overlapsPreventedOnCreateAndUpdate() {
         int id1 = add(newTask("A", LocalDateTime.of(2025, 1, 1, 9, 0), 60));
@@ -340,5 +375,282 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         assertEquals(task2, history.getFirst());
 
     }
-}
 
+    @Test
+    void nextFreeSlotSkipsGapsThatAreTooShort() {
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 9, 0);
+        add(newTask("A", base, 60));
+        add(newTask("B", base.plusMinutes(80), 40));
+        int epicId = addEpic("E");
+        addSub(epicId, "S", TaskStatus.NEW, base.plusMinutes(180), 60);
+
+        assertEquals(base.minusMinutes(30), manager.findNextFreeSlot(Duration.ofMinutes(30), base.minusMinutes(30)));
+        assertEquals(base.plusMinutes(60), manager.findNextFreeSlot(Duration.ofMinutes(20), base.plusMinutes(10)));
+        assertEquals(base.plusMinutes(120), manager.findNextFreeSlot(Duration.ofMinutes(30), base));
+        assertEquals(base.plusMinutes(240), manager.findNextFreeSlot(Duration.ofMinutes(90), base));
+        assertEquals(base.plusDays(1), manager.findNextFreeSlot(Duration.ofMinutes(90), base.plusDays(1)));
+    }
+
+    @Test
+    void zeroLengthSlotIsFoundWhereZeroLengthTaskFits() {
+        LocalDateTime base = LocalDateTime.of(2025, 1, 3, 9, 0);
+        add(newTask("A", base, 60));
+        add(newTask("B", base.plusMinutes(60), 60));
+
+        assertEquals(base, manager.findNextFreeSlot(Duration.ZERO, base));
+        assertEquals(base.plusMinutes(60), manager.findNextFreeSlot(Duration.ZERO, base.plusMinutes(10)));
+        assertEquals(base.plusMinutes(120), manager.findNextFreeSlot(Duration.ZERO, base.plusMinutes(70)));
+        for (LocalDateTime at : List.of(base, base.plusMinutes(60))) {
+            Task point = newTask("Point", at, 0);
+            assertDoesNotThrow(() -> manager.createTask(point));
+        }
+    }
+
+    @Test
+    void freeSlotsAreClippedToRangeAndFilteredByLength() {
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 9, 0);
+        add(newTask("A", base, 60));
+        add(newTask("B", base.plusMinutes(80), 40));
+        add(new Task("No time", "", TaskStatus.NEW));
+
+        List<TimeSlot> slots = manager.freeSlots(base.minusMinutes(30), base.plusMinutes(180), Duration.ofMinutes(20));
+
+        assertEquals(List.of(
+                new TimeSlot(base.minusMinutes(30), base),
+                new TimeSlot(base.plusMinutes(60), base.plusMinutes(80)),
+                new TimeSlot(base.plusMinutes(120), base.plusMinutes(180))), slots);
+        assertEquals(List.of(new TimeSlot(base.plusMinutes(120), base.plusMinutes(180))),
+                manager.freeSlots(base.plusMinutes(30), base.plusMinutes(180), Duration.ofMinutes(30)));
+    }
+
+    @Test
+    void freeSlotsFollowDeletesAndUpdates() {
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 9, 0);
+        int first = add(newTask("A", base, 60));
+        add(newTask("B", base.plusMinutes(60), 60));
+
+        assertEquals(base.plusMinutes(120), manager.findNextFreeSlot(Duration.ofMinutes(30), base));
+        manager.deleteTaskById(first);
+        assertEquals(base, manager.findNextFreeSlot(Duration.ofMinutes(30), base));
+
+        Task moved = newTask("B", base.plusMinutes(10), 30);
+        moved.setId(first + 1);
+        manager.updateTask(moved);
+        assertEquals(List.of(
+                new TimeSlot(base, base.plusMinutes(10)),
+                new TimeSlot(base.plusMinutes(40), base.plusMinutes(120))),
+                manager.freeSlots(base, base.plusMinutes(120), Duration.ZERO));
+    }
+
+    @Test
+    void tasksArePagedByIdAndSkipDeleted() {
+        for (int i = 0; i < 7; i++) {
+            manager.createTask(new Task("Task " + i, "", TaskStatus.NEW));
+        }
+        List<Task> all = manager.getTasks();
+
+        Page<Task> first = manager.getTasks(null, 3);
+        assertEquals(all.subList(0, 3), first.getItems());
+        assertTrue(first.hasNext());
+
+        manager.deleteTaskById(all.get(3).getId());
+        Page<Task> second = manager.getTasks(first.getNextCursor(), 3);
+        assertEquals(all.subList(4, 7), second.getItems());
+        assertFalse(second.hasNext());
+        assertThrows(IllegalArgumentException.class, () -> manager.getTasks("abc", 3));
+        assertThrows(IllegalArgumentException.class, () -> manager.getTasks(null, 0));
+    }
+
+    @Test
+    void prioritizedPagesFollowStartTime() {
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 9, 0);
+        int late = add(newTask("Late", base.plusHours(3), 30));
+        int early = add(newTask("Early", base, 30));
+        int epicId = addEpic("E");
+        int middle = addSub(epicId, "Middle", TaskStatus.NEW, base.plusHours(1), 30);
+
+        Page<Task> first = manager.getPrioritizedTasks(null, 2);
+        assertEquals(List.of(early, middle), first.getItems().stream().map(Task::getId).toList());
+        Page<Task> second = manager.getPrioritizedTasks(first.getNextCursor(), 2);
+        assertEquals(List.of(late), second.getItems().stream().map(Task::getId).toList());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void prioritizedRangeIncludesStartAndExcludesEnd() {
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 9, 0);
+        int before = add(newTask("Before", base.minusHours(1), 30));
+        int first = add(newTask("First", base, 30));
+        int epicId = addEpic("E");
+        int second = addSub(epicId, "Second", TaskStatus.NEW, base.plusHours(1), 30);
+        int third = add(newTask("Third", base.plusHours(2), 30));
+        int atEnd = add(newTask("AtEnd", base.plusHours(3), 30));
+        manager.createTask(new Task("NoStart", "", TaskStatus.NEW));
+
+        assertEquals(List.of(first, second, third), manager.getPrioritizedBetween(base, base.plusHours(3)).stream()
+                .map(Task::getId).toList());
+        assertEquals(List.of(before, first), manager.getPrioritizedBetween(null, base.plusMinutes(1)).stream()
+                .map(Task::getId).toList());
+        assertEquals(List.of(second, third, atEnd), manager.getPrioritizedBetween(base.plusSeconds(1), null).stream()
+                .map(Task::getId).toList());
+        assertTrue(manager.getPrioritizedBetween(base, base).isEmpty());
+
+        Page<Task> page = manager.getPrioritizedBetween(base, base.plusHours(3), null, 2);
+        assertEquals(List.of(first, second), page.getItems().stream().map(Task::getId).toList());
+        page = manager.getPrioritizedBetween(base, base.plusHours(3), page.getNextCursor(), 2);
+        assertEquals(List.of(third), page.getItems().stream().map(Task::getId).toList());
+        assertNull(page.getNextCursor());
+        // курсор за пределами диапазона не выводит за его границы
+        String afterBefore = manager.getPrioritizedTasks(null, 1).getNextCursor();
+        assertEquals(first, manager.getPrioritizedBetween(base.minusMinutes(30), null, afterBefore, 1).getItems()
+                .getFirst().getId());
+        String afterThird = manager.getPrioritizedTasks(null, 4).getNextCursor();
+        assertTrue(manager.getPrioritizedBetween(null, base, afterThird, 5).getItems().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> manager.getPrioritizedBetween(base, base.minusHours(1)));
+    }
+
+    @Test
+    void historyAndEpicsArePaged() {
+        int first = addEpic("E1");
+        int second = addEpic("E2");
+        addSub(second, "S", TaskStatus.DONE, null, 0);
+        manager.getEpicById(first);
+        manager.getEpicById(second);
+
+        Page<Epic> epics = manager.getEpics(String.valueOf(first), 5);
+        assertEquals(1, epics.getItems().size());
+        assertEquals(TaskStatus.DONE, epics.getItems().getFirst().getTaskStatus());
+
+        Page<Task> history = manager.getHistory(null, 1);
+        assertEquals(first, history.getItems().getFirst().getId());
+        assertEquals(second, manager.getHistory(history.getNextCursor(), 1).getItems().getFirst().getId());
+    }
+
+    @Test
+    void findTasksCombinesStatusTypeAndStart() {
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 9, 0);
+        Task done = newTask("Done", base, 30);
+        done.setTaskStatus(TaskStatus.DONE);
+        int doneId = add(done);
+        add(newTask("New", base.plusHours(1), 30));
+        int epicId = addEpic("E");
+        int subId = addSub(epicId, "S", TaskStatus.IN_PROGRESS, base.plusHours(2), 30);
+        int later = addSub(epicId, "S2", TaskStatus.DONE, base.plusDays(2), 30);
+
+        assertEquals(List.of(doneId, later), ids(manager.findTasks(TaskQuery.status(TaskStatus.DONE))));
+        assertEquals(List.of(doneId), ids(manager.findTasks(TaskQuery.status(TaskStatus.DONE)
+                .startBetween(base, base.plusDays(1)))));
+        assertEquals(List.of(epicId, subId), ids(manager.findTasks(TaskQuery.status(TaskStatus.IN_PROGRESS))));
+        assertEquals(List.of(subId, later), ids(manager.findTasks(TaskQuery.all().epic(epicId))));
+        assertEquals(List.of(epicId), ids(manager.findTasks(TaskQuery.all().type(TaskType.EPIC)
+                .startBetween(base.plusHours(2), null))));
+    }
+
+    @Test
+    void findTasksFollowsEpicStatusAndDeletes() {
+        int epicId = addEpic("E");
+        int subId = addSub(epicId, "S", TaskStatus.NEW, null, 0);
+
+        Subtask done = new Subtask("S", "", TaskStatus.DONE, epicId);
+        done.setId(subId);
+        manager.updateSubtask(done);
+        assertEquals(List.of(epicId, subId), ids(manager.findTasks(TaskQuery.status(TaskStatus.DONE))));
+        assertTrue(manager.findTasks(TaskQuery.status(TaskStatus.NEW)).isEmpty());
+
+        manager.deleteEpicById(epicId);
+        assertTrue(manager.findTasks(TaskQuery.all()).isEmpty());
+    }
+
+    @Test
+    void searchFollowsCreateUpdateAndDelete() {
+        int taskId = manager.createTask(new Task("Fix login page", "users cannot sign in", TaskStatus.NEW));
+        int epicId = manager.createEpic(new Epic("Login redesign", "new flow"));
+        addSub(epicId, "Sketch", TaskStatus.NEW, null, 0);
+
+        assertEquals(List.of(taskId, epicId), ids(manager.search("login", 10)));
+        assertEquals(List.of(taskId), ids(manager.search("LOG sign", 10)));
+
+        manager.updateTask(new Task(taskId, "Fix signup page", "d", TaskStatus.NEW));
+        Epic renamed = new Epic("Auth redesign", "new flow");
+        renamed.setId(epicId);
+        manager.updateEpic(renamed);
+        assertTrue(manager.search("login", 10).isEmpty());
+        assertEquals(List.of(epicId), ids(manager.search("auth", 10)));
+
+        manager.deleteEpicById(epicId);
+        assertTrue(manager.search("auth", 10).isEmpty());
+        assertTrue(manager.search("sketch", 10).isEmpty());
+    }
+
+    @Test
+    void batchAppliesAllMutationsAndRecomputesEpics() {
+        int keptId = manager.createTask(new Task("Kept", "d", TaskStatus.NEW));
+        int droppedId = manager.createTask(new Task("Dropped", "d", TaskStatus.NEW));
+        int epicId = addEpic("Epic");
+        Subtask subtask = new Subtask("Sub", "d", TaskStatus.DONE, epicId);
+        subtask.setStartTime(LocalDateTime.of(2025, 1, 1, 9, 0));
+        subtask.setDuration(Duration.ofMinutes(30));
+
+        List<Integer> ids = manager.applyBatch(List.of(
+                Mutation.create(newTask("New", LocalDateTime.of(2025, 1, 1, 10, 0), 30)),
+                Mutation.create(subtask),
+                Mutation.update(new Task(keptId, "Renamed", "d", TaskStatus.IN_PROGRESS)),
+                Mutation.delete(TaskType.TASK, droppedId)));
+
+        assertEquals(4, ids.size());
+        assertEquals(List.of(keptId, droppedId), ids.subList(2, 4));
+        assertEquals("New", manager.getTasksById(ids.get(0)).getName());
+        assertEquals("Renamed", manager.getTasksById(keptId).getName());
+        assertThrows(NotFoundException.class, () -> manager.getTasksById(droppedId));
+        Epic epic = manager.getEpicById(epicId);
+        assertEquals(TaskStatus.DONE, epic.getTaskStatus());
+        assertEquals(LocalDateTime.of(2025, 1, 1, 9, 0), epic.getStartTime());
+        assertEquals(ids.get(1), manager.getSubtaskFromEpic(epicId).getFirst().getId());
+        assertEquals(2, manager.getPrioritizedTasks().size());
+    }
+
+    @Test
+    void failedBatchChangesNothing() {
+        int existingId = add(newTask("Existing", LocalDateTime.of(2025, 1, 1, 9, 0), 60));
+        Mutation fine = Mutation.create(newTask("Fine", LocalDateTime.of(2025, 1, 1, 12, 0), 30));
+
+        assertThrows(IntersectionException.class, () -> manager.applyBatch(List.of(fine,
+                Mutation.create(newTask("Clash", LocalDateTime.of(2025, 1, 1, 9, 30), 10)))));
+        assertThrows(IntersectionException.class, () -> manager.applyBatch(List.of(fine,
+                Mutation.create(newTask("Same slot", LocalDateTime.of(2025, 1, 1, 12, 15), 30)))));
+        assertThrows(NotFoundException.class, () -> manager.applyBatch(List.of(fine,
+                Mutation.delete(TaskType.TASK, existingId + 100))));
+        assertThrows(NotFoundException.class, () -> manager.applyBatch(List.of(fine,
+                Mutation.delete(TaskType.TASK, existingId), Mutation.delete(TaskType.TASK, existingId))));
+
+        assertEquals(List.of(existingId), ids(manager.getTasks()));
+        assertEquals(1, manager.getPrioritizedTasks().size());
+    }
+
+    @Test
+    void batchChecksOnlyTheFinalSchedule() {
+        int first = add(newTask("First", LocalDateTime.of(2025, 1, 1, 9, 0), 60));
+        int second = add(newTask("Second", LocalDateTime.of(2025, 1, 1, 10, 0), 60));
+        int epicId = addEpic("Epic");
+        addSub(epicId, "Sub", TaskStatus.NEW, LocalDateTime.of(2025, 1, 1, 14, 0), 60);
+
+        // по одному такие изменения не пройдут: задачи меняются временем, а место подзадачи
+        // освобождается удалением её эпика позже в том же пакете
+        Task movedFirst = newTask("First", LocalDateTime.of(2025, 1, 1, 10, 0), 60);
+        movedFirst.setId(first);
+        Task movedSecond = newTask("Second", LocalDateTime.of(2025, 1, 1, 9, 0), 60);
+        movedSecond.setId(second);
+        List<Integer> ids = manager.applyBatch(List.of(
+                Mutation.update(movedFirst),
+                Mutation.update(movedSecond),
+                Mutation.create(newTask("Third", LocalDateTime.of(2025, 1, 1, 14, 0), 60)),
+                Mutation.delete(TaskType.EPIC, epicId)));
+
+        assertEquals(List.of(second, first, ids.get(2)), ids(manager.getPrioritizedTasks()));
+        assertTrue(manager.getSubtasks().isEmpty());
+    }
+
+    private static List<Integer> ids(List<? extends Task> found) {
+        return found.stream().map(Task::getId).toList();
+    }
+}
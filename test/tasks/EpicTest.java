@@ -0,0 +1,125 @@
+package tasks;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EpicTest {
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    private static Subtask subtask(int id, Random random) {
+        Subtask subtask = new Subtask("S" + id, "", TaskStatus.values()[random.nextInt(3)], 1);
+        subtask.setId(id);
+        if (random.nextInt(4) > 0) subtask.setStartTime(BASE.plusMinutes(random.nextInt(500)));
+        if (random.nextInt(4) > 0) subtask.setDuration(Duration.ofMinutes(random.nextInt(90)));
+        return subtask;
+    }
+
+    @Test
+    void incrementalAggregatesMatchFullRecalculation() {
+        Random random = new Random(5);
+        Epic epic = new Epic("Epic", "");
+        epic.recalculateTimeFromSubtasks();
+
+        for (int step = 0; step < 5_000; step++) {
+            List<Subtask> current = epic.getSubtasks();
+            int action = random.nextInt(10);
+            if (action < 4 || current.isEmpty()) {
+                epic.addSubtask(subtask(step + 1, random));
+            } else if (action < 7) {
+                epic.updateSubtask(subtask(current.get(random.nextInt(current.size())).getId(), random));
+            } else if (action < 9) {
+                epic.removeSubtask(current.get(random.nextInt(current.size())));
+            } else if (random.nextInt(20) == 0) {
+                epic.clearSubtasks();
+            }
+            epic.refreshTimeFromSubtasks();
+
+            Epic expected = new Epic("Epic", "");
+            expected.setSubtasks(new ArrayList<>(epic.getSubtasks()));
+            expected.recalculateTimeFromSubtasks();
+            assertEquals(expected.getDuration(), epic.getDuration(), "step " + step);
+            assertEquals(expected.getStartTime(), epic.getStartTime(), "step " + step);
+            assertEquals(expected.getEndTime(), epic.getEndTime(), "step " + step);
+            for (TaskStatus status : TaskStatus.values()) {
+                long count = epic.getSubtasks().stream().filter(s -> s.getTaskStatus() == status).count();
+                assertEquals(count, epic.countSubtasks(status), "step " + step);
+            }
+        }
+    }
+
+    @Test
+    void subtaskChangedInPlaceIsRecountedOnUpdate() {
+        Epic epic = new Epic("Epic", "");
+        Subtask subtask = new Subtask("S", "", TaskStatus.NEW, 1);
+        subtask.setId(2);
+        subtask.setStartTime(BASE);
+        subtask.setDuration(Duration.ofMinutes(30));
+        epic.addSubtask(subtask);
+        epic.refreshTimeFromSubtasks();
+
+        subtask.setTaskStatus(TaskStatus.DONE);
+        subtask.setStartTime(BASE.plusHours(1));
+        epic.updateSubtask(subtask);
+        epic.refreshTimeFromSubtasks();
+
+        assertEquals(1, epic.countSubtasks(TaskStatus.DONE));
+        assertEquals(0, epic.countSubtasks(TaskStatus.NEW));
+        assertEquals(BASE.plusHours(1), epic.getStartTime());
+        assertEquals(BASE.plusMinutes(90), epic.getEndTime());
+    }
+
+    @Test
+    void subtaskChangedInPlaceAndRemovedLeavesNoTrace() {
+        Epic epic = new Epic("Epic", "");
+        Subtask first = new Subtask("S1", "", TaskStatus.NEW, 1);
+        first.setId(2);
+        first.setStartTime(BASE.plusHours(10));
+        first.setDuration(Duration.ofMinutes(30));
+        Subtask second = new Subtask("S2", "", TaskStatus.NEW, 1);
+        second.setId(3);
+        second.setStartTime(BASE.plusDays(1).plusHours(10));
+        second.setDuration(Duration.ofMinutes(30));
+        epic.addSubtask(first);
+        epic.addSubtask(second);
+        epic.refreshTimeFromSubtasks();
+
+        second.setTaskStatus(TaskStatus.DONE);
+        second.setStartTime(LocalDateTime.of(2024, 1, 1, 0, 0));
+        epic.removeSubtask(second);
+        epic.refreshTimeFromSubtasks();
+
+        assertEquals(1, epic.countSubtasks(TaskStatus.NEW));
+        assertEquals(0, epic.countSubtasks(TaskStatus.DONE));
+        assertEquals(BASE.plusHours(10), epic.getStartTime());
+        assertEquals(BASE.plusHours(10).plusMinutes(30), epic.getEndTime());
+        assertEquals(Duration.ofMinutes(30), epic.getDuration());
+    }
+
+    @Test
+    void updateKeepsSubtaskPositionAndRemoveUsesId() {
+        Epic epic = new Epic("Epic", "");
+        for (int id = 2; id <= 4; id++) {
+            Subtask subtask = new Subtask("S" + id, "", TaskStatus.NEW, 1);
+            subtask.setId(id);
+            epic.addSubtask(subtask);
+        }
+
+        Subtask changed = new Subtask("S2 changed", "", TaskStatus.DONE, 1);
+        changed.setId(2);
+        epic.updateSubtask(changed);
+        Subtask byId = new Subtask("other name", "", TaskStatus.NEW, 1);
+        byId.setId(3);
+        epic.removeSubtask(byId);
+
+        assertEquals(List.of("S2 changed", "S4"), epic.getSubtasks().stream().map(Task::getName).toList());
+        assertEquals(1, epic.countSubtasks(TaskStatus.DONE));
+        assertThrows(UnsupportedOperationException.class, () -> epic.getSubtasks().clear());
+    }
+}